@@ -0,0 +1,90 @@
+#!/bin/bash
+
+# Compare JMH results against the stored baseline and flag regressions.
+#
+#   ./gradlew jmh
+#   ./jmh-compare.sh                  # compare build/results/jmh/results.json with src/jmh/baseline.json
+#   ./jmh-compare.sh --update         # store the current results as the new baseline
+#
+# A benchmark regresses when it is more than THRESHOLD percent slower than the baseline (default 10,
+# override with JMH_REGRESSION_THRESHOLD) and the two scores' error margins do not overlap.
+# Exits 1 when any benchmark regressed, so it can gate CI.
+
+RESULTS=${JMH_RESULTS:-build/results/jmh/results.json}
+BASELINE=${JMH_BASELINE:-src/jmh/baseline.json}
+THRESHOLD=${JMH_REGRESSION_THRESHOLD:-10}
+
+RED='\033[0;31m'
+GREEN='\033[0;32m'
+YELLOW='\033[1;33m'
+NC='\033[0m' # No Color
+
+if ! command -v jq > /dev/null 2>&1; then
+    echo -e "${RED}[ERROR]${NC} jq is required"
+    exit 2
+fi
+
+if [ ! -f "$RESULTS" ]; then
+    echo -e "${RED}[ERROR]${NC} No results at $RESULTS - run ./gradlew jmh first"
+    exit 2
+fi
+
+if [ "$1" == "--update" ]; then
+    cp "$RESULTS" "$BASELINE"
+    echo -e "${GREEN}[SUCCESS]${NC} Baseline updated: $BASELINE"
+    exit 0
+fi
+
+if [ ! -f "$BASELINE" ]; then
+    echo -e "${YELLOW}[STATUS]${NC} No baseline at $BASELINE - record one with ./jmh-compare.sh --update"
+    exit 2
+fi
+
+# One line per benchmark (name + params): key, mode, unit, baseline score/error, current score/error
+ROWS=$(jq -r -n --slurpfile base "$BASELINE" --slurpfile cur "$RESULTS" '
+    def key: .benchmark + (if .params then "(" + (.params | to_entries | map(.key + "=" + .value) | join(",")) + ")" else "" end);
+    def index: map({key: key, value: .}) | from_entries;
+    ($base[0] | index) as $b
+    | $cur[0][]
+    | key as $k
+    | [$k, .mode, .primaryMetric.scoreUnit,
+       ($b[$k].primaryMetric.score // "NaN"), ($b[$k].primaryMetric.scoreError // 0),
+       .primaryMetric.score, .primaryMetric.scoreError]
+    | map(tostring) | join("\t")')
+
+REGRESSIONS=0
+printf "%-70s %14s %14s %9s\n" "Benchmark" "Baseline" "Current" "Change"
+while IFS=$'\t' read -r name mode unit base_score base_error score error; do
+    if [ "$base_score" == "NaN" ]; then
+        printf "%-70s %14s %14.3f %9s  (new)\n" "$name" "-" "$score" "-"
+        continue
+    fi
+    # "slower" is a higher score for time modes and a lower score for throughput
+    verdict=$(awk -v mode="$mode" -v b="$base_score" -v be="$base_error" -v c="$score" -v ce="$error" -v t="$THRESHOLD" '
+        function abs(x) { return x < 0 ? -x : x }
+        BEGIN {
+            if (be != be + 0) be = 0; if (ce != ce + 0) ce = 0;
+            change = (c - b) / b * 100;
+            slower = (mode == "thrpt") ? -change : change;
+            separated = abs(c - b) > (be + ce);
+            status = (slower > t && separated) ? "REGRESSION" : ((slower < -t && separated) ? "improved" : "ok");
+            printf "%+.1f%%\t%s", change, status;
+        }')
+    change=${verdict%%$'\t'*}
+    status=${verdict##*$'\t'}
+    line=$(printf "%-70s %14.3f %14.3f %9s  %s %s" "$name" "$base_score" "$score" "$change" "$unit" "$status")
+    if [ "$status" == "REGRESSION" ]; then
+        echo -e "${RED}${line}${NC}"
+        REGRESSIONS=$((REGRESSIONS + 1))
+    elif [ "$status" == "improved" ]; then
+        echo -e "${GREEN}${line}${NC}"
+    else
+        echo "$line"
+    fi
+done <<< "$ROWS"
+
+if [ $REGRESSIONS -gt 0 ]; then
+    echo -e "${RED}[ERROR]${NC} $REGRESSIONS benchmark(s) regressed by more than ${THRESHOLD}%"
+    exit 1
+fi
+echo -e "${GREEN}[SUCCESS]${NC} No regressions beyond ${THRESHOLD}%"
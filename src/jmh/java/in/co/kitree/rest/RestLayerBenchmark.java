@@ -0,0 +1,111 @@
+package in.co.kitree.rest;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import in.co.kitree.handlers.*;
+import in.co.kitree.pojos.RequestBody;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * The REST layer around every API request, with handlers stubbed out:
+ * - RestRouter.route for the first registered route, a mid-table route with path params and query
+ *   parameters, the last registered route and a miss (full table scan),
+ * - ResponseConverter.fromHandlerResponse for a success payload, a coded error and a plain string,
+ * - Gson binding of a request body into RequestBody with the Handler's Gson configuration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RestLayerBenchmark {
+
+    private static final String SUCCESS_RESPONSE = "{\"success\":true,\"balance\":1250.5,\"currency\":\"INR\","
+            + "\"realBalance\":1000.0,\"transactions\":["
+            + "{\"id\":\"t1\",\"type\":\"RECHARGE\",\"amount\":500.0,\"createdAt\":1760000000000},"
+            + "{\"id\":\"t2\",\"type\":\"CONSULTATION_CHARGE\",\"amount\":-249.5,\"createdAt\":1760003600000},"
+            + "{\"id\":\"t3\",\"type\":\"BONUS\",\"amount\":100.0,\"createdAt\":1760007200000}]}";
+    private static final String ERROR_RESPONSE = "{\"success\":false,\"errorCode\":\"INSUFFICIENT_BALANCE\","
+            + "\"errorMessage\":\"Wallet balance too low for a 5 minute consultation\"}";
+    private static final String PLAIN_RESPONSE = "Done Successfully!";
+    private static final String REQUEST_JSON = "{\"expertId\":\"expert-3c9a\",\"planId\":\"plan-on-demand\","
+            + "\"consultationType\":\"video\",\"currency\":\"INR\",\"useWalletBalance\":true,\"language\":\"en\","
+            + "\"couponCode\":\"DIWALI20\",\"userTimeZone\":\"Asia/Kolkata\","
+            + "\"appointmentSlot\":{\"startTime\":\"10:00\",\"endTime\":\"10:30\"},"
+            + "\"address\":{\"line1\":\"12 MG Road\",\"city\":\"Bengaluru\",\"pincode\":\"560001\"},"
+            + "\"dateRangeFilter\":[\"2026-01-01\",\"2026-01-31\"]}";
+
+    private RestRouter router;
+    private RequestBody body;
+    // Same configuration as Handler.gson
+    private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+    @Setup
+    public void setUp() throws Exception {
+        WalletHandler walletHandler = stub(WalletHandler.class);
+        ExpertHandler expertHandler = stub(ExpertHandler.class);
+        AdminHandler adminHandler = stub(AdminHandler.class);
+        when(walletHandler.handleRequest(anyString(), any(), any())).thenReturn(SUCCESS_RESPONSE);
+        when(expertHandler.handleRequest(anyString(), any(), any())).thenReturn(SUCCESS_RESPONSE);
+        when(adminHandler.handleRequest(anyString(), any())).thenReturn(PLAIN_RESPONSE);
+
+        router = new RestRouter(adminHandler, walletHandler, stub(ConsultationHandler.class), expertHandler,
+                stub(ProductOrderHandler.class), stub(ServiceHandler.class), stub(AstrologyHandler.class),
+                stub(SessionHandler.class));
+        body = new RequestBody();
+    }
+
+    /**
+     * A mock that doesn't record invocations, so the measured calls don't grow a heap of them.
+     */
+    private static <T> T stub(Class<T> type) {
+        return mock(type, withSettings().stubOnly());
+    }
+
+    @Benchmark
+    public ApiResponse routeFirst() {
+        return router.route("GET", "/api/v1/wallet/balance", "currency=INR", "user-42", body);
+    }
+
+    @Benchmark
+    public ApiResponse routeWithParams() {
+        return router.route("GET", "/api/v1/experts/expert-3c9a/metrics", "category=consultation&type=weekly",
+                "expert-3c9a", body);
+    }
+
+    @Benchmark
+    public ApiResponse routeLast() {
+        return router.route("POST", "/api/v1/admin/remove-admin", null, "admin-1", body);
+    }
+
+    @Benchmark
+    public ApiResponse routeNotFound() {
+        return router.route("GET", "/api/v1/does/not/exist", null, "user-42", body);
+    }
+
+    @Benchmark
+    public ApiResponse convertSuccess() {
+        return ResponseConverter.fromHandlerResponse(SUCCESS_RESPONSE);
+    }
+
+    @Benchmark
+    public ApiResponse convertError() {
+        return ResponseConverter.fromHandlerResponse(ERROR_RESPONSE);
+    }
+
+    @Benchmark
+    public ApiResponse convertPlain() {
+        return ResponseConverter.fromHandlerResponse(PLAIN_RESPONSE);
+    }
+
+    @Benchmark
+    public RequestBody bindRequestBody() {
+        return gson.fromJson(REQUEST_JSON, RequestBody.class);
+    }
+}
@@ -0,0 +1,56 @@
+package in.co.kitree.services;
+
+import com.google.cloud.Timestamp;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OnDemandConsultationService.calculateOverlapFromIntervals on billing-time interval lists.
+ *
+ * "reconnects" is the number of join/leave intervals per participant: 1 is a clean call, 5 a call
+ * with a few network drops, 30 a flaky mobile connection. Both participants' intervals are offset so
+ * every pair is compared and most pairs partially overlap, as in a real reconnecting call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ConsultationOverlapBenchmark {
+
+    @Param({"1", "5", "30"})
+    public int reconnects;
+
+    private OnDemandConsultationService service;
+    private List<OnDemandConsultationService.ParticipantInterval> userIntervals;
+    private List<OnDemandConsultationService.ParticipantInterval> expertIntervals;
+
+    @Setup
+    public void setUp() {
+        service = new OnDemandConsultationService(null);
+        long callStartSeconds = 1_760_000_000L;
+        userIntervals = intervals(callStartSeconds, reconnects, 0);
+        expertIntervals = intervals(callStartSeconds, reconnects, 7);
+    }
+
+    @Benchmark
+    public Long overlap() {
+        return service.calculateOverlapFromIntervals(userIntervals, expertIntervals, 3600L);
+    }
+
+    /**
+     * A 30 minute call split into the given number of intervals with 10 second gaps.
+     */
+    private static List<OnDemandConsultationService.ParticipantInterval> intervals(long startSeconds, int count, long offsetSeconds) {
+        List<OnDemandConsultationService.ParticipantInterval> intervals = new ArrayList<>();
+        long length = 1800 / count;
+        for (int i = 0; i < count; i++) {
+            long joined = startSeconds + offsetSeconds + i * length;
+            long left = joined + length - 10;
+            intervals.add(new OnDemandConsultationService.ParticipantInterval(
+                    Timestamp.ofTimeSecondsAndNanos(joined, 0), Timestamp.ofTimeSecondsAndNanos(left, 0)));
+        }
+        return intervals;
+    }
+}
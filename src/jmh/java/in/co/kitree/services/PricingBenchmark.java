@@ -0,0 +1,81 @@
+package in.co.kitree.services;
+
+import in.co.kitree.pojos.Coupon;
+import in.co.kitree.pojos.CouponResult;
+import in.co.kitree.pojos.FirebaseUser;
+import in.co.kitree.pojos.PayoutBreakdown;
+import in.co.kitree.pojos.ServicePlan;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checkout and payout arithmetic: PayoutCalculationService.calculate for a mixed gateway + wallet
+ * charge, and CouponService.applyCoupon for a valid percentage coupon (every check passes, so the
+ * whole validation chain runs) and an expired one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PricingBenchmark {
+
+    // Inputs live in non-final fields so the JIT can't constant-fold calculate
+    private double gatewayAmount = 499.0;
+    private double walletDeduction = 1000.0;
+    private double realRatio = 0.85;
+    private double platformFeePercent = 12.5;
+    private ServicePlan plan;
+    private FirebaseUser user;
+    private Coupon validCoupon;
+    private Coupon expiredCoupon;
+
+    @Setup
+    public void setUp() {
+        plan = new ServicePlan();
+        plan.setAmount(1499.0);
+
+        user = new FirebaseUser();
+        user.setUid("user-42");
+        user.setCouponUsageFrequency(Map.of("DIWALI20", 1L, "WELCOME", 1L));
+
+        long now = System.currentTimeMillis();
+        validCoupon = coupon("DIWALI20", Coupon.CouponType.PERCENTAGE, 20,
+                new Timestamp(now - 86_400_000L), new Timestamp(now + 30 * 86_400_000L));
+        validCoupon.setUserIdsAllowed(List.of("user-7", "user-42", "user-99"));
+        expiredCoupon = coupon("SUMMER100", Coupon.CouponType.FLAT, 100,
+                new Timestamp(now - 90 * 86_400_000L), new Timestamp(now - 86_400_000L));
+    }
+
+    @Benchmark
+    public PayoutBreakdown payoutCalculate() {
+        return PayoutCalculationService.calculate(gatewayAmount, walletDeduction, realRatio, platformFeePercent);
+    }
+
+    @Benchmark
+    public CouponResult applyValidCoupon() {
+        return CouponService.applyCoupon(validCoupon, plan, user, "en");
+    }
+
+    @Benchmark
+    public CouponResult applyExpiredCoupon() {
+        return CouponService.applyCoupon(expiredCoupon, plan, user, "en");
+    }
+
+    private static Coupon coupon(String code, Coupon.CouponType type, double discount, Timestamp start, Timestamp end) {
+        Coupon coupon = new Coupon();
+        coupon.setCode(code);
+        coupon.setType(type);
+        coupon.setDiscount(discount);
+        coupon.setStartDate(start);
+        coupon.setEndDate(end);
+        coupon.setEnabled(true);
+        coupon.setMinCartAmount(499.0);
+        coupon.setTotalUsageLimit(1000L);
+        coupon.setClaimsMadeSoFar(412L);
+        coupon.setMaxClaimsPerUser(3L);
+        return coupon;
+    }
+}
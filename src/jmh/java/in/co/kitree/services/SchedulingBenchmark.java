@@ -0,0 +1,108 @@
+package in.co.kitree.services;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SchedulingService availability computation, as served by get_expert_availability.
+ *
+ * The fixture is a typical expert week: morning and evening blocks on weekdays, one Saturday block,
+ * one date override and a number of existing bookings, queried for a 7-day range from a user in a
+ * different time zone with 30 minute slots every 15 minutes. Dates are in the future so the
+ * "slot already started" filter does not drop them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SchedulingBenchmark {
+
+    private static final String EXPERT_ZONE = "Asia/Kolkata";
+    private static final String USER_ZONE = "Europe/London";
+
+    @Param({"0", "25"})
+    public int existingBookings;
+
+    private SchedulingService service;
+    private Map<String, Map<String, List<Map<String, String>>>> availability;
+    private List<Map<String, Object>> overrides;
+    private List<Map<String, ZonedDateTime>> bookings;
+    private String rangeStart;
+    private String rangeEnd;
+    private int[][] dayIntervals;
+    private int[][] blockedIntervals;
+
+    @Setup
+    public void setUp() {
+        service = new SchedulingService();
+        LocalDate start = LocalDate.now().plusDays(30);
+        rangeStart = start.format(service.dateFormatter);
+        rangeEnd = start.plusDays(6).format(service.dateFormatter);
+
+        availability = new HashMap<>();
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if (day == DayOfWeek.SUNDAY) {
+                continue;
+            }
+            List<Map<String, String>> slots = new ArrayList<>();
+            if (day == DayOfWeek.SATURDAY) {
+                slots.add(slot("10:00", "14:00"));
+            } else {
+                slots.add(slot("09:00", "12:30"));
+                slots.add(slot("17:00", "21:00"));
+            }
+            availability.put(day.name(), Map.of("timeSlots", slots));
+        }
+
+        overrides = new ArrayList<>();
+        Map<String, Object> override = new HashMap<>();
+        override.put("date", start.plusDays(2).format(service.dateFormatter));
+        override.put("timeSlots", List.of(slot("11:00", "13:00")));
+        overrides.add(override);
+
+        bookings = new ArrayList<>();
+        ZoneId zone = ZoneId.of(EXPERT_ZONE);
+        for (int i = 0; i < existingBookings; i++) {
+            ZonedDateTime bookingStart = ZonedDateTime.of(start.plusDays(i % 7), LocalTime.of(9 + (i % 4), 0), zone)
+                    .plusMinutes(30L * (i / 7));
+            bookings.add(Map.of("startTime", bookingStart, "endTime", bookingStart.plusMinutes(30)));
+        }
+
+        // A working day in minutes with lunch, a break and booked calls removed
+        dayIntervals = new int[][]{{540, 750}, {840, 1080}, {1140, 1260}};
+        blockedIntervals = new int[][]{{600, 630}, {700, 760}, {900, 915}, {960, 1020}, {1200, 1230}};
+    }
+
+    @Benchmark
+    public Map<String, SchedulingService.AvailabilitySlot> availabilitySlots() {
+        return service.getExpertAvailabilitySlots(availability, overrides, bookings, EXPERT_ZONE,
+                rangeStart, rangeEnd, USER_ZONE, 30, SchedulingService.DurationUnit.MINUTES, 15);
+    }
+
+    @Benchmark
+    public List<SchedulingService.Interval> removeIntervals() {
+        // removeIntervals sorts its arguments in place, so each call gets fresh lists
+        return service.removeIntervals(toIntervals(dayIntervals), toIntervals(blockedIntervals));
+    }
+
+    private List<SchedulingService.Interval> toIntervals(int[][] bounds) {
+        List<SchedulingService.Interval> intervals = new ArrayList<>(bounds.length);
+        for (int[] b : bounds) {
+            intervals.add(service.new Interval(b[0], b[1]));
+        }
+        return intervals;
+    }
+
+    private static Map<String, String> slot(String startTime, String endTime) {
+        return Map.of("startTime", startTime, "endTime", endTime);
+    }
+}
@@ -0,0 +1,56 @@
+package in.co.kitree.services;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stream user tokens, minted on every consultation connect and session join. legacyCreateUserToken
+ * is the per-call Mac.getInstance / String-concatenation path StreamTokenMinter replaced, kept as the
+ * "before" figure; mint is a fresh signature and createUserToken the cached path sessions use.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class StreamTokenBenchmark {
+
+    private static final String SECRET = "k7f3q9xv2m8w4t6z1p5r0n3b8c2d6h9j4l7s1y5u0e3g8a2w6q9z4x7v1m5t8r2p";
+
+    private StreamService streamService;
+    private StreamTokenMinter minter;
+
+    @Setup
+    public void setUp() {
+        streamService = new StreamService(true, "bench-api-key", SECRET);
+        minter = new StreamTokenMinter(() -> StreamService.newHmac(SECRET), false);
+    }
+
+    @Benchmark
+    public String legacyCreateUserToken() throws Exception {
+        String header = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                "{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
+        long now = System.currentTimeMillis() / 1000;
+        String payload = "{\"user_id\":\"user-8f2c41\",\"role\":\"user\",\"call_cids\":[\"default:order-5d91e0a7\"],"
+                + "\"iat\":" + now + ",\"exp\":" + (now + 86400) + "}";
+        String encodedPayload = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                payload.getBytes(StandardCharsets.UTF_8));
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        byte[] signature = mac.doFinal((header + "." + encodedPayload).getBytes(StandardCharsets.UTF_8));
+        return header + "." + encodedPayload + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+    }
+
+    @Benchmark
+    public String mint() {
+        return minter.mint("user-8f2c41", "user", "default:order-5d91e0a7", System.currentTimeMillis() / 1000);
+    }
+
+    @Benchmark
+    public String createUserToken() {
+        return streamService.createUserToken("user-8f2c41", "user", "order-5d91e0a7", "default");
+    }
+}
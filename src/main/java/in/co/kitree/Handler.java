@@ -16,12 +16,9 @@ import in.co.kitree.pojos.*;
 import in.co.kitree.rest.ApiResponse;
 import in.co.kitree.rest.RestRouter;
 import in.co.kitree.services.*;
-import software.amazon.awssdk.core.SdkBytes;
-import software.amazon.awssdk.services.lambda.LambdaClient;
-import software.amazon.awssdk.services.lambda.model.InvocationType;
-import software.amazon.awssdk.services.lambda.model.InvokeRequest;
 import software.amazon.awssdk.services.lambda.model.InvokeResponse;
 
+import java.time.Duration;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -50,6 +47,9 @@ public class Handler implements RequestHandler<RequestEvent, Object> {
         "/api/v1/orders"
     ));
 
+    private static final Duration PYTHON_LAMBDA_TIMEOUT = Duration.ofSeconds(120);
+    private static final Duration SELF_INVOKE_TIMEOUT = Duration.ofSeconds(10);
+
     Gson gson = (new GsonBuilder()).setPrettyPrinting().create();
     private Firestore db;
     private Razorpay razorpay;
@@ -72,44 +72,21 @@ public class Handler implements RequestHandler<RequestEvent, Object> {
     private static volatile boolean coldStart = true;
 
     static {
-        String sentryDsn = System.getenv("SENTRY_DSN");
-        if (sentryDsn != null && !sentryDsn.isEmpty()) {
-            Sentry.init(options -> {
-                options.setDsn(sentryDsn);
-                options.setEnvironment("test".equals(System.getenv("ENVIRONMENT")) ? "development" : "production");
-                options.setTracesSampleRate(1.0);
-                options.setSendDefaultPii(true);
-            });
-        }
+        SentryTracing.init(System.getenv("SENTRY_DSN"), "test".equals(System.getenv("ENVIRONMENT")));
     }
 
     public Handler() {
         try {
             if (FirebaseApp.getApps().isEmpty()) {
-                if (!isTest()) {
-                    FirebaseOptions options = FirebaseOptions.builder()
-                            .setCredentials(GoogleCredentials.fromStream(
-                                    getClass().getResourceAsStream("/serviceAccountKey.json")))
-                            .build();
-                    FirebaseApp.initializeApp(options);
-                } else {
-                    FirebaseOptions options = FirebaseOptions.builder()
-                            .setCredentials(GoogleCredentials.fromStream(
-                                    getClass().getResourceAsStream("/serviceAccountKeyTest.json")))
-                            .build();
-                    FirebaseApp.initializeApp(options);
-                }
+                FirebaseApp.initializeApp(firebaseOptions(isTest() ? "/serviceAccountKeyTest.json" : "/serviceAccountKey.json"));
             }
             this.db = FirestoreClient.getFirestore();
             this.razorpay = new Razorpay(isTest());
             this.stripeService = new StripeService(isTest());
             this.pythonLambdaService = createPythonLambdaService();
-            LambdaClient astrologyLambdaClient = LambdaClient.builder()
-                    .region(software.amazon.awssdk.regions.Region.AP_SOUTH_1)
-                    .build();
-            AstrologyService astrologyService = new AstrologyService(astrologyLambdaClient, isTest());
+            AstrologyService astrologyService = new AstrologyService(LambdaInvoker.shared(), isTest(), db);
             RashifalService rashifalService = new RashifalService(db, astrologyService, isTest());
-            StreamService streamService = new StreamService(isTest());
+            StreamService streamService = StreamService.shared(isTest());
             CloudinaryService cloudinaryService = new CloudinaryService(isTest());
             initHandlers(astrologyService, rashifalService, streamService, cloudinaryService);
         } catch (Exception e) {
@@ -117,11 +94,7 @@ public class Handler implements RequestHandler<RequestEvent, Object> {
             if (isTest()) {
                 try {
                     if (FirebaseApp.getApps().isEmpty()) {
-                        FirebaseOptions options = FirebaseOptions.builder()
-                                .setCredentials(GoogleCredentials.fromStream(
-                                        getClass().getResourceAsStream("/serviceAccountKeyTest.json")))
-                                .build();
-                        FirebaseApp.initializeApp(options);
+                        FirebaseApp.initializeApp(firebaseOptions("/serviceAccountKeyTest.json"));
                     }
                     this.db = FirestoreClient.getFirestore();
                 } catch (Exception firebaseEx) {
@@ -146,13 +119,10 @@ public class Handler implements RequestHandler<RequestEvent, Object> {
                 StreamService streamService = null;
                 CloudinaryService cloudinaryService = null;
                 try {
-                    LambdaClient astrologyLambdaClient = LambdaClient.builder()
-                            .region(software.amazon.awssdk.regions.Region.AP_SOUTH_1)
-                            .build();
-                    astrologyService = new AstrologyService(astrologyLambdaClient, isTest());
+                    astrologyService = new AstrologyService(LambdaInvoker.shared(), isTest(), db);
                 } catch (Exception ignored) {}
                 try { rashifalService = new RashifalService(db, astrologyService, isTest()); } catch (Exception ignored) {}
-                try { streamService = new StreamService(isTest()); } catch (Exception ignored) {}
+                try { streamService = StreamService.shared(isTest()); } catch (Exception ignored) {}
                 try { cloudinaryService = new CloudinaryService(isTest()); } catch (Exception ignored) {}
                 try { initHandlers(astrologyService, rashifalService, streamService, cloudinaryService); } catch (Exception ignored) {}
             } else {
@@ -161,6 +131,21 @@ public class Handler implements RequestHandler<RequestEvent, Object> {
         }
     }
 
+    /**
+     * Handler over explicit dependencies, for drivers that run handleRequest locally against the
+     * emulator with fake external services (the load-test harness). FirebaseApp must already be
+     * initialized.
+     */
+    protected Handler(Firestore db, Razorpay razorpay, StripeService stripeService, PythonLambdaService pythonLambdaService,
+                      AstrologyService astrologyService, RashifalService rashifalService, StreamService streamService,
+                      CloudinaryService cloudinaryService) {
+        this.db = db;
+        this.razorpay = razorpay;
+        this.stripeService = stripeService;
+        this.pythonLambdaService = pythonLambdaService;
+        initHandlers(astrologyService, rashifalService, streamService, cloudinaryService);
+    }
+
     private void initHandlers(AstrologyService astrologyService, RashifalService rashifalService, StreamService streamService, CloudinaryService cloudinaryService) {
         this.rashifalService = rashifalService;
         this.adminHandler = new AdminHandler(db, razorpay);
@@ -179,9 +164,7 @@ public class Handler implements RequestHandler<RequestEvent, Object> {
     }
 
     protected PythonLambdaService createPythonLambdaService() {
-        LambdaClient lambdaClient = LambdaClient.builder()
-                .region(software.amazon.awssdk.regions.Region.AP_SOUTH_1)
-                .build();
+        LambdaInvoker lambdaInvoker = LambdaInvoker.shared();
 
         return new PythonLambdaService() {
             @Override
@@ -199,12 +182,8 @@ public class Handler implements RequestHandler<RequestEvent, Object> {
                     String functionName = isTest()
                             ? "kitree-python-scripts-test"
                             : "kitree-python-scripts-prod";
-                    InvokeRequest invokeRequest = InvokeRequest.builder()
-                            .functionName(functionName)
-                            .payload(SdkBytes.fromUtf8String(payload))
-                            .build();
-
-                    InvokeResponse response = lambdaClient.invoke(invokeRequest);
+                    InvokeResponse response = LambdaInvoker.await(
+                            lambdaInvoker.invoke(functionName, payload, PYTHON_LAMBDA_TIMEOUT));
                     String responsePayload = response.payload().asUtf8String();
                     return gson.fromJson(responsePayload, PythonLambdaResponseBody.class);
                 } catch (Exception e) {
@@ -215,8 +194,32 @@ public class Handler implements RequestHandler<RequestEvent, Object> {
         };
     }
 
+    /**
+     * Firebase options for the given service account key. Firestore RPCs are counted into
+     * RequestMetrics for the per-invocation EMF record, and into FirestoreProfiler when profiling
+     * an emulator run.
+     */
+    private FirebaseOptions firebaseOptions(String keyResource) throws java.io.IOException {
+        GoogleCredentials credentials = GoogleCredentials.fromStream(getClass().getResourceAsStream(keyResource));
+        InstrumentedFirestoreRpc.Listener listener = RequestMetrics.firestoreListener();
+        if (FirestoreProfiler.isEnabled()) {
+            listener = listener.andThen(FirestoreProfiler.shared());
+        }
+        FirestoreOptions.Builder firestoreOptions = FirestoreOptions.newBuilder()
+                .setCredentials(credentials)
+                .setServiceRpcFactory(InstrumentedFirestoreRpc.factory(listener));
+        if (credentials instanceof com.google.auth.oauth2.ServiceAccountCredentials serviceAccount) {
+            firestoreOptions.setProjectId(serviceAccount.getProjectId());
+        }
+        return FirebaseOptions.builder()
+                .setCredentials(credentials)
+                .setFirestoreOptions(firestoreOptions.build())
+                .build();
+    }
+
     public Object handleRequest(RequestEvent event, Context context) {
         LoggingService.initRequest(context);
+        RequestMetrics metrics = RequestMetrics.begin(coldStart, isTest() ? "test" : "prod");
 
         Map<String, String> incomingHeaders = event.getHeaders() != null ? event.getHeaders() : Collections.emptyMap();
         ITransaction sentryTx = null;
@@ -233,11 +236,13 @@ public class Handler implements RequestHandler<RequestEvent, Object> {
             sentryTx.setTag("cold_start", String.valueOf(coldStart));
         }
         coldStart = false;
+        boolean failed = false;
 
         try {
             // Async rashifal worker: direct Lambda self-invocation, no API Gateway request context.
             // Safe against spoofing from HTTP clients because API Gateway always sets requestContext.
             if ("lambda.rashifal_worker".equals(event.getSource()) && event.getRequestContext() == null) {
+                RequestMetrics.setRoute("worker:rashifal");
                 if (rashifalService != null) {
                     rashifalService.executeRashifalGeneration(gson.fromJson(event.getBody(), RequestBody.class).getUserId());
                 }
@@ -247,18 +252,50 @@ public class Handler implements RequestHandler<RequestEvent, Object> {
             // Scheduled cron events
             if ("aws.events".equals(event.getSource())) {
                 String detailType = event.getDetailType();
+                RequestMetrics.setRoute(detailType != null ? "cron:" + detailType : "warmup");
                 if ("auto_terminate_consultations".equals(detailType)) {
                     LoggingService.setFunction("auto_terminate_consultations");
                     LoggingService.info("cron_job_started", Map.of("job", "auto_terminate_consultations"));
                     return consultationHandler.handleAutoTerminateConsultations(isTest());
                 }
+                if ("process_pending_summaries".equals(detailType)) {
+                    LoggingService.setFunction("process_pending_summaries");
+                    LoggingService.info("cron_job_started", Map.of("job", "process_pending_summaries"));
+                    return consultationHandler.handleProcessPendingSummaries(isTest(),
+                            System.currentTimeMillis() + context.getRemainingTimeInMillis());
+                }
+                if ("backfill_summary_queue".equals(detailType)) {
+                    LoggingService.setFunction("backfill_summary_queue");
+                    LoggingService.info("cron_job_started", Map.of("job", "backfill_summary_queue"));
+                    // Leave a margin to write the response before the Lambda timeout
+                    return consultationHandler.handleBackfillSummaryQueue(
+                            System.currentTimeMillis() + context.getRemainingTimeInMillis() - 30_000);
+                }
+                if ("rebuild_session_feeds".equals(detailType)) {
+                    LoggingService.setFunction("rebuild_session_feeds");
+                    LoggingService.info("cron_job_started", Map.of("job", "rebuild_session_feeds"));
+                    return sessionHandler.handleRebuildSessionFeeds();
+                }
+                if ("pregenerate_rashifal".equals(detailType)) {
+                    LoggingService.setFunction("pregenerate_rashifal");
+                    LoggingService.info("cron_job_started", Map.of("job", "pregenerate_rashifal"));
+                    if (rashifalService == null) {
+                        return gson.toJson(Map.of("success", false, "errorMessage", "Rashifal service not available"));
+                    }
+                    return gson.toJson(rashifalService.pregenerateDailyAudio());
+                }
                 LoggingService.info("lambda_warmed_up");
+                SentryTracing.markPoll(sentryTx);
                 return "Warmed up!";
             }
 
             // Health check — no auth required
             String rawPath = event.getRawPath();
+            if (SentryTracing.isPollPath(rawPath)) {
+                SentryTracing.markPoll(sentryTx);
+            }
             if ("/health".equals(rawPath)) {
+                RequestMetrics.setRoute("health");
                 return ApiResponse.ok(gson.toJson(Map.of("status", "ok"))).toLambdaResponse();
             }
 
@@ -278,18 +315,19 @@ public class Handler implements RequestHandler<RequestEvent, Object> {
                         ? this.gson.fromJson(event.getBody(), RequestBody.class)
                         : new RequestBody();
 
-                // Debug: log incoming REST request with auth header presence
+                // Log incoming REST request with auth header presence
                 String authHeader = event.getHeaders() != null ? AuthenticationService.extractTokenFromHeaders(event.getHeaders()) : null;
-                // Log all header keys (not values) to diagnose CloudFront header forwarding
-                String headerKeys = event.getHeaders() != null
-                    ? String.join(",", event.getHeaders().keySet().stream().sorted().collect(java.util.stream.Collectors.toList()))
-                    : "null";
                 LoggingService.info("rest_request_received", Map.of(
                     "method", httpMethod,
                     "path", rawPath,
-                    "hasAuthHeader", authHeader != null && !authHeader.isEmpty(),
+                    "hasAuthHeader", authHeader != null && !authHeader.isEmpty()
+                ));
+                // Header keys (not values) to diagnose CloudFront header forwarding; built only at DEBUG
+                LoggingService.debug("rest_request_headers", () -> Map.of(
                     "authHeaderPrefix", authHeader != null && authHeader.length() > 27 ? authHeader.substring(0, 27) + "..." : (authHeader != null ? authHeader : "NONE"),
-                    "headerKeys", headerKeys
+                    "headerKeys", event.getHeaders() != null
+                        ? String.join(",", new java.util.TreeSet<>(event.getHeaders().keySet()))
+                        : "null"
                 ));
 
                 // Authenticate
@@ -338,6 +376,7 @@ public class Handler implements RequestHandler<RequestEvent, Object> {
                 ApiResponse response = restRouter.route(httpMethod, rawPath, event.getRawQueryString(), effectiveUserId, requestBody);
                 if (response != null) {
                     if (sentryTx != null) sentryTx.setTag("http.status_code", String.valueOf(response.getStatusCode()));
+                    failed = response.getStatusCode() >= 500;
                     return response.toLambdaResponse();
                 }
 
@@ -346,6 +385,7 @@ public class Handler implements RequestHandler<RequestEvent, Object> {
             }
 
         } catch (Exception e) {
+            failed = true;
             Sentry.captureException(e);
             if (sentryTx != null) {
                 sentryTx.setThrowable(e);
@@ -354,8 +394,10 @@ public class Handler implements RequestHandler<RequestEvent, Object> {
             LoggingService.error("request_handler_exception", e);
             return ApiResponse.errorMessage("Internal server error").toLambdaResponse();
         } finally {
-            if (sentryTx != null) sentryTx.finish();
-            Sentry.flush(1000);
+            // Failed requests flush Sentry for up to 1s; successful ones flush briefly every
+            // FLUSH_EVERY_INVOCATIONS requests while events are pending
+            SentryTracing.finishRequest(sentryTx, failed);
+            metrics.finish();
         }
         return ApiResponse.notFoundMessage("Not found").toLambdaResponse();
     }
@@ -385,14 +427,10 @@ public class Handler implements RequestHandler<RequestEvent, Object> {
         RequestEvent asyncEvent = new RequestEvent();
         asyncEvent.setSource("lambda.rashifal_worker");
         asyncEvent.setBody(gson.toJson(asyncBody));
-        LambdaClient client = LambdaClient.builder()
-                .region(software.amazon.awssdk.regions.Region.AP_SOUTH_1)
-                .build();
-        client.invoke(InvokeRequest.builder()
-                .functionName(context.getFunctionName())
-                .invocationType(InvocationType.EVENT)
-                .payload(SdkBytes.fromUtf8String(gson.toJson(asyncEvent)))
-                .build());
+        // Wait for Lambda to accept the event: the container may be frozen once we respond
+        LambdaInvoker.shared()
+                .invokeEvent(context.getFunctionName(), gson.toJson(asyncEvent), SELF_INVOKE_TIMEOUT)
+                .join();
     }
 
     private boolean isTest() {
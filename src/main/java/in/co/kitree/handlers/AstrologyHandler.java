@@ -3,13 +3,18 @@ package in.co.kitree.handlers;
 import com.google.cloud.firestore.Firestore;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
 import in.co.kitree.pojos.*;
 import in.co.kitree.services.*;
 
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 public class AstrologyHandler {
 
+    private static final List<String> BUNDLE_SECTIONS = List.of("details", "dasha", "divisional_charts", "gochar");
+
     private final Firestore db;
     private final AstrologyService astrologyService;
     private final PythonLambdaService pythonLambdaService;
@@ -26,10 +31,11 @@ public class AstrologyHandler {
 
     public String handleRequest(String action, String userId, RequestBody requestBody) throws Exception {
         return switch (action) {
-            case "get_astrological_details" -> astrologyService.getAstrologicalDetails(requestBody);
-            case "get_dasha_details" -> astrologyService.getDashaDetails(requestBody);
-            case "get_divisional_charts" -> astrologyService.getDivisionalCharts(requestBody);
-            case "get_gochar_details" -> astrologyService.getGocharDetails(requestBody);
+            case "get_astrological_details" -> astrologyService.getAstrologicalDetails(userId, requestBody);
+            case "get_dasha_details" -> astrologyService.getDashaDetails(userId, requestBody);
+            case "get_divisional_charts" -> astrologyService.getDivisionalCharts(userId, requestBody);
+            case "get_gochar_details" -> astrologyService.getGocharDetails(userId, requestBody);
+            case "get_astrology_bundle" -> handleGetAstrologyBundle(userId, requestBody);
             case "generate_aura_report" -> handleGenerateAuraReport(userId, requestBody);
             case "get_certificate_courses" -> handleGetCertificateCourses(requestBody);
             case "generate_certificate" -> handleGenerateCertificate(requestBody);
@@ -37,6 +43,80 @@ public class AstrologyHandler {
         };
     }
 
+    /**
+     * Chart screen bundle: one birth profile (horoscope fields), a list of sections, and all
+     * requested sections fetched from the astrology Lambda concurrently and merged into one
+     * response. Dasha uses the horoscope birth data unless dasha fields are given explicitly.
+     * Without a section list, every section is fetched except divisional_charts when no
+     * divisionalChartNumbers are given. Unknown sections are rejected before anything is invoked;
+     * a failing section is reported in place without failing the others.
+     */
+    private String handleGetAstrologyBundle(String userId, RequestBody requestBody) {
+        Set<String> sections = new LinkedHashSet<>(requestBody.getSections() != null && !requestBody.getSections().isEmpty()
+                ? requestBody.getSections()
+                : defaultBundleSections(requestBody));
+        for (String section : sections) {
+            if (!BUNDLE_SECTIONS.contains(section)) {
+                return gson.toJson(Map.of("success", false, "errorMessage", "Unknown section: " + section));
+            }
+        }
+
+        Map<String, CompletableFuture<String>> futures = new LinkedHashMap<>();
+        for (String section : sections) {
+            CompletableFuture<String> future = switch (section) {
+                case "details" -> astrologyService.getAstrologicalDetailsAsync(userId, requestBody);
+                case "dasha" -> astrologyService.getDashaDetailsAsync(userId, withBirthDataForDasha(requestBody));
+                case "divisional_charts" -> astrologyService.getDivisionalChartsAsync(userId, requestBody);
+                case "gochar" -> astrologyService.getGocharDetailsAsync(userId, requestBody);
+                default -> throw new IllegalStateException("Unhandled bundle section: " + section);
+            };
+            futures.put(section, future.exceptionally(e -> {
+                LoggingService.error("astrology_bundle_section_failed", e, Map.of("section", section));
+                return gson.toJson(Map.of("success", false, "errorMessage", "Failed to load " + section));
+            }));
+        }
+
+        Map<String, String> results = LambdaInvoker.allOf(futures).join();
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("success", true);
+        for (Map.Entry<String, String> entry : results.entrySet()) {
+            JsonElement section;
+            try {
+                section = JsonParser.parseString(entry.getValue());
+            } catch (Exception e) {
+                section = gson.toJsonTree(Map.of("success", false, "errorMessage", "Invalid response for " + entry.getKey()));
+            }
+            response.put(entry.getKey(), section);
+        }
+        return gson.toJson(response);
+    }
+
+    private static List<String> defaultBundleSections(RequestBody requestBody) {
+        if (requestBody.getDivisionalChartNumbers() != null) {
+            return BUNDLE_SECTIONS;
+        }
+        List<String> sections = new ArrayList<>(BUNDLE_SECTIONS);
+        sections.remove("divisional_charts");
+        return sections;
+    }
+
+    private static RequestBody withBirthDataForDasha(RequestBody requestBody) {
+        if (requestBody.getDashaDate() != null) {
+            return requestBody;
+        }
+        RequestBody dasha = new RequestBody();
+        dasha.setProfileId(requestBody.getProfileId());
+        dasha.setDashaDate(requestBody.getHoroscopeDate());
+        dasha.setDashaMonth(requestBody.getHoroscopeMonth());
+        dasha.setDashaYear(requestBody.getHoroscopeYear());
+        dasha.setDashaHour(requestBody.getHoroscopeHour());
+        dasha.setDashaMinute(requestBody.getHoroscopeMinute());
+        dasha.setDashaLatitude(requestBody.getHoroscopeLatitude());
+        dasha.setDashaLongitude(requestBody.getHoroscopeLongitude());
+        dasha.setDashaPrefix(requestBody.getDashaPrefix() != null ? requestBody.getDashaPrefix() : List.of());
+        return dasha;
+    }
+
     private String handleGetCertificateCourses(RequestBody requestBody) {
         PythonLambdaEventRequest getCoursesEvent = new PythonLambdaEventRequest();
         getCoursesEvent.setFunction("get_certificate_courses");
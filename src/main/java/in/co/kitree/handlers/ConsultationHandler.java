@@ -8,6 +8,7 @@ import in.co.kitree.pojos.*;
 import in.co.kitree.services.*;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 /**
@@ -532,6 +533,7 @@ public class ConsultationHandler {
 
                 return null;
             }).get();
+            MetricsRollupService.afterCommit(expertId);
         } catch (Exception e) {
             // Check if concurrent completion
             OnDemandConsultationOrder refreshedOrder = consultationService.getOrder(userId, orderId);
@@ -621,14 +623,14 @@ public class ConsultationHandler {
             return gson.toJson(Map.of("success", true, "status", status, "message", "Order already in terminal state"));
         }
 
-        // Try to end Stream call
+        // Try to end Stream call; it runs while the order and expert are updated
+        CompletableFuture<Boolean> callEnded = null;
         if (streamCallCid != null && !streamCallCid.isEmpty()) {
             try {
-                StreamService streamService = new StreamService(isTest);
+                StreamService streamService = StreamService.shared(isTest);
                 String[] cidParts = StreamService.parseCallCid(streamCallCid);
                 if (cidParts != null) {
-                    boolean ended = streamService.endCall(cidParts[0], cidParts[1]);
-                    LoggingService.info("stream_call_end_attempt", Map.of("ended", ended));
+                    callEnded = streamService.endCallAsync(cidParts[0], cidParts[1]);
                 }
             } catch (Exception e) {
                 LoggingService.warn("stream_call_end_error", Map.of("error", e.getMessage()));
@@ -654,6 +656,10 @@ public class ConsultationHandler {
             }
         }
 
+        if (callEnded != null) {
+            LoggingService.info("stream_call_end_attempt", Map.of("ended", callEnded.join()));
+        }
+
         LoggingService.info("cleanup_stale_order_completed");
         return gson.toJson(Map.of(
             "success", true,
@@ -1057,6 +1063,8 @@ public class ConsultationHandler {
                                 orderUpdates.put("platform_fee_amount", finalPlatformFeeAmount);
                                 orderUpdates.put("expert_earnings", expertEarnings);
                                 transaction.update(orderRef, orderUpdates);
+                                new MetricsRollupService(db).recordInTransaction(transaction, finalExpertId,
+                                    orderDoc.getTimestamp("created_at"), "ON_DEMAND_CONSULTATION", expertEarnings);
 
                                 if (!hasOtherActive) {
                                     Map<String, Object> statusUpdates = new HashMap<>();
@@ -1066,6 +1074,7 @@ public class ConsultationHandler {
                                 }
                                 return null;
                             }).get();
+                            MetricsRollupService.afterCommit(finalExpertId);
 
                             terminatedCount++;
                         }
@@ -1082,6 +1091,7 @@ public class ConsultationHandler {
 
         // Auto-fail stale INITIATED orders
         int failedInitiatedCount = 0;
+        List<CompletableFuture<Boolean>> callsEnding = new ArrayList<>();
         try {
             WalletService walletService = new WalletService(this.db);
             OnDemandConsultationService consultationService = new OnDemandConsultationService(this.db, walletService);
@@ -1119,9 +1129,9 @@ public class ConsultationHandler {
                         String streamCallCid = doc.getString("stream_call_cid");
                         if (streamCallCid != null) {
                             try {
-                                StreamService streamSvc = new StreamService(isTest);
+                                StreamService streamSvc = StreamService.shared(isTest);
                                 String[] cidParts = StreamService.parseCallCid(streamCallCid);
-                                if (cidParts != null) streamSvc.endCall(cidParts[0], cidParts[1]);
+                                if (cidParts != null) callsEnding.add(streamSvc.endCallAsync(cidParts[0], cidParts[1]));
                             } catch (Exception ignore) {}
                         }
                         failedInitiatedCount++;
@@ -1134,32 +1144,51 @@ public class ConsultationHandler {
         } catch (Exception e) {
             LoggingService.error("stale_initiated_orders_cleanup_error", e);
         }
-
-        // Process pending summaries
-        int summariesProcessed = 0, summariesSucceeded = 0, summariesFailed = 0, summariesSkipped = 0;
-        try {
-            ConsultationSummaryService summaryService = new ConsultationSummaryService(db, isTest);
-            Map<String, Integer> summaryResults = summaryService.processPendingSummaries(5);
-            summariesProcessed = summaryResults.getOrDefault("processed", 0);
-            summariesSucceeded = summaryResults.getOrDefault("succeeded", 0);
-            summariesFailed = summaryResults.getOrDefault("failed", 0);
-            summariesSkipped = summaryResults.getOrDefault("skipped", 0);
-        } catch (Exception e) {
-            LoggingService.error("process_pending_summaries_error", e);
-        }
+        // Stream calls are ended concurrently with the remaining orders; wait before the invocation returns
+        CompletableFuture.allOf(callsEnding.toArray(CompletableFuture<?>[]::new)).join();
 
         return gson.toJson(Map.of(
             "success", true,
             "terminatedCount", terminatedCount,
             "failedInitiatedCount", failedInitiatedCount,
-            "errorCount", errorCount,
-            "summariesProcessed", summariesProcessed,
-            "summariesSucceeded", summariesSucceeded,
-            "summariesFailed", summariesFailed,
-            "summariesSkipped", summariesSkipped
+            "errorCount", errorCount
         ));
     }
 
+    /**
+     * Summary worker cron entrypoint. Runs on its own schedule so summarization (recording
+     * download + Gemini) never delays the billing crons.
+     *
+     * @param deadlineMs Epoch millis by which the invocation must wrap up
+     */
+    public String handleProcessPendingSummaries(boolean isTest, long deadlineMs) {
+        ConsultationSummaryService summaryService = new ConsultationSummaryService(db, isTest);
+        Map<String, Integer> results = summaryService.processPendingSummaries(
+                ConsultationSummaryService.SUMMARY_WORKER_BATCH_SIZE, deadlineMs);
+
+        Map<String, Object> response = new HashMap<>(results);
+        response.put("success", true);
+        return gson.toJson(response);
+    }
+
+    /**
+     * One-off summary_queue backfill for orders left PENDING / IN_PROGRESS before the queue existed.
+     * Invoked manually with {"source":"aws.events","detailType":"backfill_summary_queue"}.
+     *
+     * @param deadlineMs Epoch millis by which the invocation must wrap up
+     */
+    public String handleBackfillSummaryQueue(long deadlineMs) {
+        try {
+            OnDemandConsultationService consultationService = new OnDemandConsultationService(db);
+            Map<String, Object> response = new HashMap<>(consultationService.backfillSummaryQueue(deadlineMs));
+            response.put("success", true);
+            return gson.toJson(response);
+        } catch (Exception e) {
+            LoggingService.error("summary_queue_backfill_error", e);
+            return gson.toJson(Map.of("success", false, "errorMessage", String.valueOf(e.getMessage())));
+        }
+    }
+
     private boolean hasNonStaleInitiatedOrders(String expertId, String excludeOrderId, long nowMillis) {
         try {
             Query initiatedQuery = this.db.collectionGroup("orders")
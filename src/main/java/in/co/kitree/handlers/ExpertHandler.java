@@ -1,5 +1,6 @@
 package in.co.kitree.handlers;
 
+import com.google.api.core.ApiFuture;
 import com.google.cloud.firestore.*;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -79,7 +80,8 @@ public class ExpertHandler {
     /**
      * Get aggregate booking metrics for an expert.
      * Returns total bookings, revenue, and earnings with breakdown by type.
-     * Uses Firestore aggregation queries (count, sum) for efficiency.
+     * Sums the per-day metrics_daily rollups; ranges starting before the rollups
+     * were introduced fall back to Firestore aggregation queries (count, sum).
      * Supports date range filtering for different time periods.
      */
     private String handleGetExpertBookingMetrics(String expertId, RequestBody requestBody) throws Exception {
@@ -111,110 +113,49 @@ public class ExpertHandler {
 
         String currency = "INR"; // Default currency
 
-        try {
-            // Build base query with expert_id and date filters
-            Query baseQuery = this.db.collectionGroup("orders")
-                    .whereEqualTo("expert_id", expertId)
-                    .whereGreaterThanOrEqualTo("created_at", startTs)
-                    .whereLessThanOrEqualTo("created_at", endTs);
-
-            // --- COUNT QUERIES (all orders regardless of status) ---
-
-            // On-demand count
-            long onDemandCount = 0;
-            if (bookingType == null || bookingType.equals("all") || bookingType.equals("onDemand")) {
-                Query onDemandQuery = baseQuery.whereEqualTo("type", "ON_DEMAND_CONSULTATION");
-                AggregateQuerySnapshot onDemandSnapshot = onDemandQuery.count().get().get();
-                onDemandCount = onDemandSnapshot.getCount();
-            }
-
-            // Product count
-            long productCount = 0;
-            if (bookingType == null || bookingType.equals("all") || bookingType.equals("product")) {
-                Query productQuery = baseQuery.whereEqualTo("type", "PRODUCT");
-                AggregateQuerySnapshot productSnapshot = productQuery.count().get().get();
-                productCount = productSnapshot.getCount();
-            }
-
-            // Scheduled count (CONSULTATION type)
-            long scheduledCount = 0;
-            if (bookingType == null || bookingType.equals("all") || bookingType.equals("scheduled")) {
-                Query scheduledQuery = baseQuery.whereEqualTo("type", "CONSULTATION");
-                AggregateQuerySnapshot scheduledSnapshot = scheduledQuery.count().get().get();
-                scheduledCount = scheduledSnapshot.getCount();
-            }
+        String cacheKey = ExpertMetricsCache.key("booking_metrics", startDateMillis, endDateMillis, bookingType);
+        String cached = ExpertMetricsCache.get(expertId, cacheKey);
+        if (cached != null) {
+            LoggingService.info("metrics_cache_hit");
+            return cached;
+        }
 
-            // Calculate total based on filter
-            long totalBookings;
-            if (bookingType == null || bookingType.equals("all")) {
-                totalBookings = onDemandCount + productCount + scheduledCount;
-            } else if (bookingType.equals("onDemand")) {
-                totalBookings = onDemandCount;
-            } else if (bookingType.equals("product")) {
-                totalBookings = productCount;
+        try {
+            boolean includeOnDemand = bookingType == null || bookingType.equals("all") || bookingType.equals("onDemand");
+            boolean includeScheduled = bookingType == null || bookingType.equals("all") || bookingType.equals("scheduled");
+            boolean includeProduct = bookingType == null || bookingType.equals("all") || bookingType.equals("product");
+
+            // Ranges covered by the daily rollups are served from users/{expertId}/metrics_daily;
+            // older ranges still go through the orders aggregation queries.
+            MetricsRollupService metricsRollupService = new MetricsRollupService(this.db);
+            MetricsRollupService.Totals totals;
+            String source;
+            if (metricsRollupService.coversRange(startDateMillis)) {
+                totals = metricsRollupService.sumRange(expertId, startDateMillis, endDateMillis);
+                source = "rollups";
             } else {
-                totalBookings = scheduledCount;
+                totals = aggregateBookingMetrics(expertId, startTs, endTs, includeOnDemand, includeScheduled, includeProduct);
+                source = "aggregation";
             }
 
-            // --- EARNINGS QUERIES (only COMPLETED orders) ---
-            // NOTE: Revenue calculation removed from expert dashboard - experts only see their earnings
-            // Revenue is not shown to experts; only totalEarnings is calculated and returned
+            long onDemandCount = includeOnDemand ? totals.onDemandCount : 0;
+            long scheduledCount = includeScheduled ? totals.scheduledCount : 0;
+            long productCount = includeProduct ? totals.productCount : 0;
+            long totalBookings = onDemandCount + scheduledCount + productCount;
 
+            // NOTE: Revenue calculation removed from expert dashboard - experts only see their earnings
             double totalEarnings = 0.0;
-
-            // On-demand completed: sum expert_earnings only
-            if (bookingType == null || bookingType.equals("all") || bookingType.equals("onDemand")) {
-                Query onDemandCompletedQuery = baseQuery
-                        .whereEqualTo("type", "ON_DEMAND_CONSULTATION")
-                        .whereEqualTo("status", "COMPLETED");
-                AggregateQuerySnapshot onDemandSums = onDemandCompletedQuery
-                        .aggregate(sum("expert_earnings"))
-                        .get().get();
-                Double onDemandEarnings = onDemandSums.getDouble(sum("expert_earnings"));
-                if (onDemandEarnings != null) totalEarnings += onDemandEarnings;
-            }
-
-            // Scheduled completed (CONSULTATION type): sum expert_earnings
-            if (bookingType == null || bookingType.equals("all") || bookingType.equals("scheduled")) {
-                Query scheduledCompletedQuery = baseQuery
-                        .whereEqualTo("type", "CONSULTATION")
-                        .whereEqualTo("status", "paid");
-                AggregateQuerySnapshot scheduledSums = scheduledCompletedQuery
-                        .aggregate(sum("amount"), sum("expert_earnings"))
-                        .get().get();
-                Double scheduledAmount = scheduledSums.getDouble(sum("amount"));
-                Double scheduledEarnings = scheduledSums.getDouble(sum("expert_earnings"));
-                // For scheduled, if expert_earnings not set, use amount (no platform fee on scheduled)
-                if (scheduledEarnings != null) {
-                    totalEarnings += scheduledEarnings;
-                } else if (scheduledAmount != null) {
-                    totalEarnings += scheduledAmount;
-                }
-            }
-
-            // Product completed: sum expert_earnings (or amount if expert_earnings not set)
-            if (bookingType == null || bookingType.equals("all") || bookingType.equals("product")) {
-                Query productCompletedQuery = baseQuery
-                        .whereEqualTo("type", "PRODUCT")
-                        .whereEqualTo("status", "paid");
-                AggregateQuerySnapshot productSums = productCompletedQuery
-                        .aggregate(sum("amount"), sum("expert_earnings"))
-                        .get().get();
-                Double productAmount = productSums.getDouble(sum("amount"));
-                Double productEarnings = productSums.getDouble(sum("expert_earnings"));
-                if (productEarnings != null) {
-                    totalEarnings += productEarnings;
-                } else if (productAmount != null) {
-                    totalEarnings += productAmount; // Fallback to amount if expert_earnings not set
-                }
-            }
+            if (includeOnDemand) totalEarnings += totals.onDemandEarnings;
+            if (includeScheduled) totalEarnings += totals.scheduledEarnings;
+            if (includeProduct) totalEarnings += totals.productEarnings;
 
             LoggingService.info("metrics_calculated", Map.of(
                 "totalBookings", totalBookings,
                 "totalEarnings", totalEarnings,
                 "onDemandCount", onDemandCount,
                 "scheduledCount", scheduledCount,
-                "productCount", productCount
+                "productCount", productCount,
+                "source", source
             ));
 
             Map<String, Object> response = new HashMap<>();
@@ -228,7 +169,9 @@ public class ExpertHandler {
             response.put("onDemandCount", onDemandCount);
             response.put("productCount", productCount);
 
-            return gson.toJson(response);
+            String json = gson.toJson(response);
+            ExpertMetricsCache.put(expertId, cacheKey, json);
+            return json;
 
         } catch (Exception e) {
             LoggingService.error("get_expert_booking_metrics_error", e);
@@ -239,6 +182,69 @@ public class ExpertHandler {
         }
     }
 
+    /**
+     * Booking metrics straight from the orders collection group, for date ranges that start
+     * before the metrics_daily rollups were introduced.
+     */
+    private MetricsRollupService.Totals aggregateBookingMetrics(String expertId,
+                                                                com.google.cloud.Timestamp startTs,
+                                                                com.google.cloud.Timestamp endTs,
+                                                                boolean includeOnDemand,
+                                                                boolean includeScheduled,
+                                                                boolean includeProduct) throws Exception {
+        // Build base query with expert_id and date filters
+        Query baseQuery = this.db.collectionGroup("orders")
+                .whereEqualTo("expert_id", expertId)
+                .whereGreaterThanOrEqualTo("created_at", startTs)
+                .whereLessThanOrEqualTo("created_at", endTs);
+
+        // Issue every aggregation up front and join afterwards so the dashboard waits for the
+        // slowest query rather than the sum of all of them.
+        Query onDemand = baseQuery.whereEqualTo("type", "ON_DEMAND_CONSULTATION");
+        Query scheduled = baseQuery.whereEqualTo("type", "CONSULTATION");
+        Query product = baseQuery.whereEqualTo("type", "PRODUCT");
+
+        // --- COUNT QUERIES (all orders regardless of status) ---
+        ApiFuture<AggregateQuerySnapshot> onDemandCount = includeOnDemand ? onDemand.count().get() : null;
+        ApiFuture<AggregateQuerySnapshot> productCount = includeProduct ? product.count().get() : null;
+        ApiFuture<AggregateQuerySnapshot> scheduledCount = includeScheduled ? scheduled.count().get() : null;
+
+        // --- EARNINGS QUERIES (only COMPLETED orders) ---
+        // On-demand completed: sum expert_earnings only
+        ApiFuture<AggregateQuerySnapshot> onDemandSums = includeOnDemand
+                ? onDemand.whereEqualTo("status", "COMPLETED").aggregate(sum("expert_earnings")).get()
+                : null;
+        // Scheduled and product completed: sum expert_earnings (or amount if expert_earnings not set)
+        ApiFuture<AggregateQuerySnapshot> scheduledSums = includeScheduled
+                ? scheduled.whereEqualTo("status", "paid").aggregate(sum("amount"), sum("expert_earnings")).get()
+                : null;
+        ApiFuture<AggregateQuerySnapshot> productSums = includeProduct
+                ? product.whereEqualTo("status", "paid").aggregate(sum("amount"), sum("expert_earnings")).get()
+                : null;
+
+        MetricsRollupService.Totals totals = new MetricsRollupService.Totals();
+        if (onDemandCount != null) totals.onDemandCount = onDemandCount.get().getCount();
+        if (productCount != null) totals.productCount = productCount.get().getCount();
+        if (scheduledCount != null) totals.scheduledCount = scheduledCount.get().getCount();
+        if (onDemandSums != null) {
+            Double onDemandEarnings = onDemandSums.get().getDouble(sum("expert_earnings"));
+            if (onDemandEarnings != null) totals.onDemandEarnings = onDemandEarnings;
+        }
+        if (scheduledSums != null) totals.scheduledEarnings = earningsOrAmount(scheduledSums.get());
+        if (productSums != null) totals.productEarnings = earningsOrAmount(productSums.get());
+        return totals;
+    }
+
+    private double earningsOrAmount(AggregateQuerySnapshot sums) {
+        Double amount = sums.getDouble(sum("amount"));
+        Double earnings = sums.getDouble(sum("expert_earnings"));
+        // If expert_earnings not set, use amount (no platform fee on scheduled)
+        if (earnings != null) {
+            return earnings;
+        }
+        return amount != null ? amount : 0.0;
+    }
+
     /**
      * Admin endpoint to record a payout to an expert.
      * Deducts from expert_earnings_balances and creates a record in payouts subcollection.
@@ -574,8 +580,18 @@ public class ExpertHandler {
 
             ordersQuery = ordersQuery.whereEqualTo("subscription", false).orderBy("paymentReceivedAt", Query.Direction.ASCENDING);
 
-            AggregateQuerySnapshot ordersSnapshot = ordersQuery.aggregate(sum("amount")).get().get();
-            AggregateQuerySnapshot subscriptionsSnapshot = subscriptionsQuery.aggregate(sum("amount")).get().get();
+            String cacheKey = ExpertMetricsCache.key("expert_metrics", requestBody.getCategory(),
+                    requestBody.getType(), requestBody.getDateRangeFilter());
+            String cached = ExpertMetricsCache.get(expertId, cacheKey);
+            if (cached != null) {
+                return cached;
+            }
+
+            // Both aggregations run concurrently
+            ApiFuture<AggregateQuerySnapshot> ordersFuture = ordersQuery.aggregate(sum("amount")).get();
+            ApiFuture<AggregateQuerySnapshot> subscriptionsFuture = subscriptionsQuery.aggregate(sum("amount")).get();
+            AggregateQuerySnapshot ordersSnapshot = ordersFuture.get();
+            AggregateQuerySnapshot subscriptionsSnapshot = subscriptionsFuture.get();
 
             Object orderEarnings = Objects.requireNonNull(ordersSnapshot.get(sum("amount")));
             double orderEarningsDouble = 0.0;
@@ -594,10 +610,12 @@ public class ExpertHandler {
             }
 
             response.put("totalEarnings", orderEarningsDouble + subscriptionEarningsDouble);
+            String json = gson.toJson(response);
+            ExpertMetricsCache.put(expertId, cacheKey, json);
+            return json;
         } else {
             return "Not authorized";
         }
-        return gson.toJson(response);
     }
 
     /**
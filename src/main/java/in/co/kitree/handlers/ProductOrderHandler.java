@@ -650,6 +650,10 @@ public class ProductOrderHandler {
 
             ProductCatalogService catalogService = new ProductCatalogService(db);
             int count = catalogService.seedProducts(requestBody.getProductsToSeed());
+            ExpertProductService expertProductService = new ExpertProductService(db, catalogService);
+            for (PlatformProduct product : requestBody.getProductsToSeed()) {
+                expertProductService.refreshStorefrontsForProduct(product.getProductId());
+            }
 
             return gson.toJson(Map.of("success", true, "count", count));
         } catch (Exception e) {
@@ -677,6 +681,7 @@ public class ProductOrderHandler {
             ProductCatalogService catalogService = new ProductCatalogService(db);
             PlatformProduct product = requestBody.getProductsToSeed().get(0);
             catalogService.upsertProduct(product);
+            new ExpertProductService(db, catalogService).refreshStorefrontsForProduct(product.getProductId());
 
             return gson.toJson(Map.of("success", true, "productId", product.getProductId()));
         } catch (Exception e) {
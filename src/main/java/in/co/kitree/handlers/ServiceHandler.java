@@ -243,9 +243,11 @@ public class ServiceHandler {
                 DocumentReference orderRef = db.collection("users").document(userId)
                         .collection("orders").document(finalOrderId);
                 transaction.set(orderRef, orderDetails);
+                new MetricsRollupService(db).recordOrderInTransaction(transaction, orderDetails);
 
                 return null;
             }).get();
+            MetricsRollupService.afterCommit(MetricsRollupService.orderExpertId(orderDetails));
 
             incrementCouponUsageCount(userId, orderId);
             rewardReferrer(userId, orderId);
@@ -595,8 +597,20 @@ public class ServiceHandler {
     }
 
     private void verifyOrderInDB(String userId, String orderId) throws ExecutionException, InterruptedException {
-        this.db.collection("users").document(userId).collection("orders").document(orderId)
-            .update("payment_received_at", com.google.cloud.Timestamp.now()).get();
+        DocumentReference orderRef = this.db.collection("users").document(userId).collection("orders").document(orderId);
+        MetricsRollupService metricsRollupService = new MetricsRollupService(this.db);
+        String countedExpertId = this.db.runTransaction(transaction -> {
+            DocumentSnapshot orderDoc = transaction.get(orderRef).get();
+            // Only the first verification counts the order into the expert's metrics rollup
+            String expertId = null;
+            if (orderDoc.exists() && orderDoc.get("payment_received_at") == null) {
+                metricsRollupService.recordOrderInTransaction(transaction, orderDoc.getData());
+                expertId = MetricsRollupService.orderExpertId(orderDoc.getData());
+            }
+            transaction.update(orderRef, "payment_received_at", com.google.cloud.Timestamp.now());
+            return expertId;
+        }).get();
+        MetricsRollupService.afterCommit(countedExpertId);
     }
 
     private void incrementCouponUsageCount(String userId, String orderId) throws ExecutionException, InterruptedException {
@@ -52,10 +52,26 @@ public class SessionHandler {
             case "get_live_sessions" -> handleGetLiveSessions(requestBody);
             case "get_upcoming_sessions" -> handleGetUpcomingSessions(requestBody);
             case "send_gift" -> handleSendGift(userId, requestBody);
+            case "get_gift_leaderboard" -> handleGetGiftLeaderboard(userId, requestBody);
             default -> gson.toJson(Map.of("success", false, "errorMessage", "Unknown action: " + action));
         };
     }
 
+    /**
+     * Cron entry point: rebuild the shared live/upcoming session discovery feeds.
+     */
+    public String handleRebuildSessionFeeds() {
+        try {
+            Map<String, Object> result = new java.util.HashMap<>(new SessionFeedService(db).rebuildAllFeeds());
+            result.put("success", true);
+            LoggingService.info("session_feeds_rebuilt", result);
+            return gson.toJson(result);
+        } catch (Exception e) {
+            LoggingService.error("session_feeds_rebuild_failed", e);
+            return gson.toJson(Map.of("success", false, "errorMessage", String.valueOf(e.getMessage())));
+        }
+    }
+
     // ============= Handler Methods =============
 
     private String handleGetStreamUserToken(String userId, RequestBody requestBody) throws Exception {
@@ -320,6 +336,12 @@ public class SessionHandler {
             return gson.toJson(Map.of("success", false, "error", "Plan ID is required"));
         }
         SessionService sessionService = new SessionService(db, streamService, isTest);
+        if (isPagedRequest(requestBody)) {
+            Map<String, Object> result = new java.util.HashMap<>(sessionService.getParticipantsPage(
+                    userId, planId, requestBody.getLimit(), requestBody.getCursor(), requestBody.getSince()));
+            result.put("success", true);
+            return gson.toJson(result);
+        }
         List<Map<String, Object>> participants = sessionService.getParticipants(userId, planId);
         return gson.toJson(Map.of("success", true, "participants", participants));
     }
@@ -330,6 +352,12 @@ public class SessionHandler {
             return gson.toJson(Map.of("success", false, "error", "Plan ID is required"));
         }
         SessionService sessionService = new SessionService(db, streamService, isTest);
+        if (isPagedRequest(requestBody)) {
+            Map<String, Object> result = new java.util.HashMap<>(sessionService.getRaisedHandsPage(
+                    userId, planId, requestBody.getLimit(), requestBody.getCursor(), requestBody.getSince()));
+            result.put("success", true);
+            return gson.toJson(result);
+        }
         List<Map<String, Object>> hands = sessionService.getRaisedHands(userId, planId);
         return gson.toJson(Map.of("success", true, "raisedHands", hands));
     }
@@ -372,8 +400,28 @@ public class SessionHandler {
         return gson.toJson(result);
     }
 
+    private String handleGetGiftLeaderboard(String userId, RequestBody requestBody) throws Exception {
+        String planId = requestBody.getPlanId();
+        if (planId == null || planId.isEmpty()) {
+            return gson.toJson(Map.of("success", false, "error", "Plan ID is required"));
+        }
+        SessionService sessionService = new SessionService(db, streamService, isTest);
+        Map<String, Object> result = new java.util.HashMap<>(
+                sessionService.getGiftLeaderboard(userId, planId, requestBody.getLimit()));
+        result.put("success", true);
+        return gson.toJson(result);
+    }
+
     // ============= Private Helpers =============
 
+    /**
+     * Clients that send limit, cursor or since get the paginated participant listing;
+     * older clients keep receiving the full list.
+     */
+    private boolean isPagedRequest(RequestBody requestBody) {
+        return requestBody.getLimit() != null || requestBody.getCursor() != null || requestBody.getSince() != null;
+    }
+
     private FirebaseOrder fetchOrder(String clientId, String orderId) {
         FirebaseOrder firebaseOrder = new FirebaseOrder();
         firebaseOrder.setOrderId(orderId);
@@ -40,6 +40,7 @@ public class WebhookHandler {
      */
     public String handleWebhookRequest(RequestEvent event, String rawPath) {
         LoggingService.info("processing_webhook_request", Map.of("path", rawPath));
+        RequestMetrics.setRoute("webhook:" + rawPath.substring(rawPath.lastIndexOf('/') + 1));
 
         switch (rawPath) {
             case "/webhooks/stream":
@@ -82,7 +83,7 @@ public class WebhookHandler {
 
             // Verify webhook signature for security
             // Stream uses HMAC-SHA256 with API secret to sign webhook payloads
-            StreamService streamService = new StreamService(isTest);
+            StreamService streamService = StreamService.shared(isTest);
             if (streamService.isConfigured()) {
                 // First, verify API key matches (if provided)
                 if (apiKeyHeader != null && !apiKeyHeader.isEmpty()) {
@@ -120,7 +121,7 @@ public class WebhookHandler {
                 return gson.toJson(Map.of("error", "Empty webhook body"));
             }
 
-            LoggingService.debug("stream_webhook_body_received", Map.of("bodyLength", body.length()));
+            LoggingService.debug("stream_webhook_body_received", () -> Map.of("bodyLength", body.length()));
 
             // Parse webhook event
             @SuppressWarnings("unchecked")
@@ -373,6 +374,8 @@ public class WebhookHandler {
                 orderUpdates.put("platform_fee_amount", finalPlatformFeeAmount);
                 orderUpdates.put("expert_earnings", finalExpertEarnings);
                 transaction.update(orderRef, orderUpdates);
+                new MetricsRollupService(db).recordInTransaction(transaction, finalExpertId,
+                    orderDoc.getTimestamp("created_at"), "ON_DEMAND_CONSULTATION", finalExpertEarnings);
 
                 // Set consultation status back to FREE if no other active consultations
                 if (!hasOtherActive && expertStoreDoc.exists()) {
@@ -384,6 +387,7 @@ public class WebhookHandler {
 
                 return null;
             }).get();
+            MetricsRollupService.afterCommit(finalExpertId);
 
             LoggingService.info("consultation_finalized_successfully", Map.of(
                 "orderId", orderId,
@@ -719,7 +723,7 @@ public class WebhookHandler {
             boolean callEnded = false;
             if (billingResult.success) {
                 try {
-                    StreamService streamService = new StreamService(isTest);
+                    StreamService streamService = StreamService.shared(isTest);
                     String[] cidParts = StreamService.parseCallCid(callCid);
                     if (cidParts != null) {
                         LoggingService.info("ending_stream_call", Map.of("callCid", callCid));
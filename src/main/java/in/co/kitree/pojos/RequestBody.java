@@ -83,6 +83,10 @@ public class RequestBody {
     // Divisional charts fields
     private List<Integer> divisionalChartNumbers;
 
+    // Birth profile the astrology request was made for (enables the persistent computed-results cache)
+    private String profileId;
+    private List<String> sections;            // Astrology bundle sections: details, dasha, divisional_charts, gochar
+
     // Wallet and On-Demand Consultation fields
     private String currency; // Currency for wallet operations (e.g., "INR", "USD")
     private String consultationType; // "audio", "video", or "chat" for on-demand consultations
@@ -139,6 +143,8 @@ public class RequestBody {
     private Integer sessionNumber;           // For course sessions (1, 2, 3...)
     private String userPhotoUrl;             // User's photo URL for participant display
     private Integer limit;                   // Pagination limit for queries
+    private String cursor;                   // Opaque page cursor returned by paginated queries
+    private Long since;                      // Only return records updated after this time (ms)
 
     // Review fields (for submit_review function)
     private String bookingId;                // Booking ID to attach review to
@@ -584,6 +590,22 @@ public class RequestBody {
         this.divisionalChartNumbers = divisionalChartNumbers;
     }
 
+    public String getProfileId() {
+        return profileId;
+    }
+
+    public void setProfileId(String profileId) {
+        this.profileId = profileId;
+    }
+
+    public List<String> getSections() {
+        return sections;
+    }
+
+    public void setSections(List<String> sections) {
+        this.sections = sections;
+    }
+
     // Wallet and On-Demand Consultation getters/setters
     public String getCurrency() {
         return currency;
@@ -935,6 +957,22 @@ public class RequestBody {
         this.limit = limit;
     }
 
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
+    public Long getSince() {
+        return since;
+    }
+
+    public void setSince(Long since) {
+        this.since = since;
+    }
+
     // Review getters/setters
     public String getBookingId() {
         return bookingId;
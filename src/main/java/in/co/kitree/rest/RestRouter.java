@@ -5,6 +5,7 @@ import com.google.gson.GsonBuilder;
 import in.co.kitree.handlers.*;
 import in.co.kitree.pojos.RequestBody;
 import in.co.kitree.services.LoggingService;
+import in.co.kitree.services.RequestMetrics;
 
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
@@ -74,6 +75,7 @@ public class RestRouter {
             }
 
             LoggingService.setFunction(route.functionName);
+            RequestMetrics.setRoute(route.functionName);
 
             try {
                 ApiResponse response = route.handler.handle(userId, body, pathParams, queryParams);
@@ -87,6 +89,7 @@ public class RestRouter {
             }
         }
 
+        RequestMetrics.setRoute("rest_not_found");
         return null; // No matching route
     }
 
@@ -363,6 +366,11 @@ public class RestRouter {
             return ResponseConverter.fromHandlerResponse(result);
         });
 
+        post("/api/v1/astrology/bundle", "get_astrology_bundle", (userId, body, pathParams, queryParams) -> {
+            String result = astrologyHandler.handleRequest("get_astrology_bundle", userId, body);
+            return ResponseConverter.fromHandlerResponse(result);
+        });
+
         post("/api/v1/astrology/aura-report", "generate_aura_report", (userId, body, pathParams, queryParams) -> {
             String result = astrologyHandler.handleRequest("generate_aura_report", userId, body);
             return ResponseConverter.fromHandlerResponse(result);
@@ -476,12 +484,18 @@ public class RestRouter {
 
         get("/api/v1/sessions/{planId}/participants", "get_session_participants", (userId, body, pathParams, queryParams) -> {
             body.setPlanId(pathParams.get("planId"));
+            if (queryParams.get("limit") != null) body.setLimit(Integer.parseInt(queryParams.get("limit")));
+            body.setCursor(queryParams.get("cursor"));
+            if (queryParams.get("since") != null) body.setSince(Long.parseLong(queryParams.get("since")));
             String result = sessionHandler.handleRequest("get_session_participants", userId, body);
             return ResponseConverter.fromHandlerResponse(result);
         });
 
         get("/api/v1/sessions/{planId}/raised-hands", "get_raised_hands", (userId, body, pathParams, queryParams) -> {
             body.setPlanId(pathParams.get("planId"));
+            if (queryParams.get("limit") != null) body.setLimit(Integer.parseInt(queryParams.get("limit")));
+            body.setCursor(queryParams.get("cursor"));
+            if (queryParams.get("since") != null) body.setSince(Long.parseLong(queryParams.get("since")));
             String result = sessionHandler.handleRequest("get_raised_hands", userId, body);
             return ResponseConverter.fromHandlerResponse(result);
         });
@@ -505,6 +519,13 @@ public class RestRouter {
             return ResponseConverter.fromHandlerResponse(result);
         });
 
+        get("/api/v1/sessions/{planId}/gifts/leaderboard", "get_gift_leaderboard", (userId, body, pathParams, queryParams) -> {
+            body.setPlanId(pathParams.get("planId"));
+            if (queryParams.get("limit") != null) body.setLimit(Integer.parseInt(queryParams.get("limit")));
+            String result = sessionHandler.handleRequest("get_gift_leaderboard", userId, body);
+            return ResponseConverter.fromHandlerResponse(result);
+        });
+
         // --- Admin ---
         get("/api/v1/admin/shipping-orders", "get_platform_shipping_orders", (userId, body, pathParams, queryParams) -> {
             String result = productOrderHandler.handleRequest("get_platform_shipping_orders", userId, body);
@@ -1,45 +1,112 @@
 package in.co.kitree.services;
 
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import in.co.kitree.pojos.RequestBody;
-import software.amazon.awssdk.core.SdkBytes;
-import software.amazon.awssdk.services.lambda.LambdaClient;
-import software.amazon.awssdk.services.lambda.model.InvokeRequest;
-import software.amazon.awssdk.services.lambda.model.InvokeResponse;
+import com.google.common.util.concurrent.MoreExecutors;
+import software.amazon.awssdk.services.lambda.LambdaAsyncClient;
 
 import io.sentry.Sentry;
 import io.sentry.ISpan;
 import io.sentry.SpanStatus;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+/**
+ * Calls the kitree-astrology-api Lambda.
+ *
+ * Results are memoized in two tiers keyed by a canonical hash of the request body: an
+ * in-container LRU, and (when the caller identifies the birth profile) a Firestore cache under
+ * users/{uid}/profiles/{profileId}/computed/{action}-{hash}. Natal computations never expire;
+ * transit-dependent actions (gochar, rashifal) include the UTC date in their key.
+ *
+ * Every action has an *Async variant returning a CompletableFuture, so handlers can overlap
+ * astrology calls with each other and with Firestore reads. Invocations go through the shared
+ * LambdaInvoker.
+ */
 public class AstrologyService {
 
-    private final LambdaClient lambdaClient;
+    static final int LRU_MAX_ENTRIES = 256;
+    // Firestore documents are capped at 1 MiB; larger results are only kept in the LRU
+    static final int MAX_PERSISTED_RESULT_CHARS = 900_000;
+    private static final Set<String> DATE_SCOPED_ACTIONS = Set.of("gochar", "rashifal");
+    static final Duration INVOKE_TIMEOUT = Duration.ofSeconds(30);
+
+    // Cache misses found by a Firestore read complete on the gRPC callback thread; the invocation is
+    // dispatched from here instead, since LambdaInvoker may wait for an in-flight permit
+    private static final ExecutorService MISS_DISPATCH = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "astrology-miss-dispatch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LambdaInvoker lambdaInvoker;
     private final String functionName;
     private final Gson gson;
+    private final Firestore db;
+    private final Map<String, String> resultCache = Collections.synchronizedMap(
+            new LinkedHashMap<>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > LRU_MAX_ENTRIES;
+                }
+            });
 
-    public AstrologyService(LambdaClient lambdaClient, boolean isTest) {
-        this.lambdaClient = lambdaClient;
+    public AstrologyService(LambdaInvoker lambdaInvoker, boolean isTest) {
+        this(lambdaInvoker, isTest, null);
+    }
+
+    public AstrologyService(LambdaInvoker lambdaInvoker, boolean isTest, Firestore db) {
+        this.lambdaInvoker = lambdaInvoker;
         this.functionName = isTest ? "kitree-astrology-api-test" : "kitree-astrology-api-prod";
         this.gson = new GsonBuilder().create();
+        this.db = db;
     }
 
     // Package-private constructor for unit testing with a specific function name
-    AstrologyService(LambdaClient lambdaClient, String functionName) {
-        this.lambdaClient = lambdaClient;
+    AstrologyService(LambdaAsyncClient lambdaClient, String functionName) {
+        this(lambdaClient, functionName, null);
+    }
+
+    AstrologyService(LambdaAsyncClient lambdaClient, String functionName, Firestore db) {
+        this.lambdaInvoker = new LambdaInvoker(lambdaClient);
         this.functionName = functionName;
         this.gson = new GsonBuilder().create();
+        this.db = db;
     }
 
     public String getAstrologicalDetails(RequestBody requestBody) throws Exception {
+        return getAstrologicalDetails(null, requestBody);
+    }
+
+    public String getAstrologicalDetails(String userId, RequestBody requestBody) throws Exception {
+        return LambdaInvoker.await(getAstrologicalDetailsAsync(userId, requestBody));
+    }
+
+    public CompletableFuture<String> getAstrologicalDetailsAsync(String userId, RequestBody requestBody) {
         if (requestBody.getHoroscopeDate() == null || requestBody.getHoroscopeMonth() == null ||
                 requestBody.getHoroscopeYear() == null || requestBody.getHoroscopeHour() == null ||
                 requestBody.getHoroscopeMinute() == null || requestBody.getHoroscopeLatitude() == null ||
                 requestBody.getHoroscopeLongitude() == null) {
-            return gson.toJson(Map.of("success", false, "errorMessage", "Missing required horoscope details"));
+            return CompletableFuture.completedFuture(gson.toJson(Map.of("success", false, "errorMessage", "Missing required horoscope details")));
         }
 
         Map<String, Object> body = new HashMap<>();
@@ -51,15 +118,23 @@ public class AstrologyService {
         body.put("latitude", requestBody.getHoroscopeLatitude());
         body.put("longitude", requestBody.getHoroscopeLongitude());
 
-        return invokeLambda("get_horoscope", body);
+        return invokeMemoizedAsync("get_horoscope", body, userId, requestBody.getProfileId());
     }
 
     public String getDashaDetails(RequestBody requestBody) throws Exception {
+        return getDashaDetails(null, requestBody);
+    }
+
+    public String getDashaDetails(String userId, RequestBody requestBody) throws Exception {
+        return LambdaInvoker.await(getDashaDetailsAsync(userId, requestBody));
+    }
+
+    public CompletableFuture<String> getDashaDetailsAsync(String userId, RequestBody requestBody) {
         if (requestBody.getDashaDate() == null || requestBody.getDashaMonth() == null ||
                 requestBody.getDashaYear() == null || requestBody.getDashaHour() == null ||
                 requestBody.getDashaMinute() == null || requestBody.getDashaLatitude() == null ||
                 requestBody.getDashaLongitude() == null || requestBody.getDashaPrefix() == null) {
-            return gson.toJson(Map.of("success", false, "errorMessage", "Missing required dasha details"));
+            return CompletableFuture.completedFuture(gson.toJson(Map.of("success", false, "errorMessage", "Missing required dasha details")));
         }
 
         Map<String, Object> body = new HashMap<>();
@@ -72,15 +147,23 @@ public class AstrologyService {
         body.put("longitude", requestBody.getDashaLongitude());
         body.put("prefix", requestBody.getDashaPrefix());
 
-        return invokeLambda("dasha", body);
+        return invokeMemoizedAsync("dasha", body, userId, requestBody.getProfileId());
     }
 
     public String getDivisionalCharts(RequestBody requestBody) throws Exception {
+        return getDivisionalCharts(null, requestBody);
+    }
+
+    public String getDivisionalCharts(String userId, RequestBody requestBody) throws Exception {
+        return LambdaInvoker.await(getDivisionalChartsAsync(userId, requestBody));
+    }
+
+    public CompletableFuture<String> getDivisionalChartsAsync(String userId, RequestBody requestBody) {
         if (requestBody.getHoroscopeDate() == null || requestBody.getHoroscopeMonth() == null ||
                 requestBody.getHoroscopeYear() == null || requestBody.getHoroscopeHour() == null ||
                 requestBody.getHoroscopeMinute() == null || requestBody.getHoroscopeLatitude() == null ||
                 requestBody.getHoroscopeLongitude() == null || requestBody.getDivisionalChartNumbers() == null) {
-            return gson.toJson(Map.of("success", false, "errorMessage", "Missing required divisional chart details"));
+            return CompletableFuture.completedFuture(gson.toJson(Map.of("success", false, "errorMessage", "Missing required divisional chart details")));
         }
 
         Map<String, Object> body = new HashMap<>();
@@ -93,15 +176,23 @@ public class AstrologyService {
         body.put("longitude", requestBody.getHoroscopeLongitude());
         body.put("divisional_chart_numbers", requestBody.getDivisionalChartNumbers());
 
-        return invokeLambda("divisional_charts", body);
+        return invokeMemoizedAsync("divisional_charts", body, userId, requestBody.getProfileId());
     }
 
     public String getGocharDetails(RequestBody requestBody) throws Exception {
+        return getGocharDetails(null, requestBody);
+    }
+
+    public String getGocharDetails(String userId, RequestBody requestBody) throws Exception {
+        return LambdaInvoker.await(getGocharDetailsAsync(userId, requestBody));
+    }
+
+    public CompletableFuture<String> getGocharDetailsAsync(String userId, RequestBody requestBody) {
         if (requestBody.getHoroscopeDate() == null || requestBody.getHoroscopeMonth() == null ||
                 requestBody.getHoroscopeYear() == null || requestBody.getHoroscopeHour() == null ||
                 requestBody.getHoroscopeMinute() == null || requestBody.getHoroscopeLatitude() == null ||
                 requestBody.getHoroscopeLongitude() == null) {
-            return gson.toJson(Map.of("success", false, "errorMessage", "Missing required gochar details"));
+            return CompletableFuture.completedFuture(gson.toJson(Map.of("success", false, "errorMessage", "Missing required gochar details")));
         }
 
         Map<String, Object> body = new HashMap<>();
@@ -113,7 +204,7 @@ public class AstrologyService {
         body.put("latitude", requestBody.getHoroscopeLatitude());
         body.put("longitude", requestBody.getHoroscopeLongitude());
 
-        return invokeLambda("gochar", body);
+        return invokeMemoizedAsync("gochar", body, userId, requestBody.getProfileId());
     }
 
     /**
@@ -122,6 +213,14 @@ public class AstrologyService {
      */
     public String getRashifalData(int year, int month, int day, int hour, int minute,
                                    double latitude, double longitude) throws Exception {
+        return getRashifalData(null, null, year, month, day, hour, minute, latitude, longitude);
+    }
+
+    /**
+     * Same as above, additionally persisting the day's result under the user's birth profile.
+     */
+    public String getRashifalData(String userId, String profileId, int year, int month, int day, int hour, int minute,
+                                   double latitude, double longitude) throws Exception {
         Map<String, Object> body = new HashMap<>();
         body.put("date", day);
         body.put("month", month);
@@ -131,45 +230,172 @@ public class AstrologyService {
         body.put("latitude", latitude);
         body.put("longitude", longitude);
 
-        return invokeLambda("rashifal", body);
+        return LambdaInvoker.await(invokeMemoizedAsync("rashifal", body, userId, profileId));
     }
 
-    private String invokeLambda(String action, Map<String, Object> body) throws Exception {
-        body.put("action", action);
+    /**
+     * Serve an astrology action from the LRU or the profile's Firestore cache, invoking the
+     * Lambda only on a miss. Only successful results are cached.
+     */
+    private CompletableFuture<String> invokeMemoizedAsync(String action, Map<String, Object> body,
+                                                          String userId, String profileId) {
+        String hash = requestHash(action, body, DATE_SCOPED_ACTIONS.contains(action)
+                ? LocalDate.now(ZoneOffset.UTC).toString() : null);
 
-        ISpan currentSpan = Sentry.getSpan();
-        ISpan span = currentSpan != null
-                ? currentSpan.startChild("lambda.invoke", functionName + " " + action)
-                : null;
-        try {
-            InvokeRequest request = InvokeRequest.builder()
-                    .functionName(functionName)
-                    .payload(SdkBytes.fromUtf8String(gson.toJson(body)))
-                    .build();
+        String cached = resultCache.get(hash);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
 
-            InvokeResponse response = lambdaClient.invoke(request);
+        // Captured here on the request thread; the miss may be handled on another thread
+        ISpan parentSpan = Sentry.getSpan();
+        RequestMetrics metrics = RequestMetrics.current();
 
-            if (response.functionError() != null) {
-                throw new RuntimeException("Astrology Lambda " + action + " failed: " + response.functionError()
-                        + " — " + response.payload().asUtf8String());
+        DocumentReference computedRef = computedRef(userId, profileId, action, hash);
+        if (computedRef == null) {
+            return invokeAndCache(action, body, hash, null, parentSpan, metrics);
+        }
+        return toCompletableFuture(computedRef.get())
+                .thenApply(doc -> doc.exists() && hash.equals(doc.getString("hash")) ? doc.getString("result") : null)
+                .exceptionally(e -> {
+                    LoggingService.warn("astrology_cache_read_failed", Map.of("action", action, "error", String.valueOf(e.getMessage())));
+                    return null;
+                })
+                .thenComposeAsync(hit -> {
+                    if (hit != null) {
+                        resultCache.put(hash, hit);
+                        return CompletableFuture.completedFuture(hit);
+                    }
+                    return invokeAndCache(action, body, hash, computedRef, parentSpan, metrics);
+                }, MISS_DISPATCH);
+    }
+
+    private CompletableFuture<String> invokeAndCache(String action, Map<String, Object> body, String hash,
+                                                     DocumentReference computedRef, ISpan parentSpan,
+                                                     RequestMetrics metrics) {
+        return invokeLambdaAsync(action, body, parentSpan, metrics).thenApply(result -> {
+            if (isCacheable(result)) {
+                resultCache.put(hash, result);
+                if (computedRef != null && result.length() <= MAX_PERSISTED_RESULT_CHARS) {
+                    Map<String, Object> doc = new HashMap<>();
+                    doc.put("action", action);
+                    doc.put("hash", hash);
+                    doc.put("result", result);
+                    doc.put("createdAt", FieldValue.serverTimestamp());
+                    // Best effort: the response doesn't wait for the cache write, but a failed write is logged
+                    toCompletableFuture(computedRef.set(doc)).exceptionally(e -> {
+                        LoggingService.warn("astrology_cache_write_failed", Map.of("action", action, "error", String.valueOf(e.getMessage())));
+                        return null;
+                    });
+                }
+            }
+            return result;
+        });
+    }
+
+    private static <T> CompletableFuture<T> toCompletableFuture(ApiFuture<T> apiFuture) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        ApiFutures.addCallback(apiFuture, new ApiFutureCallback<T>() {
+            @Override
+            public void onFailure(Throwable t) {
+                future.completeExceptionally(t);
             }
 
-            String responsePayload = response.payload().asUtf8String();
-            if (span != null) {
-                span.setStatus(SpanStatus.OK);
-                span.finish();
+            @Override
+            public void onSuccess(T result) {
+                future.complete(result);
             }
-            return parseLambdaResponse(responsePayload);
-        } catch (Exception e) {
-            if (span != null) {
-                span.setThrowable(e);
-                span.setStatus(SpanStatus.INTERNAL_ERROR);
-                span.finish();
+        }, MoreExecutors.directExecutor());
+        return future;
+    }
+
+    private DocumentReference computedRef(String userId, String profileId, String action, String hash) {
+        if (db == null || userId == null || userId.isEmpty() || profileId == null || profileId.isEmpty()
+                || profileId.contains("/")) {
+            return null;
+        }
+        return db.collection("users").document(userId)
+                .collection("profiles").document(profileId)
+                .collection("computed").document(action + "-" + hash.substring(0, 16));
+    }
+
+    /**
+     * Canonical hash of an astrology request: SHA-256 (hex) over the action, the body with keys
+     * sorted, and for transit-dependent actions the date.
+     */
+    static String requestHash(String action, Map<String, Object> body, String date) {
+        Map<String, Object> canonical = new TreeMap<>(body);
+        canonical.remove("action");
+        String key = action + "\n" + new Gson().toJson(canonical) + (date != null ? "\n" + date : "");
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (java.security.NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Only JSON objects without an error marker are worth caching.
+     */
+    static boolean isCacheable(String result) {
+        try {
+            JsonElement element = JsonParser.parseString(result);
+            if (!element.isJsonObject()) {
+                return false;
             }
-            throw e;
+            JsonObject json = element.getAsJsonObject();
+            if (json.has("error") || json.has("errorMessage")) {
+                return false;
+            }
+            return !(json.has("success") && json.get("success").isJsonPrimitive() && !json.get("success").getAsBoolean());
+        } catch (Exception e) {
+            return false;
         }
     }
 
+    /**
+     * @param parentSpan the request's span, captured on the request thread (null when not traced)
+     * @param metrics the request's metrics, captured on the request thread
+     */
+    private CompletableFuture<String> invokeLambdaAsync(String action, Map<String, Object> body,
+                                                        ISpan parentSpan, RequestMetrics metrics) {
+        body.put("action", action);
+
+        ISpan span = parentSpan != null
+                ? parentSpan.startChild("lambda.invoke", functionName + " " + action)
+                : null;
+
+        long startNanos = System.nanoTime();
+        return lambdaInvoker.invoke(functionName, gson.toJson(body), INVOKE_TIMEOUT)
+                .whenComplete((response, error) -> metrics.addExternal(
+                        RequestMetrics.DEPENDENCY_ASTROLOGY_LAMBDA, System.nanoTime() - startNanos))
+                .thenApply(response -> {
+                    if (response.functionError() != null) {
+                        throw new RuntimeException("Astrology Lambda " + action + " failed: " + response.functionError()
+                                + " — " + response.payload().asUtf8String());
+                    }
+                    return parseLambdaResponse(response.payload().asUtf8String());
+                })
+                .whenComplete((result, error) -> {
+                    if (span == null) {
+                        return;
+                    }
+                    if (error != null) {
+                        span.setThrowable(error instanceof java.util.concurrent.CompletionException && error.getCause() != null
+                                ? error.getCause() : error);
+                        span.setStatus(SpanStatus.INTERNAL_ERROR);
+                    } else {
+                        span.setStatus(SpanStatus.OK);
+                    }
+                    span.finish();
+                });
+    }
+
     private String parseLambdaResponse(String response) {
         try {
             @SuppressWarnings("unchecked")
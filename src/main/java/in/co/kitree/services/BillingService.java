@@ -29,6 +29,7 @@ public class BillingService {
     private final WalletService walletService;
     private final ExpertEarningsService earningsService;
     private final OnDemandConsultationService consultationService;
+    private final MetricsRollupService metricsRollupService;
 
     /**
      * Result object for billing calculations.
@@ -86,10 +87,11 @@ public class BillingService {
      */
     public BillingService(Firestore db, boolean isTest) {
         this.db = db;
-        this.streamService = new StreamService(isTest);
+        this.streamService = StreamService.shared(isTest);
         this.walletService = new WalletService(db);
         this.earningsService = new ExpertEarningsService(db);
         this.consultationService = new OnDemandConsultationService(db);
+        this.metricsRollupService = new MetricsRollupService(db);
     }
 
     /**
@@ -102,6 +104,7 @@ public class BillingService {
         this.walletService = walletService;
         this.earningsService = earningsService;
         this.consultationService = consultationService;
+        this.metricsRollupService = new MetricsRollupService(db);
     }
 
     /**
@@ -345,6 +348,8 @@ public class BillingService {
                 orderUpdates.put("summary_status", OnDemandConsultationService.SUMMARY_STATUS_SKIPPED);
                 orderUpdates.put("summary_error", "Call duration too short for summary");
                 transaction.update(orderRef, orderUpdates);
+                metricsRollupService.recordInTransaction(transaction, expertId,
+                        orderDoc.getTimestamp("created_at"), "ON_DEMAND_CONSULTATION", 0.0);
 
                 // Free expert if no other active consultations
                 if (!hasOtherActive && expertStoreDoc.exists()) {
@@ -356,6 +361,7 @@ public class BillingService {
 
                 return null;
             }).get();
+            MetricsRollupService.afterCommit(expertId);
 
             LoggingService.info("zero_charge_applied_successfully");
             return BillingResult.zeroCharge();
@@ -458,6 +464,9 @@ public class BillingService {
                 orderUpdates.put("summary_status", OnDemandConsultationService.SUMMARY_STATUS_PENDING);
                 orderUpdates.put("summary_retry_count", 0L);
                 transaction.update(orderRef, orderUpdates);
+                consultationService.enqueueSummaryInTransaction(transaction, userId, orderId);
+                metricsRollupService.recordInTransaction(transaction, expertId,
+                        orderDoc.getTimestamp("created_at"), "ON_DEMAND_CONSULTATION", finalExpertEarnings);
 
                 // Set consultation status back to FREE if no other active consultations
                 if (!hasOtherActive && expertStoreDoc.exists()) {
@@ -469,6 +478,7 @@ public class BillingService {
 
                 return null;
             }).get();
+            MetricsRollupService.afterCommit(expertId);
 
             LoggingService.info("charge_applied_successfully", Map.of(
                 "orderId", orderId,
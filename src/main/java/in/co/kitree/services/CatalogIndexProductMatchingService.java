@@ -0,0 +1,295 @@
+package in.co.kitree.services;
+
+import in.co.kitree.pojos.MatchedProduct;
+import in.co.kitree.pojos.PlatformProduct;
+import in.co.kitree.pojos.RemedyAttributes;
+
+import java.util.*;
+
+/**
+ * ProductMatchingService backed by the live platform_products catalog.
+ *
+ * Active products from the container's catalog snapshot (ProductCatalogService) are built into an
+ * inverted index: for each
+ * (attribute, value) pair — material, planet, purpose, chakra, color and free-form tag — a sorted
+ * int[] posting list of product positions. A remedy is scored by weighted attribute overlap with a
+ * single pass over the relevant posting lists, so matching never touches Firestore.
+ *
+ * The index is rebuilt whenever the snapshot version changes, i.e. after the catalog's own
+ * updatedAt-watermark refresh picked up changes. Deactivated products drop out on that rebuild.
+ * Until the catalog has any active products, matching is delegated to the fallback service.
+ */
+public class CatalogIndexProductMatchingService implements ProductMatchingService {
+
+    private static final int MAX_RESULTS = 4;
+
+    // Attribute weights: the material an expert names is the strongest signal
+    static final int WEIGHT_MATERIAL = 8;
+    static final int WEIGHT_PLANET = 4;
+    static final int WEIGHT_PURPOSE = 3;
+    static final int WEIGHT_CHAKRA = 2;
+    static final int WEIGHT_COLOR = 1;
+    static final int WEIGHT_TAG = 1;
+    static final int WEIGHT_PRODUCT_TYPE = 2;
+
+    private static final String FIELD_MATERIAL = "material";
+    private static final String FIELD_PLANET = "planet";
+    private static final String FIELD_PURPOSE = "purpose";
+    private static final String FIELD_CHAKRA = "chakra";
+    private static final String FIELD_COLOR = "color";
+    private static final String FIELD_TAG = "tag";
+
+    // Shared by every instance in the container
+    private static final IndexState SHARED_STATE = new IndexState();
+
+    private final ProductCatalogService catalogService;
+    private final ProductMatchingService fallback;
+    private final IndexState state;
+
+    public CatalogIndexProductMatchingService(ProductCatalogService catalogService, ProductMatchingService fallback) {
+        this(catalogService, fallback, SHARED_STATE);
+    }
+
+    CatalogIndexProductMatchingService(ProductCatalogService catalogService, ProductMatchingService fallback,
+                                       IndexState state) {
+        this.catalogService = catalogService;
+        this.fallback = fallback;
+        this.state = state;
+    }
+
+    /**
+     * Per-container index state: the index and the catalog snapshot version it was built from.
+     */
+    static final class IndexState {
+        private volatile long version = -1;
+        private volatile CatalogIndex index = CatalogIndex.build(List.of());
+    }
+
+    @Override
+    public List<MatchedProduct> findMatchingProducts(RemedyAttributes attributes) {
+        if (attributes == null || !attributes.needsProductMatching()) {
+            return List.of();
+        }
+        CatalogIndex index = currentIndex();
+        if (index.size() == 0) {
+            return fallback != null ? fallback.findMatchingProducts(attributes) : List.of();
+        }
+
+        Scores scores = new Scores(index.size());
+        score(index, scores, FIELD_MATERIAL, attributes.getMaterial(), WEIGHT_MATERIAL);
+        score(index, scores, FIELD_PLANET, attributes.getPlanets(), WEIGHT_PLANET);
+        score(index, scores, FIELD_PURPOSE, attributes.getPurpose(), WEIGHT_PURPOSE);
+        score(index, scores, FIELD_CHAKRA, attributes.getChakras(), WEIGHT_CHAKRA);
+        score(index, scores, FIELD_COLOR, attributes.getColor(), WEIGHT_COLOR);
+        for (List<String> values : Arrays.asList(attributes.getMaterial(), attributes.getPlanets(),
+                attributes.getPurpose(), attributes.getChakras(), attributes.getColor())) {
+            score(index, scores, FIELD_TAG, values, WEIGHT_TAG);
+        }
+
+        // Preferred form factor lifts matching products; it never matches on its own
+        String productType = attributes.getProductType() != null ? normalize(attributes.getProductType()) : null;
+        if (productType != null) {
+            for (int i = 0; i < index.size(); i++) {
+                if (scores.score[i] > 0 && productType.equals(normalize(index.products[i].getProductType()))) {
+                    scores.score[i] += WEIGHT_PRODUCT_TYPE;
+                }
+            }
+        }
+
+        return top(index, scores);
+    }
+
+    @Override
+    public List<MatchedProduct> findByTag(String tag) {
+        if (tag == null || tag.isEmpty()) {
+            return List.of();
+        }
+        CatalogIndex index = currentIndex();
+        if (index.size() == 0) {
+            return fallback != null ? fallback.findByTag(tag) : List.of();
+        }
+
+        Scores scores = new Scores(index.size());
+        List<String> values = List.of(tag);
+        score(index, scores, FIELD_MATERIAL, values, WEIGHT_MATERIAL);
+        score(index, scores, FIELD_PLANET, values, WEIGHT_PLANET);
+        score(index, scores, FIELD_PURPOSE, values, WEIGHT_PURPOSE);
+        score(index, scores, FIELD_CHAKRA, values, WEIGHT_CHAKRA);
+        score(index, scores, FIELD_COLOR, values, WEIGHT_COLOR);
+        score(index, scores, FIELD_TAG, values, WEIGHT_TAG);
+        return top(index, scores);
+    }
+
+    /**
+     * The index for the current catalog snapshot, rebuilt when the snapshot has changed.
+     * If the catalog cannot be read the previous index keeps serving.
+     */
+    CatalogIndex currentIndex() {
+        ProductCatalogService.CatalogSnapshot snapshot;
+        try {
+            snapshot = catalogService.snapshot();
+        } catch (Exception e) {
+            LoggingService.warn("catalog_index_refresh_failed", Map.of("error", String.valueOf(e.getMessage())));
+            return state.index;
+        }
+        if (snapshot.version <= state.version) {
+            return state.index;
+        }
+        synchronized (state) {
+            if (snapshot.version > state.version) {
+                state.index = CatalogIndex.build(snapshot.active);
+                state.version = snapshot.version;
+                LoggingService.info("catalog_index_rebuilt", Map.of(
+                    "catalogVersion", snapshot.version,
+                    "activeProducts", state.index.size(),
+                    "postingLists", state.index.postings.size()
+                ));
+            }
+            return state.index;
+        }
+    }
+
+    private static void score(CatalogIndex index, Scores scores, String field, List<String> values, int weight) {
+        if (values == null) {
+            return;
+        }
+        for (String value : values) {
+            if (value == null) {
+                continue;
+            }
+            String key = field + ":" + normalize(value);
+            int[] postings = index.postings.get(key);
+            if (postings == null) {
+                continue;
+            }
+            for (int doc : postings) {
+                scores.score[doc] += weight;
+                if (weight > scores.reasonWeight[doc]) {
+                    scores.reasonWeight[doc] = weight;
+                    scores.reason[doc] = field + ": " + normalize(value);
+                }
+            }
+        }
+    }
+
+    private static List<MatchedProduct> top(CatalogIndex index, Scores scores) {
+        // Keep the best MAX_RESULTS positions; ties keep catalog (name) order
+        int[] best = new int[MAX_RESULTS];
+        int count = 0;
+        for (int doc = 0; doc < index.size(); doc++) {
+            int s = scores.score[doc];
+            if (s == 0) {
+                continue;
+            }
+            int pos = count;
+            while (pos > 0 && scores.score[best[pos - 1]] < s) {
+                pos--;
+            }
+            if (pos >= MAX_RESULTS) {
+                continue;
+            }
+            System.arraycopy(best, pos, best, pos + 1, Math.min(count, MAX_RESULTS - 1) - pos);
+            best[pos] = doc;
+            count = Math.min(count + 1, MAX_RESULTS);
+        }
+
+        List<MatchedProduct> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            results.add(toMatchedProduct(index.products[best[i]], scores.reason[best[i]]));
+        }
+        return results;
+    }
+
+    private static MatchedProduct toMatchedProduct(PlatformProduct product, String matchReason) {
+        String imageUrl = product.getThumbnailUrl();
+        if (imageUrl == null && product.getImages() != null && !product.getImages().isEmpty()) {
+            imageUrl = product.getImages().get(0);
+        }
+        MatchedProduct matched = new MatchedProduct(
+            product.getSku() != null ? product.getSku() : product.getProductId(),
+            product.getName(),
+            product.getSuggestedPriceInr() != null ? (int) Math.round(product.getSuggestedPriceInr()) : 0,
+            imageUrl,
+            product.getProductType(),
+            matchReason
+        );
+        matched.setAvailable(product.isPlatformStockAvailable());
+        return matched;
+    }
+
+    static String normalize(String value) {
+        return value == null ? null : value.toLowerCase().trim().replace(" ", "_").replace("-", "_");
+    }
+
+    private static final class Scores {
+        final int[] score;
+        final int[] reasonWeight;
+        final String[] reason;
+
+        Scores(int size) {
+            score = new int[size];
+            reasonWeight = new int[size];
+            reason = new String[size];
+        }
+    }
+
+    /**
+     * Immutable inverted index over a catalog snapshot. Products are ordered by name and
+     * addressed by position; posting lists hold ascending positions.
+     */
+    static final class CatalogIndex {
+        final PlatformProduct[] products;
+        final Map<String, int[]> postings;
+
+        private CatalogIndex(PlatformProduct[] products, Map<String, int[]> postings) {
+            this.products = products;
+            this.postings = postings;
+        }
+
+        int size() {
+            return products.length;
+        }
+
+        static CatalogIndex build(Collection<PlatformProduct> activeProducts) {
+            PlatformProduct[] products = activeProducts.toArray(new PlatformProduct[0]);
+            Arrays.sort(products, Comparator.comparing(PlatformProduct::getName,
+                Comparator.nullsLast(Comparator.naturalOrder())));
+
+            Map<String, List<Integer>> building = new HashMap<>();
+            for (int doc = 0; doc < products.length; doc++) {
+                PlatformProduct product = products[doc];
+                PlatformProduct.ProductMatchingAttributes attrs = product.getMatchingAttributes();
+                if (attrs != null) {
+                    addPostings(building, FIELD_MATERIAL, attrs.getMaterial(), doc);
+                    addPostings(building, FIELD_PLANET, attrs.getPlanets(), doc);
+                    addPostings(building, FIELD_PURPOSE, attrs.getPurpose(), doc);
+                    addPostings(building, FIELD_CHAKRA, attrs.getChakras(), doc);
+                    addPostings(building, FIELD_COLOR, attrs.getColors(), doc);
+                }
+                addPostings(building, FIELD_TAG, product.getTags(), doc);
+            }
+
+            Map<String, int[]> postings = new HashMap<>(building.size() * 2);
+            for (Map.Entry<String, List<Integer>> entry : building.entrySet()) {
+                postings.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+            }
+            return new CatalogIndex(products, postings);
+        }
+
+        private static void addPostings(Map<String, List<Integer>> building, String field, List<String> values, int doc) {
+            if (values == null) {
+                return;
+            }
+            for (String value : values) {
+                if (value == null || value.isBlank()) {
+                    continue;
+                }
+                List<Integer> list = building.computeIfAbsent(field + ":" + normalize(value), k -> new ArrayList<>());
+                // Duplicate values on one product count once
+                if (list.isEmpty() || list.get(list.size() - 1) != doc) {
+                    list.add(doc);
+                }
+            }
+        }
+    }
+}
@@ -16,6 +16,11 @@ import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Service for generating AI-powered consultation summaries using Gemini.
@@ -40,7 +45,7 @@ import java.util.*;
  *
  * Product Matching:
  * - remedy_product blocks have product_attributes extracted by Gemini
- * - MockProductMatchingService (swappable for VectorProductMatchingService) finds catalog matches
+ * - CatalogIndexProductMatchingService finds matches in the live platform catalog (in-memory index)
  * - Matched products are added as matched_products array to each remedy block
  */
 public class ConsultationSummaryService {
@@ -64,13 +69,33 @@ public class ConsultationSummaryService {
     // Call type used for Stream calls
     private static final String STREAM_CALL_TYPE = "consultation_audio";
 
+    // Orders summarized concurrently by one worker run; each holds a download in /tmp and a Gemini call
+    public static final int SUMMARY_WORKER_CONCURRENCY = 4;
+    // Orders picked up per worker run
+    public static final int SUMMARY_WORKER_BATCH_SIZE = 12;
+    // Time a single order needs: download and extraction, the Files API upload and its ACTIVE wait
+    // (up to GeminiService.FILE_ACTIVE_TIMEOUT_MS, 120s), generation with an immediate retry and the
+    // Firestore writes. A job started later than this before the 300s Lambda timeout would be killed
+    // and only picked up again once its lease expires.
+    static final long MIN_SUMMARY_JOB_MS = 240_000;
+
+    // Share of template.yaml's 1 GB EphemeralStorage that concurrent jobs may hold in /tmp for MP4s
+    // being reduced to their audio (the MP4 and the extracted AAC are on disk together)
+    static final int EXTRACTION_TMP_BUDGET_MB = 768;
+    private static final Semaphore extractionTmpBudget = new Semaphore(EXTRACTION_TMP_BUDGET_MB);
+    private static final long MB = 1024L * 1024;
+
+    // Set to "false" to send MP4 recordings as-is instead of extracting their audio track first
+    static final String AUDIO_EXTRACTION_ENV = "SUMMARY_AUDIO_EXTRACTION";
+
     public ConsultationSummaryService(Firestore db, boolean isTest) {
         this.db = db;
         this.consultationService = new OnDemandConsultationService(db);
-        this.streamService = new StreamService(isTest);
+        this.streamService = StreamService.shared(isTest);
         this.geminiService = new GeminiService(isTest);
-        // Using MockProductMatchingService for now - can be swapped for VectorProductMatchingService later
-        this.productMatchingService = new MockProductMatchingService();
+        // Live catalog index; the hardcoded mock only answers while platform_products is empty
+        this.productMatchingService = new CatalogIndexProductMatchingService(
+            new ProductCatalogService(db), new MockProductMatchingService());
     }
 
     /**
@@ -125,7 +150,7 @@ public class ConsultationSummaryService {
      * @return SummaryResult with generated summary or error
      */
     public SummaryResult generateSummary(String userId, String orderId) {
-        Path tempAudioFile = null;
+        IngestedRecording ingested = null;
 
         try {
             LoggingService.setContext(userId, orderId, null);
@@ -236,15 +261,18 @@ public class ConsultationSummaryService {
                 "durationSeconds", recording.getDurationSeconds()
             ));
 
-            tempAudioFile = downloadRecordingToTemp(recording.getUrl(), recording.getFilename());
-            if (tempAudioFile == null) {
+            ingested = ingestRecording(recording.getUrl(), recording.getFilename());
+            if (ingested == null) {
                 String error = "Failed to download recording";
                 consultationService.updateSummaryStatus(userId, orderId,
                     OnDemandConsultationService.SUMMARY_STATUS_PENDING, null, error, true);
                 return SummaryResult.pendingRetry(error);
             }
 
-            // 10. Generate summary using Gemini with immediate retries
+            // 10. Upload large files once so the immediate retries reuse the same file URI
+            ingested = uploadForGemini(ingested);
+
+            // 11. Generate summary using Gemini with immediate retries
             GeminiService.GeminiSummaryResult geminiResult = null;
             int attempt = 0;
             final long finalBillableSeconds = billableSeconds;
@@ -253,12 +281,22 @@ public class ConsultationSummaryService {
                 attempt++;
                 LoggingService.info("gemini_attempt", Map.of("attempt", attempt));
 
-                geminiResult = geminiService.generateSummary(
-                    tempAudioFile,
-                    order.getCategory(),
-                    order.getExpertName(),
-                    finalBillableSeconds
-                );
+                if (ingested.uploaded != null) {
+                    geminiResult = geminiService.generateSummaryFromUri(
+                        ingested.uploaded.uri,
+                        ingested.uploaded.mimeType,
+                        order.getCategory(),
+                        order.getExpertName(),
+                        finalBillableSeconds
+                    );
+                } else {
+                    geminiResult = geminiService.generateSummary(
+                        ingested.tempFile,
+                        order.getCategory(),
+                        order.getExpertName(),
+                        finalBillableSeconds
+                    );
+                }
 
                 if (geminiResult.success) {
                     break;
@@ -277,7 +315,7 @@ public class ConsultationSummaryService {
                 }
             }
 
-            // 11. Handle Gemini result
+            // 12. Handle Gemini result
             if (geminiResult == null) {
                 String error = "Gemini service returned null";
                 consultationService.updateSummaryStatus(userId, orderId,
@@ -304,7 +342,7 @@ public class ConsultationSummaryService {
 
             Map<String, Object> summary = geminiResult.summary;
 
-            // 12. Process product recommendations and match to catalog
+            // 13. Process product recommendations and match to catalog
             int matchedProducts = processProductRecommendations(summary);
             if (matchedProducts > 0) {
                 LoggingService.info("products_matched", Map.of(
@@ -312,7 +350,7 @@ public class ConsultationSummaryService {
                 ));
             }
 
-            // 13. Store summary and mark as completed
+            // 14. Store summary and mark as completed
             consultationService.updateSummaryStatus(userId, orderId,
                 OnDemandConsultationService.SUMMARY_STATUS_COMPLETED, summary, null, false);
 
@@ -341,31 +379,91 @@ public class ConsultationSummaryService {
             return SummaryResult.pendingRetry(e.getMessage());
 
         } finally {
-            // Always cleanup temp file
-            if (tempAudioFile != null) {
-                try {
-                    Files.deleteIfExists(tempAudioFile);
-                    LoggingService.info("temp_file_cleaned", Map.of(
-                        "path", tempAudioFile.toString()
-                    ));
-                } catch (Exception e) {
-                    LoggingService.warn("temp_file_cleanup_failed", Map.of(
-                        "path", tempAudioFile.toString(),
-                        "error", e.getMessage()
-                    ));
-                }
+            // Always cleanup temp file / uploaded file
+            if (ingested != null) {
+                discardTempFile(ingested);
+            }
+            if (ingested != null && ingested.uploaded != null) {
+                geminiService.deleteFile(ingested.uploaded.name);
+            }
+        }
+    }
+
+    /**
+     * A downloaded recording: either uploaded to the Gemini Files API, or a temp file in /tmp small
+     * enough to send inline. reservedMb is the share of EXTRACTION_TMP_BUDGET_MB the temp file holds.
+     */
+    private static class IngestedRecording {
+        final Path tempFile;
+        final GeminiService.UploadedAudio uploaded;
+        final int reservedMb;
+
+        IngestedRecording(Path tempFile, GeminiService.UploadedAudio uploaded, int reservedMb) {
+            this.tempFile = tempFile;
+            this.uploaded = uploaded;
+            this.reservedMb = reservedMb;
+        }
+    }
+
+    /**
+     * Upload a temp file above GeminiService.INLINE_AUDIO_MAX_BYTES to the Files API and free its
+     * /tmp space. Smaller files and recordings that were streamed to the Files API are returned as-is.
+     */
+    private IngestedRecording uploadForGemini(IngestedRecording ingested) throws Exception {
+        if (ingested.uploaded != null || Files.size(ingested.tempFile) <= GeminiService.INLINE_AUDIO_MAX_BYTES) {
+            return ingested;
+        }
+        GeminiService.UploadedAudio uploaded = geminiService.uploadFile(ingested.tempFile,
+            GeminiService.determineMimeType(ingested.tempFile.toString()));
+        discardTempFile(ingested);
+        return new IngestedRecording(null, uploaded, 0);
+    }
+
+    /**
+     * Delete the recording's temp file, if any, and return its /tmp reservation.
+     */
+    private static void discardTempFile(IngestedRecording ingested) {
+        if (ingested.tempFile != null) {
+            try {
+                Files.deleteIfExists(ingested.tempFile);
+                LoggingService.info("temp_file_cleaned", Map.of(
+                    "path", ingested.tempFile.toString()
+                ));
+            } catch (Exception e) {
+                LoggingService.warn("temp_file_cleanup_failed", Map.of(
+                    "path", ingested.tempFile.toString(),
+                    "error", String.valueOf(e.getMessage())
+                ));
             }
         }
+        extractionTmpBudget.release(ingested.reservedMb);
+    }
+
+    /**
+     * /tmp to reserve, in MB, to reduce an MP4 of the given length to its audio: the MP4 plus an
+     * AAC track of at most the same size.
+     */
+    static int extractionReservationMb(long contentLength) {
+        return (int) Math.min(Integer.MAX_VALUE, (2 * contentLength + MB - 1) / MB);
     }
 
     /**
-     * Download recording from URL to temp file in /tmp directory.
+     * Download a recording and get it ready for Gemini.
+     *
+     * MP4 recordings are copied to /tmp and, when audio extraction is enabled, reduced to their AAC
+     * track so video frames are never uploaded. Extraction first reserves room for the MP4 and the
+     * AAC in EXTRACTION_TMP_BUDGET_MB; when concurrent jobs hold too much of it, the MP4 is streamed
+     * as-is instead. Recordings whose response declares a length above
+     * GeminiService.INLINE_AUDIO_MAX_BYTES and that are not being extracted are piped directly into
+     * a Files API upload, so they never touch the heap or /tmp. The rest are copied to a temp file.
      *
      * @param url      Pre-signed S3 URL
      * @param filename Original filename (for extension)
-     * @return Path to temp file, or null if download failed
+     * @return The ingested recording, or null if download/upload failed
      */
-    private Path downloadRecordingToTemp(String url, String filename) {
+    private IngestedRecording ingestRecording(String url, String filename) {
+        Path tempFile = null;
+        int reservedMb = 0;
         try {
             // Determine file extension
             String extension = ".mp4";
@@ -376,12 +474,7 @@ public class ConsultationSummaryService {
                 }
             }
 
-            // Create temp file in /tmp (Lambda's writable directory)
-            Path tempFile = Files.createTempFile("recording_", extension);
-
-            LoggingService.info("downloading_to_temp", Map.of(
-                "tempPath", tempFile.toString()
-            ));
+            long startMs = System.currentTimeMillis();
 
             // Download file
             HttpRequest request = HttpRequest.newBuilder()
@@ -397,29 +490,136 @@ public class ConsultationSummaryService {
                 LoggingService.error("download_failed", null, Map.of(
                     "statusCode", response.statusCode()
                 ));
-                Files.deleteIfExists(tempFile);
+                response.body().close();
                 return null;
             }
 
+            long contentLength = response.headers().firstValueAsLong("Content-Length").orElse(-1L);
+            // Extraction needs random access to the container (moov may follow mdat)
+            boolean extractAudio = isAudioExtractionEnabled() && extension.equalsIgnoreCase(".mp4");
+            // S3 downloads declare their length; without one the MP4 can only go through /tmp
+            if (extractAudio && contentLength > 0) {
+                int neededMb = extractionReservationMb(contentLength);
+                if (extractionTmpBudget.tryAcquire(neededMb)) {
+                    reservedMb = neededMb;
+                } else {
+                    LoggingService.info("audio_extraction_over_tmp_budget", Map.of(
+                        "sizeBytes", contentLength,
+                        "neededMb", neededMb,
+                        "availableMb", extractionTmpBudget.availablePermits()
+                    ));
+                    extractAudio = false;
+                }
+            }
+
+            if (!extractAudio && contentLength > GeminiService.INLINE_AUDIO_MAX_BYTES) {
+                GeminiService.UploadedAudio uploaded;
+                try (InputStream inputStream = response.body()) {
+                    uploaded = geminiService.uploadAudio(inputStream, contentLength,
+                        GeminiService.determineMimeType(extension));
+                }
+                logIngestMetrics("files_api_stream", contentLength, startMs);
+                return new IngestedRecording(null, uploaded, 0);
+            }
+
+            // Create temp file in /tmp (Lambda's writable directory)
+            tempFile = Files.createTempFile("recording_", extension);
+
+            LoggingService.info("downloading_to_temp", Map.of(
+                "tempPath", tempFile.toString()
+            ));
+
             // Copy stream to file
             try (InputStream inputStream = response.body()) {
                 Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
             }
 
-            long fileSize = Files.size(tempFile);
-            LoggingService.info("download_complete", Map.of(
-                "sizeBytes", fileSize,
-                "sizeKB", fileSize / 1024
-            ));
+            if (extractAudio) {
+                Path audioFile = extractAudioTrack(tempFile);
+                if (audioFile != null) {
+                    tempFile = audioFile;
+                    logIngestMetrics("extracted_audio", Files.size(tempFile), startMs);
+                    return new IngestedRecording(tempFile, null, reservedMb);
+                }
+            }
 
-            return tempFile;
+            logIngestMetrics("temp_file", Files.size(tempFile), startMs);
+            return new IngestedRecording(tempFile, null, reservedMb);
 
         } catch (Exception e) {
             LoggingService.error("download_exception", e, Map.of("url", url));
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (Exception ignored) {
+                    // Lambda /tmp is recycled with the container
+                }
+            }
+            extractionTmpBudget.release(reservedMb);
+            return null;
+        }
+    }
+
+    /**
+     * Replace a downloaded MP4 with its AAC audio track. Returns the .aac file (the MP4 is deleted),
+     * or null if the container has no extractable track, in which case the MP4 is left in place.
+     */
+    private Path extractAudioTrack(Path mp4File) {
+        Path aacFile = null;
+        try {
+            long startMs = System.currentTimeMillis();
+            long originalBytes = Files.size(mp4File);
+            aacFile = Files.createTempFile("recording_audio_", ".aac");
+
+            if (Mp4AudioExtractor.extractAac(mp4File, aacFile) == null) {
+                LoggingService.info("audio_extraction_skipped", Map.of("sizeBytes", originalBytes));
+                Files.deleteIfExists(aacFile);
+                return null;
+            }
+
+            long audioBytes = Files.size(aacFile);
+            LoggingService.info("audio_extracted", Map.of(
+                "originalBytes", originalBytes,
+                "audioBytes", audioBytes,
+                "savedBytes", originalBytes - audioBytes,
+                "savedPercent", originalBytes > 0 ? (originalBytes - audioBytes) * 100 / originalBytes : 0,
+                "extractMs", System.currentTimeMillis() - startMs
+            ));
+            Files.deleteIfExists(mp4File);
+            return aacFile;
+        } catch (Exception e) {
+            LoggingService.warn("audio_extraction_failed", Map.of("error", String.valueOf(e.getMessage())));
+            if (aacFile != null) {
+                try {
+                    Files.deleteIfExists(aacFile);
+                } catch (Exception ignored) {
+                    // Lambda /tmp is recycled with the container
+                }
+            }
             return null;
         }
     }
 
+    static boolean isAudioExtractionEnabled() {
+        return !"false".equalsIgnoreCase(System.getenv(AUDIO_EXTRACTION_ENV));
+    }
+
+    /**
+     * Size, timing and heap figures for one recording, used to right-size the Lambda memory.
+     */
+    private static void logIngestMetrics(String mode, long sizeBytes, long startMs) {
+        Runtime runtime = Runtime.getRuntime();
+        LoggingService.info("recording_ingested", Map.of(
+            "mode", mode,
+            "sizeBytes", sizeBytes,
+            "sizeKB", sizeBytes / 1024,
+            "inline", sizeBytes <= GeminiService.INLINE_AUDIO_MAX_BYTES,
+            "elapsedMs", System.currentTimeMillis() - startMs,
+            "heapUsedMB", (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024),
+            "heapMaxMB", runtime.maxMemory() / (1024 * 1024)
+        ));
+    }
+
     /**
      * Get existing summary for an order without regenerating.
      *
@@ -470,73 +670,101 @@ public class ConsultationSummaryService {
     }
 
     /**
-     * Process pending summary retries.
-     * Called by the cron job to process orders that need summary generation.
+     * Process pending summaries with bounded parallelism.
+     * Called by the summary worker (process_pending_summaries cron), separately from billing crons.
+     * Each order is claimed under a lease (see OnDemandConsultationService.tryClaimSummaryGeneration),
+     * so overlapping worker runs never process the same order twice.
      *
-     * @param batchSize Maximum number of orders to process in this invocation
-     * @return Map with processing results (processed, succeeded, failed counts)
+     * @param batchSize  Maximum number of orders to pick up in this invocation
+     * @param deadlineMs Epoch millis after which no new order is started (in-flight ones finish)
+     * @return Map with processing results (processed, succeeded, failed, skipped, deferred counts
+     *         and the remaining queue depth as pending)
      */
-    public Map<String, Integer> processPendingSummaries(int batchSize) {
-        int processed = 0;
-        int succeeded = 0;
-        int failed = 0;
-        int skipped = 0;
-
+    public Map<String, Integer> processPendingSummaries(int batchSize, long deadlineMs) {
+        AtomicInteger processed = new AtomicInteger();
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicInteger skipped = new AtomicInteger();
+        AtomicInteger deferred = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(SUMMARY_WORKER_CONCURRENCY);
         try {
-            LoggingService.info("process_pending_summaries_started", Map.of("batchSize", batchSize));
+            LoggingService.info("process_pending_summaries_started", Map.of(
+                "batchSize", batchSize,
+                "concurrency", SUMMARY_WORKER_CONCURRENCY
+            ));
 
             List<String[]> pendingOrders = consultationService.getOrdersPendingSummaryRetry(batchSize);
 
             LoggingService.info("found_pending_summaries", Map.of("count", pendingOrders.size()));
 
+            List<Future<?>> jobs = new ArrayList<>();
             for (String[] orderInfo : pendingOrders) {
                 String userId = orderInfo[0];
                 String orderId = orderInfo[1];
 
-                try {
-                    processed++;
-                    SummaryResult result = generateSummary(userId, orderId);
-
-                    switch (result.status) {
-                        case "generated":
-                            succeeded++;
-                            break;
-                        case "skipped":
-                            skipped++;
-                            break;
-                        case "already_processing":
-                            // Another instance is handling it
-                            break;
-                        default:
-                            failed++;
-                            break;
+                jobs.add(executor.submit(() -> {
+                    // Leave the order for the next run rather than start it without time to finish
+                    if (System.currentTimeMillis() + MIN_SUMMARY_JOB_MS > deadlineMs) {
+                        deferred.incrementAndGet();
+                        return;
                     }
-
-                } catch (Exception e) {
-                    failed++;
-                    LoggingService.error("process_pending_summary_error", e, Map.of(
-                        "userId", userId,
-                        "orderId", orderId
-                    ));
-                }
+                    try {
+                        processed.incrementAndGet();
+                        SummaryResult result = generateSummary(userId, orderId);
+
+                        switch (result.status) {
+                            case "generated":
+                                succeeded.incrementAndGet();
+                                break;
+                            case "skipped":
+                                skipped.incrementAndGet();
+                                break;
+                            case "already_processing":
+                                // Another instance is handling it
+                                break;
+                            default:
+                                failed.incrementAndGet();
+                                break;
+                        }
+
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                        LoggingService.error("process_pending_summary_error", e, Map.of(
+                            "userId", userId,
+                            "orderId", orderId
+                        ));
+                    } finally {
+                        LoggingService.clearContext();
+                    }
+                }));
+            }
+            for (Future<?> job : jobs) {
+                job.get();
             }
 
         } catch (Exception e) {
             LoggingService.error("process_pending_summaries_fatal_error", e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int pending = -1;
+        try {
+            pending = consultationService.getOrdersPendingSummaryCount();
+        } catch (Exception e) {
+            LoggingService.warn("pending_summary_count_failed", Map.of("error", String.valueOf(e.getMessage())));
         }
 
         Map<String, Integer> results = new HashMap<>();
-        results.put("processed", processed);
-        results.put("succeeded", succeeded);
-        results.put("failed", failed);
-        results.put("skipped", skipped);
-
-        LoggingService.info("process_pending_summaries_completed", Map.of(
-            "processed", processed,
-            "succeeded", succeeded,
-            "failed", failed,
-            "skipped", skipped
-        ));
+        results.put("processed", processed.get());
+        results.put("succeeded", succeeded.get());
+        results.put("failed", failed.get());
+        results.put("skipped", skipped.get());
+        results.put("deferred", deferred.get());
+        results.put("pending", pending);
+
+        LoggingService.info("process_pending_summaries_completed", new HashMap<String, Object>(results));
 
         return results;
     }
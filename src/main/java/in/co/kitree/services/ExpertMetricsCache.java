@@ -0,0 +1,86 @@
+package in.co.kitree.services;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-container cache of expert dashboard metrics responses.
+ *
+ * Entries are keyed by expert and by the request parameters that shape the response (date range,
+ * booking type, ...), live for TTL_MS, and are dropped for an expert as soon as one of their
+ * orders settles in this container. Other containers converge within the TTL.
+ */
+public final class ExpertMetricsCache {
+
+    static final long TTL_MS = 30_000;
+    // Upper bound on experts held by one container; the cache is simply cleared when exceeded
+    static final int MAX_EXPERTS = 1000;
+
+    private static final Map<String, Map<String, CachedMetrics>> byExpert = new ConcurrentHashMap<>();
+
+    private ExpertMetricsCache() {}
+
+    /**
+     * Cached response for the expert and key, or null if missing or expired.
+     */
+    public static String get(String expertId, String key) {
+        if (expertId == null) {
+            return null;
+        }
+        Map<String, CachedMetrics> entries = byExpert.get(expertId);
+        CachedMetrics cached = entries != null ? entries.get(key) : null;
+        if (cached == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() - cached.cachedAtMs >= TTL_MS) {
+            entries.remove(key, cached);
+            return null;
+        }
+        return cached.response;
+    }
+
+    public static void put(String expertId, String key, String response) {
+        if (expertId == null || response == null) {
+            return;
+        }
+        if (byExpert.size() >= MAX_EXPERTS && !byExpert.containsKey(expertId)) {
+            byExpert.clear();
+        }
+        byExpert.computeIfAbsent(expertId, k -> new ConcurrentHashMap<>())
+                .put(key, new CachedMetrics(response, System.currentTimeMillis()));
+    }
+
+    /**
+     * Drop every cached response for the expert (called once an order of theirs has settled and
+     * committed, via MetricsRollupService.afterCommit).
+     */
+    public static void invalidate(String expertId) {
+        if (expertId != null) {
+            byExpert.remove(expertId);
+        }
+    }
+
+    /**
+     * Build a cache key from request parameters; nulls are kept distinct from empty strings.
+     */
+    public static String key(Object... parts) {
+        StringBuilder key = new StringBuilder();
+        for (Object part : parts) {
+            if (key.length() > 0) {
+                key.append('|');
+            }
+            key.append(part == null ? "\u0000" : part.toString());
+        }
+        return key.toString();
+    }
+
+    private static final class CachedMetrics {
+        final String response;
+        final long cachedAtMs;
+
+        CachedMetrics(String response, long cachedAtMs) {
+            this.response = response;
+            this.cachedAtMs = cachedAtMs;
+        }
+    }
+}
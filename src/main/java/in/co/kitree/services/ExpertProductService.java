@@ -14,9 +14,20 @@ import java.util.concurrent.ExecutionException;
  * Experts can enable/disable products, set pricing, and configure shipping options.
  *
  * Collection: users/{expertId}/seller_products/{productId}
+ *
+ * The public storefront is served from a denormalized projection at users/{expertId}/public/storefront:
+ * one document holding, per enabled product, the expert's config and the platform product fields
+ * the app renders. Config changes update their entry in the same transaction as the config write;
+ * platform product changes are fanned out with refreshStorefrontsForProduct and self-stock sales
+ * are mirrored after the stock write, each in a per-storefront transaction that re-checks the
+ * config. Platform stock moves with every sale, so it is not projected: reads take it from the
+ * catalog. A missing projection is rebuilt from the seller_products join on the next storefront read.
  */
 public class ExpertProductService {
     private static final String COLLECTION_NAME = "seller_products";
+    private static final String STOREFRONT_COLLECTION = "public";
+    private static final String STOREFRONT_DOC = "storefront";
+    private static final String STOREFRONT_PRODUCTS = "products";
 
     private final Firestore db;
     private final ProductCatalogService catalogService;
@@ -97,33 +108,120 @@ public class ExpertProductService {
 
     /**
      * Get all enabled products for an expert (for storefront display).
+     * A single read of the storefront projection; builds the projection if it does not exist yet.
      */
     public List<ExpertProductConfig> getExpertEnabledProducts(String expertId) throws ExecutionException, InterruptedException {
         if (expertId == null || expertId.isEmpty()) {
             return Collections.emptyList();
         }
 
-        Query query = db.collection("users").document(expertId)
-                .collection(COLLECTION_NAME)
-                .whereEqualTo("isEnabled", true);
+        DocumentSnapshot storefront = storefrontRef(expertId).get().get();
+        if (storefront.exists()) {
+            return withPlatformStock(storefrontToConfigs(storefront.getData()));
+        }
 
-        ApiFuture<QuerySnapshot> future = query.get();
-        QuerySnapshot snapshot = future.get();
+        try {
+            return activeOnly(rebuildStorefront(expertId));
+        } catch (ExecutionException e) {
+            // Projection write failed: serve the join directly
+            LoggingService.warn("storefront_rebuild_failed", Map.of(
+                "expertId", expertId,
+                "error", String.valueOf(e.getMessage())
+            ));
+            return activeOnly(joinWithProducts(enabledConfigsQuery(expertId).get().get()));
+        }
+    }
 
-        List<ExpertProductConfig> configs = new ArrayList<>();
-        for (DocumentSnapshot doc : snapshot.getDocuments()) {
-            ExpertProductConfig config = documentToConfig(doc);
-            if (config != null) {
-                // Join with platform product data
-                PlatformProduct product = catalogService.getProduct(config.getProductId());
-                if (product != null && product.isActive()) {
-                    config.setProduct(product);
-                    configs.add(config);
-                }
+    /**
+     * Rebuild an expert's storefront projection from their enabled seller_products.
+     * Runs in a transaction so a concurrent config write cannot be lost from the projection.
+     *
+     * @return the joined configs written to the projection (including inactive products)
+     */
+    public List<ExpertProductConfig> rebuildStorefront(String expertId) throws ExecutionException, InterruptedException {
+        DocumentReference storefrontRef = storefrontRef(expertId);
+        Query query = enabledConfigsQuery(expertId);
+
+        List<ExpertProductConfig> configs = db.runTransaction(transaction -> {
+            List<ExpertProductConfig> joined = joinWithProducts(transaction.get(query).get());
+            Map<String, Object> entries = new HashMap<>();
+            for (ExpertProductConfig config : joined) {
+                entries.put(config.getProductId(), storefrontEntry(config, config.getProduct()));
             }
+            Map<String, Object> data = new HashMap<>();
+            data.put(STOREFRONT_PRODUCTS, entries);
+            data.put("updatedAt", Timestamp.now());
+            transaction.set(storefrontRef, data);
+            return joined;
+        }).get();
+
+        LoggingService.info("storefront_rebuilt", Map.of(
+            "expertId", expertId,
+            "products", configs.size()
+        ));
+        return configs;
+    }
+
+    /**
+     * Push a platform product change into the storefront projection of every expert selling it.
+     * Experts without a projection are skipped; theirs is built from fresh data on first read.
+     *
+     * @return number of storefronts updated
+     */
+    public int refreshStorefrontsForProduct(String productId) throws ExecutionException, InterruptedException {
+        if (productId == null || productId.isEmpty()) {
+            return 0;
         }
+        PlatformProduct product = catalogService.getProduct(productId);
 
-        return configs;
+        Query sellers = db.collectionGroup(COLLECTION_NAME)
+                .whereEqualTo("productId", productId)
+                .whereEqualTo("isEnabled", true);
+        List<QueryDocumentSnapshot> configDocs = sellers.get().get().getDocuments();
+
+        // One transaction per storefront, all in flight together
+        List<ApiFuture<Boolean>> updates = new ArrayList<>(configDocs.size());
+        for (DocumentSnapshot doc : configDocs) {
+            String expertId = doc.getReference().getParent().getParent().getId();
+            updates.add(refreshStorefrontEntry(expertId, productId, product));
+        }
+        int count = 0;
+        for (ApiFuture<Boolean> update : updates) {
+            if (update.get()) {
+                count++;
+            }
+        }
+
+        LoggingService.info("storefronts_refreshed_for_product", Map.of(
+            "productId", productId,
+            "sellers", configDocs.size(),
+            "storefronts", count
+        ));
+        return count;
+    }
+
+    /**
+     * Rewrite one product's entry in an expert's storefront projection from the config as stored
+     * at commit time: set while the config is enabled and the product exists, removed otherwise.
+     * Resolves to false when the expert has no projection.
+     */
+    private ApiFuture<Boolean> refreshStorefrontEntry(String expertId, String productId, PlatformProduct product) {
+        DocumentReference storefrontRef = storefrontRef(expertId);
+        DocumentReference configRef = db.collection("users").document(expertId)
+                .collection(COLLECTION_NAME).document(productId);
+        return db.runTransaction(transaction -> {
+            List<DocumentSnapshot> docs = transaction.getAll(storefrontRef, configRef).get();
+            if (!docs.get(0).exists()) {
+                return false;
+            }
+            ExpertProductConfig config = documentToConfig(docs.get(1));
+            Object entry = product != null && config != null && config.isEnabled()
+                    ? storefrontEntry(config, product)
+                    : FieldValue.delete();
+            transaction.update(storefrontRef, FieldPath.of(STOREFRONT_PRODUCTS, productId), entry,
+                    FieldPath.of("updatedAt"), Timestamp.now());
+            return true;
+        });
     }
 
     /**
@@ -164,10 +262,20 @@ public class ExpertProductService {
         }
         config.setUpdatedAt(Timestamp.now());
 
-        // Save to Firestore
+        // Save to Firestore, keeping the storefront projection (if built) in step
         DocumentReference docRef = db.collection("users").document(expertId)
                 .collection(COLLECTION_NAME).document(config.getProductId());
-        docRef.set(config.toMap()).get();
+        DocumentReference storefrontRef = storefrontRef(expertId);
+        db.runTransaction(transaction -> {
+            boolean hasStorefront = transaction.get(storefrontRef).get().exists();
+            transaction.set(docRef, config.toMap());
+            if (hasStorefront) {
+                Object entry = config.isEnabled() ? storefrontEntry(config, product) : FieldValue.delete();
+                transaction.update(storefrontRef, FieldPath.of(STOREFRONT_PRODUCTS, config.getProductId()), entry,
+                        FieldPath.of("updatedAt"), Timestamp.now());
+            }
+            return null;
+        }).get();
 
         LoggingService.info("expert_product_config_updated", Map.of(
             "expertId", expertId,
@@ -251,12 +359,24 @@ public class ExpertProductService {
     }
 
     /**
-     * Decrement expert's stock (for self-shipping).
+     * Decrement expert's stock (for self-shipping). The storefront projection is mirrored afterwards
+     * in its own transaction, so purchases never contend on the expert's storefront document; a
+     * failed mirror is corrected by the next write to the entry.
      */
     public void decrementExpertStock(String expertId, String productId, int quantity) throws ExecutionException, InterruptedException {
         DocumentReference docRef = db.collection("users").document(expertId)
                 .collection(COLLECTION_NAME).document(productId);
         docRef.update("selfStockQuantity", FieldValue.increment(-quantity)).get();
+
+        try {
+            refreshStorefrontEntry(expertId, productId, catalogService.getProduct(productId)).get();
+        } catch (ExecutionException e) {
+            LoggingService.warn("storefront_stock_mirror_failed", Map.of(
+                "expertId", expertId,
+                "productId", productId,
+                "error", String.valueOf(e.getMessage())
+            ));
+        }
     }
 
     /**
@@ -323,6 +443,9 @@ public class ExpertProductService {
         if (count % 400 != 0) {
             batch.commit().get();
         }
+        if (count > 0) {
+            rebuildStorefront(expertId);
+        }
 
         LoggingService.info("bulk_enable_products", Map.of(
             "expertId", expertId,
@@ -332,6 +455,104 @@ public class ExpertProductService {
         return count;
     }
 
+    private DocumentReference storefrontRef(String expertId) {
+        return db.collection("users").document(expertId)
+                .collection(STOREFRONT_COLLECTION).document(STOREFRONT_DOC);
+    }
+
+    private Query enabledConfigsQuery(String expertId) {
+        return db.collection("users").document(expertId)
+                .collection(COLLECTION_NAME)
+                .whereEqualTo("isEnabled", true);
+    }
+
+    /**
+     * Join config documents with platform product data. Configs whose product no longer exists are dropped.
+     */
+    private List<ExpertProductConfig> joinWithProducts(QuerySnapshot snapshot) throws ExecutionException, InterruptedException {
+        List<ExpertProductConfig> configs = new ArrayList<>();
+        for (DocumentSnapshot doc : snapshot.getDocuments()) {
+            ExpertProductConfig config = documentToConfig(doc);
+            if (config != null) {
+                PlatformProduct product = catalogService.getProduct(config.getProductId());
+                if (product != null) {
+                    config.setProduct(product);
+                    configs.add(config);
+                }
+            }
+        }
+        return configs;
+    }
+
+    private static List<ExpertProductConfig> activeOnly(List<ExpertProductConfig> configs) {
+        List<ExpertProductConfig> active = new ArrayList<>(configs.size());
+        for (ExpertProductConfig config : configs) {
+            if (config.getProduct() != null && config.getProduct().isActive()) {
+                active.add(config);
+            }
+        }
+        return active;
+    }
+
+    /**
+     * Overlay current platform stock (from the catalog snapshot) on configs read from the projection.
+     */
+    private List<ExpertProductConfig> withPlatformStock(List<ExpertProductConfig> configs) throws ExecutionException, InterruptedException {
+        for (ExpertProductConfig config : configs) {
+            PlatformProduct live = catalogService.getProduct(config.getProductId());
+            if (live != null) {
+                config.getProduct().setPlatformStockAvailable(live.isPlatformStockAvailable());
+                config.getProduct().setPlatformStockQuantity(live.getPlatformStockQuantity());
+            }
+        }
+        return configs;
+    }
+
+    /**
+     * Projection entry for one product: the expert's config plus the product as shown publicly,
+     * without platform stock (see withPlatformStock).
+     */
+    static Map<String, Object> storefrontEntry(ExpertProductConfig config, PlatformProduct product) {
+        Map<String, Object> productData = product.toMap();
+        // The projection is world-readable
+        productData.remove("costPriceInr");
+        productData.remove("platformStockAvailable");
+        productData.remove("platformStockQuantity");
+        Map<String, Object> entry = new HashMap<>();
+        entry.put("config", config.toMap());
+        entry.put("product", productData);
+        return entry;
+    }
+
+    /**
+     * Read the storefront projection back into configs, in product id order, active products only.
+     */
+    @SuppressWarnings("unchecked")
+    static List<ExpertProductConfig> storefrontToConfigs(Map<String, Object> data) {
+        Object products = data != null ? data.get(STOREFRONT_PRODUCTS) : null;
+        if (!(products instanceof Map)) {
+            return Collections.emptyList();
+        }
+        List<ExpertProductConfig> configs = new ArrayList<>();
+        for (Map.Entry<String, Object> item : new TreeMap<>((Map<String, Object>) products).entrySet()) {
+            if (!(item.getValue() instanceof Map)) {
+                continue;
+            }
+            Map<String, Object> entry = (Map<String, Object>) item.getValue();
+            ExpertProductConfig config = ExpertProductConfig.fromMap((Map<String, Object>) entry.get("config"));
+            Map<String, Object> productData = (Map<String, Object>) entry.get("product");
+            if (config == null || productData == null || !config.isEnabled()) {
+                continue;
+            }
+            PlatformProduct product = ProductCatalogService.productFromMap(item.getKey(), productData);
+            if (product.isActive()) {
+                config.setProduct(product);
+                configs.add(config);
+            }
+        }
+        return configs;
+    }
+
     /**
      * Convert Firestore document to ExpertProductConfig.
      */
@@ -0,0 +1,337 @@
+package in.co.kitree.services;
+
+import com.google.firestore.v1.BatchGetDocumentsRequest;
+import com.google.firestore.v1.BatchWriteRequest;
+import com.google.firestore.v1.CommitRequest;
+import com.google.firestore.v1.RunAggregationQueryRequest;
+import com.google.firestore.v1.RunQueryRequest;
+import com.google.firestore.v1.StructuredAggregationQuery;
+import com.google.firestore.v1.StructuredQuery;
+import com.google.firestore.v1.Write;
+import com.google.protobuf.Message;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Firestore access profiler for local runs against the emulator.
+ *
+ * Listens to InstrumentedFirestoreRpc and groups every RPC by handler action (the RequestMetrics
+ * route) and query shape: collection or collection group, filtered fields and operators, ordering
+ * and limit, with document IDs and filter values left out. report() lists the most expensive
+ * actions by documents read and written, with the shapes behind them and two warnings:
+ * - N+1: the same shape executed N_PLUS_ONE_CALLS or more times within one invocation,
+ * - unbounded scan: a query without a limit (always reported for collection-group queries).
+ *
+ * Enabled with FIRESTORE_PROFILE=true, and only when FIRESTORE_EMULATOR_HOST is set. The e2e test
+ * base installs it unconditionally against the emulator.
+ */
+public final class FirestoreProfiler implements InstrumentedFirestoreRpc.Listener {
+
+    static final int N_PLUS_ONE_CALLS = 5;
+    static final int UNBOUNDED_SCAN_DOCUMENTS = 100;
+    private static final int SHAPES_PER_ACTION = 5;
+
+    private static volatile FirestoreProfiler shared;
+
+    private final Map<String, ActionStats> actions = new HashMap<>();
+
+    FirestoreProfiler() {
+    }
+
+    /**
+     * Whether profiling was requested for this process (FIRESTORE_PROFILE=true against the emulator).
+     */
+    public static boolean isEnabled() {
+        return "true".equalsIgnoreCase(setting("FIRESTORE_PROFILE"))
+                && setting("FIRESTORE_EMULATOR_HOST") != null;
+    }
+
+    /**
+     * The process-wide profiler; the first call registers a shutdown hook that prints the report.
+     */
+    public static FirestoreProfiler shared() {
+        if (shared == null) {
+            synchronized (FirestoreProfiler.class) {
+                if (shared == null) {
+                    FirestoreProfiler profiler = new FirestoreProfiler();
+                    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                        if (!profiler.isEmpty()) {
+                            System.err.println(profiler.report(topN()));
+                        }
+                    }, "firestore-profile-report"));
+                    shared = profiler;
+                }
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Number of actions in the report (FIRESTORE_PROFILE_TOP, default 10).
+     */
+    public static int topN() {
+        try {
+            return Integer.parseInt(setting("FIRESTORE_PROFILE_TOP"));
+        } catch (NumberFormatException e) {
+            return 10;
+        }
+    }
+
+    @Override
+    public void onCall(InstrumentedFirestoreRpc.Op op, Message request, int documents, long elapsedNanos, Throwable error) {
+        onCall(RequestMetrics.current(), op, request, documents, elapsedNanos);
+    }
+
+    @Override
+    public InstrumentedFirestoreRpc.Listener bind() {
+        RequestMetrics invocation = RequestMetrics.current();
+        return (op, request, documents, elapsedNanos, error) -> onCall(invocation, op, request, documents, elapsedNanos);
+    }
+
+    private void onCall(RequestMetrics invocation, InstrumentedFirestoreRpc.Op op, Message request, int documents,
+                        long elapsedNanos) {
+        record(invocation.getRoute(), invocation, op, shapeOf(op, request), isUnbounded(op, request), documents, elapsedNanos);
+    }
+
+    synchronized void record(String action, Object invocation, InstrumentedFirestoreRpc.Op op, String shape,
+                             boolean unbounded, int documents, long elapsedNanos) {
+        ActionStats stats = actions.computeIfAbsent(action, a -> new ActionStats());
+        if (stats.invocation != invocation) {
+            stats.invocation = invocation;
+            stats.invocations++;
+            stats.shapes.values().forEach(s -> s.callsInInvocation = 0);
+        }
+        switch (op) {
+            case LOOKUP, QUERY, AGGREGATION -> stats.reads += documents;
+            case COMMIT, BATCH_WRITE -> stats.writes += documents;
+        }
+        stats.nanos += elapsedNanos;
+
+        ShapeStats shapeStats = stats.shapes.computeIfAbsent(op + " " + shape, s -> new ShapeStats(op, shape, unbounded));
+        shapeStats.calls++;
+        shapeStats.documents += documents;
+        shapeStats.maxDocuments = Math.max(shapeStats.maxDocuments, documents);
+        shapeStats.nanos += elapsedNanos;
+        shapeStats.callsInInvocation++;
+        shapeStats.maxCallsInInvocation = Math.max(shapeStats.maxCallsInInvocation, shapeStats.callsInInvocation);
+    }
+
+    public synchronized boolean isEmpty() {
+        return actions.isEmpty();
+    }
+
+    public synchronized void reset() {
+        actions.clear();
+    }
+
+    /**
+     * Plain-text report of the topN actions by documents read plus written.
+     */
+    public synchronized String report(int topN) {
+        List<Map.Entry<String, ActionStats>> ranked = new ArrayList<>(actions.entrySet());
+        ranked.sort(Comparator.comparingLong((Map.Entry<String, ActionStats> e) -> e.getValue().cost()).reversed()
+                .thenComparing(Map.Entry::getKey));
+
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("Firestore profile: top %d of %d actions by documents read + written%n",
+                Math.min(topN, ranked.size()), ranked.size()));
+        int rank = 0;
+        for (Map.Entry<String, ActionStats> entry : ranked) {
+            if (++rank > topN) {
+                break;
+            }
+            ActionStats stats = entry.getValue();
+            out.append(String.format("%n%2d. %s  invocations=%d reads=%d writes=%d firestoreMs=%.1f (per invocation: reads=%.1f writes=%.1f)%n",
+                    rank, entry.getKey(), stats.invocations, stats.reads, stats.writes, stats.nanos / 1e6,
+                    (double) stats.reads / stats.invocations, (double) stats.writes / stats.invocations));
+
+            List<ShapeStats> shapes = new ArrayList<>(stats.shapes.values());
+            shapes.sort(Comparator.comparingLong((ShapeStats s) -> s.documents).reversed()
+                    .thenComparing(Comparator.comparingInt((ShapeStats s) -> s.calls).reversed()));
+            for (ShapeStats shape : shapes.subList(0, Math.min(SHAPES_PER_ACTION, shapes.size()))) {
+                out.append(String.format("      %-11s %s  calls=%d docs=%d maxDocs=%d ms=%.1f%n",
+                        shape.op, shape.shape, shape.calls, shape.documents, shape.maxDocuments, shape.nanos / 1e6));
+            }
+            for (ShapeStats shape : shapes) {
+                for (String warning : shape.warnings()) {
+                    out.append("      ! ").append(warning).append(System.lineSeparator());
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Write the report to a file, creating parent directories.
+     */
+    public void writeReport(Path path, int topN) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Files.writeString(path, report(topN));
+    }
+
+    /**
+     * Shape of an RPC with document IDs and filter values removed.
+     */
+    static String shapeOf(InstrumentedFirestoreRpc.Op op, Message request) {
+        if (request instanceof RunQueryRequest query) {
+            return queryShape(query.getParent(), query.getStructuredQuery());
+        }
+        if (request instanceof RunAggregationQueryRequest aggregation) {
+            StructuredAggregationQuery structured = aggregation.getStructuredAggregationQuery();
+            List<String> aggregations = new ArrayList<>();
+            for (StructuredAggregationQuery.Aggregation a : structured.getAggregationsList()) {
+                aggregations.add(a.getOperatorCase().name().toLowerCase());
+            }
+            return String.join(",", aggregations) + " of " + queryShape(aggregation.getParent(), structured.getStructuredQuery());
+        }
+        if (request instanceof BatchGetDocumentsRequest lookup) {
+            TreeSet<String> paths = new TreeSet<>();
+            lookup.getDocumentsList().forEach(name -> paths.add(normalizePath(name)));
+            return String.join(", ", paths) + (lookup.getDocumentsCount() > 1 ? " (" + lookup.getDocumentsCount() + " docs)" : "");
+        }
+        if (request instanceof CommitRequest commit) {
+            return writesShape(commit.getWritesList());
+        }
+        if (request instanceof BatchWriteRequest batch) {
+            return writesShape(batch.getWritesList());
+        }
+        return op.name().toLowerCase();
+    }
+
+    static boolean isUnbounded(InstrumentedFirestoreRpc.Op op, Message request) {
+        return op == InstrumentedFirestoreRpc.Op.QUERY
+                && request instanceof RunQueryRequest query
+                && !query.getStructuredQuery().hasLimit();
+    }
+
+    private static String queryShape(String parent, StructuredQuery query) {
+        StringBuilder shape = new StringBuilder();
+        String base = normalizePath(parent);
+        for (StructuredQuery.CollectionSelector from : query.getFromList()) {
+            if (from.getAllDescendants()) {
+                shape.append("collectionGroup(").append(from.getCollectionId()).append(')');
+            } else {
+                shape.append(base.isEmpty() ? "" : base + "/").append(from.getCollectionId());
+            }
+        }
+        if (query.hasWhere()) {
+            shape.append(" where ").append(filterShape(query.getWhere()));
+        }
+        if (query.getOrderByCount() > 0) {
+            List<String> orders = new ArrayList<>();
+            for (StructuredQuery.Order order : query.getOrderByList()) {
+                orders.add(order.getField().getFieldPath() + " " + order.getDirection().name().toLowerCase());
+            }
+            shape.append(" orderBy ").append(String.join(", ", orders));
+        }
+        shape.append(query.hasLimit() ? " limit " + query.getLimit().getValue() : " no limit");
+        return shape.toString();
+    }
+
+    private static String filterShape(StructuredQuery.Filter filter) {
+        return switch (filter.getFilterTypeCase()) {
+            case FIELD_FILTER -> filter.getFieldFilter().getField().getFieldPath() + " " + filter.getFieldFilter().getOp().name();
+            case UNARY_FILTER -> filter.getUnaryFilter().getField().getFieldPath() + " " + filter.getUnaryFilter().getOp().name();
+            case COMPOSITE_FILTER -> {
+                List<String> parts = new ArrayList<>();
+                filter.getCompositeFilter().getFiltersList().forEach(f -> parts.add(filterShape(f)));
+                yield "(" + String.join(" " + filter.getCompositeFilter().getOp().name() + " ", parts) + ")";
+            }
+            default -> "?";
+        };
+    }
+
+    private static String writesShape(List<Write> writes) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (Write write : writes) {
+            String target = switch (write.getOperationCase()) {
+                case UPDATE -> (write.hasUpdateMask() ? "update " : "set ") + normalizePath(write.getUpdate().getName());
+                case DELETE -> "delete " + normalizePath(write.getDelete());
+                case TRANSFORM -> "transform " + normalizePath(write.getTransform().getDocument());
+                default -> "write";
+            };
+            counts.merge(target, 1, Integer::sum);
+        }
+        List<String> parts = new ArrayList<>();
+        counts.forEach((target, count) -> parts.add(count > 1 ? target + " x" + count : target));
+        return String.join(", ", parts);
+    }
+
+    /**
+     * "projects/p/databases/(default)/documents/users/u1/orders/o1" -> "users/{id}/orders/{id}".
+     */
+    static String normalizePath(String name) {
+        int documents = name.indexOf("/documents");
+        String relative = documents >= 0 ? name.substring(documents + "/documents".length()) : name;
+        if (relative.startsWith("/")) {
+            relative = relative.substring(1);
+        }
+        if (relative.isEmpty()) {
+            return "";
+        }
+        String[] segments = relative.split("/");
+        for (int i = 1; i < segments.length; i += 2) {
+            segments[i] = "{id}";
+        }
+        return String.join("/", segments);
+    }
+
+    private static String setting(String name) {
+        String value = System.getenv(name);
+        return value != null ? value : System.getProperty(name);
+    }
+
+    private static final class ActionStats {
+        private Object invocation;
+        private int invocations;
+        private long reads;
+        private long writes;
+        private long nanos;
+        private final Map<String, ShapeStats> shapes = new LinkedHashMap<>();
+
+        long cost() {
+            return reads + writes;
+        }
+    }
+
+    private static final class ShapeStats {
+        private final InstrumentedFirestoreRpc.Op op;
+        private final String shape;
+        private final boolean unbounded;
+        private int calls;
+        private long documents;
+        private int maxDocuments;
+        private long nanos;
+        private int callsInInvocation;
+        private int maxCallsInInvocation;
+
+        ShapeStats(InstrumentedFirestoreRpc.Op op, String shape, boolean unbounded) {
+            this.op = op;
+            this.shape = shape;
+            this.unbounded = unbounded;
+        }
+
+        List<String> warnings() {
+            List<String> warnings = new ArrayList<>();
+            boolean read = op != InstrumentedFirestoreRpc.Op.COMMIT && op != InstrumentedFirestoreRpc.Op.BATCH_WRITE;
+            if (read && maxCallsInInvocation >= N_PLUS_ONE_CALLS) {
+                warnings.add(String.format("N+1: %s %s ran %d times in one invocation", op, shape, maxCallsInInvocation));
+            }
+            if (unbounded && (shape.startsWith("collectionGroup(") || maxDocuments >= UNBOUNDED_SCAN_DOCUMENTS)) {
+                warnings.add(String.format("unbounded scan: %s returned up to %d docs", shape, maxDocuments));
+            }
+            return warnings;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.genai.Client;
 import com.google.genai.types.*;
 
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
@@ -21,6 +22,14 @@ public class GeminiService {
     // Minimum call duration in seconds to generate summary (2 minutes)
     public static final int MIN_DURATION_SECONDS = 120;
 
+    // Largest recording sent inline with the request. Gemini caps the whole request at 20MB and
+    // inline bytes are base64-encoded, so anything larger goes through the Files API.
+    public static final long INLINE_AUDIO_MAX_BYTES = 10L * 1024 * 1024;
+
+    // Uploaded audio must reach ACTIVE before it can be referenced in a prompt
+    private static final long FILE_ACTIVE_POLL_MS = 2000;
+    private static final long FILE_ACTIVE_TIMEOUT_MS = 120_000;
+
     private final Client client;
     private final boolean isTest;
 
@@ -50,6 +59,21 @@ public class GeminiService {
         }
     }
 
+    /**
+     * Audio uploaded to the Gemini Files API and ready to be referenced by URI.
+     */
+    public static class UploadedAudio {
+        public final String name;
+        public final String uri;
+        public final String mimeType;
+
+        UploadedAudio(String name, String uri, String mimeType) {
+            this.name = name;
+            this.uri = uri;
+            this.mimeType = mimeType;
+        }
+    }
+
     /**
      * Creates a new GeminiService instance.
      * Loads API key from secrets.json based on environment.
@@ -64,7 +88,16 @@ public class GeminiService {
             LoggingService.error("gemini_no_api_key", Map.of("environment", isTest ? "TEST" : "PROD"));
             this.client = null;
         } else {
-            this.client = Client.builder().apiKey(apiKey).build();
+            Client.Builder builder = Client.builder().apiKey(apiKey);
+            // GEMINI_API_BASE_URL (env or system property) points the client at a local fake
+            String baseUrl = System.getenv("GEMINI_API_BASE_URL");
+            if (baseUrl == null) {
+                baseUrl = System.getProperty("GEMINI_API_BASE_URL");
+            }
+            if (baseUrl != null && !baseUrl.isEmpty()) {
+                builder.httpOptions(HttpOptions.builder().baseUrl(baseUrl).build());
+            }
+            this.client = builder.build();
             LoggingService.info("gemini_initialized", Map.of("environment", isTest ? "TEST" : "PROD"));
         }
     }
@@ -104,54 +137,24 @@ public class GeminiService {
         }
 
         try {
-            // Read audio file bytes
-            byte[] audioBytes = Files.readAllBytes(audioFilePath);
+            long sizeBytes = Files.size(audioFilePath);
             String mimeType = determineMimeType(audioFilePath.toString());
 
-            LoggingService.debug("gemini_processing_audio", Map.of("filePath", audioFilePath.toString(), "sizeKB", audioBytes.length / 1024, "mimeType", mimeType));
-
-            // Build the prompt
-            String prompt = buildSummaryPrompt(category, expertName, durationSeconds);
-
-            // Create content with audio and text
-            Content content = Content.fromParts(
-                Part.fromText(prompt),
-                Part.fromBytes(audioBytes, mimeType)
-            );
-
-            // Configure generation with JSON schema
-            GenerateContentConfig config = GenerateContentConfig.builder()
-                .responseMimeType("application/json")
-                .responseSchema(buildResponseSchema())
-                .build();
-
-            // Generate content
-            GenerateContentResponse response = client.models.generateContent(
-                MODEL_NAME,
-                content,
-                config
-            );
-
-            // Parse response
-            String responseText = response.text();
-            if (responseText == null || responseText.isEmpty()) {
-                return GeminiSummaryResult.error("Empty response from Gemini", true);
+            // Large recordings are streamed from disk to the Files API instead of being read into heap
+            if (sizeBytes > INLINE_AUDIO_MAX_BYTES) {
+                UploadedAudio uploaded = uploadFile(audioFilePath, mimeType);
+                try {
+                    return generateSummaryFromUri(uploaded.uri, uploaded.mimeType, category, expertName, durationSeconds);
+                } finally {
+                    deleteFile(uploaded.name);
+                }
             }
 
-            LoggingService.debug("gemini_response_received", Map.of("responseLength", responseText.length()));
-
-            // Parse JSON response
-            Map<String, Object> summary = parseJsonResponse(responseText);
-            if (summary == null || summary.isEmpty()) {
-                return GeminiSummaryResult.error("Failed to parse Gemini response as JSON", true);
-            }
+            byte[] audioBytes = Files.readAllBytes(audioFilePath);
 
-            // Add metadata
-            summary.put("generated_at", com.google.cloud.Timestamp.now());
-            summary.put("language", "en");
-            summary.put("generation_model", MODEL_NAME);
+            LoggingService.debug("gemini_processing_audio", () -> Map.of("filePath", audioFilePath.toString(), "sizeKB", audioBytes.length / 1024, "mimeType", mimeType));
 
-            return GeminiSummaryResult.success(summary);
+            return generateFromAudio(Part.fromBytes(audioBytes, mimeType), "inline", category, expertName, durationSeconds);
 
         } catch (Exception e) {
             LoggingService.error("gemini_generate_summary_failed", e);
@@ -164,7 +167,7 @@ public class GeminiService {
 
     /**
      * Generate summary from a file that's already uploaded to Gemini Files API.
-     * Use this for larger files (> 20MB).
+     * Used for recordings larger than INLINE_AUDIO_MAX_BYTES.
      */
     public GeminiSummaryResult generateSummaryFromUri(String fileUri, String mimeType,
                                                        String category, String expertName,
@@ -174,40 +177,7 @@ public class GeminiService {
         }
 
         try {
-            String prompt = buildSummaryPrompt(category, expertName, durationSeconds);
-
-            Content content = Content.fromParts(
-                Part.fromText(prompt),
-                Part.fromUri(fileUri, mimeType)
-            );
-
-            GenerateContentConfig config = GenerateContentConfig.builder()
-                .responseMimeType("application/json")
-                .responseSchema(buildResponseSchema())
-                .build();
-
-            GenerateContentResponse response = client.models.generateContent(
-                MODEL_NAME,
-                content,
-                config
-            );
-
-            String responseText = response.text();
-            if (responseText == null || responseText.isEmpty()) {
-                return GeminiSummaryResult.error("Empty response from Gemini", true);
-            }
-
-            Map<String, Object> summary = parseJsonResponse(responseText);
-            if (summary == null || summary.isEmpty()) {
-                return GeminiSummaryResult.error("Failed to parse Gemini response as JSON", true);
-            }
-
-            summary.put("generated_at", com.google.cloud.Timestamp.now());
-            summary.put("language", "en");
-            summary.put("generation_model", MODEL_NAME);
-
-            return GeminiSummaryResult.success(summary);
-
+            return generateFromAudio(Part.fromUri(fileUri, mimeType), "files_api", category, expertName, durationSeconds);
         } catch (Exception e) {
             LoggingService.error("gemini_generate_summary_from_uri_failed", e);
             return GeminiSummaryResult.error(e.getMessage(), isRetryableError(e));
@@ -215,25 +185,129 @@ public class GeminiService {
     }
 
     /**
-     * Upload a file to Gemini Files API and return the file URI.
-     * Use this for files > 20MB.
+     * Upload a local file to the Gemini Files API and wait until it can be used in a prompt.
+     * The SDK streams the file in chunks, so it is never held in heap.
      */
-    public String uploadFile(Path filePath, String mimeType) throws Exception {
+    public UploadedAudio uploadFile(Path filePath, String mimeType) throws Exception {
         if (!isConfigured()) {
             throw new IllegalStateException("GeminiService not configured");
         }
 
-        UploadFileConfig uploadConfig = UploadFileConfig.builder()
-            .mimeType(mimeType)
-            .build();
-
+        long startMs = System.currentTimeMillis();
         com.google.genai.types.File uploadedFile = client.files.upload(
             filePath.toString(),
-            uploadConfig
+            UploadFileConfig.builder().mimeType(mimeType).build()
         );
+        return awaitActive(uploadedFile, mimeType, Files.size(filePath), startMs);
+    }
 
-        return uploadedFile.name().orElseThrow(() ->
+    /**
+     * Upload audio straight from a stream (e.g. an HTTP download) to the Gemini Files API.
+     * sizeBytes must be the exact stream length; the SDK sends it in chunks.
+     */
+    public UploadedAudio uploadAudio(InputStream audio, long sizeBytes, String mimeType) throws Exception {
+        if (!isConfigured()) {
+            throw new IllegalStateException("GeminiService not configured");
+        }
+
+        long startMs = System.currentTimeMillis();
+        com.google.genai.types.File uploadedFile = client.files.upload(
+            audio,
+            sizeBytes,
+            UploadFileConfig.builder().mimeType(mimeType).build()
+        );
+        return awaitActive(uploadedFile, mimeType, sizeBytes, startMs);
+    }
+
+    /**
+     * Delete an uploaded file. Best effort: files expire on their own after 48 hours.
+     */
+    public void deleteFile(String name) {
+        if (!isConfigured() || name == null) {
+            return;
+        }
+        try {
+            client.files.delete(name, null);
+        } catch (Exception e) {
+            LoggingService.warn("gemini_file_delete_failed", Map.of("name", name, "error", String.valueOf(e.getMessage())));
+        }
+    }
+
+    private UploadedAudio awaitActive(com.google.genai.types.File file, String mimeType,
+                                      long sizeBytes, long startMs) throws Exception {
+        String name = file.name().orElseThrow(() ->
             new RuntimeException("Failed to get uploaded file name"));
+        long uploadedMs = System.currentTimeMillis();
+
+        while (file.state().map(FileState::knownEnum).orElse(null) == FileState.Known.PROCESSING) {
+            if (System.currentTimeMillis() - uploadedMs > FILE_ACTIVE_TIMEOUT_MS) {
+                deleteFile(name);
+                throw new RuntimeException("Gemini file processing timeout: " + name);
+            }
+            Thread.sleep(FILE_ACTIVE_POLL_MS);
+            file = client.files.get(name, null);
+        }
+        if (file.state().map(FileState::knownEnum).orElse(null) == FileState.Known.FAILED) {
+            deleteFile(name);
+            throw new RuntimeException("Gemini file processing failed: " + name);
+        }
+
+        String uri = file.uri().orElseThrow(() ->
+            new RuntimeException("Failed to get uploaded file URI"));
+
+        long doneMs = System.currentTimeMillis();
+        LoggingService.info("gemini_file_uploaded", Map.of(
+            "sizeBytes", sizeBytes,
+            "uploadMs", uploadedMs - startMs,
+            "processingMs", doneMs - uploadedMs
+        ));
+        return new UploadedAudio(name, uri, file.mimeType().orElse(mimeType));
+    }
+
+    /**
+     * Run the summary prompt against one audio part and parse the structured response.
+     */
+    private GeminiSummaryResult generateFromAudio(Part audioPart, String ingestMode, String category,
+                                                  String expertName, long durationSeconds) throws Exception {
+        String prompt = buildSummaryPrompt(category, expertName, durationSeconds);
+
+        Content content = Content.fromParts(
+            Part.fromText(prompt),
+            audioPart
+        );
+
+        // Configure generation with JSON schema
+        GenerateContentConfig config = GenerateContentConfig.builder()
+            .responseMimeType("application/json")
+            .responseSchema(buildResponseSchema())
+            .build();
+
+        long startMs = System.currentTimeMillis();
+        GenerateContentResponse response = RequestMetrics.timeExternal(RequestMetrics.DEPENDENCY_GEMINI,
+            () -> client.models.generateContent(MODEL_NAME, content, config));
+        LoggingService.info("gemini_generate_timing", Map.of(
+            "ingestMode", ingestMode,
+            "generateMs", System.currentTimeMillis() - startMs
+        ));
+
+        String responseText = response.text();
+        if (responseText == null || responseText.isEmpty()) {
+            return GeminiSummaryResult.error("Empty response from Gemini", true);
+        }
+
+        LoggingService.debug("gemini_response_received", () -> Map.of("responseLength", responseText.length()));
+
+        Map<String, Object> summary = parseJsonResponse(responseText);
+        if (summary == null || summary.isEmpty()) {
+            return GeminiSummaryResult.error("Failed to parse Gemini response as JSON", true);
+        }
+
+        // Add metadata
+        summary.put("generated_at", com.google.cloud.Timestamp.now());
+        summary.put("language", "en");
+        summary.put("generation_model", MODEL_NAME);
+
+        return GeminiSummaryResult.success(summary);
     }
 
     /**
@@ -574,7 +648,7 @@ public class GeminiService {
     /**
      * Determine MIME type from file path.
      */
-    private String determineMimeType(String filePath) {
+    static String determineMimeType(String filePath) {
         String lower = filePath.toLowerCase();
         if (lower.endsWith(".mp3")) return "audio/mpeg";
         if (lower.endsWith(".wav")) return "audio/wav";
@@ -0,0 +1,264 @@
+package in.co.kitree.services;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.rpc.ApiCallContext;
+import com.google.api.gax.rpc.BidiStreamingCallable;
+import com.google.api.gax.rpc.ResponseObserver;
+import com.google.api.gax.rpc.ServerStreamingCallable;
+import com.google.api.gax.rpc.StreamController;
+import com.google.api.gax.rpc.UnaryCallable;
+import com.google.cloud.ServiceRpc;
+import com.google.cloud.firestore.FirestoreOptions;
+import com.google.cloud.firestore.FirestoreRpcFactory;
+import com.google.cloud.firestore.spi.v1.FirestoreRpc;
+import com.google.cloud.firestore.v1.FirestoreClient;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.firestore.v1.*;
+import com.google.protobuf.Empty;
+import com.google.protobuf.Message;
+
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * FirestoreRpc decorator that reports every document read, query and commit to a Listener.
+ *
+ * Installed through FirestoreOptions#setServiceRpcFactory, so every Firestore instance built from
+ * those options (including the one FirestoreClient hands to the handlers) is observed, against
+ * production and the emulator alike. Counting happens on the wire protocol, which matches billing:
+ * a query is one read per returned document (at least one), a lookup is one read per requested
+ * document, and a commit is one write per mutation.
+ */
+public final class InstrumentedFirestoreRpc implements FirestoreRpc {
+
+    public enum Op { LOOKUP, QUERY, AGGREGATION, COMMIT, BATCH_WRITE }
+
+    /**
+     * Receives one callback per completed Firestore RPC.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * @param op        RPC kind
+         * @param request   the request proto (query shape, document names, writes)
+         * @param documents documents read (LOOKUP/QUERY) or written (COMMIT/BATCH_WRITE)
+         * @param elapsedNanos time from send to completion
+         * @param error     the failure, or null
+         */
+        void onCall(Op op, Message request, int documents, long elapsedNanos, Throwable error);
+
+        /**
+         * Called on the thread that issues the RPC; the returned listener receives its completion,
+         * which usually arrives on a gRPC thread. Lets a listener capture per-request state.
+         */
+        default Listener bind() {
+            return this;
+        }
+
+        /**
+         * A listener that calls this one and then the next.
+         */
+        default Listener andThen(Listener next) {
+            Listener first = this;
+            return new Listener() {
+                @Override
+                public void onCall(Op op, Message request, int documents, long elapsedNanos, Throwable error) {
+                    first.onCall(op, request, documents, elapsedNanos, error);
+                    next.onCall(op, request, documents, elapsedNanos, error);
+                }
+
+                @Override
+                public Listener bind() {
+                    return first.bind().andThen(next.bind());
+                }
+            };
+        }
+    }
+
+    private final FirestoreRpc delegate;
+    private final Listener listener;
+
+    InstrumentedFirestoreRpc(FirestoreRpc delegate, Listener listener) {
+        this.delegate = delegate;
+        this.listener = listener;
+    }
+
+    /**
+     * Factory for FirestoreOptions.Builder#setServiceRpcFactory that wraps the default gRPC stub.
+     */
+    public static FirestoreRpcFactory factory(Listener listener) {
+        FirestoreOptions.DefaultFirestoreRpcFactory defaults = new FirestoreOptions.DefaultFirestoreRpcFactory();
+        return new FirestoreRpcFactory() {
+            @Override
+            public ServiceRpc create(FirestoreOptions options) {
+                return new InstrumentedFirestoreRpc(defaults.create(options), listener);
+            }
+        };
+    }
+
+    @Override
+    public UnaryCallable<CommitRequest, CommitResponse> commitCallable() {
+        return unary(delegate.commitCallable(), Op.COMMIT, CommitRequest::getWritesCount);
+    }
+
+    @Override
+    public UnaryCallable<BatchWriteRequest, BatchWriteResponse> batchWriteCallable() {
+        return unary(delegate.batchWriteCallable(), Op.BATCH_WRITE, BatchWriteRequest::getWritesCount);
+    }
+
+    @Override
+    public ServerStreamingCallable<BatchGetDocumentsRequest, BatchGetDocumentsResponse> batchGetDocumentsCallable() {
+        return streaming(delegate.batchGetDocumentsCallable(), Op.LOOKUP,
+                response -> response.hasFound() || !response.getMissing().isEmpty() ? 1 : 0, 0);
+    }
+
+    @Override
+    public ServerStreamingCallable<RunQueryRequest, RunQueryResponse> runQueryCallable() {
+        // An empty result is still billed as one read
+        return streaming(delegate.runQueryCallable(), Op.QUERY, response -> response.hasDocument() ? 1 : 0, 1);
+    }
+
+    @Override
+    public ServerStreamingCallable<RunAggregationQueryRequest, RunAggregationQueryResponse> runAggregationQueryCallable() {
+        return streaming(delegate.runAggregationQueryCallable(), Op.AGGREGATION, response -> 0, 1);
+    }
+
+    @Override
+    public UnaryCallable<BeginTransactionRequest, BeginTransactionResponse> beginTransactionCallable() {
+        return delegate.beginTransactionCallable();
+    }
+
+    @Override
+    public UnaryCallable<RollbackRequest, Empty> rollbackCallable() {
+        return delegate.rollbackCallable();
+    }
+
+    @Override
+    public UnaryCallable<ListCollectionIdsRequest, FirestoreClient.ListCollectionIdsPagedResponse> listCollectionIdsPagedCallable() {
+        return delegate.listCollectionIdsPagedCallable();
+    }
+
+    @Override
+    public UnaryCallable<PartitionQueryRequest, FirestoreClient.PartitionQueryPagedResponse> partitionQueryPagedCallable() {
+        return delegate.partitionQueryPagedCallable();
+    }
+
+    @Override
+    public UnaryCallable<ListDocumentsRequest, FirestoreClient.ListDocumentsPagedResponse> listDocumentsPagedCallable() {
+        return delegate.listDocumentsPagedCallable();
+    }
+
+    @Override
+    public BidiStreamingCallable<ListenRequest, ListenResponse> listenCallable() {
+        return delegate.listenCallable();
+    }
+
+    @Override
+    public ScheduledExecutorService getExecutor() {
+        return delegate.getExecutor();
+    }
+
+    @Override
+    public void shutdownNow() {
+        delegate.shutdownNow();
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    /**
+     * Declared without checked exceptions so try-with-resources callers aren't handed an
+     * InterruptedException; the delegate's checked failures are rethrown unchecked.
+     */
+    @Override
+    public void close() {
+        try {
+            delegate.close();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while closing Firestore RPC", e);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to close Firestore RPC", e);
+        }
+    }
+
+    private interface Counter<T> {
+        int count(T message);
+    }
+
+    private <Req extends Message, Resp> UnaryCallable<Req, Resp> unary(
+            UnaryCallable<Req, Resp> inner, Op op, Counter<Req> writes) {
+        return new UnaryCallable<>() {
+            @Override
+            public ApiFuture<Resp> futureCall(Req request, ApiCallContext context) {
+                Listener bound = listener.bind();
+                long start = System.nanoTime();
+                ApiFuture<Resp> future = inner.futureCall(request, context);
+                ApiFutures.addCallback(future, new ApiFutureCallback<>() {
+                    @Override
+                    public void onSuccess(Resp result) {
+                        report(bound, op, request, writes.count(request), start, null);
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        report(bound, op, request, 0, start, t);
+                    }
+                }, MoreExecutors.directExecutor());
+                return future;
+            }
+        };
+    }
+
+    private <Req extends Message, Resp> ServerStreamingCallable<Req, Resp> streaming(
+            ServerStreamingCallable<Req, Resp> inner, Op op, Counter<Resp> reads, int minimumReads) {
+        return new ServerStreamingCallable<>() {
+            @Override
+            public void call(Req request, ResponseObserver<Resp> observer, ApiCallContext context) {
+                Listener bound = listener.bind();
+                long start = System.nanoTime();
+                AtomicInteger documents = new AtomicInteger();
+                inner.call(request, new ResponseObserver<>() {
+                    @Override
+                    public void onStart(StreamController controller) {
+                        observer.onStart(controller);
+                    }
+
+                    @Override
+                    public void onResponse(Resp response) {
+                        documents.addAndGet(reads.count(response));
+                        observer.onResponse(response);
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        report(bound, op, request, documents.get(), start, t);
+                        observer.onError(t);
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        report(bound, op, request, Math.max(minimumReads, documents.get()), start, null);
+                        observer.onComplete();
+                    }
+                }, context);
+            }
+        };
+    }
+
+    private static void report(Listener listener, Op op, Message request, int documents, long startNanos, Throwable error) {
+        try {
+            listener.onCall(op, request, documents, System.nanoTime() - startNanos, error);
+        } catch (RuntimeException e) {
+            // Instrumentation must never break a Firestore call
+            LoggingService.warn("firestore_instrumentation_failed", Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package in.co.kitree.services;
+
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.lambda.LambdaAsyncClient;
+import software.amazon.awssdk.services.lambda.model.InvocationType;
+import software.amazon.awssdk.services.lambda.model.InvokeRequest;
+import software.amazon.awssdk.services.lambda.model.InvokeResponse;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Shared asynchronous client for invoking other Lambdas (astrology API, Python scripts) and for
+ * self-invocations.
+ *
+ * One LambdaAsyncClient with a pooled Netty HTTP client is created per container and reused by
+ * every caller. Each call carries its own timeout, and in-flight calls are limited per function so
+ * a slow downstream cannot take the whole connection pool.
+ */
+public class LambdaInvoker {
+
+    static final int MAX_CONNECTIONS = 64;
+    static final int MAX_IN_FLIGHT_PER_FUNCTION = 32;
+    static final Duration CONNECTION_ACQUIRE_TIMEOUT = Duration.ofSeconds(5);
+    static final Duration PERMIT_WAIT = Duration.ofSeconds(5);
+
+    private static volatile LambdaInvoker shared;
+
+    private final LambdaAsyncClient client;
+    private final Map<String, Semaphore> permitsByFunction = new ConcurrentHashMap<>();
+
+    public LambdaInvoker(LambdaAsyncClient client) {
+        this.client = client;
+    }
+
+    /**
+     * The container-wide invoker, created on first use.
+     */
+    public static LambdaInvoker shared() {
+        LambdaInvoker invoker = shared;
+        if (invoker == null) {
+            synchronized (LambdaInvoker.class) {
+                invoker = shared;
+                if (invoker == null) {
+                    invoker = new LambdaInvoker(LambdaAsyncClient.builder()
+                            .region(Region.AP_SOUTH_1)
+                            .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                                    .maxConcurrency(MAX_CONNECTIONS)
+                                    .connectionAcquisitionTimeout(CONNECTION_ACQUIRE_TIMEOUT)
+                                    .tcpKeepAlive(true))
+                            .build());
+                    shared = invoker;
+                }
+            }
+        }
+        return invoker;
+    }
+
+    /**
+     * Synchronous-style (RequestResponse) invocation. The future completes with the raw response;
+     * function errors are left to the caller to interpret. When the function is at its in-flight
+     * limit this waits up to PERMIT_WAIT on the calling thread, so don't call it from I/O callbacks.
+     */
+    public CompletableFuture<InvokeResponse> invoke(String functionName, String payload, Duration timeout) {
+        return submit(functionName, payload, timeout, InvocationType.REQUEST_RESPONSE);
+    }
+
+    /**
+     * Fire-and-forget (Event) invocation. The future completes once Lambda has accepted the event.
+     */
+    public CompletableFuture<InvokeResponse> invokeEvent(String functionName, String payload, Duration timeout) {
+        return submit(functionName, payload, timeout, InvocationType.EVENT);
+    }
+
+    /**
+     * Join a keyed set of futures into one future of the keyed results, preserving key order.
+     * Fails with the first failure.
+     */
+    public static <T> CompletableFuture<Map<String, T>> allOf(Map<String, CompletableFuture<T>> futures) {
+        return CompletableFuture.allOf(futures.values().toArray(CompletableFuture<?>[]::new))
+                .thenApply(ignored -> {
+                    Map<String, T> results = new LinkedHashMap<>();
+                    futures.forEach((key, future) -> results.put(key, future.join()));
+                    return results;
+                });
+    }
+
+    /**
+     * Wait for a future on the request thread, rethrowing the original failure rather than the
+     * ExecutionException wrapper.
+     */
+    public static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null
+                    ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    private CompletableFuture<InvokeResponse> submit(String functionName, String payload, Duration timeout,
+                                                     InvocationType invocationType) {
+        Semaphore permits = permitsByFunction.computeIfAbsent(functionName,
+                k -> new Semaphore(MAX_IN_FLIGHT_PER_FUNCTION));
+        try {
+            if (!permits.tryAcquire(PERMIT_WAIT.toMillis(), TimeUnit.MILLISECONDS)) {
+                return CompletableFuture.failedFuture(new RejectedExecutionException(
+                        "Too many in-flight invocations of " + functionName));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        InvokeRequest request = InvokeRequest.builder()
+                .functionName(functionName)
+                .invocationType(invocationType)
+                .payload(SdkBytes.fromUtf8String(payload))
+                .overrideConfiguration(config -> config.apiCallTimeout(timeout))
+                .build();
+        try {
+            return client.invoke(request).whenComplete((response, error) -> permits.release());
+        } catch (RuntimeException e) {
+            permits.release();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
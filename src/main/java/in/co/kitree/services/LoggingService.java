@@ -1,13 +1,14 @@
 package in.co.kitree.services;
 
 import com.amazonaws.services.lambda.runtime.Context;
-import com.google.gson.Gson;
+import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.ThreadContext;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * Structured logging service for CloudWatch Logs Insights.
@@ -16,7 +17,16 @@ import java.util.Map;
  * - JSON structured output
  * - Request ID and correlation ID tracking
  * - Business context (userId, orderId, expertId)
- * - Log levels (DEBUG, INFO, WARN, ERROR)
+ * - Log levels (DEBUG, INFO, WARN, ERROR), set with the LOG_LEVEL environment variable
+ * 
+ * Structured data is passed to Log4j as the first message parameter and written by the JSON
+ * template layout as a nested "data" object; nothing is serialized when the level is disabled.
+ * For payloads that are costly to build, use the Supplier overloads so the map is only created
+ * when the line will actually be written:
+ * 
+ * <pre>
+ * LoggingService.debug("rest_request_headers", () -> Map.of("headerKeys", sortedKeys(headers)));
+ * </pre>
  * 
  * Example CloudWatch Logs Insights queries:
  * 
@@ -39,7 +49,6 @@ import java.util.Map;
 public class LoggingService {
     
     private static final Logger logger = LogManager.getLogger(LoggingService.class);
-    private static final Gson gson = new Gson();
     
     // ThreadContext (MDC) keys
     public static final String KEY_REQUEST_ID = "requestId";
@@ -48,7 +57,6 @@ public class LoggingService {
     public static final String KEY_ORDER_ID = "orderId";
     public static final String KEY_EXPERT_ID = "expertId";
     public static final String KEY_FUNCTION = "function";
-    public static final String KEY_DATA = "data";
     
     /**
      * Initialize logging context with Lambda request information.
@@ -145,6 +153,35 @@ public class LoggingService {
         ThreadContext.clearAll();
     }
     
+    /**
+     * Snapshot of this thread's logging context, for callbacks that run on other threads
+     * (HttpClient and gRPC completions). Pass it to {@link #withContext}.
+     */
+    public static Map<String, String> captureContext() {
+        return ThreadContext.getImmutableContext();
+    }
+    
+    /**
+     * Run an action with a captured logging context in place, then put back the thread's own.
+     * 
+     * @param context Context from {@link #captureContext()} on the request thread
+     * @param action Action whose log lines should carry the request's IDs
+     */
+    public static <T> T withContext(Map<String, String> context, Supplier<T> action) {
+        Map<String, String> previous = ThreadContext.getImmutableContext();
+        if (previous.equals(context)) {
+            return action.get();
+        }
+        ThreadContext.clearMap();
+        ThreadContext.putAll(context);
+        try {
+            return action.get();
+        } finally {
+            ThreadContext.clearMap();
+            ThreadContext.putAll(previous);
+        }
+    }
+    
     // =========================================================================
     // Logging Methods
     // =========================================================================
@@ -157,9 +194,13 @@ public class LoggingService {
     }
     
     public static void debug(String message, Map<String, Object> data) {
-        setDataContext(data);
-        logger.debug(message);
-        clearDataContext();
+        log(Level.DEBUG, message, null, data);
+    }
+    
+    public static void debug(String message, Supplier<Map<String, Object>> data) {
+        if (logger.isDebugEnabled()) {
+            log(Level.DEBUG, message, null, data.get());
+        }
     }
     
     /**
@@ -170,9 +211,13 @@ public class LoggingService {
     }
     
     public static void info(String message, Map<String, Object> data) {
-        setDataContext(data);
-        logger.info(message);
-        clearDataContext();
+        log(Level.INFO, message, null, data);
+    }
+    
+    public static void info(String message, Supplier<Map<String, Object>> data) {
+        if (logger.isInfoEnabled()) {
+            log(Level.INFO, message, null, data.get());
+        }
     }
     
     /**
@@ -183,9 +228,13 @@ public class LoggingService {
     }
     
     public static void warn(String message, Map<String, Object> data) {
-        setDataContext(data);
-        logger.warn(message);
-        clearDataContext();
+        log(Level.WARN, message, null, data);
+    }
+    
+    public static void warn(String message, Supplier<Map<String, Object>> data) {
+        if (logger.isWarnEnabled()) {
+            log(Level.WARN, message, null, data.get());
+        }
     }
     
     /**
@@ -200,15 +249,18 @@ public class LoggingService {
     }
     
     public static void error(String message, Map<String, Object> data) {
-        setDataContext(data);
-        logger.error(message);
-        clearDataContext();
+        log(Level.ERROR, message, null, data);
     }
     
     public static void error(String message, Throwable t, Map<String, Object> data) {
-        setDataContext(data);
-        logger.error(message, t);
-        clearDataContext();
+        log(Level.ERROR, message, t, data);
+    }
+    
+    /**
+     * Whether DEBUG lines are written. Use to guard work that only feeds debug logging.
+     */
+    public static boolean isDebugEnabled() {
+        return logger.isDebugEnabled();
     }
     
     // =========================================================================
@@ -261,14 +313,21 @@ public class LoggingService {
     // Helper Methods
     // =========================================================================
     
-    private static void setDataContext(Map<String, Object> data) {
-        if (data != null && !data.isEmpty()) {
-            ThreadContext.put(KEY_DATA, gson.toJson(data));
+    /**
+     * Write one event. The data map is the first message parameter (rendered by the layout's
+     * "data" resolver); the message text has no placeholders, so it is never formatted.
+     */
+    private static void log(Level level, String message, Throwable t, Map<String, Object> data) {
+        if (!logger.isEnabled(level)) {
+            return;
+        }
+        if (data == null || data.isEmpty()) {
+            logger.log(level, message, t);
+        } else if (t == null) {
+            logger.log(level, message, data);
+        } else {
+            logger.log(level, message, data, t);
         }
-    }
-    
-    private static void clearDataContext() {
-        ThreadContext.remove(KEY_DATA);
     }
     
     /**
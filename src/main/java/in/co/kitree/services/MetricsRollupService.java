@@ -0,0 +1,199 @@
+package in.co.kitree.services;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.*;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Per-expert daily booking metrics rollups.
+ *
+ * Each order is counted once into users/{expertId}/metrics_daily/{yyyy-MM-dd}, keyed by the IST
+ * date of its created_at, inside the same transaction that settles it: on-demand billing,
+ * scheduled payment verification and product payment verification. The expert dashboard then
+ * sums the rollup documents in its date range instead of running aggregation queries over the
+ * orders collection group.
+ */
+public class MetricsRollupService {
+
+    public static final String METRICS_DAILY_COLLECTION = "metrics_daily";
+    static final ZoneId ROLLUP_ZONE = ZoneId.of("Asia/Kolkata");
+
+    static final String TYPE_ON_DEMAND = "ON_DEMAND_CONSULTATION";
+    static final String TYPE_SCHEDULED = "CONSULTATION";
+    static final String TYPE_PRODUCT = "PRODUCT";
+
+    // First day (yyyy-MM-dd, IST) covered by rollups. Earlier ranges use the aggregation queries.
+    private static final String ROLLUPS_START_ENV = "METRICS_ROLLUPS_START";
+
+    private final Firestore db;
+
+    public MetricsRollupService(Firestore db) {
+        this.db = db;
+    }
+
+    /**
+     * Add a settled order to its expert's daily rollup. Must be called after all reads of the
+     * transaction; call {@link #afterCommit} once the transaction has committed. Order types that
+     * the dashboard doesn't report are ignored.
+     */
+    public void recordInTransaction(Transaction transaction, String expertId, Timestamp createdAt,
+                                    String orderType, Double expertEarnings) {
+        String prefix = fieldPrefix(orderType);
+        if (prefix == null || expertId == null || expertId.isEmpty()) {
+            return;
+        }
+        String day = dayKey(createdAt != null ? createdAt : Timestamp.now());
+
+        Map<String, Object> update = new HashMap<>();
+        update.put(prefix + "Count", FieldValue.increment(1));
+        update.put(prefix + "Earnings", FieldValue.increment(expertEarnings != null ? expertEarnings : 0.0));
+        update.put("date", day);
+        update.put("updatedAt", Timestamp.now());
+        transaction.set(dayRef(expertId, day), update, SetOptions.merge());
+    }
+
+    /**
+     * Add a settled order to its expert's daily rollup, reading everything from the order data.
+     * Handles both the expert_id/expert_earnings and expertId/expertEarnings spellings.
+     */
+    public void recordOrderInTransaction(Transaction transaction, Map<String, Object> order) {
+        if (order == null) {
+            return;
+        }
+        Object createdAt = order.get("created_at");
+        recordInTransaction(transaction,
+                orderExpertId(order),
+                createdAt instanceof Timestamp ? (Timestamp) createdAt : null,
+                (String) order.get("type"),
+                orderEarnings(order));
+    }
+
+    /**
+     * Drop the expert's cached dashboard metrics after a transaction that recorded one of their
+     * orders has committed. Evicting inside the transaction body would run before the commit (and
+     * on every retry or rollback), letting a dashboard read in between cache the old totals again.
+     */
+    public static void afterCommit(String expertId) {
+        ExpertMetricsCache.invalidate(expertId);
+    }
+
+    /**
+     * Expert of an order, from either the expert_id or the expertId spelling.
+     */
+    public static String orderExpertId(Map<String, Object> order) {
+        return order != null ? stringField(order, "expert_id", "expertId") : null;
+    }
+
+    /**
+     * Whether a dashboard range starting at startMillis is fully covered by rollups.
+     */
+    public boolean coversRange(long startMillis) {
+        String start = System.getenv(ROLLUPS_START_ENV);
+        if (start == null || start.isBlank()) {
+            return false;
+        }
+        return dayKey(startMillis).compareTo(start.trim()) >= 0;
+    }
+
+    /**
+     * Sum the expert's rollups for every IST day touched by [startMillis, endMillis].
+     */
+    public Totals sumRange(String expertId, long startMillis, long endMillis)
+            throws ExecutionException, InterruptedException {
+        QuerySnapshot snapshot = db.collection("users").document(expertId)
+                .collection(METRICS_DAILY_COLLECTION)
+                .whereGreaterThanOrEqualTo(FieldPath.documentId(), dayKey(startMillis))
+                .whereLessThanOrEqualTo(FieldPath.documentId(), dayKey(endMillis))
+                .get().get();
+
+        Totals totals = new Totals();
+        for (DocumentSnapshot doc : snapshot.getDocuments()) {
+            totals.add(doc.getData());
+        }
+        return totals;
+    }
+
+    // ============= Helpers =============
+
+    static String dayKey(Timestamp timestamp) {
+        return dayKey(timestamp.toDate().getTime());
+    }
+
+    static String dayKey(long epochMillis) {
+        return LocalDate.ofInstant(Instant.ofEpochMilli(epochMillis), ROLLUP_ZONE).toString();
+    }
+
+    static String fieldPrefix(String orderType) {
+        if (TYPE_ON_DEMAND.equals(orderType)) return "onDemand";
+        if (TYPE_SCHEDULED.equals(orderType)) return "scheduled";
+        if (TYPE_PRODUCT.equals(orderType)) return "product";
+        return null;
+    }
+
+    /**
+     * Expert earnings of an order, falling back to the order amount (scheduled orders carry
+     * no platform fee).
+     */
+    static Double orderEarnings(Map<String, Object> order) {
+        for (String field : new String[]{"expert_earnings", "expertEarnings", "amount"}) {
+            Object value = order.get(field);
+            if (value instanceof Number) {
+                return ((Number) value).doubleValue();
+            }
+        }
+        return null;
+    }
+
+    private static String stringField(Map<String, Object> data, String... names) {
+        for (String name : names) {
+            Object value = data.get(name);
+            if (value instanceof String && !((String) value).isEmpty()) {
+                return (String) value;
+            }
+        }
+        return null;
+    }
+
+    private DocumentReference dayRef(String expertId, String day) {
+        return db.collection("users").document(expertId)
+                .collection(METRICS_DAILY_COLLECTION).document(day);
+    }
+
+    /**
+     * Summed counts and earnings over a range of rollup documents.
+     */
+    public static final class Totals {
+        public long onDemandCount;
+        public long scheduledCount;
+        public long productCount;
+        public double onDemandEarnings;
+        public double scheduledEarnings;
+        public double productEarnings;
+
+        void add(Map<String, Object> rollup) {
+            if (rollup == null) {
+                return;
+            }
+            onDemandCount += longValue(rollup.get("onDemandCount"));
+            scheduledCount += longValue(rollup.get("scheduledCount"));
+            productCount += longValue(rollup.get("productCount"));
+            onDemandEarnings += doubleValue(rollup.get("onDemandEarnings"));
+            scheduledEarnings += doubleValue(rollup.get("scheduledEarnings"));
+            productEarnings += doubleValue(rollup.get("productEarnings"));
+        }
+
+        private static long longValue(Object value) {
+            return value instanceof Number ? ((Number) value).longValue() : 0L;
+        }
+
+        private static double doubleValue(Object value) {
+            return value instanceof Number ? ((Number) value).doubleValue() : 0.0;
+        }
+    }
+}
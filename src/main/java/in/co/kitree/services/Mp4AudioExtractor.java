@@ -0,0 +1,361 @@
+package in.co.kitree.services;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pulls the AAC audio track out of an MP4 recording and rewrites it as a raw ADTS (.aac) stream,
+ * dropping the video frames before the recording is sent to Gemini.
+ *
+ * This is a remux, not a transcode: AAC frames are copied byte for byte, each behind a 7-byte ADTS
+ * header. Only progressive (non-fragmented) MP4 with an AAC-LC/Main/SSR/LTP track is handled;
+ * anything else returns null and the caller keeps the original file.
+ */
+public final class Mp4AudioExtractor {
+
+    // moov is parsed in memory; anything larger than this is not a call recording we expect
+    static final long MAX_MOOV_BYTES = 32L * 1024 * 1024;
+    static final int ADTS_HEADER_BYTES = 7;
+
+    private Mp4AudioExtractor() {}
+
+    /**
+     * Write the audio track of mp4File to aacFile as ADTS.
+     *
+     * @return aacFile, or null if the file has no extractable AAC track
+     */
+    public static Path extractAac(Path mp4File, Path aacFile) throws IOException {
+        try (FileChannel in = FileChannel.open(mp4File, StandardOpenOption.READ)) {
+            ByteBuffer moov = readTopLevelBox(in, "moov");
+            if (moov == null) {
+                return null;
+            }
+            AudioTrack track = findAudioTrack(moov);
+            if (track == null || track.sampleCount == 0) {
+                return null;
+            }
+
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(aacFile), 64 * 1024)) {
+                copySamples(in, track, out);
+            }
+            return aacFile;
+        }
+    }
+
+    /**
+     * 7-byte ADTS header (no CRC) for one AAC frame of frameBytes payload bytes.
+     */
+    static byte[] adtsHeader(int objectType, int frequencyIndex, int channelConfig, int frameBytes) {
+        int frameLength = frameBytes + ADTS_HEADER_BYTES;
+        int profile = objectType - 1;
+        return new byte[] {
+            (byte) 0xFF,
+            (byte) 0xF1,
+            (byte) (((profile & 0x3) << 6) | ((frequencyIndex & 0xF) << 2) | ((channelConfig >> 2) & 0x1)),
+            (byte) (((channelConfig & 0x3) << 6) | ((frameLength >> 11) & 0x3)),
+            (byte) ((frameLength >> 3) & 0xFF),
+            (byte) (((frameLength & 0x7) << 5) | 0x1F),
+            (byte) 0xFC
+        };
+    }
+
+    private static void copySamples(FileChannel in, AudioTrack track, OutputStream out) throws IOException {
+        ByteBuffer sample = ByteBuffer.allocate(Math.max(track.maxSampleSize, 1));
+        int sampleIndex = 0;
+        int stscIndex = 0;
+
+        for (int chunk = 0; chunk < track.chunkOffsets.length && sampleIndex < track.sampleCount; chunk++) {
+            // stsc runs are keyed by 1-based first chunk
+            while (stscIndex + 1 < track.stscFirstChunk.length && track.stscFirstChunk[stscIndex + 1] <= chunk + 1) {
+                stscIndex++;
+            }
+            long offset = track.chunkOffsets[chunk];
+            int samplesInChunk = track.stscSamplesPerChunk[stscIndex];
+
+            for (int i = 0; i < samplesInChunk && sampleIndex < track.sampleCount; i++, sampleIndex++) {
+                int size = track.sampleSize(sampleIndex);
+                sample.clear().limit(size);
+                while (sample.hasRemaining()) {
+                    if (in.read(sample, offset + sample.position()) < 0) {
+                        throw new IOException("Unexpected end of MP4 while reading sample " + sampleIndex);
+                    }
+                }
+                out.write(adtsHeader(track.objectType, track.frequencyIndex, track.channelConfig, size));
+                out.write(sample.array(), 0, size);
+                offset += size;
+            }
+        }
+    }
+
+    private static ByteBuffer readTopLevelBox(FileChannel in, String type) throws IOException {
+        long position = 0;
+        long fileSize = in.size();
+        ByteBuffer header = ByteBuffer.allocate(16);
+
+        while (position + 8 <= fileSize) {
+            header.clear().limit(8);
+            readFully(in, header, position);
+            long size = header.getInt(0) & 0xFFFFFFFFL;
+            String boxType = fourCc(header, 4);
+            int headerSize = 8;
+            if (size == 1) {
+                header.clear().limit(8);
+                readFully(in, header, position + 8);
+                size = header.getLong(0);
+                headerSize = 16;
+            } else if (size == 0) {
+                size = fileSize - position;
+            }
+            if (size < headerSize) {
+                return null;
+            }
+
+            if (boxType.equals(type)) {
+                long bodySize = size - headerSize;
+                if (bodySize > MAX_MOOV_BYTES) {
+                    return null;
+                }
+                ByteBuffer body = ByteBuffer.allocate((int) bodySize);
+                readFully(in, body, position + headerSize);
+                return body.flip();
+            }
+            position += size;
+        }
+        return null;
+    }
+
+    private static AudioTrack findAudioTrack(ByteBuffer moov) {
+        // Fragmented files keep their samples in moof boxes, which are not handled here
+        if (findChild(moov, "mvex") != null) {
+            return null;
+        }
+        for (ByteBuffer trak : children(moov, "trak")) {
+            ByteBuffer mdia = findChild(trak, "mdia");
+            ByteBuffer hdlr = mdia != null ? findChild(mdia, "hdlr") : null;
+            if (hdlr == null || hdlr.remaining() < 12 || !fourCc(hdlr, hdlr.position() + 8).equals("soun")) {
+                continue;
+            }
+            ByteBuffer stbl = findPath(mdia, "minf", "stbl");
+            if (stbl == null) {
+                continue;
+            }
+            AudioTrack track = parseSampleTable(stbl);
+            if (track != null) {
+                return track;
+            }
+        }
+        return null;
+    }
+
+    private static AudioTrack parseSampleTable(ByteBuffer stbl) {
+        ByteBuffer stsd = findChild(stbl, "stsd");
+        ByteBuffer stsz = findChild(stbl, "stsz");
+        ByteBuffer stsc = findChild(stbl, "stsc");
+        ByteBuffer stco = findChild(stbl, "stco");
+        ByteBuffer co64 = findChild(stbl, "co64");
+        if (stsd == null || stsz == null || stsc == null || (stco == null && co64 == null)) {
+            return null;
+        }
+
+        AudioTrack track = new AudioTrack();
+        if (!parseAudioConfig(stsd, track)) {
+            return null;
+        }
+
+        // stsz: version/flags, sample_size, sample_count[, entry_size...]
+        int fixedSize = stsz.getInt(stsz.position() + 4);
+        track.sampleCount = stsz.getInt(stsz.position() + 8);
+        if (fixedSize == 0) {
+            track.sampleSizes = new int[track.sampleCount];
+            for (int i = 0; i < track.sampleCount; i++) {
+                track.sampleSizes[i] = stsz.getInt(stsz.position() + 12 + 4 * i);
+                track.maxSampleSize = Math.max(track.maxSampleSize, track.sampleSizes[i]);
+            }
+        } else {
+            track.fixedSampleSize = fixedSize;
+            track.maxSampleSize = fixedSize;
+        }
+
+        // stsc: version/flags, entry_count, (first_chunk, samples_per_chunk, sample_description_index)...
+        int stscCount = stsc.getInt(stsc.position() + 4);
+        if (stscCount == 0) {
+            return null;
+        }
+        track.stscFirstChunk = new int[stscCount];
+        track.stscSamplesPerChunk = new int[stscCount];
+        for (int i = 0; i < stscCount; i++) {
+            track.stscFirstChunk[i] = stsc.getInt(stsc.position() + 8 + 12 * i);
+            track.stscSamplesPerChunk[i] = stsc.getInt(stsc.position() + 12 + 12 * i);
+        }
+
+        ByteBuffer offsets = stco != null ? stco : co64;
+        int chunkCount = offsets.getInt(offsets.position() + 4);
+        track.chunkOffsets = new long[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            track.chunkOffsets[i] = stco != null
+                ? stco.getInt(stco.position() + 8 + 4 * i) & 0xFFFFFFFFL
+                : co64.getLong(co64.position() + 8 + 8 * i);
+        }
+        return track;
+    }
+
+    /**
+     * Read the AudioSpecificConfig from stsd/mp4a/esds.
+     */
+    private static boolean parseAudioConfig(ByteBuffer stsd, AudioTrack track) {
+        // stsd: version/flags, entry_count, then the first sample entry box
+        ByteBuffer entries = slice(stsd, stsd.position() + 8, stsd.limit());
+        ByteBuffer mp4a = findChild(entries, "mp4a");
+        if (mp4a == null || mp4a.remaining() < 28) {
+            return false;
+        }
+        // SampleEntry (8) + AudioSampleEntry (20); QuickTime v1/v2 entries carry extra fields
+        int version = mp4a.getShort(mp4a.position() + 8);
+        int childrenStart = 28 + (version == 1 ? 16 : version == 2 ? 36 : 0);
+        ByteBuffer esds = findChild(slice(mp4a, mp4a.position() + childrenStart, mp4a.limit()), "esds");
+        if (esds == null) {
+            return false;
+        }
+
+        ByteBuffer descriptors = slice(esds, esds.position() + 4, esds.limit());
+        if (!enterDescriptor(descriptors, 0x03)) {
+            return false;
+        }
+        descriptors.position(descriptors.position() + 2); // ES_ID
+        int flags = descriptors.get() & 0xFF;
+        if ((flags & 0x80) != 0) {
+            descriptors.position(descriptors.position() + 2);
+        }
+        if ((flags & 0x40) != 0) {
+            descriptors.position(descriptors.position() + (descriptors.get() & 0xFF));
+        }
+        if ((flags & 0x20) != 0) {
+            descriptors.position(descriptors.position() + 2);
+        }
+        if (!enterDescriptor(descriptors, 0x04)) {
+            return false;
+        }
+        // objectTypeIndication 0x40 = MPEG-4 audio, 0x66-0x68 = MPEG-2 AAC
+        int objectTypeIndication = descriptors.get() & 0xFF;
+        if (objectTypeIndication != 0x40 && (objectTypeIndication < 0x66 || objectTypeIndication > 0x68)) {
+            return false;
+        }
+        descriptors.position(descriptors.position() + 12); // streamType, bufferSize, max/avg bitrate
+        if (!enterDescriptor(descriptors, 0x05) || descriptors.remaining() < 2) {
+            return false;
+        }
+
+        int config = ((descriptors.get() & 0xFF) << 8) | (descriptors.get() & 0xFF);
+        track.objectType = (config >> 11) & 0x1F;
+        track.frequencyIndex = (config >> 7) & 0xF;
+        track.channelConfig = (config >> 3) & 0xF;
+        // ADTS can only describe the four original AAC profiles with a table sample rate
+        return track.objectType >= 1 && track.objectType <= 4
+            && track.frequencyIndex < 13 && track.channelConfig > 0;
+    }
+
+    /**
+     * Consume a descriptor tag and its variable-length size, leaving the buffer at its payload.
+     */
+    private static boolean enterDescriptor(ByteBuffer buffer, int expectedTag) {
+        if (!buffer.hasRemaining() || (buffer.get() & 0xFF) != expectedTag) {
+            return false;
+        }
+        for (int i = 0; i < 4 && buffer.hasRemaining(); i++) {
+            if ((buffer.get() & 0x80) == 0) {
+                return buffer.hasRemaining();
+            }
+        }
+        return false;
+    }
+
+    private static ByteBuffer findPath(ByteBuffer parent, String... types) {
+        ByteBuffer current = parent;
+        for (String type : types) {
+            current = findChild(current, type);
+            if (current == null) {
+                return null;
+            }
+        }
+        return current;
+    }
+
+    private static ByteBuffer findChild(ByteBuffer parent, String type) {
+        List<ByteBuffer> found = children(parent, type);
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    /**
+     * Bodies of the direct child boxes of the given type. Returned buffers share the parent's
+     * content and use absolute positions within it.
+     */
+    private static List<ByteBuffer> children(ByteBuffer parent, String type) {
+        List<ByteBuffer> result = new ArrayList<>();
+        int position = parent.position();
+        while (position + 8 <= parent.limit()) {
+            long size = parent.getInt(position) & 0xFFFFFFFFL;
+            int headerSize = 8;
+            if (size == 1 && position + 16 <= parent.limit()) {
+                size = parent.getLong(position + 8);
+                headerSize = 16;
+            } else if (size == 0) {
+                size = parent.limit() - position;
+            }
+            if (size < headerSize || position + size > parent.limit()) {
+                break;
+            }
+            if (fourCc(parent, position + 4).equals(type)) {
+                result.add(slice(parent, position + headerSize, (int) (position + size)));
+            }
+            position += (int) size;
+        }
+        return result;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int from, int to) {
+        ByteBuffer view = buffer.duplicate();
+        view.limit(Math.max(from, to)).position(from);
+        return view;
+    }
+
+    private static String fourCc(ByteBuffer buffer, int index) {
+        char[] chars = new char[4];
+        for (int i = 0; i < 4; i++) {
+            chars[i] = (char) (buffer.get(index + i) & 0xFF);
+        }
+        return new String(chars);
+    }
+
+    private static void readFully(FileChannel in, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of MP4");
+            }
+        }
+    }
+
+    private static final class AudioTrack {
+        int objectType;
+        int frequencyIndex;
+        int channelConfig;
+        int sampleCount;
+        int fixedSampleSize;
+        int[] sampleSizes;
+        int maxSampleSize;
+        int[] stscFirstChunk;
+        int[] stscSamplesPerChunk;
+        long[] chunkOffsets;
+
+        int sampleSize(int index) {
+            return sampleSizes != null ? sampleSizes[index] : fixedSampleSize;
+        }
+    }
+}
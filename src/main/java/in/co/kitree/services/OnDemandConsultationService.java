@@ -256,6 +256,7 @@ public class OnDemandConsultationService {
      * Complete an on-demand consultation order within a transaction.
      * Reads the order inside the transaction to ensure optimistic concurrency control.
      * Throws an exception if the order is not in CONNECTED status to prevent double-charging.
+     * Callers call MetricsRollupService.afterCommit for the expert once the transaction commits.
      */
     public void completeOrderInTransaction(Transaction transaction, String userId, String orderId,
                                            Long durationSeconds, Double cost, Double platformFeeAmount,
@@ -292,6 +293,8 @@ public class OnDemandConsultationService {
         updates.put("expert_earnings", expertEarnings);
         
         transaction.update(orderRef, updates);
+        new MetricsRollupService(db).recordInTransaction(transaction, orderDoc.getString("expert_id"),
+                orderDoc.getTimestamp("created_at"), type, expertEarnings);
     }
 
     /**
@@ -652,7 +655,7 @@ public class OnDemandConsultationService {
             String[] parts = streamCallCid.split(":");
             if (parts.length >= 2) {
                 String orderId = parts[parts.length - 1];
-                LoggingService.debug("on_demand_consultation_find_order_by_cid", Map.of("orderId", orderId, "streamCallCid", streamCallCid));
+                LoggingService.debug("on_demand_consultation_find_order_by_cid", () -> Map.of("orderId", orderId, "streamCallCid", streamCallCid));
 
                 // Search by orderId across all orders
                 Query orderIdQuery = db.collectionGroup("orders")
@@ -832,6 +835,23 @@ public class OnDemandConsultationService {
      */
     public static final int SUMMARY_RETRY_COOLDOWN_SECONDS = 300; // 5 minutes
 
+    /**
+     * How long a summary claim is held. Longer than the function timeout, so a lease only lapses
+     * when the worker holding it died (timeout, OOM) and the order can be claimed again.
+     */
+    public static final int SUMMARY_LEASE_SECONDS = 600; // 10 minutes
+
+    /**
+     * Work queue for summary generation: one document per order awaiting a summary, keyed
+     * {userId}_{orderId}, with next_attempt_at set to when the order is next actionable
+     * (now, after a retry cooldown, or when a claim's lease lapses). Entries are removed once
+     * the order reaches a terminal summary status.
+     */
+    public static final String SUMMARY_QUEUE_COLLECTION = "summary_queue";
+
+    // Orders read per page by backfillSummaryQueue
+    static final int SUMMARY_BACKFILL_PAGE_SIZE = 300;
+
     /**
      * Mark an order as pending summary generation.
      * Called after billing is completed.
@@ -850,12 +870,41 @@ public class OnDemandConsultationService {
         updates.put("summary_last_attempt", null);
         updates.put("summary_error", null);
 
-        orderRef.update(updates).get();
+        WriteBatch batch = db.batch();
+        batch.update(orderRef, updates);
+        batch.set(summaryQueueRef(userId, orderId), summaryQueueEntry(userId, orderId, Timestamp.now()));
+        batch.commit().get();
     }
 
     /**
-     * Try to claim an order for summary generation using optimistic locking.
-     * This prevents multiple Lambda instances from processing the same order.
+     * Add (or reschedule) an order in the summary queue as part of a transaction that marks it
+     * PENDING, e.g. billing completion.
+     */
+    public void enqueueSummaryInTransaction(Transaction transaction, String userId, String orderId) {
+        transaction.set(summaryQueueRef(userId, orderId), summaryQueueEntry(userId, orderId, Timestamp.now()));
+    }
+
+    private DocumentReference summaryQueueRef(String userId, String orderId) {
+        return db.collection(SUMMARY_QUEUE_COLLECTION).document(userId + "_" + orderId);
+    }
+
+    static Map<String, Object> summaryQueueEntry(String userId, String orderId, Timestamp nextAttemptAt) {
+        Map<String, Object> entry = new HashMap<>();
+        entry.put("user_id", userId);
+        entry.put("order_id", orderId);
+        entry.put("next_attempt_at", nextAttemptAt);
+        return entry;
+    }
+
+    private static Timestamp secondsFrom(Timestamp from, long seconds) {
+        return Timestamp.ofTimeSecondsAndNanos(from.getSeconds() + seconds, from.getNanos());
+    }
+
+    /**
+     * Try to claim an order for summary generation by taking a time-bounded lease.
+     * This prevents multiple Lambda instances from processing the same order, and lets an order
+     * whose worker died mid-run (lease expired while IN_PROGRESS) be picked up again; the lost
+     * attempt counts towards the retry limit.
      *
      * @param userId The user's ID
      * @param orderId The order ID
@@ -865,52 +914,81 @@ public class OnDemandConsultationService {
             throws ExecutionException, InterruptedException {
         DocumentReference orderRef = db.collection("users").document(userId)
                 .collection("orders").document(orderId);
+        DocumentReference queueRef = summaryQueueRef(userId, orderId);
 
         return db.runTransaction(transaction -> {
             DocumentSnapshot doc = transaction.get(orderRef).get();
 
             if (!doc.exists()) {
+                transaction.delete(queueRef);
                 return false;
             }
 
             String currentStatus = doc.getString("summary_status");
+            Timestamp now = Timestamp.now();
+            Long retryCount = doc.getLong("summary_retry_count");
+            long attempts = retryCount != null ? retryCount : 0;
 
-            // Only claim if status is PENDING
-            if (!SUMMARY_STATUS_PENDING.equals(currentStatus)) {
+            if (SUMMARY_STATUS_IN_PROGRESS.equals(currentStatus)) {
+                // Held by another worker unless its lease has lapsed
+                if (!isSummaryLeaseExpired(doc, now)) {
+                    return false;
+                }
+                attempts++;
+                LoggingService.warn("summary_lease_expired", Map.of("orderId", orderId, "attempts", attempts));
+            } else if (!SUMMARY_STATUS_PENDING.equals(currentStatus)) {
+                // Only claim if status is PENDING; anything else is terminal and leaves the queue
+                transaction.delete(queueRef);
                 return false;
+            } else {
+                // Check cooldown period
+                Timestamp lastAttempt = doc.getTimestamp("summary_last_attempt");
+                if (lastAttempt != null
+                        && now.getSeconds() - lastAttempt.getSeconds() < SUMMARY_RETRY_COOLDOWN_SECONDS) {
+                    return false; // Still in cooldown
+                }
             }
 
             // Check retry count
-            Long retryCount = doc.getLong("summary_retry_count");
-            if (retryCount != null && retryCount >= MAX_SUMMARY_RETRIES) {
+            if (attempts >= MAX_SUMMARY_RETRIES) {
                 // Max retries exceeded, mark as failed
-                transaction.update(orderRef, Map.of(
-                    "summary_status", SUMMARY_STATUS_FAILED,
-                    "summary_error", "Max retries exceeded"
-                ));
+                Map<String, Object> updates = new HashMap<>();
+                updates.put("summary_status", SUMMARY_STATUS_FAILED);
+                updates.put("summary_error", "Max retries exceeded");
+                updates.put("summary_lease_expires_at", null);
+                transaction.update(orderRef, updates);
+                transaction.delete(queueRef);
                 return false;
             }
 
-            // Check cooldown period
-            Timestamp lastAttempt = doc.getTimestamp("summary_last_attempt");
-            if (lastAttempt != null) {
-                long secondsSinceLastAttempt =
-                    (Timestamp.now().getSeconds() - lastAttempt.getSeconds());
-                if (secondsSinceLastAttempt < SUMMARY_RETRY_COOLDOWN_SECONDS) {
-                    return false; // Still in cooldown
-                }
-            }
-
-            // Claim the order by setting status to IN_PROGRESS
+            // Claim the order by setting status to IN_PROGRESS under a lease
+            Timestamp leaseExpiresAt = secondsFrom(now, SUMMARY_LEASE_SECONDS);
             transaction.update(orderRef, Map.of(
                 "summary_status", SUMMARY_STATUS_IN_PROGRESS,
-                "summary_last_attempt", Timestamp.now()
+                "summary_retry_count", attempts,
+                "summary_last_attempt", now,
+                "summary_lease_expires_at", leaseExpiresAt
             ));
+            // Resurfaces in the queue only if this worker dies without reporting an outcome
+            transaction.set(queueRef, summaryQueueEntry(userId, orderId, leaseExpiresAt));
 
             return true;
         }).get();
     }
 
+    /**
+     * An IN_PROGRESS claim has lapsed once its lease expiry has passed. Claims taken before leases
+     * existed have no expiry and fall back to the last attempt time.
+     */
+    static boolean isSummaryLeaseExpired(DocumentSnapshot doc, Timestamp now) {
+        Timestamp leaseExpiresAt = doc.getTimestamp("summary_lease_expires_at");
+        if (leaseExpiresAt != null) {
+            return leaseExpiresAt.compareTo(now) <= 0;
+        }
+        Timestamp lastAttempt = doc.getTimestamp("summary_last_attempt");
+        return lastAttempt == null || now.getSeconds() - lastAttempt.getSeconds() >= SUMMARY_LEASE_SECONDS;
+    }
+
     /**
      * Update summary status after generation attempt.
      *
@@ -928,13 +1006,18 @@ public class OnDemandConsultationService {
         DocumentReference orderRef = db.collection("users").document(userId)
                 .collection("orders").document(orderId);
 
+        DocumentReference queueRef = summaryQueueRef(userId, orderId);
+
         db.runTransaction(transaction -> {
             DocumentSnapshot doc = transaction.get(orderRef).get();
             if (!doc.exists()) {
+                transaction.delete(queueRef);
                 return null;
             }
 
             Map<String, Object> updates = new HashMap<>();
+            // Any outcome releases the lease
+            updates.put("summary_lease_expires_at", null);
 
             if (SUMMARY_STATUS_COMPLETED.equals(status)) {
                 // Success - store summary
@@ -968,17 +1051,22 @@ public class OnDemandConsultationService {
             }
 
             transaction.update(orderRef, updates);
+
+            // Keep the queue in step: retries come back after the cooldown, terminal outcomes leave
+            if (SUMMARY_STATUS_PENDING.equals(updates.get("summary_status"))) {
+                transaction.set(queueRef, summaryQueueEntry(userId, orderId,
+                    secondsFrom(Timestamp.now(), SUMMARY_RETRY_COOLDOWN_SECONDS)));
+            } else {
+                transaction.delete(queueRef);
+            }
             return null;
         }).get();
     }
 
     /**
-     * Query for orders that are pending summary generation and eligible for retry.
-     * Returns orders where:
-     * - status is COMPLETED (order is done)
-     * - summaryStatus is PENDING
-     * - summaryRetryCount < MAX_SUMMARY_RETRIES
-     * - summaryLastAttempt is null or older than cooldown period
+     * Orders whose summary is actionable now: queue entries with next_attempt_at <= now, oldest
+     * first. Covers new orders, retries past their cooldown and claims whose lease lapsed; the
+     * claim transaction re-checks eligibility.
      *
      * @param limit Maximum number of orders to return
      * @return List of (userId, orderId) pairs
@@ -987,58 +1075,99 @@ public class OnDemandConsultationService {
             throws ExecutionException, InterruptedException {
         List<String[]> pendingOrders = new ArrayList<>();
 
-        // Calculate cooldown threshold
-        Timestamp cooldownThreshold = Timestamp.ofTimeSecondsAndNanos(
-            Timestamp.now().getSeconds() - SUMMARY_RETRY_COOLDOWN_SECONDS, 0);
-
-        // Query using collection group to search across all users' orders
-        // Note: This requires a composite index on (type, status, summary_status)
-        Query query = db.collectionGroup("orders")
-            .whereEqualTo("type", "ON_DEMAND_CONSULTATION")
-            .whereEqualTo("status", "COMPLETED")
-            .whereEqualTo("summary_status", SUMMARY_STATUS_PENDING)
-            .limit(limit * 2); // Fetch extra to filter by cooldown
-
-        QuerySnapshot snapshot = query.get().get();
+        QuerySnapshot snapshot = db.collection(SUMMARY_QUEUE_COLLECTION)
+            .whereLessThanOrEqualTo("next_attempt_at", Timestamp.now())
+            .orderBy("next_attempt_at")
+            .limit(limit)
+            .get().get();
 
         for (QueryDocumentSnapshot doc : snapshot.getDocuments()) {
-            if (pendingOrders.size() >= limit) {
-                break;
-            }
-
-            // Check retry count
-            Long retryCount = doc.getLong("summary_retry_count");
-            if (retryCount != null && retryCount >= MAX_SUMMARY_RETRIES) {
-                continue;
+            String userId = doc.getString("user_id");
+            String orderId = doc.getString("order_id");
+            if (userId != null && orderId != null) {
+                pendingOrders.add(new String[]{userId, orderId});
             }
+        }
 
-            // Check cooldown
-            Timestamp lastAttempt = doc.getTimestamp("summary_last_attempt");
-            if (lastAttempt != null && lastAttempt.compareTo(cooldownThreshold) > 0) {
-                continue; // Still in cooldown
-            }
+        return pendingOrders;
+    }
 
-            // Extract userId from document path: users/{userId}/orders/{orderId}
-            String userId = doc.getReference().getParent().getParent().getId();
-            String orderId = doc.getId();
+    /**
+     * One-off migration for orders marked PENDING or IN_PROGRESS before summary_queue existed: pages
+     * through them (the legacy type/status/summary_status index) and creates the missing queue
+     * entries, due now for PENDING and at lease expiry for IN_PROGRESS. Existing entries are left
+     * alone. Re-run until "complete" is true; it is a no-op once every order is queued.
+     *
+     * @param deadlineMs Epoch millis after which no new page is started
+     * @return scanned / enqueued counts and whether every page was visited
+     */
+    public Map<String, Object> backfillSummaryQueue(long deadlineMs) throws ExecutionException, InterruptedException {
+        int scanned = 0;
+        int enqueued = 0;
+        boolean complete = true;
+
+        outer:
+        for (String summaryStatus : List.of(SUMMARY_STATUS_PENDING, SUMMARY_STATUS_IN_PROGRESS)) {
+            Query query = db.collectionGroup("orders")
+                .whereEqualTo("type", "ON_DEMAND_CONSULTATION")
+                .whereEqualTo("status", "COMPLETED")
+                .whereEqualTo("summary_status", summaryStatus)
+                .limit(SUMMARY_BACKFILL_PAGE_SIZE);
+            DocumentSnapshot last = null;
+            while (true) {
+                if (System.currentTimeMillis() > deadlineMs) {
+                    complete = false;
+                    break outer;
+                }
+                List<QueryDocumentSnapshot> orders = (last != null ? query.startAfter(last) : query).get().get().getDocuments();
+                if (orders.isEmpty()) {
+                    break;
+                }
+                last = orders.get(orders.size() - 1);
+                scanned += orders.size();
 
-            pendingOrders.add(new String[]{userId, orderId});
+                DocumentReference[] queueRefs = new DocumentReference[orders.size()];
+                for (int i = 0; i < orders.size(); i++) {
+                    queueRefs[i] = summaryQueueRef(orders.get(i).getReference().getParent().getParent().getId(), orders.get(i).getId());
+                }
+                List<DocumentSnapshot> entries = db.getAll(queueRefs).get();
+                for (int i = 0; i < orders.size(); i++) {
+                    if (entries.get(i).exists()) {
+                        continue;
+                    }
+                    QueryDocumentSnapshot order = orders.get(i);
+                    Timestamp leaseExpiresAt = order.getTimestamp("summary_lease_expires_at");
+                    Timestamp nextAttemptAt = SUMMARY_STATUS_IN_PROGRESS.equals(summaryStatus) && leaseExpiresAt != null
+                        ? leaseExpiresAt : Timestamp.now();
+                    try {
+                        // create() rather than set(): never reschedule an entry a worker wrote meanwhile
+                        queueRefs[i].create(summaryQueueEntry(order.getReference().getParent().getParent().getId(),
+                            order.getId(), nextAttemptAt)).get();
+                        enqueued++;
+                    } catch (ExecutionException e) {
+                        LoggingService.warn("summary_queue_backfill_skipped", Map.of(
+                            "orderId", order.getId(),
+                            "error", String.valueOf(e.getMessage())
+                        ));
+                    }
+                }
+            }
         }
 
-        return pendingOrders;
+        Map<String, Object> result = new HashMap<>();
+        result.put("scanned", scanned);
+        result.put("enqueued", enqueued);
+        result.put("complete", complete);
+        LoggingService.info("summary_queue_backfilled", result);
+        return result;
     }
 
     /**
-     * Get count of orders pending summary generation.
+     * Get count of orders awaiting a summary (queued, cooling down or in progress).
      * Useful for monitoring and alerting.
      */
     public int getOrdersPendingSummaryCount() throws ExecutionException, InterruptedException {
-        Query query = db.collectionGroup("orders")
-            .whereEqualTo("type", "ON_DEMAND_CONSULTATION")
-            .whereEqualTo("status", "COMPLETED")
-            .whereEqualTo("summary_status", SUMMARY_STATUS_PENDING);
-
-        AggregateQuerySnapshot snapshot = query.count().get().get();
+        AggregateQuerySnapshot snapshot = db.collection(SUMMARY_QUEUE_COLLECTION).count().get().get();
         return (int) snapshot.getCount();
     }
 }
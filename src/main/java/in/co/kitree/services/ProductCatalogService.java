@@ -1,6 +1,5 @@
 package in.co.kitree.services;
 
-import com.google.api.core.ApiFuture;
 import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.*;
 import in.co.kitree.pojos.PlatformProduct;
@@ -13,113 +12,90 @@ import java.util.concurrent.ExecutionException;
  * Products are controlled by Kitree, not individual experts.
  *
  * Collection: platform_products/{productId}
+ *
+ * The catalog is small, read-mostly and shared by every expert, so reads are served from a
+ * per-container snapshot indexed by id, category, productType and tag. The snapshot is refreshed
+ * at most every CATALOG_REFRESH_INTERVAL_MS by reading only products whose updatedAt is past the
+ * last watermark; writes through this service expire it immediately in the writing container.
+ * Every write stamps updatedAt with the commit time, so containers' clocks don't matter and cached
+ * stock lags by at most the refresh interval. Stock checks always read Firestore.
  */
 public class ProductCatalogService {
     private static final String COLLECTION_NAME = "platform_products";
 
+    static final long CATALOG_REFRESH_INTERVAL_MS = 30_000;
+
+    // Shared by every instance in the container
+    private static final CatalogCache SHARED_CACHE = new CatalogCache();
+
     private final Firestore db;
+    private final CatalogCache cache;
 
     public ProductCatalogService(Firestore db) {
+        this(db, SHARED_CACHE);
+    }
+
+    ProductCatalogService(Firestore db, CatalogCache cache) {
         this.db = db;
+        this.cache = cache;
     }
 
     /**
-     * Get all active platform products.
+     * Get all active platform products, ordered by name.
      */
     public List<PlatformProduct> getActiveProducts() throws ExecutionException, InterruptedException {
-        Query query = db.collection(COLLECTION_NAME)
-                .whereEqualTo("isActive", true)
-                .orderBy("name");
-
-        ApiFuture<QuerySnapshot> future = query.get();
-        QuerySnapshot snapshot = future.get();
-
-        List<PlatformProduct> products = new ArrayList<>();
-        for (DocumentSnapshot doc : snapshot.getDocuments()) {
-            PlatformProduct product = documentToProduct(doc);
-            if (product != null) {
-                products.add(product);
-            }
-        }
+        List<PlatformProduct> products = new ArrayList<>(snapshot().active);
 
         LoggingService.info("get_active_products", Map.of("count", products.size()));
         return products;
     }
 
     /**
-     * Get a single product by ID.
+     * Get a single product by ID (active or not). Products not yet in the snapshot, e.g. created
+     * in another container since the last refresh, are read from Firestore.
      */
     public PlatformProduct getProduct(String productId) throws ExecutionException, InterruptedException {
         if (productId == null || productId.isEmpty()) {
             return null;
         }
 
-        DocumentReference docRef = db.collection(COLLECTION_NAME).document(productId);
-        DocumentSnapshot doc = docRef.get().get();
-
-        if (!doc.exists()) {
-            return null;
-        }
-
-        return documentToProduct(doc);
+        PlatformProduct cached = snapshot().byId.get(productId);
+        return cached != null ? cached : readProduct(productId);
     }
 
     /**
-     * Get products by category.
+     * Get active products by category, ordered by name.
      */
     public List<PlatformProduct> getProductsByCategory(String category) throws ExecutionException, InterruptedException {
-        Query query = db.collection(COLLECTION_NAME)
-                .whereEqualTo("isActive", true)
-                .whereEqualTo("category", category)
-                .orderBy("name");
-
-        ApiFuture<QuerySnapshot> future = query.get();
-        QuerySnapshot snapshot = future.get();
-
-        List<PlatformProduct> products = new ArrayList<>();
-        for (DocumentSnapshot doc : snapshot.getDocuments()) {
-            PlatformProduct product = documentToProduct(doc);
-            if (product != null) {
-                products.add(product);
-            }
-        }
-
-        return products;
+        return new ArrayList<>(snapshot().activeByCategory.getOrDefault(category, List.of()));
     }
 
     /**
-     * Get products by type (bracelet, pendant, etc.).
+     * Get active products by type (bracelet, pendant, etc.), ordered by name.
      */
     public List<PlatformProduct> getProductsByType(String productType) throws ExecutionException, InterruptedException {
-        Query query = db.collection(COLLECTION_NAME)
-                .whereEqualTo("isActive", true)
-                .whereEqualTo("productType", productType)
-                .orderBy("name");
-
-        ApiFuture<QuerySnapshot> future = query.get();
-        QuerySnapshot snapshot = future.get();
-
-        List<PlatformProduct> products = new ArrayList<>();
-        for (DocumentSnapshot doc : snapshot.getDocuments()) {
-            PlatformProduct product = documentToProduct(doc);
-            if (product != null) {
-                products.add(product);
-            }
-        }
-
-        return products;
+        return new ArrayList<>(snapshot().activeByType.getOrDefault(productType, List.of()));
     }
 
     /**
-     * Search products by tags.
+     * Search active products by tags.
      */
     public List<PlatformProduct> searchProductsByTag(String tag) throws ExecutionException, InterruptedException {
-        Query query = db.collection(COLLECTION_NAME)
-                .whereEqualTo("isActive", true)
-                .whereArrayContains("tags", tag.toLowerCase());
+        return new ArrayList<>(snapshot().activeByTag.getOrDefault(tag.toLowerCase(), List.of()));
+    }
+
+    /**
+     * Get every product (active or not) whose updatedAt is after the given watermark, oldest
+     * change first. A null watermark returns the whole catalog. Used to refresh in-memory
+     * catalog snapshots incrementally.
+     */
+    public List<PlatformProduct> getProductsUpdatedSince(Timestamp watermark) throws ExecutionException, InterruptedException {
+        Query query = db.collection(COLLECTION_NAME);
+        if (watermark != null) {
+            query = query.whereGreaterThan("updatedAt", watermark).orderBy("updatedAt");
+        }
 
-        ApiFuture<QuerySnapshot> future = query.get();
-        QuerySnapshot snapshot = future.get();
+        QuerySnapshot snapshot = query.get().get();
 
         List<PlatformProduct> products = new ArrayList<>();
         for (DocumentSnapshot doc : snapshot.getDocuments()) {
@@ -136,7 +112,8 @@ public class ProductCatalogService {
      * Check if platform has stock for a product.
      */
     public boolean checkPlatformStock(String productId, int quantity) throws ExecutionException, InterruptedException {
-        PlatformProduct product = getProduct(productId);
+        // Stock moves with every order, so this is always a Firestore read
+        PlatformProduct product = readProduct(productId);
         if (product == null) {
             return false;
         }
@@ -144,11 +121,15 @@ public class ProductCatalogService {
     }
 
     /**
-     * Decrement platform stock (within a transaction).
+     * Decrement platform stock (within a transaction). Advances updatedAt so every container's
+     * snapshot picks up the new quantity on its next refresh.
      */
     public void decrementPlatformStock(Transaction tx, String productId, int quantity) {
         DocumentReference docRef = db.collection(COLLECTION_NAME).document(productId);
-        tx.update(docRef, "platformStockQuantity", FieldValue.increment(-quantity));
+        tx.update(docRef,
+            "platformStockQuantity", FieldValue.increment(-quantity),
+            "updatedAt", FieldValue.serverTimestamp());
+        cache.expire();
     }
 
     /**
@@ -156,7 +137,11 @@ public class ProductCatalogService {
      */
     public void incrementPlatformStock(String productId, int quantity) throws ExecutionException, InterruptedException {
         DocumentReference docRef = db.collection(COLLECTION_NAME).document(productId);
-        docRef.update("platformStockQuantity", FieldValue.increment(quantity)).get();
+        docRef.update(
+            "platformStockQuantity", FieldValue.increment(quantity),
+            "updatedAt", FieldValue.serverTimestamp()
+        ).get();
+        cache.expire();
     }
 
     /**
@@ -169,10 +154,10 @@ public class ProductCatalogService {
             product.setProductId(newDocRef.getId());
             product.setCreatedAt(Timestamp.now());
         }
-        product.setUpdatedAt(Timestamp.now());
 
         DocumentReference docRef = db.collection(COLLECTION_NAME).document(product.getProductId());
-        docRef.set(product.toMap()).get();
+        docRef.set(toCatalogWrite(product)).get();
+        cache.expire();
 
         LoggingService.info("product_upserted", Map.of(
             "productId", product.getProductId(),
@@ -180,6 +165,16 @@ public class ProductCatalogService {
         ));
     }
 
+    /**
+     * Product fields for a catalog write, with updatedAt set to the commit time so the snapshot
+     * refresh's strict updatedAt watermark can't skip it.
+     */
+    private static Map<String, Object> toCatalogWrite(PlatformProduct product) {
+        Map<String, Object> data = product.toMap();
+        data.put("updatedAt", FieldValue.serverTimestamp());
+        return data;
+    }
+
     /**
      * Deactivate a product (soft delete).
      */
@@ -187,8 +182,9 @@ public class ProductCatalogService {
         DocumentReference docRef = db.collection(COLLECTION_NAME).document(productId);
         docRef.update(
             "isActive", false,
-            "updatedAt", Timestamp.now()
+            "updatedAt", FieldValue.serverTimestamp()
         ).get();
+        cache.expire();
 
         LoggingService.info("product_deactivated", Map.of("productId", productId));
     }
@@ -205,11 +201,10 @@ public class ProductCatalogService {
                 product.setProductId(db.collection(COLLECTION_NAME).document().getId());
             }
             product.setCreatedAt(Timestamp.now());
-            product.setUpdatedAt(Timestamp.now());
             product.setActive(true);
 
             DocumentReference docRef = db.collection(COLLECTION_NAME).document(product.getProductId());
-            batch.set(docRef, product.toMap());
+            batch.set(docRef, toCatalogWrite(product));
             count++;
 
             // Firestore batches are limited to 500 operations
@@ -222,11 +217,136 @@ public class ProductCatalogService {
         if (count % 400 != 0) {
             batch.commit().get();
         }
+        cache.expire();
 
         LoggingService.info("products_seeded", Map.of("count", count));
         return count;
     }
 
+    /**
+     * Point read of a product from Firestore, bypassing the snapshot.
+     */
+    private PlatformProduct readProduct(String productId) throws ExecutionException, InterruptedException {
+        if (productId == null || productId.isEmpty()) {
+            return null;
+        }
+        DocumentSnapshot doc = db.collection(COLLECTION_NAME).document(productId).get().get();
+        return doc.exists() ? documentToProduct(doc) : null;
+    }
+
+    /**
+     * The container's catalog snapshot, refreshed when older than CATALOG_REFRESH_INTERVAL_MS.
+     * A failed refresh keeps serving the previous snapshot; only the very first load can fail.
+     */
+    CatalogSnapshot snapshot() throws ExecutionException, InterruptedException {
+        CatalogSnapshot current = cache.snapshot;
+        if (current != null && System.currentTimeMillis() - cache.lastRefreshMs < CATALOG_REFRESH_INTERVAL_MS) {
+            return current;
+        }
+        synchronized (cache) {
+            current = cache.snapshot;
+            if (current != null && System.currentTimeMillis() - cache.lastRefreshMs < CATALOG_REFRESH_INTERVAL_MS) {
+                return current;
+            }
+            try {
+                List<PlatformProduct> changed = getProductsUpdatedSince(cache.watermark);
+                for (PlatformProduct product : changed) {
+                    cache.byId.put(product.getProductId(), product);
+                    Timestamp updatedAt = product.getUpdatedAt();
+                    if (updatedAt != null && (cache.watermark == null || updatedAt.compareTo(cache.watermark) > 0)) {
+                        cache.watermark = updatedAt;
+                    }
+                }
+                if (current == null || !changed.isEmpty()) {
+                    cache.snapshot = CatalogSnapshot.build(current != null ? current.version + 1 : 1, cache.byId);
+                    LoggingService.info("catalog_snapshot_refreshed", Map.of(
+                        "changed", changed.size(),
+                        "products", cache.byId.size(),
+                        "activeProducts", cache.snapshot.active.size()
+                    ));
+                }
+            } catch (ExecutionException | InterruptedException | RuntimeException e) {
+                if (current == null) {
+                    throw e;
+                }
+                LoggingService.warn("catalog_snapshot_refresh_failed", Map.of("error", String.valueOf(e.getMessage())));
+            }
+            cache.lastRefreshMs = System.currentTimeMillis();
+            return cache.snapshot;
+        }
+    }
+
+    /**
+     * Per-container catalog state. Mutated only under its own lock; readers use the published snapshot.
+     */
+    static final class CatalogCache {
+        private final Map<String, PlatformProduct> byId = new HashMap<>();
+        private Timestamp watermark;
+        private volatile long lastRefreshMs;
+        private volatile CatalogSnapshot snapshot;
+
+        /** Make the next read refresh regardless of the interval. */
+        void expire() {
+            lastRefreshMs = 0;
+        }
+    }
+
+    /**
+     * Immutable view of the catalog. Lists hold active products ordered by name; version increases
+     * with every rebuild so derived indexes know when to rebuild too.
+     */
+    static final class CatalogSnapshot {
+        final long version;
+        final Map<String, PlatformProduct> byId;
+        final List<PlatformProduct> active;
+        final Map<String, List<PlatformProduct>> activeByCategory;
+        final Map<String, List<PlatformProduct>> activeByType;
+        final Map<String, List<PlatformProduct>> activeByTag;
+
+        private CatalogSnapshot(long version, Map<String, PlatformProduct> byId, List<PlatformProduct> active,
+                                Map<String, List<PlatformProduct>> activeByCategory,
+                                Map<String, List<PlatformProduct>> activeByType,
+                                Map<String, List<PlatformProduct>> activeByTag) {
+            this.version = version;
+            this.byId = byId;
+            this.active = active;
+            this.activeByCategory = activeByCategory;
+            this.activeByType = activeByType;
+            this.activeByTag = activeByTag;
+        }
+
+        static CatalogSnapshot build(long version, Map<String, PlatformProduct> products) {
+            List<PlatformProduct> active = new ArrayList<>();
+            for (PlatformProduct product : products.values()) {
+                if (product.isActive()) {
+                    active.add(product);
+                }
+            }
+            active.sort(Comparator.comparing(PlatformProduct::getName, Comparator.nullsLast(Comparator.naturalOrder())));
+
+            Map<String, List<PlatformProduct>> byCategory = new HashMap<>();
+            Map<String, List<PlatformProduct>> byType = new HashMap<>();
+            Map<String, List<PlatformProduct>> byTag = new HashMap<>();
+            for (PlatformProduct product : active) {
+                if (product.getCategory() != null) {
+                    byCategory.computeIfAbsent(product.getCategory(), k -> new ArrayList<>()).add(product);
+                }
+                if (product.getProductType() != null) {
+                    byType.computeIfAbsent(product.getProductType(), k -> new ArrayList<>()).add(product);
+                }
+                if (product.getTags() != null) {
+                    for (String tag : new LinkedHashSet<>(product.getTags())) {
+                        if (tag != null) {
+                            byTag.computeIfAbsent(tag, k -> new ArrayList<>()).add(product);
+                        }
+                    }
+                }
+            }
+            return new CatalogSnapshot(version, Map.copyOf(products), List.copyOf(active),
+                byCategory, byType, byTag);
+        }
+    }
+
     /**
      * Convert Firestore document to PlatformProduct.
      */
@@ -241,8 +361,16 @@ public class ProductCatalogService {
             return null;
         }
 
+        return productFromMap(doc.getId(), data);
+    }
+
+    /**
+     * Convert a stored product map (document data or an embedded copy) to PlatformProduct.
+     */
+    @SuppressWarnings("unchecked")
+    static PlatformProduct productFromMap(String productId, Map<String, Object> data) {
         PlatformProduct product = new PlatformProduct();
-        product.setProductId(doc.getId());
+        product.setProductId(productId);
         product.setSku((String) data.get("sku"));
         product.setName((String) data.get("name"));
         product.setDescription((String) data.get("description"));
@@ -8,7 +8,8 @@ import java.util.List;
 /**
  * Interface for matching products to remedy recommendations.
  *
- * Current implementation: MockProductMatchingService (hardcoded products)
+ * Current implementation: CatalogIndexProductMatchingService (inverted index over platform_products)
+ * Fallback: MockProductMatchingService (hardcoded products, used while the catalog is empty)
  * Future implementation: VectorProductMatchingService (semantic search via Pinecone/Weaviate)
  */
 public interface ProductMatchingService {
@@ -452,6 +452,7 @@ public class ProductOrderService {
             updates.put("status", ProductOrderDetails.STATUS_PAID);
             updates.put("verified_at", Timestamp.now());
             transaction.update(orderRef, updates);
+            new MetricsRollupService(db).recordOrderInTransaction(transaction, orderDoc.getData());
 
             return null;
         }).get();
@@ -459,6 +460,7 @@ public class ProductOrderService {
         // Handle expert stock decrement outside transaction for self-shipping items
         DocumentSnapshot orderDoc = orderRef.get().get();
         String expertId = orderDoc.getString("expert_id");
+        MetricsRollupService.afterCommit(MetricsRollupService.orderExpertId(orderDoc.getData()));
 
         for (Map<String, Object> item : selfShippingItems) {
             String productId = (String) item.get("productId");
@@ -11,18 +11,32 @@ import com.google.genai.types.*;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Orchestrates daily rashifal generation:
  * birth profile → Python /rashifal → Hindi TTS → Cloudinary → Firestore
+ *
+ * The spoken text only depends on a handful of chart values, so the audio is content-addressed:
+ * rashifal_audio/{sha256 of voice + text} maps each rendered text to a shared Cloudinary asset,
+ * and only the first user for a given text pays for TTS and upload. The pregenerate_rashifal cron
+ * renders every text for the day ahead of the morning peak, so user requests only resolve their
+ * natal sign and tara bala and then find the audio already prepared.
  */
 public class RashifalService {
 
     private static final String TTS_MODEL = "gemini-2.5-flash-preview-tts";
+    private static final String TTS_VOICE = "Kore";
+    static final String AUDIO_CACHE_COLLECTION = "rashifal_audio";
     private static final int SAMPLE_RATE = 24000;
     private static final int BITS_PER_SAMPLE = 16;
     private static final int NUM_CHANNELS = 1;
@@ -35,6 +49,17 @@ public class RashifalService {
         "रविवार", "सोमवार", "मंगलवार", "बुधवार", "गुरुवार", "शुक्रवार", "शनिवार"
     };
 
+    // Parallel TTS + upload jobs during pre-generation (bounded to stay within Gemini TTS rate limits)
+    static final int PREGENERATE_CONCURRENCY = 4;
+    // Representative tara balas: the text only distinguishes challenging (odd) from favorable (even)
+    private static final int[] TARA_BALA_CLASSES = {1, 2};
+    // Fixed birth data for the pre-generation call; only the day's transit values are used from it
+    private static final double REFERENCE_LATITUDE = 28.6139;
+    private static final double REFERENCE_LONGITUDE = 77.2090;
+
+    // Warm-container copy of rashifal_audio (hash → audio URL); entries never change once written
+    private static final Map<String, String> audioUrlByHash = new ConcurrentHashMap<>();
+
     private final Firestore db;
     private final Client geminiClient;
     private final AstrologyService astrologyService;
@@ -200,26 +225,25 @@ public class RashifalService {
             int dy = cal.get(Calendar.DAY_OF_MONTH), hr = cal.get(Calendar.HOUR_OF_DAY), mn = cal.get(Calendar.MINUTE);
 
             // Python /rashifal
-            JsonNode data = objectMapper.readTree(callPythonRashifal(yr, mo, dy, hr, mn, latitude, longitude));
+            JsonNode data = objectMapper.readTree(astrologyService.getRashifalData(
+                    userId, profile.getId(), yr, mo, dy, hr, mn, latitude, longitude));
             int natalMoonSign = data.path("natal_moon_sign").asInt();
             int taraBala = data.path("tara_bala").asInt();
             int weekday = data.path("weekday").asInt();
             int transitMoonSign = data.path("transit_moon_sign").asInt();
             int transitSunSign = data.path("transit_sun_sign").asInt();
 
-            // Gemini TTS
+            // Shared audio for this text, or Gemini TTS + upload on first use
             String hindiText = buildHindiRashifalText(natalMoonSign, transitMoonSign, transitSunSign, taraBala, weekday);
-            byte[] wavBytes = pcmToWav(generateTtsAudio(hindiText));
-
-            // TODO: Cloudinary URLs are publicly accessible without authentication.
-            // Migrate to signed/authenticated URLs for proper access control.
-            String audioUrl = uploadToCloudinary(wavBytes, userId);
+            String audioHash = audioCacheKey(hindiText);
+            String audioUrl = getOrCreateAudio(audioHash, hindiText);
 
             // Update Firestore
             Map<String, Object> readyData = new HashMap<>();
             readyData.put("status", "ready");
             readyData.put("date", today);
             readyData.put("audioUrl", audioUrl);
+            readyData.put("audioHash", audioHash);
             readyData.put("natalMoonSign", natalMoonSign);
             readyData.put("taraBala", taraBala);
             readyData.put("generatedAt", FieldValue.serverTimestamp());
@@ -235,11 +259,125 @@ public class RashifalService {
         }
     }
 
+    /**
+     * Pre-generate today's rashifal audio for every natal sign and tara bala class.
+     * Transit signs and weekday come from one Python /rashifal call; the distinct texts are then
+     * rendered with at most PREGENERATE_CONCURRENCY TTS + upload jobs in flight.
+     * Used by the pregenerate_rashifal cron.
+     */
+    public Map<String, Object> pregenerateDailyAudio() throws Exception {
+        if (geminiClient == null) {
+            return Map.of("success", false, "errorMessage", "Gemini not configured");
+        }
+        String today = LocalDate.now(ZoneOffset.UTC).format(DateTimeFormatter.ISO_LOCAL_DATE);
+
+        JsonNode data = objectMapper.readTree(callPythonRashifal(2000, 1, 1, 12, 0,
+                REFERENCE_LATITUDE, REFERENCE_LONGITUDE));
+        int weekday = data.path("weekday").asInt();
+        int transitMoonSign = data.path("transit_moon_sign").asInt();
+        int transitSunSign = data.path("transit_sun_sign").asInt();
+
+        Map<String, String> textsByHash = new LinkedHashMap<>();
+        for (int natalMoonSign = 1; natalMoonSign <= 12; natalMoonSign++) {
+            for (int taraBala : TARA_BALA_CLASSES) {
+                String text = buildHindiRashifalText(natalMoonSign, transitMoonSign, transitSunSign, taraBala, weekday);
+                textsByHash.putIfAbsent(audioCacheKey(text), text);
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(PREGENERATE_CONCURRENCY);
+        int prepared = 0;
+        int failed = 0;
+        try {
+            Map<String, Future<String>> jobs = new LinkedHashMap<>();
+            for (Map.Entry<String, String> entry : textsByHash.entrySet()) {
+                jobs.put(entry.getKey(), executor.submit(() -> getOrCreateAudio(entry.getKey(), entry.getValue())));
+            }
+            for (Map.Entry<String, Future<String>> job : jobs.entrySet()) {
+                try {
+                    job.getValue().get();
+                    prepared++;
+                } catch (Exception e) {
+                    failed++;
+                    LoggingService.warn("rashifal_pregenerate_failed", Map.of(
+                            "audioHash", job.getKey(), "error", String.valueOf(e.getMessage())));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", failed == 0);
+        result.put("date", today);
+        result.put("transitMoonSign", transitMoonSign);
+        result.put("transitSunSign", transitSunSign);
+        result.put("texts", textsByHash.size());
+        result.put("prepared", prepared);
+        result.put("failed", failed);
+        LoggingService.info("rashifal_pregenerated", result);
+        return result;
+    }
+
     private String callPythonRashifal(int year, int month, int day, int hour, int minute,
                                        double latitude, double longitude) throws Exception {
         return astrologyService.getRashifalData(year, month, day, hour, minute, latitude, longitude);
     }
 
+    /**
+     * Resolve the audio URL for a rendered text: warm-container map, then the rashifal_audio
+     * index, then TTS + upload (recorded in the index for every later user).
+     */
+    private String getOrCreateAudio(String audioHash, String text) throws Exception {
+        String cachedUrl = audioUrlByHash.get(audioHash);
+        if (cachedUrl != null) {
+            return cachedUrl;
+        }
+
+        DocumentReference indexRef = db.collection(AUDIO_CACHE_COLLECTION).document(audioHash);
+        DocumentSnapshot indexDoc = indexRef.get().get();
+        String audioUrl = indexDoc.exists() ? indexDoc.getString("audioUrl") : null;
+        if (audioUrl != null) {
+            LoggingService.info("rashifal_audio_cache_hit", Map.of("audioHash", audioHash));
+        } else {
+            byte[] wavBytes = pcmToWav(generateTtsAudio(text));
+
+            // TODO: Cloudinary URLs are publicly accessible without authentication.
+            // Migrate to signed/authenticated URLs for proper access control.
+            audioUrl = uploadToCloudinary(wavBytes, "audio/" + audioHash);
+
+            // Concurrent misses for the same text upload identical bytes to the same public_id,
+            // so the last write winning is harmless.
+            Map<String, Object> indexData = new HashMap<>();
+            indexData.put("audioUrl", audioUrl);
+            indexData.put("model", TTS_MODEL);
+            indexData.put("voice", TTS_VOICE);
+            indexData.put("createdAt", FieldValue.serverTimestamp());
+            indexRef.set(indexData).get();
+            LoggingService.info("rashifal_audio_generated", Map.of("audioHash", audioHash));
+        }
+        audioUrlByHash.put(audioHash, audioUrl);
+        return audioUrl;
+    }
+
+    /**
+     * Content address of a rashifal text: SHA-256 (hex) over the TTS model, voice and text,
+     * so changing either the wording or the voice produces a new asset.
+     */
+    static String audioCacheKey(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest((TTS_MODEL + "\n" + TTS_VOICE + "\n" + text).getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (java.security.NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
     private byte[] generateTtsAudio(String text) throws Exception {
         Content content = Content.fromParts(Part.fromText(text));
         GenerateContentConfig config = GenerateContentConfig.builder()
@@ -247,7 +385,7 @@ public class RashifalService {
                 .speechConfig(SpeechConfig.builder()
                         .voiceConfig(VoiceConfig.builder()
                                 .prebuiltVoiceConfig(PrebuiltVoiceConfig.builder()
-                                        .voiceName("Kore")
+                                        .voiceName(TTS_VOICE)
                                         .build())
                                 .build())
                         .build())
@@ -298,7 +436,7 @@ public class RashifalService {
         return buf.array();
     }
 
-    private String uploadToCloudinary(byte[] wavBytes, String userId) throws Exception {
+    private String uploadToCloudinary(byte[] wavBytes, String assetName) throws Exception {
         String cloudinaryUrl = SecretsProvider.getString("CLOUDINARY_URL");
         if (cloudinaryUrl.isEmpty()) {
             throw new RuntimeException("CLOUDINARY_URL not configured in secrets.json");
@@ -310,7 +448,7 @@ public class RashifalService {
                 wavBytes,
                 ObjectUtils.asMap(
                         "resource_type", "raw",
-                        "public_id", path + "rashifal/" + userId,
+                        "public_id", path + "rashifal/" + assetName,
                         "unique_filename", false,
                         "overwrite", true
                 )
@@ -318,7 +456,7 @@ public class RashifalService {
         return String.valueOf(uploadResult.get("secure_url"));
     }
 
-    private String buildHindiRashifalText(int natalMoonSign, int transitMoonSign, int transitSunSign,
+    static String buildHindiRashifalText(int natalMoonSign, int transitMoonSign, int transitSunSign,
                                            int taraBala, int weekday) {
         String rashi = (natalMoonSign >= 1 && natalMoonSign <= 12) ? RASHI_NAMES[natalMoonSign] : "अज्ञात";
         String transitMoon = (transitMoonSign >= 1 && transitMoonSign <= 12) ? RASHI_NAMES[transitMoonSign] : "अज्ञात";
@@ -48,7 +48,7 @@ public class Razorpay implements PaymentGateway {
         options.put("amount", amountInPaise);
         options.put("currency", "INR");
         options.put("notes", notes);
-        Order order = razorpayClient.orders.create(options);
+        Order order = RequestMetrics.timeExternal(RequestMetrics.DEPENDENCY_RAZORPAY, () -> razorpayClient.orders.create(options));
         return new PaymentOrderResult(order.get("id"), null);
     }
 
@@ -62,7 +62,7 @@ public class Razorpay implements PaymentGateway {
     }
 
     public String createSubscription(String planId, String encryptedCustomerId) throws RazorpayException {
-        LoggingService.debug("razorpay_create_subscription", Map.of("planId", planId));
+        LoggingService.debug("razorpay_create_subscription", () -> Map.of("planId", planId));
         JSONObject options = new JSONObject();
         JSONObject notes = new JSONObject();
         notes.put("receipt", encryptedCustomerId);
@@ -71,14 +71,16 @@ public class Razorpay implements PaymentGateway {
         options.put("total_count", 120);
         options.put("quantity", 1);
         options.put("notes", notes);
-        Subscription subscription = razorpayClient.subscriptions.create(options);
+        Subscription subscription = RequestMetrics.timeExternal(RequestMetrics.DEPENDENCY_RAZORPAY,
+                () -> razorpayClient.subscriptions.create(options));
         return subscription.get("id");
     }
 
     public boolean verifySubscription(String subscriptionId) {
         try {
-            Subscription subscription = razorpayClient.subscriptions.fetch(subscriptionId);
-            LoggingService.debug("razorpay_verify_subscription", Map.of("subscriptionId", subscriptionId, "status", subscription.get("status")));
+            Subscription subscription = RequestMetrics.timeExternal(RequestMetrics.DEPENDENCY_RAZORPAY,
+                    () -> razorpayClient.subscriptions.fetch(subscriptionId));
+            LoggingService.debug("razorpay_verify_subscription", () -> Map.of("subscriptionId", subscriptionId, "status", subscription.get("status")));
             return "active".equals(subscription.get("status"));
         } catch (RazorpayException e) {
             return false;
@@ -95,7 +97,7 @@ public class Razorpay implements PaymentGateway {
     }
 
     public Subscription cancel(String subscriptionId) throws RazorpayException {
-        return razorpayClient.subscriptions.cancel(subscriptionId);
+        return RequestMetrics.timeExternal(RequestMetrics.DEPENDENCY_RAZORPAY, () -> razorpayClient.subscriptions.cancel(subscriptionId));
     }
 
     /**
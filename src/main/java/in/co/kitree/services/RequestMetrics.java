@@ -0,0 +1,261 @@
+package in.co.kitree.services;
+
+import com.google.gson.Gson;
+import com.google.protobuf.Message;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Per-invocation performance metrics, written once per invocation as a CloudWatch Embedded
+ * Metric Format (EMF) log line.
+ *
+ * The handler opens a RequestMetrics with begin(), the router / webhook / cron entry point names the
+ * route, Firestore RPCs are counted through InstrumentedFirestoreRpc and outbound calls are timed
+ * with timeExternal(). finish() emits one EMF record with the "Route" dimension:
+ * - Latency (ms) and ColdStart (1/0)
+ * - FirestoreReads, FirestoreWrites, FirestoreQueries
+ * - {Dependency}Latency (ms, one sample per call) and {Dependency}Calls for Stream, Gemini,
+ *   AstrologyLambda, Razorpay and Stripe
+ * CloudWatch keeps each sample, so p50/p90/p99 per route are available as metric statistics.
+ *
+ * Lambda runs one invocation per container at a time, so the current instance is a static that
+ * background threads started by the invocation also report into. It is also kept per thread, so a
+ * process serving concurrent requests (the local load-test harness) attributes each request's work
+ * to its own record; Firestore RPCs are bound to the issuing thread's record via
+ * firestoreListener().
+ */
+public final class RequestMetrics {
+
+    public static final String NAMESPACE = "Kitree/Backend";
+    public static final String DEPENDENCY_STREAM = "Stream";
+    public static final String DEPENDENCY_GEMINI = "Gemini";
+    public static final String DEPENDENCY_ASTROLOGY_LAMBDA = "AstrologyLambda";
+    public static final String DEPENDENCY_RAZORPAY = "Razorpay";
+    public static final String DEPENDENCY_STRIPE = "Stripe";
+
+    // EMF accepts at most 100 values per metric in one record
+    private static final int MAX_SAMPLES = 100;
+    private static final Gson gson = new Gson();
+
+    // Outside an invocation (static init) metrics go to a record that is never emitted
+    private static volatile RequestMetrics current = new RequestMetrics(false, System.nanoTime(), null);
+    private static final ThreadLocal<RequestMetrics> threadCurrent = new ThreadLocal<>();
+    private static volatile Consumer<String> emitter = System.out::println;
+
+    private final boolean coldStart;
+    private final long startNanos;
+    private final String environment;
+    private volatile String route = "other";
+    private final AtomicInteger firestoreReads = new AtomicInteger();
+    private final AtomicInteger firestoreWrites = new AtomicInteger();
+    private final AtomicInteger firestoreQueries = new AtomicInteger();
+    private final Map<String, Timings> external = new ConcurrentHashMap<>();
+
+    RequestMetrics(boolean coldStart, long startNanos, String environment) {
+        this.coldStart = coldStart;
+        this.startNanos = startNanos;
+        this.environment = environment;
+    }
+
+    /**
+     * Start metrics for a new invocation.
+     */
+    public static RequestMetrics begin(boolean coldStart, String environment) {
+        RequestMetrics metrics = new RequestMetrics(coldStart, System.nanoTime(), environment);
+        current = metrics;
+        threadCurrent.set(metrics);
+        return metrics;
+    }
+
+    /**
+     * The record of the invocation running on this thread, else the latest one begun.
+     */
+    public static RequestMetrics current() {
+        RequestMetrics metrics = threadCurrent.get();
+        return metrics != null ? metrics : current;
+    }
+
+    /**
+     * Where finish() writes the EMF line (stdout by default, which Lambda ships to CloudWatch).
+     */
+    public static void setEmitter(Consumer<String> emitter) {
+        RequestMetrics.emitter = emitter != null ? emitter : System.out::println;
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    public int getFirestoreReads() {
+        return firestoreReads.get();
+    }
+
+    public int getFirestoreWrites() {
+        return firestoreWrites.get();
+    }
+
+    public int getFirestoreQueries() {
+        return firestoreQueries.get();
+    }
+
+    /**
+     * Name the route of the current invocation (REST action, webhook or cron job).
+     */
+    public static void setRoute(String route) {
+        if (route != null) {
+            current().route = route;
+        }
+    }
+
+    /**
+     * InstrumentedFirestoreRpc listener counting each RPC into the invocation that issued it.
+     */
+    public static InstrumentedFirestoreRpc.Listener firestoreListener() {
+        return new InstrumentedFirestoreRpc.Listener() {
+            @Override
+            public void onCall(InstrumentedFirestoreRpc.Op op, Message request, int documents, long elapsedNanos,
+                               Throwable error) {
+                onFirestoreCall(op, request, documents, elapsedNanos, error);
+            }
+
+            @Override
+            public InstrumentedFirestoreRpc.Listener bind() {
+                RequestMetrics metrics = current();
+                return (op, request, documents, elapsedNanos, error) -> metrics.countFirestore(op, documents);
+            }
+        };
+    }
+
+    /**
+     * InstrumentedFirestoreRpc listener counting into the current invocation.
+     */
+    public static void onFirestoreCall(InstrumentedFirestoreRpc.Op op, Message request, int documents,
+                                       long elapsedNanos, Throwable error) {
+        current().countFirestore(op, documents);
+    }
+
+    private void countFirestore(InstrumentedFirestoreRpc.Op op, int documents) {
+        switch (op) {
+            case LOOKUP -> firestoreReads.addAndGet(documents);
+            case QUERY, AGGREGATION -> {
+                firestoreQueries.incrementAndGet();
+                firestoreReads.addAndGet(documents);
+            }
+            case COMMIT, BATCH_WRITE -> firestoreWrites.addAndGet(documents);
+        }
+    }
+
+    /**
+     * A call that may throw a checked exception.
+     */
+    @FunctionalInterface
+    public interface ExternalCall<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    /**
+     * Run and time a blocking call to an external dependency.
+     */
+    public static <T, E extends Exception> T timeExternal(String dependency, ExternalCall<T, E> call) throws E {
+        long start = System.nanoTime();
+        try {
+            return call.call();
+        } finally {
+            recordExternal(dependency, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Record an external call timed by the caller (e.g. on completion of an async call).
+     */
+    public static void recordExternal(String dependency, long elapsedNanos) {
+        current().addExternal(dependency, elapsedNanos);
+    }
+
+    /**
+     * Record an external call against this invocation; for completions that run on another thread,
+     * capture current() when the call starts.
+     */
+    public void addExternal(String dependency, long elapsedNanos) {
+        external.computeIfAbsent(dependency, d -> new Timings()).add(elapsedNanos / 1_000_000.0);
+    }
+
+    /**
+     * Emit the EMF record for this invocation.
+     */
+    public void finish() {
+        emitter.accept(toEmf(System.currentTimeMillis(), (System.nanoTime() - startNanos) / 1_000_000.0));
+    }
+
+    String toEmf(long timestampMs, double latencyMs) {
+        List<Map<String, String>> metricDefinitions = new ArrayList<>();
+        Map<String, Object> record = new LinkedHashMap<>();
+
+        metricDefinitions.add(metric("Latency", "Milliseconds"));
+        metricDefinitions.add(metric("ColdStart", "Count"));
+        metricDefinitions.add(metric("FirestoreReads", "Count"));
+        metricDefinitions.add(metric("FirestoreWrites", "Count"));
+        metricDefinitions.add(metric("FirestoreQueries", "Count"));
+        record.put("Route", route);
+        record.put("Latency", Math.round(latencyMs * 100) / 100.0);
+        record.put("ColdStart", coldStart ? 1 : 0);
+        record.put("FirestoreReads", firestoreReads.get());
+        record.put("FirestoreWrites", firestoreWrites.get());
+        record.put("FirestoreQueries", firestoreQueries.get());
+
+        for (Map.Entry<String, Timings> entry : new java.util.TreeMap<>(external).entrySet()) {
+            String dependency = entry.getKey();
+            Timings timings = entry.getValue();
+            synchronized (timings) {
+                metricDefinitions.add(metric(dependency + "Latency", "Milliseconds"));
+                metricDefinitions.add(metric(dependency + "Calls", "Count"));
+                record.put(dependency + "Latency", new ArrayList<>(timings.samples));
+                record.put(dependency + "Calls", timings.calls);
+            }
+        }
+
+        Map<String, Object> directive = new LinkedHashMap<>();
+        directive.put("Namespace", NAMESPACE);
+        directive.put("Dimensions", environment != null
+                ? List.of(List.of("Environment", "Route"))
+                : List.of(List.of("Route")));
+        directive.put("Metrics", metricDefinitions);
+
+        Map<String, Object> aws = new LinkedHashMap<>();
+        aws.put("Timestamp", timestampMs);
+        aws.put("CloudWatchMetrics", List.of(directive));
+
+        Map<String, Object> emf = new LinkedHashMap<>();
+        emf.put("_aws", aws);
+        if (environment != null) {
+            emf.put("Environment", environment);
+        }
+        emf.putAll(record);
+        return gson.toJson(emf);
+    }
+
+    private static Map<String, String> metric(String name, String unit) {
+        Map<String, String> metric = new LinkedHashMap<>();
+        metric.put("Name", name);
+        metric.put("Unit", unit);
+        return metric;
+    }
+
+    private static final class Timings {
+        private final List<Double> samples = new ArrayList<>();
+        private int calls;
+
+        synchronized void add(double millis) {
+            calls++;
+            if (samples.size() < MAX_SAMPLES) {
+                samples.add(Math.round(millis * 100) / 100.0);
+            }
+        }
+    }
+}
@@ -24,8 +24,13 @@ class SecretsProvider {
     /**
      * Returns the value for the given key from secrets.json.
      * Returns empty string if the key is not found.
+     * A system property of the same name takes precedence (local tools such as the load-test harness).
      */
     static String getString(String key) {
+        String override = System.getProperty(key);
+        if (override != null) {
+            return override;
+        }
         if (cache == null) {
             synchronized (SecretsProvider.class) {
                 if (cache == null) {
@@ -0,0 +1,171 @@
+package in.co.kitree.services;
+
+import io.sentry.ITransaction;
+import io.sentry.Sentry;
+import io.sentry.SpanStatus;
+import io.sentry.protocol.SentryTransaction;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sentry setup and per-request tracing policy for the Lambda handler.
+ *
+ * Events are sent by Sentry's background transport, which only makes progress while an invocation
+ * runs: Lambda freezes the container between invocations and reaps it without running shutdown
+ * hooks. A failed request flushes before returning so its error is delivered. Otherwise, once
+ * FLUSH_EVERY_INVOCATIONS requests have finished with kept events still unflushed, the request
+ * flushes with a short timeout, bounding what a reaped container can lose.
+ *
+ * Every request records a transaction and the keep/drop decision is made when it finishes:
+ * - failed requests (exception or 5xx) are always kept,
+ * - high-volume polls (health checks, warmups, consultation heartbeats, status polls) are kept at
+ *   SENTRY_POLL_TRACES_SAMPLE_RATE (default 0.05),
+ * - all other requests at SENTRY_TRACES_SAMPLE_RATE (default 1.0).
+ * Error events (captureException) are not sampled.
+ */
+public final class SentryTracing {
+
+    static final String TAG_SAMPLING = "sampling";
+    static final String SAMPLING_POLL = "poll";
+    static final String TAG_HTTP_STATUS = "http.status_code";
+
+    static final int FLUSH_EVERY_INVOCATIONS = 10;
+
+    private static final long ERROR_FLUSH_TIMEOUT_MS = 1000;
+    private static final long PERIODIC_FLUSH_TIMEOUT_MS = 200;
+    private static final double DEFAULT_TRACES_SAMPLE_RATE = 1.0;
+    private static final double DEFAULT_POLL_TRACES_SAMPLE_RATE = 0.05;
+
+    // Events and transactions handed to the transport since the last flush
+    private static final AtomicInteger unflushedEvents = new AtomicInteger();
+    private static final AtomicInteger invocationsSinceFlush = new AtomicInteger();
+
+    private SentryTracing() {
+    }
+
+    /**
+     * Initialize Sentry when SENTRY_DSN is set. Call once per container.
+     */
+    public static void init(String dsn, boolean test) {
+        if (dsn == null || dsn.isEmpty()) {
+            return;
+        }
+        double tracesRate = rateFromEnv("SENTRY_TRACES_SAMPLE_RATE", DEFAULT_TRACES_SAMPLE_RATE);
+        double pollRate = rateFromEnv("SENTRY_POLL_TRACES_SAMPLE_RATE", DEFAULT_POLL_TRACES_SAMPLE_RATE);
+        Sentry.init(options -> {
+            options.setDsn(dsn);
+            options.setEnvironment(test ? "development" : "production");
+            // Record every transaction; sampling happens once the outcome is known
+            options.setTracesSampleRate(1.0);
+            options.setBeforeSendTransaction((transaction, hint) -> {
+                if (!keep(transaction, tracesRate, pollRate, ThreadLocalRandom.current().nextDouble())) {
+                    return null;
+                }
+                unflushedEvents.incrementAndGet();
+                return transaction;
+            });
+            options.setBeforeSend((event, hint) -> {
+                unflushedEvents.incrementAndGet();
+                return event;
+            });
+            options.setSendDefaultPii(true);
+        });
+    }
+
+    /**
+     * Whether a request path is a high-volume poll whose successful traces are sampled down.
+     */
+    public static boolean isPollPath(String path) {
+        if (path == null) {
+            return false;
+        }
+        return path.equals("/health")
+                || path.equals("/api/v1/consultations/active")
+                || path.equals("/api/v1/wallet/balance")
+                || (path.startsWith("/api/v1/consultations/")
+                    && (path.endsWith("/heartbeat") || path.endsWith("/summary")));
+    }
+
+    /**
+     * Mark the request's transaction as a poll for sampling purposes.
+     */
+    public static void markPoll(ITransaction transaction) {
+        if (transaction != null) {
+            transaction.setTag(TAG_SAMPLING, SAMPLING_POLL);
+        }
+    }
+
+    /**
+     * Finish the request's transaction. Failed requests wait for delivery; others flush briefly
+     * every FLUSH_EVERY_INVOCATIONS requests while events are pending.
+     */
+    public static void finishRequest(ITransaction transaction, boolean failed) {
+        if (transaction != null) {
+            if (failed && transaction.getStatus() == null) {
+                transaction.setStatus(SpanStatus.INTERNAL_ERROR);
+            }
+            transaction.finish();
+        }
+        int invocations = invocationsSinceFlush.incrementAndGet();
+        if (failed) {
+            flush(ERROR_FLUSH_TIMEOUT_MS);
+        } else if (flushDue(unflushedEvents.get(), invocations)) {
+            flush(PERIODIC_FLUSH_TIMEOUT_MS);
+        }
+    }
+
+    /**
+     * Whether a successful request should flush before returning.
+     */
+    static boolean flushDue(int unflushedEvents, int invocationsSinceFlush) {
+        return unflushedEvents > 0 && invocationsSinceFlush >= FLUSH_EVERY_INVOCATIONS;
+    }
+
+    private static void flush(long timeoutMs) {
+        unflushedEvents.set(0);
+        invocationsSinceFlush.set(0);
+        Sentry.flush(timeoutMs);
+    }
+
+    /**
+     * Tail-sampling decision for a finished transaction.
+     *
+     * @param random uniform value in [0, 1)
+     */
+    static boolean keep(SentryTransaction transaction, double tracesRate, double pollRate, double random) {
+        if (isFailed(transaction)) {
+            return true;
+        }
+        double rate = SAMPLING_POLL.equals(transaction.getTag(TAG_SAMPLING)) ? pollRate : tracesRate;
+        return random < rate;
+    }
+
+    private static boolean isFailed(SentryTransaction transaction) {
+        if (transaction.getStatus() == SpanStatus.INTERNAL_ERROR) {
+            return true;
+        }
+        String statusCode = transaction.getTag(TAG_HTTP_STATUS);
+        if (statusCode != null) {
+            try {
+                return Integer.parseInt(statusCode) >= 500;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static double rateFromEnv(String name, double defaultRate) {
+        String value = System.getenv(name);
+        if (value == null || value.isEmpty()) {
+            return defaultRate;
+        }
+        try {
+            double rate = Double.parseDouble(value);
+            return rate >= 0 && rate <= 1 ? rate : defaultRate;
+        } catch (NumberFormatException e) {
+            return defaultRate;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package in.co.kitree.services;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.*;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Shared discovery feeds for the app home screen (live and upcoming sessions).
+ *
+ * The feeds are materialized into feeds/live, feeds/upcoming and
+ * feeds/upcoming/categories/{category} so that a home-screen load is a single document read
+ * instead of a collection-group query per user. They are rebuilt when a session starts or stops,
+ * when a session plan is created, and by the rebuild_session_feeds cron. Reads additionally go
+ * through a short per-container TTL cache.
+ */
+public class SessionFeedService {
+
+    // Max sessions stored in each feed document; larger limits fall back to a direct query
+    public static final int FEED_SIZE = 50;
+    // How long a warm container serves a feed without re-reading the feed document
+    static final long CACHE_TTL_MS = 30_000;
+    // Feed documents older than this are rebuilt on read (covers a missed cron run)
+    static final long FEED_MAX_AGE_MS = 10 * 60_000;
+    // Upcoming sessions scanned by a full rebuild; category feeds are partitioned from this window
+    static final int UPCOMING_SCAN_LIMIT = 200;
+
+    static final String FEEDS_COLLECTION = "feeds";
+    static final String LIVE_FEED_ID = "live";
+    static final String UPCOMING_FEED_ID = "upcoming";
+
+    private static final Map<String, CachedFeed> cache = new ConcurrentHashMap<>();
+
+    private final Firestore db;
+
+    public SessionFeedService(Firestore db) {
+        this.db = db;
+    }
+
+    /**
+     * Get currently live sessions from the live feed.
+     */
+    public List<Map<String, Object>> getLiveSessions(Integer limit) throws ExecutionException, InterruptedException {
+        int size = limit != null ? limit : 20;
+        if (size > FEED_SIZE) {
+            return queryLiveSessions(size);
+        }
+        List<Map<String, Object>> sessions = readFeed(liveFeedRef(), LIVE_FEED_ID, () -> rebuildLiveFeed());
+        return head(sessions, size);
+    }
+
+    /**
+     * Get upcoming sessions, optionally for one category, from the upcoming feeds.
+     * Sessions whose start time has passed since the feed was built are filtered out.
+     */
+    public List<Map<String, Object>> getUpcomingSessions(String category, Integer limit)
+            throws ExecutionException, InterruptedException {
+        int size = limit != null ? limit : 20;
+        boolean hasCategory = category != null && !category.isEmpty();
+        if (size > FEED_SIZE) {
+            return queryUpcomingSessions(hasCategory ? category : null, size);
+        }
+        DocumentReference ref = hasCategory ? upcomingCategoryFeedRef(category) : upcomingFeedRef();
+        String cacheKey = hasCategory ? UPCOMING_FEED_ID + "/" + category : UPCOMING_FEED_ID;
+        List<Map<String, Object>> sessions = readFeed(ref, cacheKey,
+                () -> hasCategory ? rebuildUpcomingCategoryFeed(category) : rebuildUpcomingFeed(null));
+
+        Timestamp now = Timestamp.now();
+        List<Map<String, Object>> stillUpcoming = new ArrayList<>();
+        for (Map<String, Object> session : sessions) {
+            Object start = session.get("scheduledStartTime");
+            if (start instanceof Timestamp && ((Timestamp) start).compareTo(now) <= 0) continue;
+            stillUpcoming.add(session);
+        }
+        return head(stillUpcoming, size);
+    }
+
+    /**
+     * Rebuild the live feed document from the plans collection group.
+     */
+    public List<Map<String, Object>> rebuildLiveFeed() throws ExecutionException, InterruptedException {
+        List<Map<String, Object>> sessions = queryLiveSessions(FEED_SIZE);
+        writeFeed(liveFeedRef(), LIVE_FEED_ID, sessions);
+        return sessions;
+    }
+
+    /**
+     * Rebuild the overall upcoming feed and the per-category feeds for every category seen
+     * in the scan window. If alsoCategory is given, its feed is rebuilt even when it no longer
+     * has any upcoming session (so a session that just went live drops out of it).
+     */
+    public List<Map<String, Object>> rebuildUpcomingFeed(String alsoCategory) throws ExecutionException, InterruptedException {
+        List<Map<String, Object>> scanned = queryUpcomingSessions(null, UPCOMING_SCAN_LIMIT);
+
+        Map<String, List<Map<String, Object>>> byCategory = new LinkedHashMap<>();
+        for (Map<String, Object> session : scanned) {
+            Object category = session.get("category");
+            if (category instanceof String && !((String) category).isEmpty()) {
+                List<Map<String, Object>> feed = byCategory.computeIfAbsent((String) category, k -> new ArrayList<>());
+                if (feed.size() < FEED_SIZE) {
+                    feed.add(session);
+                }
+            }
+        }
+
+        if (alsoCategory != null && !alsoCategory.isEmpty() && !byCategory.containsKey(alsoCategory)) {
+            if (scanned.size() < UPCOMING_SCAN_LIMIT) {
+                byCategory.put(alsoCategory, new ArrayList<>());
+            } else {
+                // Scan window was truncated, so the category may still have sessions beyond it
+                rebuildUpcomingCategoryFeed(alsoCategory);
+            }
+        }
+
+        List<Map<String, Object>> overall = head(scanned, FEED_SIZE);
+        WriteBatch batch = db.batch();
+        batch.set(upcomingFeedRef(), feedDoc(overall));
+        for (Map.Entry<String, List<Map<String, Object>>> entry : byCategory.entrySet()) {
+            batch.set(upcomingCategoryFeedRef(entry.getKey()), feedDoc(entry.getValue()));
+        }
+        batch.commit().get();
+
+        long now = System.currentTimeMillis();
+        cache.put(UPCOMING_FEED_ID, new CachedFeed(overall, now));
+        for (Map.Entry<String, List<Map<String, Object>>> entry : byCategory.entrySet()) {
+            cache.put(UPCOMING_FEED_ID + "/" + entry.getKey(), new CachedFeed(entry.getValue(), now));
+        }
+        return overall;
+    }
+
+    /**
+     * Rebuild a single category's upcoming feed.
+     */
+    public List<Map<String, Object>> rebuildUpcomingCategoryFeed(String category)
+            throws ExecutionException, InterruptedException {
+        List<Map<String, Object>> sessions = queryUpcomingSessions(category, FEED_SIZE);
+        writeFeed(upcomingCategoryFeedRef(category), UPCOMING_FEED_ID + "/" + category, sessions);
+        return sessions;
+    }
+
+    /**
+     * Rebuild every feed. Used by the rebuild_session_feeds cron.
+     */
+    public Map<String, Object> rebuildAllFeeds() throws ExecutionException, InterruptedException {
+        List<Map<String, Object>> live = rebuildLiveFeed();
+        List<Map<String, Object>> upcoming = rebuildUpcomingFeed(null);
+        Map<String, Object> result = new HashMap<>();
+        result.put("liveCount", live.size());
+        result.put("upcomingCount", upcoming.size());
+        return result;
+    }
+
+    /**
+     * Best-effort refresh after a session's live state changed. Failures are logged and left
+     * for the cron to repair; they never fail the session operation itself.
+     */
+    public void onSessionStateChanged(String category) {
+        try {
+            rebuildLiveFeed();
+            rebuildUpcomingFeed(category);
+        } catch (Exception e) {
+            LoggingService.warn("session_feed_rebuild_failed", Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+
+    // ============= Private Helpers =============
+
+    @FunctionalInterface
+    private interface FeedBuilder {
+        List<Map<String, Object>> build() throws ExecutionException, InterruptedException;
+    }
+
+    private List<Map<String, Object>> readFeed(DocumentReference ref, String cacheKey, FeedBuilder rebuild)
+            throws ExecutionException, InterruptedException {
+        long nowMs = System.currentTimeMillis();
+        CachedFeed cached = cache.get(cacheKey);
+        if (cached != null && nowMs - cached.loadedAtMs < CACHE_TTL_MS) {
+            return cached.sessions;
+        }
+
+        DocumentSnapshot doc = ref.get().get();
+        Timestamp generatedAt = doc.exists() ? doc.getTimestamp("generatedAt") : null;
+        if (generatedAt == null || nowMs - generatedAt.toDate().getTime() > FEED_MAX_AGE_MS) {
+            return rebuild.build();
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> sessions = (List<Map<String, Object>>) doc.get("sessions");
+        if (sessions == null) {
+            sessions = new ArrayList<>();
+        }
+        cache.put(cacheKey, new CachedFeed(sessions, nowMs));
+        return sessions;
+    }
+
+    private void writeFeed(DocumentReference ref, String cacheKey, List<Map<String, Object>> sessions)
+            throws ExecutionException, InterruptedException {
+        ref.set(feedDoc(sessions)).get();
+        cache.put(cacheKey, new CachedFeed(sessions, System.currentTimeMillis()));
+    }
+
+    private static Map<String, Object> feedDoc(List<Map<String, Object>> sessions) {
+        Map<String, Object> doc = new HashMap<>();
+        doc.put("sessions", sessions);
+        doc.put("count", sessions.size());
+        doc.put("generatedAt", Timestamp.now());
+        return doc;
+    }
+
+    private List<Map<String, Object>> queryLiveSessions(int limit) throws ExecutionException, InterruptedException {
+        QuerySnapshot snapshot = db.collectionGroup("plans")
+                .whereEqualTo("type", "SESSION")
+                .whereEqualTo("isLive", true)
+                .limit(limit)
+                .get().get();
+        return toSessions(snapshot);
+    }
+
+    private List<Map<String, Object>> queryUpcomingSessions(String category, int limit)
+            throws ExecutionException, InterruptedException {
+        Query query = db.collectionGroup("plans")
+                .whereEqualTo("type", "SESSION")
+                .whereEqualTo("isLive", false)
+                .whereGreaterThan("scheduledStartTime", Timestamp.now())
+                .orderBy("scheduledStartTime", Query.Direction.ASCENDING)
+                .limit(limit);
+
+        if (category != null && !category.isEmpty()) {
+            query = query.whereEqualTo("category", category);
+        }
+        return toSessions(query.get().get());
+    }
+
+    private static List<Map<String, Object>> toSessions(QuerySnapshot snapshot) {
+        List<Map<String, Object>> sessions = new ArrayList<>();
+        for (DocumentSnapshot doc : snapshot.getDocuments()) {
+            sessions.add(doc.getData());
+        }
+        return sessions;
+    }
+
+    private static List<Map<String, Object>> head(List<Map<String, Object>> sessions, int size) {
+        return sessions.size() > size ? new ArrayList<>(sessions.subList(0, size)) : sessions;
+    }
+
+    private DocumentReference liveFeedRef() {
+        return db.collection(FEEDS_COLLECTION).document(LIVE_FEED_ID);
+    }
+
+    private DocumentReference upcomingFeedRef() {
+        return db.collection(FEEDS_COLLECTION).document(UPCOMING_FEED_ID);
+    }
+
+    private DocumentReference upcomingCategoryFeedRef(String category) {
+        return upcomingFeedRef().collection("categories").document(category);
+    }
+
+    private static final class CachedFeed {
+        final List<Map<String, Object>> sessions;
+        final long loadedAtMs;
+
+        CachedFeed(List<Map<String, Object>> sessions, long loadedAtMs) {
+            this.sessions = sessions;
+            this.loadedAtMs = loadedAtMs;
+        }
+    }
+}
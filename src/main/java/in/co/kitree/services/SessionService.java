@@ -4,6 +4,7 @@ import com.google.api.core.ApiFuture;
 import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.*;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
 
@@ -47,6 +48,25 @@ public class SessionService {
             createGiftOption("dakshina", 1100)
     );
 
+    // Participant listing pagination
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 500;
+    // Delta polls re-read this much history so writes racing the previous poll are not missed
+    static final long SYNC_OVERLAP_MS = 2000;
+
+    // Only these order fields are returned by participant listings (Firestore field mask)
+    private static final String[] PARTICIPANT_FIELDS = {
+            "userId", "userName", "userPhotoUrl", "role", "hasRaisedHand", "handRaisedAt",
+            "isMuted", "isKicked", "joinedAt", "leftAt", "updatedAt"
+    };
+
+    // Gift totals are spread over this many shard docs so concurrent gifts don't contend on one document
+    static final int GIFT_TOTAL_SHARDS = 10;
+    // A live plan's totalGiftsReceived is brought up to date from the shards at most this often
+    static final long GIFT_SETTLE_INTERVAL_MS = 5000;
+    // Gift amounts are currency; shard sums closer than this to the settled sum have nothing new
+    private static final double GIFT_SETTLE_EPSILON = 0.005;
+
     private static Map<String, Object> createGiftOption(String id, int amount) {
         Map<String, Object> gift = new HashMap<>();
         gift.put("id", id);
@@ -161,6 +181,8 @@ public class SessionService {
                 .collection("plans").document(planId)
                 .set(planDoc).get();
 
+        new SessionFeedService(db).onSessionStateChanged(category);
+
         // If this is a course (sessionCount > 1), create session subcollections
         if (sessionCount != null && sessionCount > 1) {
             // Sessions will be created separately via add_course_session
@@ -307,6 +329,8 @@ public class SessionService {
 
         LoggingService.info("session_started", Map.of("streamCallId", streamCallId, "callType", callType));
 
+        new SessionFeedService(db).onSessionStateChanged(planDoc.getString("category"));
+
         return generateHostToken(streamCallId, expertId, interactionMode);
     }
 
@@ -361,6 +385,11 @@ public class SessionService {
         String callType = getStreamCallType(interactionMode);
         streamService.endCall(callType, streamCallId);
 
+        // Settle the rest of the shards into the plan's gift total now that no more gifts can arrive
+        settleGiftTotal(db.collection("users").document(expertId).collection("plans").document(planId));
+
+        new SessionFeedService(db).onSessionStateChanged(planDoc.getString("category"));
+
         LoggingService.info("session_stopped", Map.of("streamCallId", streamCallId));
 
         Map<String, Object> result = new HashMap<>();
@@ -791,6 +820,7 @@ public class SessionService {
                 .whereEqualTo("planId", planId)
                 .whereEqualTo("type", "SESSION")
                 .whereEqualTo("status", "PAID")
+                .select(PARTICIPANT_FIELDS)
                 .get().get();
 
         List<Map<String, Object>> participants = new ArrayList<>();
@@ -810,6 +840,168 @@ public class SessionService {
         return participants;
     }
 
+    /**
+     * Get one page of participants for a session.
+     * Without sinceMs, pages through the full roster in document order.
+     * With sinceMs, returns only participants whose order changed after that time, so hosts
+     * can poll for deltas (kicked/left participants are included so the client can drop them).
+     * The returned syncToken is the sinceMs to send on the next poll.
+     */
+    public Map<String, Object> getParticipantsPage(String expertId, String planId, Integer limit,
+                                                   String cursor, Long sinceMs)
+            throws ExecutionException, InterruptedException {
+
+        Query query = db.collectionGroup("orders")
+                .whereEqualTo("expertId", expertId)
+                .whereEqualTo("planId", planId)
+                .whereEqualTo("type", "SESSION")
+                .whereEqualTo("status", "PAID");
+
+        return fetchParticipantPage(query, sinceMs != null ? "updatedAt" : null, limit, cursor, sinceMs, "participants");
+    }
+
+    /**
+     * Get one page of participants with raised hands, oldest hand first.
+     * With sinceMs, returns every participant whose order changed after that time, including
+     * lowered hands (hasRaisedHand=false) so the client can remove them from its queue.
+     */
+    public Map<String, Object> getRaisedHandsPage(String expertId, String planId, Integer limit,
+                                                  String cursor, Long sinceMs)
+            throws ExecutionException, InterruptedException {
+
+        Query query = db.collectionGroup("orders")
+                .whereEqualTo("expertId", expertId)
+                .whereEqualTo("planId", planId);
+
+        if (sinceMs != null) {
+            return fetchParticipantPage(query, "updatedAt", limit, cursor, sinceMs, "raisedHands");
+        }
+        query = query.whereEqualTo("hasRaisedHand", true);
+        return fetchParticipantPage(query, "handRaisedAt", limit, cursor, null, "raisedHands");
+    }
+
+    private Map<String, Object> fetchParticipantPage(Query query, String orderField, Integer limit,
+                                                     String cursor, Long sinceMs, String resultKey)
+            throws ExecutionException, InterruptedException {
+
+        long syncToken = System.currentTimeMillis() - SYNC_OVERLAP_MS;
+        int pageSize = clampPageSize(limit);
+
+        if (sinceMs != null) {
+            query = query.whereGreaterThan(orderField, Timestamp.ofTimeMicroseconds(sinceMs * 1000));
+        }
+        if (orderField != null) {
+            query = query.orderBy(orderField, Query.Direction.ASCENDING);
+        }
+        query = query.orderBy(FieldPath.documentId(), Query.Direction.ASCENDING);
+
+        PageCursor pageCursor = PageCursor.decode(cursor);
+        if (pageCursor != null) {
+            DocumentReference lastRef = db.document(pageCursor.path);
+            query = orderField != null
+                    ? query.startAfter(pageCursor.orderValue, lastRef)
+                    : query.startAfter(lastRef);
+        }
+
+        List<QueryDocumentSnapshot> docs = query.select(PARTICIPANT_FIELDS)
+                .limit(pageSize + 1)
+                .get().get()
+                .getDocuments();
+
+        boolean hasMore = docs.size() > pageSize;
+        List<QueryDocumentSnapshot> page = hasMore ? docs.subList(0, pageSize) : docs;
+
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (DocumentSnapshot doc : page) {
+            items.add(toParticipantProjection(doc));
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            DocumentSnapshot last = page.get(page.size() - 1);
+            nextCursor = new PageCursor(
+                    orderField != null ? last.getTimestamp(orderField) : null,
+                    last.getReference().getPath()
+            ).encode();
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put(resultKey, items);
+        result.put("hasMore", hasMore);
+        result.put("nextCursor", nextCursor);
+        result.put("syncToken", syncToken);
+        return result;
+    }
+
+    private static Map<String, Object> toParticipantProjection(DocumentSnapshot doc) {
+        Map<String, Object> participant = new HashMap<>();
+        participant.put("orderId", doc.getId());
+        participant.put("userId", doc.getString("userId"));
+        participant.put("userName", doc.getString("userName"));
+        participant.put("userPhotoUrl", doc.getString("userPhotoUrl"));
+        participant.put("role", doc.getString("role"));
+        participant.put("hasRaisedHand", doc.getBoolean("hasRaisedHand"));
+        participant.put("handRaisedAt", doc.getTimestamp("handRaisedAt"));
+        participant.put("isMuted", doc.getBoolean("isMuted"));
+        participant.put("isKicked", doc.getBoolean("isKicked"));
+        participant.put("joinedAt", doc.getTimestamp("joinedAt"));
+        participant.put("leftAt", doc.getTimestamp("leftAt"));
+        return participant;
+    }
+
+    static int clampPageSize(Integer limit) {
+        if (limit == null || limit <= 0) return DEFAULT_PAGE_SIZE;
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    /**
+     * Opaque cursor for participant pages: the last document's order-by value and path.
+     * Encoded as base64url("seconds.nanos|path"), with an empty order value for document-order pages.
+     */
+    static final class PageCursor {
+        final Timestamp orderValue;
+        final String path;
+
+        PageCursor(Timestamp orderValue, String path) {
+            this.orderValue = orderValue;
+            this.path = path;
+        }
+
+        String encode() {
+            String value = orderValue != null ? orderValue.getSeconds() + "." + orderValue.getNanos() : "";
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((value + "|" + path).getBytes(StandardCharsets.UTF_8));
+        }
+
+        static PageCursor decode(String cursor) {
+            if (cursor == null || cursor.isEmpty()) {
+                return null;
+            }
+            String raw;
+            try {
+                raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            int sep = raw.indexOf('|');
+            if (sep < 0 || sep == raw.length() - 1) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            String value = raw.substring(0, sep);
+            Timestamp orderValue = null;
+            if (!value.isEmpty()) {
+                String[] parts = value.split("\\.");
+                try {
+                    orderValue = Timestamp.ofTimeSecondsAndNanos(Long.parseLong(parts[0]),
+                            parts.length > 1 ? Integer.parseInt(parts[1]) : 0);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid cursor");
+                }
+            }
+            return new PageCursor(orderValue, raw.substring(sep + 1));
+        }
+    }
+
     /**
      * Get participants with raised hands.
      */
@@ -821,6 +1013,7 @@ public class SessionService {
                 .whereEqualTo("planId", planId)
                 .whereEqualTo("hasRaisedHand", true)
                 .orderBy("handRaisedAt", Query.Direction.ASCENDING)
+                .select(PARTICIPANT_FIELDS)
                 .get().get();
 
         List<Map<String, Object>> hands = new ArrayList<>();
@@ -839,49 +1032,20 @@ public class SessionService {
 
     /**
      * Get upcoming sessions (scheduled, not yet live).
+     * Served from the shared discovery feed; see SessionFeedService.
      */
     public List<Map<String, Object>> getUpcomingSessions(String category, Integer limit)
             throws ExecutionException, InterruptedException {
-
-        Query query = db.collectionGroup("plans")
-                .whereEqualTo("type", "SESSION")
-                .whereEqualTo("isLive", false)
-                .whereGreaterThan("scheduledStartTime", Timestamp.now())
-                .orderBy("scheduledStartTime", Query.Direction.ASCENDING)
-                .limit(limit != null ? limit : 20);
-
-        if (category != null && !category.isEmpty()) {
-            query = query.whereEqualTo("category", category);
-        }
-
-        QuerySnapshot snapshot = query.get().get();
-
-        List<Map<String, Object>> sessions = new ArrayList<>();
-        for (DocumentSnapshot doc : snapshot.getDocuments()) {
-            sessions.add(doc.getData());
-        }
-
-        return sessions;
+        return new SessionFeedService(db).getUpcomingSessions(category, limit);
     }
 
     /**
      * Get currently live sessions.
+     * Served from the shared discovery feed; see SessionFeedService.
      */
     public List<Map<String, Object>> getLiveSessions(Integer limit)
             throws ExecutionException, InterruptedException {
-
-        QuerySnapshot snapshot = db.collectionGroup("plans")
-                .whereEqualTo("type", "SESSION")
-                .whereEqualTo("isLive", true)
-                .limit(limit != null ? limit : 20)
-                .get().get();
-
-        List<Map<String, Object>> sessions = new ArrayList<>();
-        for (DocumentSnapshot doc : snapshot.getDocuments()) {
-            sessions.add(doc.getData());
-        }
-
-        return sessions;
+        return new SessionFeedService(db).getLiveSessions(limit);
     }
 
     /**
@@ -899,10 +1063,16 @@ public class SessionService {
 
         Timestamp now = Timestamp.now();
 
-        // Verify user has a valid order
-        DocumentSnapshot orderDoc = db.collection("users").document(userId)
-                .collection("orders").document(orderId).get().get();
+        // Read order and plan in one round trip
+        DocumentReference orderRef = db.collection("users").document(userId)
+                .collection("orders").document(orderId);
+        DocumentReference planRef = db.collection("users").document(expertId)
+                .collection("plans").document(planId);
+        List<DocumentSnapshot> snapshots = db.getAll(orderRef, planRef).get();
+        DocumentSnapshot orderDoc = snapshots.get(0);
+        DocumentSnapshot planDoc = snapshots.get(1);
 
+        // Verify user has a valid order
         if (!orderDoc.exists()) {
             throw new IllegalArgumentException("Order not found");
         }
@@ -920,9 +1090,6 @@ public class SessionService {
         }
 
         // Verify session is live and gifts are enabled
-        DocumentSnapshot planDoc = db.collection("users").document(expertId)
-                .collection("plans").document(planId).get().get();
-
         if (!planDoc.exists()) {
             throw new IllegalArgumentException("Plan not found");
         }
@@ -972,15 +1139,38 @@ public class SessionService {
         giftDoc.put("senderOrderId", orderId);
         giftDoc.put("sentAt", now);
 
-        db.collection("users").document(expertId)
-                .collection("plans").document(planId)
-                .collection("gifts").document(giftDocId)
-                .set(giftDoc).get();
+        // Gift doc, sharded total and the sender's leaderboard entry are written atomically.
+        // Shard sums are settled into the plan's totalGiftsReceived below and in stopSession.
+        Map<String, Object> shardUpdate = new HashMap<>();
+        shardUpdate.put("total", FieldValue.increment(validatedAmount));
+        shardUpdate.put("count", FieldValue.increment(1));
+        int shard = java.util.concurrent.ThreadLocalRandom.current().nextInt(GIFT_TOTAL_SHARDS);
+
+        Map<String, Object> gifterUpdate = new HashMap<>();
+        gifterUpdate.put("amount", FieldValue.increment(validatedAmount));
+        gifterUpdate.put("count", FieldValue.increment(1));
+        gifterUpdate.put("updatedAt", now);
+        String senderName = orderDoc.getString("userName");
+        if (senderName != null && !senderName.isEmpty()) {
+            gifterUpdate.put("name", senderName);
+        }
 
-        // Update total gifts received
-        db.collection("users").document(expertId)
-                .collection("plans").document(planId)
-                .update("totalGiftsReceived", FieldValue.increment(validatedAmount)).get();
+        WriteBatch batch = db.batch();
+        batch.set(planRef.collection("gifts").document(giftDocId), giftDoc);
+        batch.set(planRef.collection("gift_shards").document(String.valueOf(shard)), shardUpdate, SetOptions.merge());
+        batch.set(planRef.collection("gifters").document(userId), gifterUpdate, SetOptions.merge());
+        batch.commit().get();
+
+        Timestamp settledAt = planDoc.getTimestamp("giftsSettledAt");
+        if (settledAt == null || now.toDate().getTime() - settledAt.toDate().getTime() >= GIFT_SETTLE_INTERVAL_MS) {
+            try {
+                settleGiftTotal(planRef);
+            } catch (ExecutionException e) {
+                // The gift is recorded; a later gift or stopSession settles it
+                LoggingService.warn("session_gift_settle_failed", Map.of("planId", planId,
+                        "error", String.valueOf(e.getCause() != null ? e.getCause().getMessage() : e.getMessage())));
+            }
+        }
 
         LoggingService.info("session_gift_sent", Map.of("giftId", giftId, "amount", validatedAmount, "userId", userId));
 
@@ -991,6 +1181,117 @@ public class SessionService {
         return result;
     }
 
+    /**
+     * Get the gift leaderboard for a session: exact total from the gift shards and
+     * top gifters from the per-sender gifters documents.
+     */
+    public Map<String, Object> getGiftLeaderboard(String expertId, String planId, Integer limit)
+            throws ExecutionException, InterruptedException {
+
+        DocumentReference planRef = db.collection("users").document(expertId)
+                .collection("plans").document(planId);
+        int top = limit != null && limit > 0 ? limit : 10;
+
+        ApiFuture<QuerySnapshot> giftersFuture = planRef.collection("gifters")
+                .orderBy("amount", Query.Direction.DESCENDING).limit(top).get();
+        ApiFuture<DocumentSnapshot> planFuture = planRef.get();
+        GiftTotals totals = sumGiftShards(planRef);
+        DocumentSnapshot planDoc = planFuture.get();
+
+        Map<String, Object> gifters = new HashMap<>();
+        for (DocumentSnapshot gifter : giftersFuture.get().getDocuments()) {
+            gifters.put(gifter.getId(), gifter.getData());
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("totalGiftsReceived", giftTotal(planDoc.getDouble("totalGiftsReceived"),
+                planDoc.getDouble("giftShardsSettled"), totals.total));
+        result.put("giftCount", totals.count);
+        result.put("topGifters", rankGifters(gifters, top));
+        return result;
+    }
+
+    /**
+     * Add the shard gifts not yet counted on the plan to its totalGiftsReceived. The plan keeps the
+     * shard sum it has absorbed in giftShardsSettled, so gifts counted on the plan before sharding
+     * are kept and each shard gift is added once.
+     */
+    private void settleGiftTotal(DocumentReference planRef) throws ExecutionException, InterruptedException {
+        double shardSum = sumGiftShards(planRef).total;
+        db.runTransaction(transaction -> {
+            DocumentSnapshot plan = transaction.get(planRef).get();
+            if (!plan.exists()) {
+                return null;
+            }
+            double unsettled = unsettledGifts(plan.getDouble("giftShardsSettled"), shardSum);
+            Map<String, Object> updates = new HashMap<>();
+            if (unsettled > 0) {
+                updates.put("totalGiftsReceived", FieldValue.increment(unsettled));
+                updates.put("giftShardsSettled", shardSum);
+            }
+            updates.put("giftsSettledAt", FieldValue.serverTimestamp());
+            transaction.update(planRef, updates);
+            return null;
+        }).get();
+    }
+
+    /**
+     * Shard gifts not yet added to the plan total. A settle that read the shards before a
+     * concurrent one may see a smaller sum; that is nothing to add, never a negative amount.
+     */
+    static double unsettledGifts(Double settledShardSum, double shardSum) {
+        double delta = shardSum - (settledShardSum != null ? settledShardSum : 0.0);
+        return delta > GIFT_SETTLE_EPSILON ? delta : 0.0;
+    }
+
+    /**
+     * Current gift total: the plan's settled total plus shard gifts not yet settled into it.
+     */
+    static double giftTotal(Double planTotal, Double settledShardSum, double shardSum) {
+        return (planTotal != null ? planTotal : 0.0) + unsettledGifts(settledShardSum, shardSum);
+    }
+
+    /**
+     * Sum of the plan's gift shards.
+     */
+    private static GiftTotals sumGiftShards(DocumentReference planRef) throws ExecutionException, InterruptedException {
+        GiftTotals totals = new GiftTotals();
+        for (DocumentSnapshot shard : planRef.collection("gift_shards").get().get().getDocuments()) {
+            Double shardTotal = shard.getDouble("total");
+            Long shardCount = shard.getLong("count");
+            totals.total += shardTotal != null ? shardTotal : 0.0;
+            totals.count += shardCount != null ? shardCount : 0L;
+        }
+        return totals;
+    }
+
+    private static final class GiftTotals {
+        double total;
+        long count;
+    }
+
+    /**
+     * Sort per-sender gift totals by amount (highest first) and keep the top entries.
+     */
+    static List<Map<String, Object>> rankGifters(Map<String, Object> gifters, int limit) {
+        List<Map<String, Object>> ranked = new ArrayList<>();
+        if (gifters == null) {
+            return ranked;
+        }
+        for (Map.Entry<String, Object> entry : gifters.entrySet()) {
+            if (!(entry.getValue() instanceof Map)) continue;
+            Map<?, ?> value = (Map<?, ?>) entry.getValue();
+            Map<String, Object> gifter = new HashMap<>();
+            gifter.put("userId", entry.getKey());
+            gifter.put("userName", value.get("name"));
+            gifter.put("amount", value.get("amount") instanceof Number ? ((Number) value.get("amount")).doubleValue() : 0.0);
+            gifter.put("giftCount", value.get("count") instanceof Number ? ((Number) value.get("count")).longValue() : 0L);
+            ranked.add(gifter);
+        }
+        ranked.sort((a, b) -> Double.compare((Double) b.get("amount"), (Double) a.get("amount")));
+        return ranked.size() > limit ? new ArrayList<>(ranked.subList(0, limit)) : ranked;
+    }
+
     /**
      * Generate host token for expert.
      */
@@ -18,6 +18,9 @@ import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiFunction;
 
 /**
  * Service for interacting with Stream Video API and verifying webhooks.
@@ -25,11 +28,14 @@ import java.util.Map;
  */
 public class StreamService {
 
-    private static final String STREAM_API_BASE_URL = "https://video.stream-io-api.com/api/v2/video";
+    private static final String STREAM_API_BASE_URL = apiBaseUrl("https://video.stream-io-api.com/api/v2/video");
     private static final HttpClient httpClient = HttpClient.newBuilder()
             .connectTimeout(Duration.ofSeconds(10))
             .build();
     private static final ObjectMapper objectMapper = new ObjectMapper();
+    // Server tokens are minted for an hour and replaced five minutes before they expire
+    private static final long SERVER_TOKEN_TTL_SECONDS = 3600;
+    private static final long SERVER_TOKEN_REFRESH_SECONDS = 300;
 
     /**
      * Response object containing call details from Stream API.
@@ -138,14 +144,44 @@ public class StreamService {
         }
     }
     
+    private static volatile StreamService sharedTest;
+    private static volatile StreamService sharedProd;
+
     private final boolean isTest;
     private final String apiKey;
     private final String apiSecret;
-    
+    // Mac.doFinal resets the instance, so each thread keeps one initialized with the API secret
+    private final ThreadLocal<Mac> hmac;
+    private final StreamTokenMinter userTokens;
+    private volatile ServerToken serverToken;
+
+    /**
+     * The container-wide client for the environment, created on first use. Handlers and services
+     * share it, so secrets are read once and the server token and HMAC state are reused.
+     */
+    public static StreamService shared(boolean isTest) {
+        StreamService service = isTest ? sharedTest : sharedProd;
+        if (service == null) {
+            synchronized (StreamService.class) {
+                service = isTest ? sharedTest : sharedProd;
+                if (service == null) {
+                    service = new StreamService(isTest);
+                    if (isTest) {
+                        sharedTest = service;
+                    } else {
+                        sharedProd = service;
+                    }
+                }
+            }
+        }
+        return service;
+    }
+
     /**
      * Creates a new StreamService instance.
      * Loads API credentials from secrets.json based on environment.
-     * 
+     * Prefer shared(isTest), which reuses one instance per container.
+     *
      * Expected secrets.json format:
      * {
      *   "STREAM_API_KEY": "...",
@@ -153,12 +189,12 @@ public class StreamService {
      *   "STREAM_API_KEY_TEST": "...",
      *   "STREAM_API_SECRET_TEST": "..."
      * }
-     * 
+     *
      * @param isTest true for test environment, false for production
      */
     public StreamService(boolean isTest) {
         this.isTest = isTest;
-        
+
         String key;
         String secret;
 
@@ -174,13 +210,47 @@ public class StreamService {
 
         this.apiKey = key;
         this.apiSecret = secret;
+        this.hmac = ThreadLocal.withInitial(() -> newHmac(secret));
+        this.userTokens = new StreamTokenMinter(() -> newHmac(secret), true);
     }
-    
+
+    /**
+     * Stream API base URL; STREAM_API_BASE_URL (env or system property) points it at a local fake.
+     */
+    private static String apiBaseUrl(String defaultUrl) {
+        String url = System.getenv("STREAM_API_BASE_URL");
+        if (url == null) {
+            url = System.getProperty("STREAM_API_BASE_URL");
+        }
+        return url != null && !url.isEmpty() ? url : defaultUrl;
+    }
+
+    /**
+     * Creates a StreamService with explicit credentials (tests and benchmarks).
+     */
+    StreamService(boolean isTest, String apiKey, String apiSecret) {
+        this.isTest = isTest;
+        this.apiKey = apiKey;
+        this.apiSecret = apiSecret;
+        this.hmac = ThreadLocal.withInitial(() -> newHmac(apiSecret));
+        this.userTokens = new StreamTokenMinter(() -> newHmac(apiSecret), true);
+    }
+
+    static Mac newHmac(String secret) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return mac;
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            throw new IllegalStateException("HmacSHA256 unavailable", e);
+        }
+    }
+
     /**
      * Verifies the webhook signature from Stream.
      * Stream uses HMAC-SHA256 with the API secret to sign webhook payloads.
      * The signature is sent in the X-SIGNATURE header.
-     * 
+     *
      * @param body The raw webhook body
      * @param signature The signature from the X-SIGNATURE header
      * @return true if signature is valid, false otherwise
@@ -195,29 +265,29 @@ public class StreamService {
             LoggingService.warn("stream_webhook_no_api_secret");
             return false;
         }
-        
+
         try {
             // Compute HMAC-SHA256 signature using API secret
-            String computedSignatureHex = computeHmacSha256(body, apiSecret);
-            
+            byte[] signedBytes = hmac.get().doFinal(body.getBytes(StandardCharsets.UTF_8));
+            String computedSignatureHex = toHex(signedBytes);
+
             // Stream may send signature in different formats, try to match:
             // 1. Direct hex comparison
             boolean isValid = computedSignatureHex.equalsIgnoreCase(signature);
-            
+
             // 2. If not matching, try with "sha256=" prefix (some webhook implementations use this)
             if (!isValid && signature.startsWith("sha256=")) {
                 isValid = computedSignatureHex.equalsIgnoreCase(signature.substring(7));
             }
-            
+
             // 3. Try base64 encoded comparison
             if (!isValid) {
-                String computedSignatureBase64 = computeHmacSha256Base64(body, apiSecret);
-                isValid = computedSignatureBase64.equals(signature);
+                isValid = Base64.getEncoder().encodeToString(signedBytes).equals(signature);
             }
-            
+
             LoggingService.debug("stream_webhook_signature_verification", Map.of("result", isValid ? "VALID" : "INVALID"));
             if (!isValid) {
-                LoggingService.debug("stream_webhook_signature_mismatch", Map.of("computed", computedSignatureHex, "received", signature));
+                LoggingService.debug("stream_webhook_signature_mismatch", () -> Map.of("computed", computedSignatureHex, "received", signature));
             }
 
             return isValid;
@@ -226,167 +296,197 @@ public class StreamService {
             return false;
         }
     }
-    
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
     /**
-     * Computes HMAC-SHA256 signature and returns as Base64 string.
+     * Send on the shared HttpClient, timing the call into the invocation that issued it.
      */
-    private String computeHmacSha256Base64(String message, String secret) 
-            throws NoSuchAlgorithmException, InvalidKeyException {
-        Mac sha256Hmac = Mac.getInstance("HmacSHA256");
-        SecretKeySpec secretKeySpec = new SecretKeySpec(
-            secret.getBytes(StandardCharsets.UTF_8), 
-            "HmacSHA256"
-        );
-        sha256Hmac.init(secretKeySpec);
-        byte[] signedBytes = sha256Hmac.doFinal(message.getBytes(StandardCharsets.UTF_8));
-        return Base64.getEncoder().encodeToString(signedBytes);
+    private CompletableFuture<HttpResponse<String>> sendAsync(HttpRequest request) {
+        RequestMetrics metrics = RequestMetrics.current();
+        long start = System.nanoTime();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, error) ->
+                        metrics.addExternal(RequestMetrics.DEPENDENCY_STREAM, System.nanoTime() - start));
     }
-    
+
     /**
-     * Computes HMAC-SHA256 signature for the given message.
-     * 
-     * @param message The message to sign
-     * @param secret The secret key
-     * @return The hex-encoded signature
-     */
-    private String computeHmacSha256(String message, String secret) 
-            throws NoSuchAlgorithmException, InvalidKeyException {
-        Mac sha256Hmac = Mac.getInstance("HmacSHA256");
-        SecretKeySpec secretKeySpec = new SecretKeySpec(
-            secret.getBytes(StandardCharsets.UTF_8), 
-            "HmacSHA256"
-        );
-        sha256Hmac.init(secretKeySpec);
-        byte[] signedBytes = sha256Hmac.doFinal(message.getBytes(StandardCharsets.UTF_8));
-        
-        // Convert to hex string
-        StringBuilder sb = new StringBuilder();
-        for (byte b : signedBytes) {
-            sb.append(String.format("%02x", b));
-        }
-        return sb.toString();
+     * Send and handle the outcome. The handler usually runs on an HttpClient worker thread, so it
+     * runs with the caller's logging context to keep request and order IDs on its log lines.
+     */
+    private <T> CompletableFuture<T> sendAsync(HttpRequest request,
+                                               BiFunction<HttpResponse<String>, Throwable, T> handler) {
+        Map<String, String> logContext = LoggingService.captureContext();
+        return sendAsync(request).handle((response, error) ->
+                LoggingService.withContext(logContext, () -> handler.apply(response, error)));
     }
-    
+
+    /**
+     * Request builder for /call/{type}/{id}{suffix}, authenticated with the server token.
+     */
+    private HttpRequest.Builder callRequest(String callType, String callId, String suffix, Duration timeout) {
+        String url = String.format("%s/call/%s/%s%s?api_key=%s", STREAM_API_BASE_URL, callType, callId, suffix, apiKey);
+        return HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .header("Content-Type", "application/json")
+                .header("Authorization", serverAuthToken())
+                .header("stream-auth-type", "jwt")
+                .timeout(timeout);
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
     /**
      * Get the API key for this environment.
-     * 
+     *
      * @return The Stream API key
      */
     public String getApiKey() {
         return apiKey;
     }
-    
+
     /**
      * Check if the service is properly configured.
-     * 
+     *
      * @return true if API key and secret are configured
      */
     public boolean isConfigured() {
-        return apiKey != null && !apiKey.isEmpty() 
+        return apiKey != null && !apiKey.isEmpty()
             && apiSecret != null && !apiSecret.isEmpty();
     }
-    
+
     /**
      * Check if running in test mode.
-     * 
+     *
      * @return true if test environment
      */
     public boolean isTest() {
         return isTest;
     }
-    
+
     /**
      * End a Stream video call.
      * This is used to programmatically end a call when finalizing a consultation.
-     * 
+     *
      * @param callType The call type (e.g., "consultation_video", "consultation_audio")
      * @param callId The call ID
      * @return true if the call was ended successfully (or was already ended)
      */
     public boolean endCall(String callType, String callId) {
+        return endCallAsync(callType, callId).join();
+    }
+
+    /**
+     * endCall without blocking; the future never completes exceptionally.
+     */
+    public CompletableFuture<Boolean> endCallAsync(String callType, String callId) {
         if (callType == null || callId == null) {
             LoggingService.warn("stream_end_call_missing_params");
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
 
         if (!isConfigured()) {
             LoggingService.error("stream_end_call_not_configured");
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
-        
+
         try {
             // Stream Video API endpoint to end a call
             // POST /video/call/{type}/{id}/end
-            String url = String.format("%s/call/%s/%s/end?api_key=%s", 
-                STREAM_API_BASE_URL, callType, callId, apiKey);
-            
-            // Create JWT token for API authentication
-            String authToken = createServerAuthToken();
-            
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .header("Content-Type", "application/json")
-                    .header("Authorization", authToken)
-                    .header("stream-auth-type", "jwt")
+            HttpRequest request = callRequest(callType, callId, "/end", Duration.ofSeconds(10))
                     .POST(HttpRequest.BodyPublishers.ofString("{}"))
-                    .timeout(Duration.ofSeconds(10))
                     .build();
-            
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            
-            int statusCode = response.statusCode();
-            LoggingService.debug("stream_end_call_response", Map.of("statusCode", statusCode));
-
-            // 200 = success, 404 = call not found (already ended), both are OK
-            if (statusCode == 200 || statusCode == 404) {
-                return true;
-            }
 
-            LoggingService.warn("stream_end_call_failed", Map.of("statusCode", statusCode));
-            return false;
+            return sendAsync(request, (response, error) -> {
+                if (error != null) {
+                    LoggingService.error("stream_end_call_error", unwrap(error));
+                    return false;
+                }
+                int statusCode = response.statusCode();
+                LoggingService.debug("stream_end_call_response", () -> Map.of("statusCode", statusCode));
+
+                // 200 = success, 404 = call not found (already ended), both are OK
+                if (statusCode == 200 || statusCode == 404) {
+                    return true;
+                }
+
+                LoggingService.warn("stream_end_call_failed", Map.of("statusCode", statusCode));
+                return false;
+            });
 
         } catch (Exception e) {
             LoggingService.error("stream_end_call_error", e);
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
     }
-    
+
+    /**
+     * Server-side JWT for Stream API authentication. Tokens are valid for SERVER_TOKEN_TTL_SECONDS
+     * and reused until SERVER_TOKEN_REFRESH_SECONDS before expiry, then replaced.
+     */
+    private String serverAuthToken() {
+        return serverAuthToken(System.currentTimeMillis() / 1000);
+    }
+
+    String serverAuthToken(long now) {
+        ServerToken token = serverToken;
+        if (token == null || now >= token.refreshAt) {
+            // Concurrent refreshes each mint a valid token; the last one written is kept
+            token = new ServerToken(createServerAuthToken(now), now + SERVER_TOKEN_TTL_SECONDS - SERVER_TOKEN_REFRESH_SECONDS);
+            serverToken = token;
+        }
+        return token.value;
+    }
+
     /**
      * Create a server-side JWT token for Stream API authentication.
      * This is a simplified version - for production, use proper JWT library.
      */
-    private String createServerAuthToken() {
+    private String createServerAuthToken(long now) {
         try {
             // Create a simple JWT for server authentication
             // Header
             String header = Base64.getUrlEncoder().withoutPadding().encodeToString(
                 "{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
-            
+
             // Payload with server flag
-            long now = System.currentTimeMillis() / 1000;
-            long exp = now + 3600; // 1 hour expiry
+            long exp = now + SERVER_TOKEN_TTL_SECONDS;
             String payload = String.format(
                 "{\"user_id\":\"server\",\"iat\":%d,\"exp\":%d}", now, exp);
             String encodedPayload = Base64.getUrlEncoder().withoutPadding().encodeToString(
                 payload.getBytes(StandardCharsets.UTF_8));
-            
+
             // Signature
             String signatureInput = header + "." + encodedPayload;
-            Mac sha256Hmac = Mac.getInstance("HmacSHA256");
-            SecretKeySpec secretKeySpec = new SecretKeySpec(
-                apiSecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
-            sha256Hmac.init(secretKeySpec);
-            byte[] signatureBytes = sha256Hmac.doFinal(signatureInput.getBytes(StandardCharsets.UTF_8));
+            byte[] signatureBytes = hmac.get().doFinal(signatureInput.getBytes(StandardCharsets.UTF_8));
             String signature = Base64.getUrlEncoder().withoutPadding().encodeToString(signatureBytes);
-            
+
             return header + "." + encodedPayload + "." + signature;
-            
+
         } catch (Exception e) {
             LoggingService.error("stream_auth_token_creation_error", e);
             return "";
         }
     }
 
+    private static final class ServerToken {
+        private final String value;
+        private final long refreshAt;
+
+        ServerToken(String value, long refreshAt) {
+            this.value = value;
+            this.refreshAt = refreshAt;
+        }
+    }
+
     /**
      * Create a user token with specific role for session/webinar access.
      * The role determines what permissions the user has in the call.
@@ -394,6 +494,9 @@ public class StreamService {
      * COST OPTIMIZATION: Users with viewer role will have no send-audio/send-video
      * permissions, making them "livestream viewers" which are billed at lower rates.
      *
+     * Tokens are valid for 24 hours and reused for the same user, role and call until the last
+     * hour (see StreamTokenMinter).
+     *
      * @param userId The user's unique ID
      * @param role The user's role (host, speaker, viewer)
      * @param callId The session/call ID
@@ -402,37 +505,10 @@ public class StreamService {
      */
     public String createUserToken(String userId, String role, String callId, String callType) {
         try {
-            String header = Base64.getUrlEncoder().withoutPadding().encodeToString(
-                "{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
-
-            long now = System.currentTimeMillis() / 1000;
-            long exp = now + 86400; // 24 hour expiry for session tokens
+            String token = userTokens.userToken(userId, role, callType + ":" + callId);
 
-            // Build payload with role and call restrictions
-            StringBuilder payloadBuilder = new StringBuilder();
-            payloadBuilder.append("{");
-            payloadBuilder.append("\"user_id\":\"").append(userId).append("\",");
-            payloadBuilder.append("\"role\":\"").append(role).append("\",");
-            payloadBuilder.append("\"call_cids\":[\"").append(callType).append(":").append(callId).append("\"],");
-            payloadBuilder.append("\"iat\":").append(now).append(",");
-            payloadBuilder.append("\"exp\":").append(exp);
-            payloadBuilder.append("}");
-
-            String payload = payloadBuilder.toString();
-            String encodedPayload = Base64.getUrlEncoder().withoutPadding().encodeToString(
-                payload.getBytes(StandardCharsets.UTF_8));
-
-            // Sign
-            String signatureInput = header + "." + encodedPayload;
-            Mac sha256Hmac = Mac.getInstance("HmacSHA256");
-            SecretKeySpec secretKeySpec = new SecretKeySpec(
-                apiSecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
-            sha256Hmac.init(secretKeySpec);
-            byte[] signatureBytes = sha256Hmac.doFinal(signatureInput.getBytes(StandardCharsets.UTF_8));
-            String signature = Base64.getUrlEncoder().withoutPadding().encodeToString(signatureBytes);
-
-            LoggingService.debug("stream_user_token_created", Map.of("userId", userId, "role", role));
-            return header + "." + encodedPayload + "." + signature;
+            LoggingService.debug("stream_user_token_created", () -> Map.of("userId", userId, "role", role));
+            return token;
 
         } catch (Exception e) {
             LoggingService.error("stream_user_token_error", e, Map.of("userId", userId, "role", role));
@@ -450,17 +526,19 @@ public class StreamService {
      * @return true if call created successfully
      */
     public boolean createCall(String callType, String callId, String hostUserId) {
+        return createCallAsync(callType, callId, hostUserId).join();
+    }
+
+    /**
+     * createCall without blocking; the future never completes exceptionally.
+     */
+    public CompletableFuture<Boolean> createCallAsync(String callType, String callId, String hostUserId) {
         if (!isConfigured()) {
             LoggingService.error("stream_create_call_not_configured");
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
 
         try {
-            String url = String.format("%s/call/%s/%s?api_key=%s",
-                STREAM_API_BASE_URL, callType, callId, apiKey);
-
-            String authToken = createServerAuthToken();
-
             // Request body with call settings optimized for sessions
             String body = String.format(
                 "{" +
@@ -475,26 +553,25 @@ public class StreamService {
                 "}" +
                 "}", hostUserId, hostUserId);
 
-            HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("Content-Type", "application/json")
-                .header("Authorization", authToken)
-                .header("stream-auth-type", "jwt")
+            HttpRequest request = callRequest(callType, callId, "", Duration.ofSeconds(15))
                 .POST(HttpRequest.BodyPublishers.ofString(body))
-                .timeout(Duration.ofSeconds(15))
                 .build();
 
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-            int statusCode = response.statusCode();
-            LoggingService.info("stream_create_call_response", Map.of("statusCode", statusCode, "callType", callType, "callId", callId));
+            return sendAsync(request, (response, error) -> {
+                if (error != null) {
+                    LoggingService.error("stream_create_call_error", unwrap(error), Map.of("callType", callType, "callId", callId));
+                    return false;
+                }
+                int statusCode = response.statusCode();
+                LoggingService.info("stream_create_call_response", Map.of("statusCode", statusCode, "callType", callType, "callId", callId));
 
-            // 201 = created, 200 = already exists (get_or_create behavior)
-            return statusCode == 201 || statusCode == 200;
+                // 201 = created, 200 = already exists (get_or_create behavior)
+                return statusCode == 201 || statusCode == 200;
+            });
 
         } catch (Exception e) {
             LoggingService.error("stream_create_call_error", e, Map.of("callType", callType, "callId", callId));
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
     }
 
@@ -509,40 +586,41 @@ public class StreamService {
      * @return true if update successful
      */
     public boolean updateMemberRole(String callType, String callId, String userId, String newRole) {
+        return updateMemberRoleAsync(callType, callId, userId, newRole).join();
+    }
+
+    /**
+     * updateMemberRole without blocking; the future never completes exceptionally.
+     */
+    public CompletableFuture<Boolean> updateMemberRoleAsync(String callType, String callId, String userId, String newRole) {
         if (!isConfigured()) {
             LoggingService.error("stream_update_member_role_not_configured");
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
 
         try {
-            String url = String.format("%s/call/%s/%s/members?api_key=%s",
-                STREAM_API_BASE_URL, callType, callId, apiKey);
-
-            String authToken = createServerAuthToken();
-
             String body = String.format(
                 "{\"update_members\": [{\"user_id\": \"%s\", \"role\": \"%s\"}]}",
                 userId, newRole);
 
-            HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("Content-Type", "application/json")
-                .header("Authorization", authToken)
-                .header("stream-auth-type", "jwt")
+            HttpRequest request = callRequest(callType, callId, "/members", Duration.ofSeconds(10))
                 .POST(HttpRequest.BodyPublishers.ofString(body))
-                .timeout(Duration.ofSeconds(10))
                 .build();
 
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-            int statusCode = response.statusCode();
-            LoggingService.info("stream_update_member_role_response", Map.of("statusCode", statusCode, "userId", userId, "newRole", newRole));
+            return sendAsync(request, (response, error) -> {
+                if (error != null) {
+                    LoggingService.error("stream_update_member_role_error", unwrap(error), Map.of("userId", userId, "newRole", newRole));
+                    return false;
+                }
+                int statusCode = response.statusCode();
+                LoggingService.info("stream_update_member_role_response", Map.of("statusCode", statusCode, "userId", userId, "newRole", newRole));
 
-            return statusCode == 200 || statusCode == 201;
+                return statusCode == 200 || statusCode == 201;
+            });
 
         } catch (Exception e) {
             LoggingService.error("stream_update_member_role_error", e, Map.of("userId", userId, "newRole", newRole));
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
     }
 
@@ -556,44 +634,14 @@ public class StreamService {
      * @return true if permissions granted
      */
     public boolean grantPermissions(String callType, String callId, String userId, List<String> permissions) {
-        if (!isConfigured()) {
-            return false;
-        }
-
-        try {
-            String url = String.format("%s/call/%s/%s/user_permissions?api_key=%s",
-                STREAM_API_BASE_URL, callType, callId, apiKey);
-
-            String authToken = createServerAuthToken();
-
-            // Build permissions array
-            StringBuilder permBuilder = new StringBuilder("[");
-            for (int i = 0; i < permissions.size(); i++) {
-                if (i > 0) permBuilder.append(",");
-                permBuilder.append("\"").append(permissions.get(i)).append("\"");
-            }
-            permBuilder.append("]");
-
-            String body = String.format(
-                "{\"user_id\": \"%s\", \"grant_permissions\": %s}",
-                userId, permBuilder.toString());
-
-            HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("Content-Type", "application/json")
-                .header("Authorization", authToken)
-                .header("stream-auth-type", "jwt")
-                .POST(HttpRequest.BodyPublishers.ofString(body))
-                .timeout(Duration.ofSeconds(10))
-                .build();
-
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            return response.statusCode() == 200;
+        return grantPermissionsAsync(callType, callId, userId, permissions).join();
+    }
 
-        } catch (Exception e) {
-            LoggingService.error("stream_grant_permissions_error", e);
-            return false;
-        }
+    /**
+     * grantPermissions without blocking; the future never completes exceptionally.
+     */
+    public CompletableFuture<Boolean> grantPermissionsAsync(String callType, String callId, String userId, List<String> permissions) {
+        return updatePermissionsAsync(callType, callId, userId, "grant_permissions", permissions, "stream_grant_permissions_error");
     }
 
     /**
@@ -606,16 +654,24 @@ public class StreamService {
      * @return true if permissions revoked
      */
     public boolean revokePermissions(String callType, String callId, String userId, List<String> permissions) {
+        return revokePermissionsAsync(callType, callId, userId, permissions).join();
+    }
+
+    /**
+     * revokePermissions without blocking; the future never completes exceptionally.
+     */
+    public CompletableFuture<Boolean> revokePermissionsAsync(String callType, String callId, String userId, List<String> permissions) {
+        return updatePermissionsAsync(callType, callId, userId, "revoke_permissions", permissions, "stream_revoke_permissions_error");
+    }
+
+    private CompletableFuture<Boolean> updatePermissionsAsync(String callType, String callId, String userId, String field,
+                                                              List<String> permissions, String errorMessage) {
         if (!isConfigured()) {
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
 
         try {
-            String url = String.format("%s/call/%s/%s/user_permissions?api_key=%s",
-                STREAM_API_BASE_URL, callType, callId, apiKey);
-
-            String authToken = createServerAuthToken();
-
+            // Build permissions array
             StringBuilder permBuilder = new StringBuilder("[");
             for (int i = 0; i < permissions.size(); i++) {
                 if (i > 0) permBuilder.append(",");
@@ -624,24 +680,24 @@ public class StreamService {
             permBuilder.append("]");
 
             String body = String.format(
-                "{\"user_id\": \"%s\", \"revoke_permissions\": %s}",
-                userId, permBuilder.toString());
+                "{\"user_id\": \"%s\", \"%s\": %s}",
+                userId, field, permBuilder.toString());
 
-            HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("Content-Type", "application/json")
-                .header("Authorization", authToken)
-                .header("stream-auth-type", "jwt")
+            HttpRequest request = callRequest(callType, callId, "/user_permissions", Duration.ofSeconds(10))
                 .POST(HttpRequest.BodyPublishers.ofString(body))
-                .timeout(Duration.ofSeconds(10))
                 .build();
 
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            return response.statusCode() == 200;
+            return sendAsync(request, (response, error) -> {
+                if (error != null) {
+                    LoggingService.error(errorMessage, unwrap(error));
+                    return false;
+                }
+                return response.statusCode() == 200;
+            });
 
         } catch (Exception e) {
-            LoggingService.error("stream_revoke_permissions_error", e);
-            return false;
+            LoggingService.error(errorMessage, e);
+            return CompletableFuture.completedFuture(false);
         }
     }
 
@@ -658,52 +714,53 @@ public class StreamService {
      * @return StreamCallResponse with call and session details, or error response
      */
     public StreamCallResponse getCallDetails(String callType, String callId) {
+        return getCallDetailsAsync(callType, callId).join();
+    }
+
+    /**
+     * getCallDetails without blocking; failures complete with an error response, never exceptionally.
+     */
+    public CompletableFuture<StreamCallResponse> getCallDetailsAsync(String callType, String callId) {
         if (callType == null || callId == null) {
-            return StreamCallResponse.error("Missing callType or callId");
+            return CompletableFuture.completedFuture(StreamCallResponse.error("Missing callType or callId"));
         }
 
         if (!isConfigured()) {
-            return StreamCallResponse.error("StreamService not configured");
+            return CompletableFuture.completedFuture(StreamCallResponse.error("StreamService not configured"));
         }
 
         try {
             // Stream Video API endpoint to get call details
             // GET /video/call/{type}/{id}
-            String url = String.format("%s/call/%s/%s?api_key=%s",
-                STREAM_API_BASE_URL, callType, callId, apiKey);
-
-            // Create JWT token for API authentication
-            String authToken = createServerAuthToken();
-
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .header("Content-Type", "application/json")
-                    .header("Authorization", authToken)
-                    .header("stream-auth-type", "jwt")
+            HttpRequest request = callRequest(callType, callId, "", Duration.ofSeconds(15))
                     .GET()
-                    .timeout(Duration.ofSeconds(15))
                     .build();
 
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-            int statusCode = response.statusCode();
-            LoggingService.debug("stream_get_call_details_response", Map.of("statusCode", statusCode, "callType", callType, "callId", callId));
+            return sendAsync(request, (response, error) -> {
+                if (error != null) {
+                    Throwable cause = unwrap(error);
+                    LoggingService.error("stream_get_call_details_error", cause, Map.of("callType", callType, "callId", callId));
+                    return StreamCallResponse.error(cause.getMessage());
+                }
+                int statusCode = response.statusCode();
+                LoggingService.debug("stream_get_call_details_response", () -> Map.of("statusCode", statusCode, "callType", callType, "callId", callId));
 
-            if (statusCode == 404) {
-                return StreamCallResponse.error("Call not found: " + callType + ":" + callId);
-            }
+                if (statusCode == 404) {
+                    return StreamCallResponse.error("Call not found: " + callType + ":" + callId);
+                }
 
-            if (statusCode != 200) {
-                LoggingService.warn("stream_get_call_details_failed", Map.of("statusCode", statusCode, "callType", callType, "callId", callId));
-                return StreamCallResponse.error("HTTP " + statusCode);
-            }
+                if (statusCode != 200) {
+                    LoggingService.warn("stream_get_call_details_failed", Map.of("statusCode", statusCode, "callType", callType, "callId", callId));
+                    return StreamCallResponse.error("HTTP " + statusCode);
+                }
 
-            // Parse response JSON
-            return parseCallResponse(response.body(), callType, callId);
+                // Parse response JSON
+                return parseCallResponse(response.body(), callType, callId);
+            });
 
         } catch (Exception e) {
             LoggingService.error("stream_get_call_details_error", e, Map.of("callType", callType, "callId", callId));
-            return StreamCallResponse.error(e.getMessage());
+            return CompletableFuture.completedFuture(StreamCallResponse.error(e.getMessage()));
         }
     }
 
@@ -716,53 +773,52 @@ public class StreamService {
      * @return List of RecordingInfo objects, or empty list if none found
      */
     public List<RecordingInfo> getCallRecordings(String callType, String callId) {
-        List<RecordingInfo> recordings = new ArrayList<>();
+        return getCallRecordingsAsync(callType, callId).join();
+    }
 
+    /**
+     * getCallRecordings without blocking; failures complete with an empty list, never exceptionally.
+     */
+    public CompletableFuture<List<RecordingInfo>> getCallRecordingsAsync(String callType, String callId) {
         if (callType == null || callId == null) {
             LoggingService.warn("stream_get_recordings_missing_params");
-            return recordings;
+            return CompletableFuture.completedFuture(new ArrayList<>());
         }
 
         if (!isConfigured()) {
             LoggingService.error("stream_get_recordings_not_configured");
-            return recordings;
+            return CompletableFuture.completedFuture(new ArrayList<>());
         }
 
         try {
-            String url = String.format("%s/call/%s/%s/recordings?api_key=%s",
-                STREAM_API_BASE_URL, callType, callId, apiKey);
-
-            String authToken = createServerAuthToken();
-
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .header("Content-Type", "application/json")
-                    .header("Authorization", authToken)
-                    .header("stream-auth-type", "jwt")
+            HttpRequest request = callRequest(callType, callId, "/recordings", Duration.ofSeconds(15))
                     .GET()
-                    .timeout(Duration.ofSeconds(15))
                     .build();
 
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-            int statusCode = response.statusCode();
-            LoggingService.debug("stream_get_recordings_response", Map.of("statusCode", statusCode, "callType", callType, "callId", callId));
+            return sendAsync(request, (response, error) -> {
+                if (error != null) {
+                    LoggingService.error("stream_get_recordings_error", unwrap(error), Map.of("callType", callType, "callId", callId));
+                    return new ArrayList<>();
+                }
+                int statusCode = response.statusCode();
+                LoggingService.debug("stream_get_recordings_response", () -> Map.of("statusCode", statusCode, "callType", callType, "callId", callId));
 
-            if (statusCode == 404) {
-                LoggingService.info("stream_no_recordings_found", Map.of("callType", callType, "callId", callId));
-                return recordings;
-            }
+                if (statusCode == 404) {
+                    LoggingService.info("stream_no_recordings_found", Map.of("callType", callType, "callId", callId));
+                    return new ArrayList<>();
+                }
 
-            if (statusCode != 200) {
-                LoggingService.warn("stream_get_recordings_failed", Map.of("statusCode", statusCode, "callType", callType, "callId", callId));
-                return recordings;
-            }
+                if (statusCode != 200) {
+                    LoggingService.warn("stream_get_recordings_failed", Map.of("statusCode", statusCode, "callType", callType, "callId", callId));
+                    return new ArrayList<>();
+                }
 
-            return parseRecordingsResponse(response.body());
+                return parseRecordingsResponse(response.body());
+            });
 
         } catch (Exception e) {
             LoggingService.error("stream_get_recordings_error", e, Map.of("callType", callType, "callId", callId));
-            return recordings;
+            return CompletableFuture.completedFuture(new ArrayList<>());
         }
     }
 
@@ -841,7 +897,7 @@ public class StreamService {
                 // Only add recordings with valid URLs
                 if (info.getUrl() != null && !info.getUrl().isEmpty()) {
                     recordings.add(info);
-                    LoggingService.debug("stream_recording_found", Map.of("filename", info.getFilename() != null ? info.getFilename() : "unknown"));
+                    LoggingService.debug("stream_recording_found", () -> Map.of("filename", info.getFilename() != null ? info.getFilename() : "unknown"));
                 }
             }
 
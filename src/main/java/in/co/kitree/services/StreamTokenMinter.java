@@ -0,0 +1,185 @@
+package in.co.kitree.services;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Mints Stream user JWTs (HS256) for session joins and host tokens.
+ *
+ * The encoded header is computed once; each thread keeps an initialized Mac and reusable payload
+ * and token buffers, so a token costs one HMAC and two base64 passes over the buffers. With caching
+ * on, a token is reused per (user, role, call) until REFRESH_SECONDS before it expires, so rejoins
+ * and retried joins in the same container do not sign again.
+ */
+final class StreamTokenMinter {
+
+    static final long TOKEN_TTL_SECONDS = 86400;
+    // Cached tokens are replaced once less than an hour of validity is left
+    static final long REFRESH_SECONDS = 3600;
+    // Upper bound on tokens held by one container; the cache is simply cleared when exceeded
+    static final int MAX_CACHED_TOKENS = 10_000;
+
+    private static final byte[] ENCODED_HEADER = (Base64.getUrlEncoder().withoutPadding().encodeToString(
+            "{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8)) + ".")
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BASE64_URL = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_"
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final int SIGNATURE_BYTES = 32;
+
+    private final ThreadLocal<Scratch> scratch;
+    private final Map<String, CachedToken> cache;
+
+    /**
+     * @param hmac initialized HmacSHA256 for the API secret, called once per thread
+     * @param cacheTokens reuse tokens per (user, role, call) until near expiry
+     */
+    StreamTokenMinter(Supplier<Mac> hmac, boolean cacheTokens) {
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(hmac.get()));
+        this.cache = cacheTokens ? new ConcurrentHashMap<>() : null;
+    }
+
+    /**
+     * Token for the user in the call (cid "type:id"), minted now or taken from the cache.
+     */
+    String userToken(String userId, String role, String callCid) {
+        return userToken(userId, role, callCid, System.currentTimeMillis() / 1000);
+    }
+
+    String userToken(String userId, String role, String callCid, long now) {
+        if (cache == null) {
+            return mint(userId, role, callCid, now);
+        }
+        String key = userId + '\u0000' + role + '\u0000' + callCid;
+        CachedToken cached = cache.get(key);
+        if (cached != null && now < cached.refreshAt) {
+            return cached.token;
+        }
+        String token = mint(userId, role, callCid, now);
+        if (cache.size() >= MAX_CACHED_TOKENS) {
+            cache.clear();
+        }
+        cache.put(key, new CachedToken(token, now + TOKEN_TTL_SECONDS - REFRESH_SECONDS));
+        return token;
+    }
+
+    /**
+     * Sign a new token: {"user_id":..,"role":..,"call_cids":[cid],"iat":now,"exp":now+TTL}.
+     */
+    String mint(String userId, String role, String callCid, long now) {
+        Scratch s = scratch.get();
+        StringBuilder payload = s.payload;
+        payload.setLength(0);
+        payload.append("{\"user_id\":\"").append(userId)
+                .append("\",\"role\":\"").append(role)
+                .append("\",\"call_cids\":[\"").append(callCid)
+                .append("\"],\"iat\":").append(now)
+                .append(",\"exp\":").append(now + TOKEN_TTL_SECONDS)
+                .append('}');
+
+        byte[] payloadBytes = s.utf8(payload);
+        int payloadLength = payload.length();
+        if (payloadBytes == null) {
+            // Non-ASCII ids are rare; encode them the slow way
+            payloadBytes = payload.toString().getBytes(StandardCharsets.UTF_8);
+            payloadLength = payloadBytes.length;
+        }
+
+        int signingLength = ENCODED_HEADER.length + encodedLength(payloadLength);
+        byte[] token = s.token(signingLength + 1 + encodedLength(SIGNATURE_BYTES));
+        System.arraycopy(ENCODED_HEADER, 0, token, 0, ENCODED_HEADER.length);
+        encode(payloadBytes, payloadLength, token, ENCODED_HEADER.length);
+        token[signingLength] = '.';
+
+        try {
+            s.mac.update(token, 0, signingLength);
+            s.mac.doFinal(s.signature, 0);
+        } catch (ShortBufferException e) {
+            throw new IllegalStateException(e);
+        }
+        int length = encode(s.signature, SIGNATURE_BYTES, token, signingLength + 1);
+        return new String(token, 0, length, StandardCharsets.ISO_8859_1);
+    }
+
+    static int encodedLength(int bytes) {
+        return (bytes * 4 + 2) / 3;
+    }
+
+    /**
+     * Unpadded base64url of src[0, length) written at dst[offset]; returns the end offset.
+     */
+    private static int encode(byte[] src, int length, byte[] dst, int offset) {
+        int d = offset;
+        int i = 0;
+        for (int whole = length - length % 3; i < whole; i += 3) {
+            int bits = (src[i] & 0xff) << 16 | (src[i + 1] & 0xff) << 8 | (src[i + 2] & 0xff);
+            dst[d++] = BASE64_URL[bits >>> 18];
+            dst[d++] = BASE64_URL[(bits >>> 12) & 0x3f];
+            dst[d++] = BASE64_URL[(bits >>> 6) & 0x3f];
+            dst[d++] = BASE64_URL[bits & 0x3f];
+        }
+        if (i < length) {
+            int bits = (src[i] & 0xff) << 16 | (i + 1 < length ? (src[i + 1] & 0xff) << 8 : 0);
+            dst[d++] = BASE64_URL[bits >>> 18];
+            dst[d++] = BASE64_URL[(bits >>> 12) & 0x3f];
+            if (i + 1 < length) {
+                dst[d++] = BASE64_URL[(bits >>> 6) & 0x3f];
+            }
+        }
+        return d;
+    }
+
+    /**
+     * Per-thread signing state; Mac.doFinal leaves the Mac reset for the next token.
+     */
+    private static final class Scratch {
+        private final Mac mac;
+        private final StringBuilder payload = new StringBuilder(192);
+        private final byte[] signature = new byte[SIGNATURE_BYTES];
+        private byte[] payloadBytes = new byte[192];
+        private byte[] token = new byte[512];
+
+        Scratch(Mac mac) {
+            this.mac = mac;
+        }
+
+        /**
+         * The payload as bytes in the reusable buffer, or null if it is not all ASCII.
+         */
+        byte[] utf8(StringBuilder chars) {
+            int length = chars.length();
+            if (payloadBytes.length < length) {
+                payloadBytes = new byte[Math.max(length, payloadBytes.length * 2)];
+            }
+            for (int i = 0; i < length; i++) {
+                char c = chars.charAt(i);
+                if (c >= 0x80) {
+                    return null;
+                }
+                payloadBytes[i] = (byte) c;
+            }
+            return payloadBytes;
+        }
+
+        byte[] token(int length) {
+            if (token.length < length) {
+                token = new byte[Math.max(length, token.length * 2)];
+            }
+            return token;
+        }
+    }
+
+    private static final class CachedToken {
+        private final String token;
+        private final long refreshAt;
+
+        CachedToken(String token, long refreshAt) {
+            this.token = token;
+            this.refreshAt = refreshAt;
+        }
+    }
+}
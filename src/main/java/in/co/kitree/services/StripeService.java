@@ -46,7 +46,7 @@ public class StripeService implements PaymentGateway {
                 )
                 .build();
 
-        PaymentIntent intent = PaymentIntent.create(params);
+        PaymentIntent intent = RequestMetrics.timeExternal(RequestMetrics.DEPENDENCY_STRIPE, () -> PaymentIntent.create(params));
         return new PaymentOrderResult(intent.getId(), intent.getClientSecret());
     }
 
@@ -56,7 +56,7 @@ public class StripeService implements PaymentGateway {
      */
     @Override
     public boolean verifyPayment(String gatewayOrderId, String gatewayPaymentId, String gatewaySignature) throws StripeException {
-        PaymentIntent intent = PaymentIntent.retrieve(gatewayOrderId);
+        PaymentIntent intent = RequestMetrics.timeExternal(RequestMetrics.DEPENDENCY_STRIPE, () -> PaymentIntent.retrieve(gatewayOrderId));
         return "succeeded".equals(intent.getStatus());
     }
 
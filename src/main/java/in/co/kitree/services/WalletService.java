@@ -158,27 +158,27 @@ public class WalletService {
                 .collection("public").document("store").get().get();
         
         if (!storeDoc.exists()) {
-            LoggingService.debug("wallet_expert_store_not_found", Map.of("expertId", expertId));
+            LoggingService.debug("wallet_expert_store_not_found", () -> Map.of("expertId", expertId));
             return "OFFLINE";
         }
 
         // Check consultation_status first (system-controlled: BUSY/FREE)
         String consultationStatus = storeDoc.getString("consultation_status");
         if ("BUSY".equals(consultationStatus)) {
-            LoggingService.debug("wallet_expert_busy", Map.of("expertId", expertId));
+            LoggingService.debug("wallet_expert_busy", () -> Map.of("expertId", expertId));
             return "BUSY";
         }
 
         // Then check is_online (user-controlled: true/false)
         Boolean isOnline = storeDoc.getBoolean("is_online");
-        LoggingService.debug("wallet_expert_online_status", Map.of("expertId", expertId, "isOnline", String.valueOf(isOnline)));
+        LoggingService.debug("wallet_expert_online_status", () -> Map.of("expertId", expertId, "isOnline", String.valueOf(isOnline)));
 
         if (isOnline == null || !isOnline) {
-            LoggingService.debug("wallet_expert_offline", Map.of("expertId", expertId));
+            LoggingService.debug("wallet_expert_offline", () -> Map.of("expertId", expertId));
             return "OFFLINE";
         }
 
-        LoggingService.debug("wallet_expert_online", Map.of("expertId", expertId));
+        LoggingService.debug("wallet_expert_online", () -> Map.of("expertId", expertId));
         return "ONLINE";
     }
 
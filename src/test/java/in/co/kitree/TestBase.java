@@ -2,18 +2,25 @@ package in.co.kitree;
 
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.FirestoreOptions;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
 import com.google.firebase.cloud.FirestoreClient;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.UserRecord;
 import com.google.firebase.auth.FirebaseAuthException;
+import in.co.kitree.services.FirestoreProfiler;
+import in.co.kitree.services.InstrumentedFirestoreRpc;
+import in.co.kitree.services.RequestMetrics;
+import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.TestInfo;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.Socket;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
@@ -28,6 +35,8 @@ public abstract class TestBase {
     protected static final int AUTH_PORT = 9099;
     protected static final String FIRESTORE_EMULATOR_HOST = System.getenv("CI") != null ? "localhost:" + FIRESTORE_PORT : "127.0.0.1:" + FIRESTORE_PORT;
     protected static final String AUTH_EMULATOR_HOST = System.getenv("CI") != null ? "localhost:" + AUTH_PORT : "127.0.0.1:" + AUTH_PORT;
+    // Firestore access per test / handler action, written after each test class
+    protected static final Path FIRESTORE_PROFILE_REPORT = Path.of("build", "reports", "firestore-profile.txt");
 
     @BeforeAll
     public static void setupFirebase() {
@@ -56,10 +65,18 @@ public abstract class TestBase {
 
             GoogleCredentials credentials = GoogleCredentials.fromStream(serviceAccount);
 
-            // Initialize Firebase with the service account
+            // Initialize Firebase with the service account; every Firestore RPC goes through the profiler
+            InstrumentedFirestoreRpc.Listener listener = RequestMetrics.firestoreListener();
+            FirestoreOptions firestoreOptions = FirestoreOptions.newBuilder()
+                    .setCredentials(credentials)
+                    .setProjectId("kitree-emulator")
+                    .setEmulatorHost(FIRESTORE_EMULATOR_HOST)
+                    .setServiceRpcFactory(InstrumentedFirestoreRpc.factory(listener.andThen(FirestoreProfiler.shared())))
+                    .build();
             FirebaseOptions options = FirebaseOptions.builder()
                     .setCredentials(credentials)
                     .setProjectId("kitree-emulator")
+                    .setFirestoreOptions(firestoreOptions)
                     .build();
 
             if (FirebaseApp.getApps().isEmpty()) {
@@ -84,10 +101,26 @@ public abstract class TestBase {
         }
     }
 
+    @AfterAll
+    public static void writeFirestoreProfile() {
+        if (!emulatorAvailable || FirestoreProfiler.shared().isEmpty()) {
+            return;
+        }
+        try {
+            FirestoreProfiler.shared().writeReport(FIRESTORE_PROFILE_REPORT, FirestoreProfiler.topN());
+        } catch (IOException e) {
+            System.err.println("Failed to write Firestore profile: " + e.getMessage());
+        }
+    }
+
     @BeforeEach
-    public void clearFirestore() throws ExecutionException, InterruptedException {
+    public void clearFirestore(TestInfo testInfo) throws ExecutionException, InterruptedException {
         assumeTrue(emulatorAvailable, "Firebase emulators not available — skipping");
 
+        // Attribute fixture cleanup and direct Firestore access to the test; Handler invocations
+        // start their own RequestMetrics named after the routed action
+        RequestMetrics.begin(false, "test");
+        RequestMetrics.setRoute("fixture:clearFirestore");
         // Clear all collections before each test
         clearCollection("users");
         clearCollection("servicePlans");
@@ -108,6 +141,10 @@ public abstract class TestBase {
         } catch (FirebaseAuthException e) {
             System.err.println("Failed to list users for cleanup: " + e.getMessage());
         }
+
+        RequestMetrics.begin(false, "test");
+        RequestMetrics.setRoute("test:" + getClass().getSimpleName() + "."
+                + testInfo.getTestMethod().map(java.lang.reflect.Method::getName).orElse("unknown"));
     }
 
     protected Map<String, Object> createTestUser(String userId) {
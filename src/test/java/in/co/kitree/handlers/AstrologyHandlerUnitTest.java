@@ -0,0 +1,91 @@
+package in.co.kitree.handlers;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import in.co.kitree.pojos.RequestBody;
+import in.co.kitree.services.AstrologyService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the astrology bundle endpoint, with the astrology service stubbed.
+ */
+public class AstrologyHandlerUnitTest {
+
+    private AstrologyService astrologyService;
+    private AstrologyHandler handler;
+
+    @BeforeEach
+    public void setUp() {
+        astrologyService = mock(AstrologyService.class);
+        handler = new AstrologyHandler(null, astrologyService, null, null);
+    }
+
+    @Test
+    public void testBundleMergesSections() throws Exception {
+        when(astrologyService.getAstrologicalDetailsAsync(eq("user-1"), any()))
+                .thenReturn(CompletableFuture.completedFuture("{\"ascendant\":\"Aries\"}"));
+        when(astrologyService.getGocharDetailsAsync(eq("user-1"), any()))
+                .thenReturn(CompletableFuture.completedFuture("{\"transits\":[]}"));
+
+        JsonObject response = bundle(List.of("details", "gochar"));
+
+        assertTrue(response.get("success").getAsBoolean());
+        assertEquals("Aries", response.getAsJsonObject("details").get("ascendant").getAsString());
+        assertTrue(response.getAsJsonObject("gochar").has("transits"));
+        assertFalse(response.has("dasha"));
+    }
+
+    @Test
+    public void testFailingSectionReportedInPlace() throws Exception {
+        when(astrologyService.getAstrologicalDetailsAsync(eq("user-1"), any()))
+                .thenReturn(CompletableFuture.completedFuture("{\"ascendant\":\"Aries\"}"));
+        when(astrologyService.getDashaDetailsAsync(eq("user-1"), any()))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Astrology Lambda dasha failed")));
+
+        JsonObject response = bundle(List.of("details", "dasha"));
+
+        assertTrue(response.get("success").getAsBoolean());
+        assertEquals("Aries", response.getAsJsonObject("details").get("ascendant").getAsString());
+        JsonObject dasha = response.getAsJsonObject("dasha");
+        assertFalse(dasha.get("success").getAsBoolean());
+        assertEquals("Failed to load dasha", dasha.get("errorMessage").getAsString());
+    }
+
+    @Test
+    public void testUnknownSectionRejectedBeforeAnyInvocation() throws Exception {
+        JsonObject response = bundle(List.of("details", "dasha", "navamsa"));
+
+        assertFalse(response.get("success").getAsBoolean());
+        assertEquals("Unknown section: navamsa", response.get("errorMessage").getAsString());
+        verifyNoInteractions(astrologyService);
+    }
+
+    @Test
+    public void testDefaultBundleSkipsDivisionalChartsWithoutChartNumbers() throws Exception {
+        when(astrologyService.getAstrologicalDetailsAsync(any(), any())).thenReturn(CompletableFuture.completedFuture("{}"));
+        when(astrologyService.getDashaDetailsAsync(any(), any())).thenReturn(CompletableFuture.completedFuture("{}"));
+        when(astrologyService.getGocharDetailsAsync(any(), any())).thenReturn(CompletableFuture.completedFuture("{}"));
+
+        JsonObject response = bundle(null);
+
+        assertTrue(response.has("details") && response.has("dasha") && response.has("gochar"));
+        assertFalse(response.has("divisional_charts"));
+        verify(astrologyService, never()).getDivisionalChartsAsync(any(), any());
+    }
+
+    private JsonObject bundle(List<String> sections) throws Exception {
+        RequestBody requestBody = new RequestBody();
+        requestBody.setSections(sections);
+        return JsonParser.parseString(handler.handleRequest("get_astrology_bundle", "user-1", requestBody))
+                .getAsJsonObject();
+    }
+}
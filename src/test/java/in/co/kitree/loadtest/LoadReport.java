@@ -0,0 +1,117 @@
+package in.co.kitree.loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Per-route results of a load-test run: request count, 4xx and errors (5xx or exception), latency
+ * percentiles and Firestore reads / writes / queries per request. Latency is measured from the
+ * request's scheduled start, so time spent queued behind a saturated worker pool counts.
+ */
+final class LoadReport {
+
+    private final Map<String, RouteStats> routes = new TreeMap<>();
+
+    synchronized void record(String route, int statusCode, boolean exception, long latencyNanos,
+                             int firestoreReads, int firestoreWrites, int firestoreQueries) {
+        RouteStats stats = routes.computeIfAbsent(route, r -> new RouteStats());
+        stats.add(latencyNanos);
+        if (exception || statusCode >= 500) {
+            stats.errors++;
+        } else if (statusCode >= 400) {
+            stats.clientErrors++;
+        }
+        stats.firestoreReads += firestoreReads;
+        stats.firestoreWrites += firestoreWrites;
+        stats.firestoreQueries += firestoreQueries;
+    }
+
+    synchronized int count(String route) {
+        RouteStats stats = routes.get(route);
+        return stats != null ? stats.count : 0;
+    }
+
+    /**
+     * Nearest-rank percentile of a route's latencies in milliseconds.
+     */
+    synchronized double percentileMs(String route, double percentile) {
+        RouteStats stats = routes.get(route);
+        return stats != null ? percentile(stats.sortedLatencies(), percentile) / 1e6 : Double.NaN;
+    }
+
+    static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.min(sorted.length, Math.max(1, rank)) - 1];
+    }
+
+    /**
+     * Plain-text table, one row per route plus a total, for a run of the given wall-clock length.
+     */
+    synchronized String format(double elapsedSeconds) {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%-40s %7s %7s %5s %5s %9s %9s %9s %9s %8s %8s %8s%n",
+                "Route", "Count", "Req/s", "4xx", "Err", "p50 ms", "p90 ms", "p99 ms", "Max ms",
+                "Reads", "Writes", "Queries"));
+        RouteStats total = new RouteStats();
+        for (Map.Entry<String, RouteStats> entry : routes.entrySet()) {
+            appendRow(out, entry.getKey(), entry.getValue(), elapsedSeconds);
+            total.merge(entry.getValue());
+        }
+        appendRow(out, "TOTAL", total, elapsedSeconds);
+        out.append("Reads / Writes / Queries are Firestore operations per request.").append(System.lineSeparator());
+        return out.toString();
+    }
+
+    private static void appendRow(StringBuilder out, String route, RouteStats stats, double elapsedSeconds) {
+        long[] sorted = stats.sortedLatencies();
+        out.append(String.format("%-40s %7d %7.1f %5d %5d %9.1f %9.1f %9.1f %9.1f %8.1f %8.1f %8.1f%n",
+                route, stats.count, elapsedSeconds > 0 ? stats.count / elapsedSeconds : 0.0,
+                stats.clientErrors, stats.errors,
+                percentile(sorted, 50) / 1e6, percentile(sorted, 90) / 1e6, percentile(sorted, 99) / 1e6,
+                (sorted.length > 0 ? sorted[sorted.length - 1] : 0) / 1e6,
+                perRequest(stats.firestoreReads, stats.count), perRequest(stats.firestoreWrites, stats.count),
+                perRequest(stats.firestoreQueries, stats.count)));
+    }
+
+    private static double perRequest(long value, int count) {
+        return count > 0 ? (double) value / count : 0.0;
+    }
+
+    private static final class RouteStats {
+        private long[] latencies = new long[64];
+        private int count;
+        private int clientErrors;
+        private int errors;
+        private long firestoreReads;
+        private long firestoreWrites;
+        private long firestoreQueries;
+
+        void add(long latencyNanos) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyNanos;
+        }
+
+        void merge(RouteStats other) {
+            for (int i = 0; i < other.count; i++) {
+                add(other.latencies[i]);
+            }
+            clientErrors += other.clientErrors;
+            errors += other.errors;
+            firestoreReads += other.firestoreReads;
+            firestoreWrites += other.firestoreWrites;
+            firestoreQueries += other.firestoreQueries;
+        }
+
+        long[] sortedLatencies() {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
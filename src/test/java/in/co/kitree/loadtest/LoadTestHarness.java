@@ -0,0 +1,240 @@
+package in.co.kitree.loadtest;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.auth.oauth2.GoogleCredentials;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.FirestoreOptions;
+import com.google.cloud.firestore.WriteBatch;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.FirebaseOptions;
+import com.google.firebase.cloud.FirestoreClient;
+import in.co.kitree.Handler;
+import in.co.kitree.pojos.RequestEvent;
+import in.co.kitree.services.AstrologyService;
+import in.co.kitree.services.FirestoreProfiler;
+import in.co.kitree.services.InstrumentedFirestoreRpc;
+import in.co.kitree.services.RashifalService;
+import in.co.kitree.services.RequestMetrics;
+import in.co.kitree.services.StreamService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Replays a JSONL request trace (see TraceEntry) through Handler.handleRequest against the Firestore
+ * emulator, with Firebase token verification and external services replaced by LocalFakes.
+ *
+ *   ./gradlew loadTest -Pargs="--rps 100 --threads 64 --duration 60"
+ *
+ * Options (defaults in brackets):
+ *   --trace FILE        request trace [classpath loadtest/sample-trace.jsonl]
+ *   --seed FILE         documents written before the run, {"users/u1": {...}} [classpath loadtest/seed.json]
+ *   --rps N             requests started per second [50]
+ *   --threads N         concurrent handler invocations [32]
+ *   --duration SECONDS  run length; the trace is replayed in a loop [30]
+ *   --warmup SECONDS    initial load excluded from the report [5]
+ *   --fake-latency MS   response time of every fake external service [50]
+ *
+ * Load is open-loop: requests are started on a fixed schedule whether or not earlier ones finished,
+ * and latency is measured from the scheduled start. Requires ENVIRONMENT=test and
+ * FIRESTORE_EMULATOR_HOST; the report is printed to stdout, followed by the Firestore profile.
+ */
+public final class LoadTestHarness {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        String emulatorHost = System.getenv("FIRESTORE_EMULATOR_HOST");
+        if (!"test".equals(System.getenv("ENVIRONMENT")) || emulatorHost == null) {
+            System.err.println("The load test runs against the emulator only: set ENVIRONMENT=test and FIRESTORE_EMULATOR_HOST");
+            System.exit(2);
+        }
+        List<TraceEntry> trace;
+        try (Reader reader = open(options.get("trace"), "loadtest/sample-trace.jsonl")) {
+            trace = TraceEntry.read(reader);
+        }
+        if (trace.isEmpty()) {
+            System.err.println("Trace is empty");
+            System.exit(2);
+        }
+        int rps = Integer.parseInt(options.getOrDefault("rps", "50"));
+        int threads = Integer.parseInt(options.getOrDefault("threads", "32"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration", "30"));
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        long fakeLatencyMs = Long.parseLong(options.getOrDefault("fake-latency", "50"));
+
+        try (LocalFakes fakes = new LocalFakes(fakeLatencyMs)) {
+            // Read once by StreamService / GeminiService / SecretsProvider, so set before first use
+            System.setProperty("STREAM_API_BASE_URL", fakes.streamBaseUrl());
+            System.setProperty("GEMINI_API_BASE_URL", fakes.geminiBaseUrl());
+            System.setProperty("STREAM_API_KEY_TEST", "loadtest-key");
+            System.setProperty("STREAM_API_SECRET_TEST", "loadtest-secret-loadtest-secret-loadtest");
+            System.setProperty("GEMINI_API_KEY_TEST", "loadtest-key");
+            // One EMF line per request would drown the report
+            RequestMetrics.setEmitter(line -> { });
+
+            Firestore db = initFirestore(emulatorHost);
+            try (Reader reader = open(options.get("seed"), "loadtest/seed.json")) {
+                seed(db, reader);
+            }
+            AstrologyService astrologyService = new AstrologyService(fakes.astrologyLambda(), true, db);
+            Handler handler = new Handler(db, fakes.razorpay(), fakes.stripe(), fakes.pythonLambda(), astrologyService,
+                    new RashifalService(db, astrologyService, true), StreamService.shared(true), fakes.cloudinary()) {
+                @Override
+                protected String extractUserIdFromToken(RequestEvent event) {
+                    return event.getHeaders() != null ? event.getHeaders().get(TraceEntry.USER_HEADER) : null;
+                }
+            };
+
+            System.out.printf("Replaying %d trace entries at %d req/s on %d threads for %ds (+%ds warmup)%n",
+                    trace.size(), rps, threads, durationSeconds, warmupSeconds);
+            LoadReport report = run(handler, trace, rps, threads, warmupSeconds, durationSeconds);
+            System.out.println();
+            System.out.print(report.format(durationSeconds));
+            if (!FirestoreProfiler.shared().isEmpty()) {
+                System.out.println();
+                System.out.print(FirestoreProfiler.shared().report(FirestoreProfiler.topN()));
+                FirestoreProfiler.shared().reset();
+            }
+        }
+        System.exit(0);
+    }
+
+    static LoadReport run(Handler handler, List<TraceEntry> trace, int rps, int threads, int warmupSeconds,
+                          int durationSeconds) throws InterruptedException {
+        Context context = mock(Context.class);
+        when(context.getAwsRequestId()).thenReturn("loadtest");
+        when(context.getFunctionName()).thenReturn("kitree-loadtest");
+        when(context.getRemainingTimeInMillis()).thenReturn(900_000);
+
+        LoadReport report = new LoadReport();
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        long periodNanos = 1_000_000_000L / rps;
+        long warmupRequests = (long) warmupSeconds * rps;
+        long totalRequests = warmupRequests + (long) durationSeconds * rps;
+        long start = System.nanoTime();
+        for (long i = 0; i < totalRequests; i++) {
+            long scheduled = start + i * periodNanos;
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            TraceEntry entry = trace.get((int) (i % trace.size()));
+            boolean measured = i >= warmupRequests;
+            workers.execute(() -> invoke(handler, context, entry, scheduled, measured ? report : null));
+        }
+        workers.shutdown();
+        if (!workers.awaitTermination(5, TimeUnit.MINUTES)) {
+            System.err.println("Requests still running after 5 minutes; report is partial");
+            workers.shutdownNow();
+        }
+        return report;
+    }
+
+    private static void invoke(Handler handler, Context context, TraceEntry entry, long scheduledNanos, LoadReport report) {
+        int statusCode = 0;
+        boolean exception = false;
+        try {
+            Object response = handler.handleRequest(entry.toEvent(), context);
+            if (response instanceof Map<?, ?> lambdaResponse && lambdaResponse.get("statusCode") instanceof Integer status) {
+                statusCode = status;
+            } else {
+                statusCode = 200;
+            }
+        } catch (RuntimeException e) {
+            exception = true;
+        }
+        long latency = System.nanoTime() - scheduledNanos;
+        if (report != null) {
+            // handleRequest began this thread's metrics and named the route
+            RequestMetrics metrics = RequestMetrics.current();
+            report.record(metrics.getRoute(), statusCode, exception, latency,
+                    metrics.getFirestoreReads(), metrics.getFirestoreWrites(), metrics.getFirestoreQueries());
+        }
+    }
+
+    private static Firestore initFirestore(String emulatorHost) throws IOException {
+        GoogleCredentials credentials;
+        try (InputStream serviceAccount = LoadTestHarness.class.getClassLoader().getResourceAsStream("serviceAccountKeyTest.json")) {
+            if (serviceAccount == null) {
+                throw new IOException("serviceAccountKeyTest.json not found on the test classpath");
+            }
+            credentials = GoogleCredentials.fromStream(serviceAccount);
+        }
+        FirestoreOptions firestoreOptions = FirestoreOptions.newBuilder()
+                .setCredentials(credentials)
+                .setProjectId("kitree-emulator")
+                .setEmulatorHost(emulatorHost)
+                .setServiceRpcFactory(InstrumentedFirestoreRpc.factory(
+                        RequestMetrics.firestoreListener().andThen(FirestoreProfiler.shared())))
+                .build();
+        FirebaseApp.initializeApp(FirebaseOptions.builder()
+                .setCredentials(credentials)
+                .setProjectId("kitree-emulator")
+                .setFirestoreOptions(firestoreOptions)
+                .build());
+        return FirestoreClient.getFirestore();
+    }
+
+    /**
+     * Write the seed documents ({"collection/doc": {fields}}), overwriting what is there.
+     */
+    private static void seed(Firestore db, Reader reader) throws Exception {
+        Map<String, Map<String, Object>> documents = objectMapper.readValue(reader, new TypeReference<>() { });
+        WriteBatch batch = db.batch();
+        int pending = 0;
+        for (Map.Entry<String, Map<String, Object>> document : documents.entrySet()) {
+            batch.set(db.document(document.getKey()), document.getValue());
+            if (++pending == 500) {
+                batch.commit().get();
+                batch = db.batch();
+                pending = 0;
+            }
+        }
+        if (pending > 0) {
+            batch.commit().get();
+        }
+        FirestoreProfiler.shared().reset();
+        System.out.printf("Seeded %d documents%n", documents.size());
+    }
+
+    private static Reader open(String file, String defaultResource) throws IOException {
+        if (file != null) {
+            return Files.newBufferedReader(Path.of(file), StandardCharsets.UTF_8);
+        }
+        InputStream resource = LoadTestHarness.class.getClassLoader().getResourceAsStream(defaultResource);
+        if (resource == null) {
+            throw new IOException(defaultResource + " not found on the test classpath");
+        }
+        return new InputStreamReader(resource, StandardCharsets.UTF_8);
+    }
+
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --option value, got: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+}
@@ -0,0 +1,89 @@
+package in.co.kitree.loadtest;
+
+import in.co.kitree.pojos.RequestEvent;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Trace parsing and report arithmetic of the load-test harness (the replay itself needs the emulator).
+ */
+class LoadTestHarnessUnitTest {
+
+    @Test
+    void parsesTraceIntoFunctionUrlEvents() throws IOException {
+        String trace = """
+                # comment
+
+                {"method": "post", "path": "/api/v1/consultations/initiate", "user": "u1", "body": {"expertId": "e1"}}
+                {"path": "/api/v1/wallet/balance", "query": "currency=INR", "user": "u2", "body": "{\\"expertId\\":\\"e2\\"}"}
+                {"method": "POST", "path": "/webhooks/stream", "headers": {"X-Signature": "abc"}, "body": "{}"}
+                """;
+
+        List<TraceEntry> entries = TraceEntry.read(new StringReader(trace));
+
+        assertEquals(3, entries.size());
+        RequestEvent initiate = entries.get(0).toEvent();
+        assertEquals("POST", initiate.getRequestContext().getHttp().getMethod());
+        assertEquals("/api/v1/consultations/initiate", initiate.getRawPath());
+        assertEquals("{\"expertId\":\"e1\"}", initiate.getBody());
+        assertEquals("u1", initiate.getHeaders().get(TraceEntry.USER_HEADER));
+
+        RequestEvent balance = entries.get(1).toEvent();
+        assertEquals("GET", balance.getRequestContext().getHttp().getMethod());
+        assertEquals("currency=INR", balance.getRawQueryString());
+        assertEquals("{\"expertId\":\"e2\"}", balance.getBody());
+
+        RequestEvent webhook = entries.get(2).toEvent();
+        assertEquals("abc", webhook.getHeaders().get("x-signature"));
+        assertFalse(webhook.getHeaders().containsKey(TraceEntry.USER_HEADER));
+    }
+
+    @Test
+    void rejectsEntryWithoutPath() {
+        IOException e = assertThrows(IOException.class,
+                () -> TraceEntry.read(new StringReader("{\"method\": \"GET\"}\n{\"method\": \"GET\", \"user\": \"u1\"}")));
+        assertTrue(e.getMessage().contains("line 1"));
+    }
+
+    @Test
+    void sampleTraceParses() throws IOException {
+        try (InputStreamReader reader = new InputStreamReader(
+                getClass().getClassLoader().getResourceAsStream("loadtest/sample-trace.jsonl"), StandardCharsets.UTF_8)) {
+            assertFalse(TraceEntry.read(reader).isEmpty());
+        }
+    }
+
+    @Test
+    void reportsNearestRankPercentilesAndErrors() {
+        LoadReport report = new LoadReport();
+        for (int i = 1; i <= 100; i++) {
+            report.record("wallet_balance", i == 100 ? 500 : (i == 99 ? 404 : 200), false, i * 1_000_000L, 2, 0, 1);
+        }
+        report.record("on_demand_consultation_initiate", 0, true, 5_000_000L, 3, 2, 0);
+
+        assertEquals(100, report.count("wallet_balance"));
+        assertEquals(50.0, report.percentileMs("wallet_balance", 50), 1e-9);
+        assertEquals(90.0, report.percentileMs("wallet_balance", 90), 1e-9);
+        assertEquals(99.0, report.percentileMs("wallet_balance", 99), 1e-9);
+        assertEquals(5.0, report.percentileMs("on_demand_consultation_initiate", 99), 1e-9);
+        assertEquals(0, LoadReport.percentile(new long[0], 50));
+
+        String table = report.format(10.0);
+        assertTrue(table.matches("(?s).*wallet_balance\\s+100\\s+10\\.0\\s+1\\s+1\\s+50\\.0\\s+90\\.0\\s+99\\.0\\s+100\\.0\\s+2\\.0\\s+0\\.0\\s+1\\.0.*"), table);
+        assertTrue(table.matches("(?s).*TOTAL\\s+101\\s+10\\.1\\s+1\\s+2\\s.*"), table);
+    }
+
+    @Test
+    void parsesOptions() {
+        assertEquals(Map.of("rps", "100", "threads", "8"), LoadTestHarness.parseOptions(new String[]{"--rps", "100", "--threads", "8"}));
+        assertThrows(IllegalArgumentException.class, () -> LoadTestHarness.parseOptions(new String[]{"--rps"}));
+    }
+}
@@ -0,0 +1,141 @@
+package in.co.kitree.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import in.co.kitree.pojos.PythonLambdaResponseBody;
+import in.co.kitree.services.CloudinaryService;
+import in.co.kitree.services.LambdaInvoker;
+import in.co.kitree.services.PaymentOrderResult;
+import in.co.kitree.services.PythonLambdaService;
+import in.co.kitree.services.Razorpay;
+import in.co.kitree.services.StripeService;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.lambda.LambdaAsyncClient;
+import software.amazon.awssdk.services.lambda.model.InvokeRequest;
+import software.amazon.awssdk.services.lambda.model.InvokeResponse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Local stand-ins for the external services the handlers call, each answering after a fixed latency:
+ * - an HTTP server for the Stream REST API and Gemini generateContent (the real clients are pointed
+ *   at it with STREAM_API_BASE_URL / GEMINI_API_BASE_URL),
+ * - the astrology Lambda behind a LambdaInvoker, returning an empty chart,
+ * - the Python Lambda (Stream user tokens, call creation, certificates),
+ * - Razorpay, Stripe and Cloudinary.
+ */
+final class LocalFakes implements AutoCloseable {
+
+    private static final String STREAM_RESPONSE = "{\"call\":{\"id\":\"loadtest\",\"type\":\"default\","
+            + "\"created_at\":\"2026-01-01T00:00:00Z\"},\"members\":[],\"recordings\":[],\"duration\":\"1ms\"}";
+    private static final String GEMINI_RESPONSE = "{\"candidates\":[{\"content\":{\"role\":\"model\",\"parts\":"
+            + "[{\"text\":\"{\\\"summary\\\":\\\"Load test summary\\\",\\\"sentiment\\\":\\\"neutral\\\","
+            + "\\\"content_blocks\\\":[]}\"}]},\"finishReason\":\"STOP\"}]}";
+
+    private final long latencyMs;
+    private final HttpServer server;
+
+    LocalFakes(long latencyMs) throws IOException {
+        this.latencyMs = latencyMs;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/stream", exchange -> respond(exchange, STREAM_RESPONSE));
+        server.createContext("/gemini", exchange -> respond(exchange, GEMINI_RESPONSE));
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    String streamBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/stream";
+    }
+
+    String geminiBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/gemini/";
+    }
+
+    LambdaInvoker astrologyLambda() {
+        LambdaAsyncClient client = mock(LambdaAsyncClient.class);
+        when(client.invoke(any(InvokeRequest.class))).thenAnswer(invocation -> CompletableFuture.supplyAsync(
+                () -> InvokeResponse.builder().statusCode(200).payload(SdkBytes.fromUtf8String("{}")).build(),
+                CompletableFuture.delayedExecutor(latencyMs, TimeUnit.MILLISECONDS)));
+        return new LambdaInvoker(client);
+    }
+
+    PythonLambdaService pythonLambda() {
+        return request -> {
+            pause();
+            PythonLambdaResponseBody response = new PythonLambdaResponseBody();
+            response.setStreamUserToken("loadtest-token-" + request.getUserId());
+            response.setCertificate("https://example.invalid/certificate.pdf");
+            return response;
+        };
+    }
+
+    Razorpay razorpay() throws Exception {
+        Razorpay razorpay = mock(Razorpay.class);
+        when(razorpay.createOrder(anyDouble(), anyString(), any())).thenAnswer(invocation -> {
+            pause();
+            return new PaymentOrderResult("order_" + UUID.randomUUID(), null);
+        });
+        when(razorpay.verifyPayment(any(), any(), any())).thenReturn(true);
+        when(razorpay.getGatewayType()).thenReturn("RAZORPAY");
+        when(razorpay.getPublishableKey()).thenReturn("rzp_test_loadtest");
+        return razorpay;
+    }
+
+    StripeService stripe() throws Exception {
+        StripeService stripe = mock(StripeService.class);
+        when(stripe.createOrder(anyDouble(), anyString(), any())).thenAnswer(invocation -> {
+            pause();
+            return new PaymentOrderResult("pi_" + UUID.randomUUID(), "pi_secret_loadtest");
+        });
+        when(stripe.verifyPayment(any(), any(), any())).thenReturn(true);
+        when(stripe.getGatewayType()).thenReturn("STRIPE");
+        when(stripe.getPublishableKey()).thenReturn("pk_test_loadtest");
+        return stripe;
+    }
+
+    CloudinaryService cloudinary() throws Exception {
+        CloudinaryService cloudinary = mock(CloudinaryService.class);
+        when(cloudinary.uploadImage(any(), anyString(), anyString())).thenAnswer(invocation -> {
+            pause();
+            return "https://example.invalid/image.jpg";
+        });
+        return cloudinary;
+    }
+
+    private void respond(HttpExchange exchange, String body) throws IOException {
+        pause();
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(latencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,115 @@
+package in.co.kitree.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import in.co.kitree.pojos.RequestContext;
+import in.co.kitree.pojos.RequestContextHttp;
+import in.co.kitree.pojos.RequestEvent;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One request of a load-test trace. A trace is JSONL, one request per line:
+ *
+ *   {"method": "GET", "path": "/api/v1/wallet/balance", "query": "currency=INR", "user": "lt-user-1"}
+ *   {"method": "POST", "path": "/api/v1/consultations/initiate", "user": "lt-user-2", "body": {"expertId": "lt-expert-1"}}
+ *
+ * body may be a JSON object or an already-encoded string; headers is an optional object. Blank lines
+ * and lines starting with # are skipped.
+ */
+final class TraceEntry {
+
+    // Header the load-test Handler reads the caller from instead of verifying a Firebase ID token
+    static final String USER_HEADER = "x-loadtest-user";
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    final String method;
+    final String path;
+    final String query;
+    final String body;
+    final String user;
+    final Map<String, String> headers;
+
+    TraceEntry(String method, String path, String query, String body, String user, Map<String, String> headers) {
+        this.method = method;
+        this.path = path;
+        this.query = query;
+        this.body = body;
+        this.user = user;
+        this.headers = headers;
+    }
+
+    static List<TraceEntry> read(Reader reader) throws IOException {
+        List<TraceEntry> entries = new ArrayList<>();
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        int lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                entries.add(parse(objectMapper.readTree(line)));
+            } catch (IOException | IllegalArgumentException e) {
+                throw new IOException("Invalid trace entry on line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        return entries;
+    }
+
+    private static TraceEntry parse(JsonNode node) throws IOException {
+        String path = node.path("path").asText(null);
+        if (path == null || !path.startsWith("/")) {
+            throw new IllegalArgumentException("path is required and must start with /");
+        }
+        JsonNode bodyNode = node.path("body");
+        String body = null;
+        if (bodyNode.isTextual()) {
+            body = bodyNode.asText();
+        } else if (!bodyNode.isMissingNode() && !bodyNode.isNull()) {
+            body = objectMapper.writeValueAsString(bodyNode);
+        }
+        Map<String, String> headers = new HashMap<>();
+        for (Iterator<Map.Entry<String, JsonNode>> it = node.path("headers").fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> header = it.next();
+            headers.put(header.getKey().toLowerCase(), header.getValue().asText());
+        }
+        return new TraceEntry(node.path("method").asText("GET").toUpperCase(), path,
+                node.path("query").asText(null), body, node.path("user").asText(null), headers);
+    }
+
+    /**
+     * The Lambda Function URL event for this request.
+     */
+    RequestEvent toEvent() {
+        RequestContextHttp http = new RequestContextHttp();
+        http.setMethod(method);
+        http.setPath(path);
+        RequestContext context = new RequestContext();
+        context.setHttp(http);
+
+        Map<String, String> eventHeaders = new HashMap<>(headers);
+        if (user != null) {
+            eventHeaders.put(USER_HEADER, user);
+            eventHeaders.putIfAbsent("authorization", "Bearer loadtest");
+        }
+
+        RequestEvent event = new RequestEvent();
+        event.setRequestContext(context);
+        event.setRawPath(path);
+        event.setRawQueryString(query);
+        event.setBody(body);
+        event.setHeaders(eventHeaders);
+        return event;
+    }
+}
@@ -1,5 +1,10 @@
 package in.co.kitree.services;
 
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
@@ -11,15 +16,18 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import software.amazon.awssdk.core.SdkBytes;
-import software.amazon.awssdk.services.lambda.LambdaClient;
+import software.amazon.awssdk.services.lambda.LambdaAsyncClient;
 import software.amazon.awssdk.services.lambda.model.InvokeRequest;
 import software.amazon.awssdk.services.lambda.model.InvokeResponse;
 
 import java.util.Arrays;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -28,7 +36,7 @@ public class AstrologyServiceTest {
     private static final String FUNCTION_NAME = "kitree-astrology-api-test";
 
     @Mock
-    private LambdaClient mockLambdaClient;
+    private LambdaAsyncClient mockLambdaClient;
 
     private AstrologyService astrologyService;
     private Gson gson;
@@ -155,7 +163,7 @@ public class AstrologyServiceTest {
                 .functionError("Unhandled")
                 .payload(SdkBytes.fromUtf8String("{\"errorMessage\":\"Something went wrong\"}"))
                 .build();
-        when(mockLambdaClient.invoke(any(InvokeRequest.class))).thenReturn(errorResponse);
+        when(mockLambdaClient.invoke(any(InvokeRequest.class))).thenReturn(CompletableFuture.completedFuture(errorResponse));
 
         RuntimeException ex = assertThrows(RuntimeException.class, () ->
                 astrologyService.getAstrologicalDetails(createValidHoroscopeRequestBody()));
@@ -170,7 +178,7 @@ public class AstrologyServiceTest {
                 .functionError("Unhandled")
                 .payload(SdkBytes.fromUtf8String("{\"errorMessage\":\"Timeout\"}"))
                 .build();
-        when(mockLambdaClient.invoke(any(InvokeRequest.class))).thenReturn(errorResponse);
+        when(mockLambdaClient.invoke(any(InvokeRequest.class))).thenReturn(CompletableFuture.completedFuture(errorResponse));
 
         RuntimeException ex = assertThrows(RuntimeException.class, () ->
                 astrologyService.getDashaDetails(createValidDashaRequestBody()));
@@ -221,13 +229,120 @@ public class AstrologyServiceTest {
         assertFalse(payloadJson.has("api_token"));
     }
 
+    // ---- Memoization ----
+
+    @Test
+    void testRepeatedRequestServedFromCache() throws Exception {
+        stubLambdaResponse(lambdaEnvelope(Map.of("ascendant", "Aries")));
+
+        String first = astrologyService.getAstrologicalDetails(createValidHoroscopeRequestBody());
+        String second = astrologyService.getAstrologicalDetails(createValidHoroscopeRequestBody());
+
+        assertEquals(first, second);
+        verify(mockLambdaClient, times(1)).invoke(any(InvokeRequest.class));
+    }
+
+    @Test
+    void testDifferentBirthDataNotShared() throws Exception {
+        stubLambdaResponse(lambdaEnvelope(Map.of("ascendant", "Aries")));
+
+        astrologyService.getAstrologicalDetails(createValidHoroscopeRequestBody());
+        RequestBody other = createValidHoroscopeRequestBody();
+        other.setHoroscopeMinute(31);
+        astrologyService.getAstrologicalDetails(other);
+
+        verify(mockLambdaClient, times(2)).invoke(any(InvokeRequest.class));
+    }
+
+    @Test
+    void testErrorResultsNotCached() throws Exception {
+        stubLambdaResponse(lambdaEnvelope(Map.of("error", "ephemeris unavailable")));
+
+        astrologyService.getAstrologicalDetails(createValidHoroscopeRequestBody());
+        astrologyService.getAstrologicalDetails(createValidHoroscopeRequestBody());
+
+        verify(mockLambdaClient, times(2)).invoke(any(InvokeRequest.class));
+    }
+
+    @Test
+    void testPersistedCacheMissInvokesOffTheFirestoreCallbackThread() throws Exception {
+        Firestore db = mock(Firestore.class, RETURNS_DEEP_STUBS);
+        DocumentReference computedRef = db.collection("users").document("user-1")
+                .collection("profiles").document("profile-1")
+                .collection("computed").document(anyString());
+        SettableApiFuture<DocumentSnapshot> read = SettableApiFuture.create();
+        when(computedRef.get()).thenReturn(read);
+        DocumentSnapshot missing = mock(DocumentSnapshot.class);
+        when(missing.exists()).thenReturn(false);
+
+        AtomicReference<String> invokingThread = new AtomicReference<>();
+        InvokeResponse response = InvokeResponse.builder()
+                .payload(SdkBytes.fromUtf8String(lambdaEnvelope(Map.of("ascendant", "Aries"))))
+                .build();
+        when(mockLambdaClient.invoke(any(InvokeRequest.class))).thenAnswer(invocation -> {
+            invokingThread.set(Thread.currentThread().getName());
+            return CompletableFuture.completedFuture(response);
+        });
+
+        AstrologyService service = new AstrologyService(mockLambdaClient, FUNCTION_NAME, db);
+        RequestBody requestBody = createValidHoroscopeRequestBody();
+        requestBody.setProfileId("profile-1");
+        CompletableFuture<String> result = service.getAstrologicalDetailsAsync("user-1", requestBody);
+
+        // The read completes on a thread standing in for the gRPC callback thread
+        Thread callback = new Thread(() -> read.set(missing), "grpc-callback");
+        callback.start();
+        callback.join();
+
+        assertTrue(result.get().contains("Aries"));
+        assertEquals("astrology-miss-dispatch", invokingThread.get());
+    }
+
+    @Test
+    void testFailedPersistedCacheWriteDoesNotFailTheResponse() throws Exception {
+        Firestore db = mock(Firestore.class, RETURNS_DEEP_STUBS);
+        DocumentReference computedRef = db.collection("users").document("user-1")
+                .collection("profiles").document("profile-1")
+                .collection("computed").document(anyString());
+        DocumentSnapshot missing = mock(DocumentSnapshot.class);
+        when(missing.exists()).thenReturn(false);
+        when(computedRef.get()).thenReturn(ApiFutures.immediateFuture(missing));
+        when(computedRef.set(any())).thenReturn(ApiFutures.immediateFailedFuture(new RuntimeException("unavailable")));
+        stubLambdaResponse(lambdaEnvelope(Map.of("ascendant", "Aries")));
+
+        AstrologyService service = new AstrologyService(mockLambdaClient, FUNCTION_NAME, db);
+        RequestBody requestBody = createValidHoroscopeRequestBody();
+        requestBody.setProfileId("profile-1");
+
+        assertTrue(service.getAstrologicalDetailsAsync("user-1", requestBody).get().contains("Aries"));
+        verify(computedRef).set(any());
+    }
+
+    @Test
+    void testRequestHashIsCanonical() {
+        Map<String, Object> a = new java.util.LinkedHashMap<>();
+        a.put("date", 15);
+        a.put("latitude", 28.6139);
+        Map<String, Object> b = new java.util.LinkedHashMap<>();
+        b.put("latitude", 28.6139);
+        b.put("date", 15);
+        b.put("action", "get_horoscope");
+
+        assertEquals(AstrologyService.requestHash("get_horoscope", a, null),
+                AstrologyService.requestHash("get_horoscope", b, null));
+        assertNotEquals(AstrologyService.requestHash("gochar", a, "2025-01-01"),
+                AstrologyService.requestHash("gochar", a, "2025-01-02"));
+        assertNotEquals(AstrologyService.requestHash("get_horoscope", a, null),
+                AstrologyService.requestHash("gochar", a, null));
+    }
+
     // ---- Helpers ----
 
     private void stubLambdaResponse(String responsePayload) {
         InvokeResponse response = InvokeResponse.builder()
                 .payload(SdkBytes.fromUtf8String(responsePayload))
                 .build();
-        when(mockLambdaClient.invoke(any(InvokeRequest.class))).thenReturn(response);
+        when(mockLambdaClient.invoke(any(InvokeRequest.class))).thenReturn(CompletableFuture.completedFuture(response));
     }
 
     /** Wraps payload in a Lambda-style {"statusCode":200,"body":"..."} envelope. */
@@ -0,0 +1,96 @@
+package in.co.kitree.services;
+
+import com.google.cloud.Timestamp;
+import in.co.kitree.pojos.MatchedProduct;
+import in.co.kitree.pojos.PlatformProduct;
+import in.co.kitree.pojos.RemedyAttributes;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for CatalogIndexProductMatchingService with a mocked catalog.
+ */
+public class CatalogIndexProductMatchingServiceUnitTest {
+
+    @Test
+    public void testMaterialOutranksPlanetAndTypeBreaksTies() throws Exception {
+        ProductCatalogService catalog = mock(ProductCatalogService.class);
+        when(catalog.snapshot()).thenReturn(snapshot(1,
+                product("p1", "Amethyst Bracelet", "bracelet", List.of("amethyst"), List.of("saturn"), 1),
+                product("p2", "Blue Sapphire Ring", "ring", List.of("blue_sapphire"), List.of("saturn"), 2),
+                product("p3", "Blue Sapphire Pendant", "pendant", List.of("blue_sapphire"), List.of("saturn"), 3),
+                product("p4", "Citrine Tree", "decor", List.of("citrine"), List.of("jupiter"), 4)));
+
+        CatalogIndexProductMatchingService service = newService(catalog);
+        List<MatchedProduct> matches = service.findMatchingProducts(RemedyAttributes.builder()
+                .remedyType("product").material("Blue Sapphire").planets("saturn").productType("pendant").build());
+
+        assertEquals(List.of("SKU-p3", "SKU-p2", "SKU-p1"), matches.stream().map(MatchedProduct::getSku).toList());
+        assertEquals("material: blue_sapphire", matches.get(0).getMatchReason());
+    }
+
+    @Test
+    public void testIndexRebuildsWhenSnapshotChanges() throws Exception {
+        ProductCatalogService catalog = mock(ProductCatalogService.class);
+        PlatformProduct deactivated = product("p1", "Rose Quartz Bracelet", "bracelet", List.of("rose_quartz"), List.of("venus"), 20);
+        deactivated.setActive(false);
+        when(catalog.snapshot())
+                .thenReturn(snapshot(1, product("p1", "Rose Quartz Bracelet", "bracelet", List.of("rose_quartz"), List.of("venus"), 10)))
+                .thenReturn(snapshot(2, deactivated,
+                        product("p2", "Rose Quartz Pendant", "pendant", List.of("rose_quartz"), List.of("venus"), 21)));
+
+        CatalogIndexProductMatchingService service = newService(catalog);
+        assertEquals(1, service.currentIndex().size());
+
+        List<MatchedProduct> matches = service.findByTag("rose_quartz");
+
+        assertEquals(List.of("SKU-p2"), matches.stream().map(MatchedProduct::getSku).toList());
+    }
+
+    @Test
+    public void testEmptyCatalogFallsBack() throws Exception {
+        ProductCatalogService catalog = mock(ProductCatalogService.class);
+        when(catalog.snapshot()).thenReturn(snapshot(1));
+        CatalogIndexProductMatchingService service = new CatalogIndexProductMatchingService(
+                catalog, new MockProductMatchingService(), new CatalogIndexProductMatchingService.IndexState());
+
+        assertFalse(service.findMatchingProducts(RemedyAttributes.builder()
+                .remedyType("product").material("rose_quartz").build()).isEmpty());
+    }
+
+    private static CatalogIndexProductMatchingService newService(ProductCatalogService catalog) {
+        return new CatalogIndexProductMatchingService(catalog, null, new CatalogIndexProductMatchingService.IndexState());
+    }
+
+    private static ProductCatalogService.CatalogSnapshot snapshot(long version, PlatformProduct... products) {
+        Map<String, PlatformProduct> byId = new HashMap<>();
+        for (PlatformProduct product : products) {
+            byId.put(product.getProductId(), product);
+        }
+        return ProductCatalogService.CatalogSnapshot.build(version, byId);
+    }
+
+    static PlatformProduct product(String id, String name, String type, List<String> materials,
+                                   List<String> planets, long updatedAtSeconds) {
+        PlatformProduct product = new PlatformProduct();
+        product.setProductId(id);
+        product.setSku("SKU-" + id);
+        product.setName(name);
+        product.setProductType(type);
+        product.setSuggestedPriceInr(999.0);
+        product.setActive(true);
+        product.setPlatformStockAvailable(true);
+        product.setUpdatedAt(Timestamp.ofTimeSecondsAndNanos(updatedAtSeconds, 0));
+        PlatformProduct.ProductMatchingAttributes attrs = new PlatformProduct.ProductMatchingAttributes();
+        attrs.setMaterial(materials);
+        attrs.setPlanets(planets);
+        product.setMatchingAttributes(attrs);
+        return product;
+    }
+}
@@ -0,0 +1,49 @@
+package in.co.kitree.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ExpertMetricsCache.
+ */
+public class ExpertMetricsCacheUnitTest {
+
+    @Test
+    public void testPutThenGet() {
+        String key = ExpertMetricsCache.key("booking_metrics", 1L, 2L, "all");
+        ExpertMetricsCache.put("cache-expert-1", key, "{\"success\":true}");
+
+        assertEquals("{\"success\":true}", ExpertMetricsCache.get("cache-expert-1", key));
+        assertNull(ExpertMetricsCache.get("cache-expert-1", ExpertMetricsCache.key("booking_metrics", 1L, 2L, "product")));
+        assertNull(ExpertMetricsCache.get("cache-expert-other", key));
+    }
+
+    @Test
+    public void testInvalidateDropsAllEntriesForExpert() {
+        String first = ExpertMetricsCache.key("booking_metrics", 1L, 2L, null);
+        String second = ExpertMetricsCache.key("expert_metrics", "all", "all", List.of("2025-01-01", "2025-02-01"));
+        ExpertMetricsCache.put("cache-expert-2", first, "a");
+        ExpertMetricsCache.put("cache-expert-2", second, "b");
+        ExpertMetricsCache.put("cache-expert-3", first, "c");
+
+        ExpertMetricsCache.invalidate("cache-expert-2");
+
+        assertNull(ExpertMetricsCache.get("cache-expert-2", first));
+        assertNull(ExpertMetricsCache.get("cache-expert-2", second));
+        assertEquals("c", ExpertMetricsCache.get("cache-expert-3", first));
+    }
+
+    @Test
+    public void testKeyDistinguishesNullFromEmpty() {
+        assertNotEquals(ExpertMetricsCache.key("a", null), ExpertMetricsCache.key("a", ""));
+    }
+
+    @Test
+    public void testNullExpertIsNeverCached() {
+        ExpertMetricsCache.put(null, "k", "v");
+        assertNull(ExpertMetricsCache.get(null, "k"));
+    }
+}
@@ -0,0 +1,74 @@
+package in.co.kitree.services;
+
+import in.co.kitree.pojos.ExpertProductConfig;
+import in.co.kitree.pojos.PlatformProduct;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the storefront projection format in ExpertProductService.
+ */
+public class ExpertProductServiceUnitTest {
+
+    @Test
+    public void testStorefrontRoundTripKeepsActiveProductsInIdOrder() {
+        PlatformProduct ring = CatalogIndexProductMatchingServiceUnitTest.product(
+                "p2", "Blue Sapphire Ring", "ring", List.of("blue_sapphire"), List.of("saturn"), 2);
+        ring.setCostPriceInr(400.0);
+        PlatformProduct bracelet = CatalogIndexProductMatchingServiceUnitTest.product(
+                "p1", "Amethyst Bracelet", "bracelet", List.of("amethyst"), List.of("saturn"), 1);
+        PlatformProduct retired = CatalogIndexProductMatchingServiceUnitTest.product(
+                "p3", "Citrine Tree", "decor", List.of("citrine"), List.of("jupiter"), 3);
+        retired.setActive(false);
+
+        Map<String, Object> entries = new HashMap<>();
+        entries.put("p2", ExpertProductService.storefrontEntry(config("p2", 1499.0), ring));
+        entries.put("p1", ExpertProductService.storefrontEntry(config("p1", 799.0), bracelet));
+        entries.put("p3", ExpertProductService.storefrontEntry(config("p3", 999.0), retired));
+
+        List<ExpertProductConfig> configs = ExpertProductService.storefrontToConfigs(Map.of("products", entries));
+
+        assertEquals(List.of("p1", "p2"), configs.stream().map(ExpertProductConfig::getProductId).toList());
+        ExpertProductConfig ringConfig = configs.get(1);
+        assertEquals(1499.0, ringConfig.getSellerPriceInr());
+        assertEquals("Blue Sapphire Ring", ringConfig.getProduct().getName());
+        assertEquals("saturn", ringConfig.getProduct().getMatchingAttributes().getPlanets().get(0));
+        assertNull(ringConfig.getProduct().getCostPriceInr());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testStorefrontEntryLeavesOutPlatformStock() {
+        PlatformProduct ring = CatalogIndexProductMatchingServiceUnitTest.product(
+                "p2", "Blue Sapphire Ring", "ring", List.of("blue_sapphire"), List.of("saturn"), 2);
+        ring.setPlatformStockAvailable(true);
+        ring.setPlatformStockQuantity(7);
+
+        // Platform stock changes with every sale and is read from the catalog instead
+        Map<String, Object> product = (Map<String, Object>) ExpertProductService.storefrontEntry(config("p2", 1499.0), ring).get("product");
+        assertFalse(product.containsKey("platformStockAvailable"));
+        assertFalse(product.containsKey("platformStockQuantity"));
+        assertEquals("Blue Sapphire Ring", product.get("name"));
+    }
+
+    @Test
+    public void testEmptyProjectionHasNoProducts() {
+        assertTrue(ExpertProductService.storefrontToConfigs(Map.of("products", Map.of())).isEmpty());
+        assertTrue(ExpertProductService.storefrontToConfigs(null).isEmpty());
+    }
+
+    private static ExpertProductConfig config(String productId, double price) {
+        ExpertProductConfig config = new ExpertProductConfig();
+        config.setProductId(productId);
+        config.setExpertId("expert-1");
+        config.setEnabled(true);
+        config.setSellerPriceInr(price);
+        config.setShippingMode(ExpertProductConfig.SHIPPING_PLATFORM);
+        return config;
+    }
+}
@@ -0,0 +1,91 @@
+package in.co.kitree.services;
+
+import com.google.firestore.v1.BatchGetDocumentsRequest;
+import com.google.firestore.v1.CommitRequest;
+import com.google.firestore.v1.Document;
+import com.google.firestore.v1.DocumentTransform;
+import com.google.firestore.v1.RunQueryRequest;
+import com.google.firestore.v1.StructuredQuery;
+import com.google.firestore.v1.Write;
+import com.google.protobuf.Int32Value;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for FirestoreProfiler query shapes, N+1 / unbounded scan warnings and the report.
+ */
+public class FirestoreProfilerUnitTest {
+
+    private static final String ROOT = "projects/kitree-emulator/databases/(default)/documents";
+
+    @Test
+    public void testQueryShapeDropsIdsAndValues() {
+        RunQueryRequest request = RunQueryRequest.newBuilder()
+                .setParent(ROOT + "/users/expert-1")
+                .setStructuredQuery(StructuredQuery.newBuilder()
+                        .addFrom(StructuredQuery.CollectionSelector.newBuilder().setCollectionId("orders"))
+                        .setWhere(StructuredQuery.Filter.newBuilder().setCompositeFilter(
+                                StructuredQuery.CompositeFilter.newBuilder()
+                                        .setOp(StructuredQuery.CompositeFilter.Operator.AND)
+                                        .addFilters(fieldFilter("status", StructuredQuery.FieldFilter.Operator.EQUAL))
+                                        .addFilters(fieldFilter("createdAt", StructuredQuery.FieldFilter.Operator.GREATER_THAN))))
+                        .addOrderBy(StructuredQuery.Order.newBuilder()
+                                .setField(StructuredQuery.FieldReference.newBuilder().setFieldPath("createdAt"))
+                                .setDirection(StructuredQuery.Direction.DESCENDING))
+                        .setLimit(Int32Value.of(20)))
+                .build();
+
+        assertEquals("users/{id}/orders where (status EQUAL AND createdAt GREATER_THAN) orderBy createdAt descending limit 20",
+                FirestoreProfiler.shapeOf(InstrumentedFirestoreRpc.Op.QUERY, request));
+        assertFalse(FirestoreProfiler.isUnbounded(InstrumentedFirestoreRpc.Op.QUERY, request));
+    }
+
+    @Test
+    public void testLookupAndCommitShapes() {
+        BatchGetDocumentsRequest lookup = BatchGetDocumentsRequest.newBuilder()
+                .setDatabase("projects/kitree-emulator/databases/(default)")
+                .addDocuments(ROOT + "/users/u1/public/store")
+                .addDocuments(ROOT + "/users/u2/public/store")
+                .build();
+        CommitRequest commit = CommitRequest.newBuilder()
+                .addWrites(Write.newBuilder().setUpdate(Document.newBuilder().setName(ROOT + "/users/u1/orders/o1")))
+                .addWrites(Write.newBuilder().setUpdate(Document.newBuilder().setName(ROOT + "/users/u1/orders/o2")))
+                .addWrites(Write.newBuilder().setDelete(ROOT + "/coupons/c1"))
+                .addWrites(Write.newBuilder().setTransform(DocumentTransform.newBuilder().setDocument(ROOT + "/users/u1")))
+                .build();
+
+        assertEquals("users/{id}/public/{id} (2 docs)", FirestoreProfiler.shapeOf(InstrumentedFirestoreRpc.Op.LOOKUP, lookup));
+        assertEquals("set users/{id}/orders/{id} x2, delete coupons/{id}, transform users/{id}",
+                FirestoreProfiler.shapeOf(InstrumentedFirestoreRpc.Op.COMMIT, commit));
+    }
+
+    @Test
+    public void testReportRanksActionsAndFlagsNPlusOneAndUnboundedScans() {
+        FirestoreProfiler profiler = new FirestoreProfiler();
+        Object first = new Object();
+        Object second = new Object();
+        for (int i = 0; i < 6; i++) {
+            profiler.record("getExpertMetrics", first, InstrumentedFirestoreRpc.Op.LOOKUP, "users/{id}", false, 1, 1_000_000);
+        }
+        profiler.record("getExpertMetrics", first, InstrumentedFirestoreRpc.Op.QUERY,
+                "collectionGroup(orders) where expertId EQUAL no limit", true, 40, 5_000_000);
+        profiler.record("getExpertMetrics", second, InstrumentedFirestoreRpc.Op.LOOKUP, "users/{id}", false, 1, 1_000_000);
+        profiler.record("getWalletBalance", first, InstrumentedFirestoreRpc.Op.LOOKUP, "users/{id}", false, 1, 1_000_000);
+        profiler.record("getWalletBalance", first, InstrumentedFirestoreRpc.Op.COMMIT, "set users/{id}", false, 1, 1_000_000);
+
+        String report = profiler.report(1);
+
+        assertTrue(report.startsWith("Firestore profile: top 1 of 2 actions"), report);
+        assertTrue(report.contains(" 1. getExpertMetrics  invocations=2 reads=47 writes=0"), report);
+        assertTrue(report.contains("N+1: LOOKUP users/{id} ran 6 times in one invocation"), report);
+        assertTrue(report.contains("unbounded scan: collectionGroup(orders) where expertId EQUAL no limit returned up to 40 docs"), report);
+        assertFalse(report.contains("getWalletBalance"), report);
+    }
+
+    private static StructuredQuery.Filter fieldFilter(String field, StructuredQuery.FieldFilter.Operator op) {
+        return StructuredQuery.Filter.newBuilder().setFieldFilter(StructuredQuery.FieldFilter.newBuilder()
+                .setField(StructuredQuery.FieldReference.newBuilder().setFieldPath(field))
+                .setOp(op)).build();
+    }
+}
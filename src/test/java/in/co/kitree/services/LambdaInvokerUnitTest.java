@@ -0,0 +1,73 @@
+package in.co.kitree.services;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.lambda.LambdaAsyncClient;
+import software.amazon.awssdk.services.lambda.model.InvocationType;
+import software.amazon.awssdk.services.lambda.model.InvokeRequest;
+import software.amazon.awssdk.services.lambda.model.InvokeResponse;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for LambdaInvoker with a mocked async client.
+ */
+public class LambdaInvokerUnitTest {
+
+    @Test
+    public void testPermitsReleasedAfterCompletion() throws Exception {
+        LambdaAsyncClient client = mock(LambdaAsyncClient.class);
+        when(client.invoke(any(InvokeRequest.class))).thenReturn(CompletableFuture.completedFuture(
+                InvokeResponse.builder().payload(SdkBytes.fromUtf8String("{}")).build()));
+        LambdaInvoker invoker = new LambdaInvoker(client);
+
+        // More calls than the per-function limit must all go through once earlier ones complete
+        for (int i = 0; i < LambdaInvoker.MAX_IN_FLIGHT_PER_FUNCTION + 5; i++) {
+            invoker.invoke("fn", "{}", Duration.ofSeconds(1)).get();
+        }
+        verify(client, times(LambdaInvoker.MAX_IN_FLIGHT_PER_FUNCTION + 5)).invoke(any(InvokeRequest.class));
+    }
+
+    @Test
+    public void testInvokeEventUsesEventInvocationType() throws Exception {
+        LambdaAsyncClient client = mock(LambdaAsyncClient.class);
+        when(client.invoke(any(InvokeRequest.class))).thenAnswer(invocation -> {
+            InvokeRequest request = invocation.getArgument(0);
+            assertEquals(InvocationType.EVENT, request.invocationType());
+            assertEquals(Duration.ofSeconds(3), request.overrideConfiguration().orElseThrow().apiCallTimeout().orElseThrow());
+            return CompletableFuture.completedFuture(InvokeResponse.builder().statusCode(202).build());
+        });
+
+        assertEquals(202, new LambdaInvoker(client).invokeEvent("self", "{}", Duration.ofSeconds(3)).get().statusCode());
+    }
+
+    @Test
+    public void testAllOfKeepsKeyOrder() throws Exception {
+        Map<String, CompletableFuture<String>> futures = new LinkedHashMap<>();
+        futures.put("details", CompletableFuture.completedFuture("a"));
+        futures.put("dasha", CompletableFuture.supplyAsync(() -> "b"));
+        futures.put("charts", CompletableFuture.completedFuture("c"));
+
+        Map<String, String> results = LambdaInvoker.allOf(futures).get();
+
+        assertEquals(List.of("details", "dasha", "charts"), List.copyOf(results.keySet()));
+        assertEquals("b", results.get("dasha"));
+    }
+
+    @Test
+    public void testAwaitRethrowsOriginalException() {
+        CompletableFuture<String> failed = CompletableFuture.<String>completedFuture("x")
+                .thenApply(x -> { throw new IllegalStateException("boom"); });
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class, () -> LambdaInvoker.await(failed));
+        assertEquals("boom", ex.getMessage());
+    }
+}
@@ -0,0 +1,85 @@
+package in.co.kitree.services;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.ThreadContext;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LoggingService level checks and context handling.
+ */
+public class LoggingServiceUnitTest {
+
+    @AfterEach
+    public void tearDown() {
+        LoggingService.clearContext();
+    }
+
+    @Test
+    public void testSupplierPayloadsOnlyBuiltAtActiveLevel() {
+        Level originalLevel = LogManager.getLogger(LoggingService.class).getLevel();
+        Configurator.setLevel(LoggingService.class.getName(), Level.WARN);
+        try {
+            AtomicInteger built = new AtomicInteger();
+            LoggingService.debug("disabled_debug", () -> {
+                throw new AssertionError("disabled payload must not be built");
+            });
+            LoggingService.info("disabled_info", () -> {
+                throw new AssertionError("disabled payload must not be built");
+            });
+            LoggingService.warn("enabled_warn", () -> {
+                built.incrementAndGet();
+                return Map.of("key", "value");
+            });
+
+            assertEquals(1, built.get());
+        } finally {
+            Configurator.setLevel(LoggingService.class.getName(), originalLevel);
+        }
+    }
+
+    @Test
+    public void testCapturedContextAppliedOnAnotherThread() throws Exception {
+        LoggingService.initRequest("req-1");
+        LoggingService.setContext("user-1", "order-1", null);
+        Map<String, String> captured = LoggingService.captureContext();
+
+        ExecutorService worker = Executors.newSingleThreadExecutor();
+        try {
+            Map<String, String> seen = CompletableFuture.supplyAsync(() -> {
+                ThreadContext.put(LoggingService.KEY_FUNCTION, "worker_task");
+                Map<String, String> inside = LoggingService.withContext(captured, ThreadContext::getImmutableContext);
+                assertEquals(Map.of(LoggingService.KEY_FUNCTION, "worker_task"), ThreadContext.getImmutableContext());
+                return inside;
+            }, worker).get();
+
+            assertEquals(Map.of(LoggingService.KEY_REQUEST_ID, "req-1",
+                    LoggingService.KEY_USER_ID, "user-1",
+                    LoggingService.KEY_ORDER_ID, "order-1"), seen);
+        } finally {
+            worker.shutdown();
+        }
+    }
+
+    @Test
+    public void testCapturedContextIsASnapshot() {
+        LoggingService.initRequest("req-1");
+        Map<String, String> captured = LoggingService.captureContext();
+        LoggingService.setOrderId("order-2");
+
+        assertNull(captured.get(LoggingService.KEY_ORDER_ID));
+        assertEquals("req-1", LoggingService.withContext(captured,
+                () -> ThreadContext.get(LoggingService.KEY_REQUEST_ID)));
+        assertEquals("order-2", ThreadContext.get(LoggingService.KEY_ORDER_ID));
+    }
+}
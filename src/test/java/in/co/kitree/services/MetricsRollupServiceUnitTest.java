@@ -0,0 +1,91 @@
+package in.co.kitree.services;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Transaction;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for MetricsRollupService helpers (Firestore mocked where a transaction is needed).
+ */
+public class MetricsRollupServiceUnitTest {
+
+    @Test
+    public void testDayKeyUsesIndianDate() {
+        // 2025-03-31T20:00:00Z is already 1 April in IST
+        Timestamp lateUtc = Timestamp.ofTimeSecondsAndNanos(1743451200L, 0);
+        assertEquals("2025-04-01", MetricsRollupService.dayKey(lateUtc));
+        // 2025-03-31T18:00:00Z is still 31 March in IST
+        assertEquals("2025-03-31", MetricsRollupService.dayKey(1743444000000L));
+    }
+
+    @Test
+    public void testFieldPrefixForReportedTypesOnly() {
+        assertEquals("onDemand", MetricsRollupService.fieldPrefix("ON_DEMAND_CONSULTATION"));
+        assertEquals("scheduled", MetricsRollupService.fieldPrefix("CONSULTATION"));
+        assertEquals("product", MetricsRollupService.fieldPrefix("PRODUCT"));
+        assertNull(MetricsRollupService.fieldPrefix("WEBINAR"));
+        assertNull(MetricsRollupService.fieldPrefix(null));
+    }
+
+    @Test
+    public void testOrderEarningsFallsBackAcrossSpellings() {
+        assertEquals(80.0, MetricsRollupService.orderEarnings(Map.of("expert_earnings", 80.0, "amount", 100.0)));
+        assertEquals(85.0, MetricsRollupService.orderEarnings(Map.of("expertEarnings", 85L, "amount", 100.0)));
+        assertEquals(100.0, MetricsRollupService.orderEarnings(Map.of("amount", 100.0)));
+        assertNull(MetricsRollupService.orderEarnings(Map.of()));
+    }
+
+    @Test
+    public void testTotalsSumRollupDocuments() {
+        Map<String, Object> day1 = new HashMap<>();
+        day1.put("onDemandCount", 2L);
+        day1.put("onDemandEarnings", 150.5);
+        day1.put("productCount", 1L);
+        day1.put("productEarnings", 400.0);
+        Map<String, Object> day2 = new HashMap<>();
+        day2.put("onDemandCount", 1L);
+        day2.put("onDemandEarnings", 49.5);
+        day2.put("scheduledCount", 3L);
+        day2.put("scheduledEarnings", 1500L);
+
+        MetricsRollupService.Totals totals = new MetricsRollupService.Totals();
+        totals.add(day1);
+        totals.add(day2);
+        totals.add(null);
+
+        assertEquals(3, totals.onDemandCount);
+        assertEquals(200.0, totals.onDemandEarnings, 1e-9);
+        assertEquals(3, totals.scheduledCount);
+        assertEquals(1500.0, totals.scheduledEarnings, 1e-9);
+        assertEquals(1, totals.productCount);
+        assertEquals(400.0, totals.productEarnings, 1e-9);
+    }
+
+    @Test
+    public void testCachedMetricsKeptUntilCommit() {
+        ExpertMetricsCache.put("rollup-expert-1", "range", "{\"cached\":true}");
+        MetricsRollupService service = new MetricsRollupService(mock(Firestore.class, RETURNS_DEEP_STUBS));
+
+        service.recordOrderInTransaction(mock(Transaction.class), Map.of(
+                "expert_id", "rollup-expert-1", "type", "PRODUCT", "expert_earnings", 80.0));
+        assertNotNull(ExpertMetricsCache.get("rollup-expert-1", "range"));
+
+        MetricsRollupService.afterCommit("rollup-expert-1");
+        assertNull(ExpertMetricsCache.get("rollup-expert-1", "range"));
+    }
+
+    @Test
+    public void testOrderExpertIdSpellings() {
+        assertEquals("e1", MetricsRollupService.orderExpertId(Map.of("expert_id", "e1")));
+        assertEquals("e2", MetricsRollupService.orderExpertId(Map.of("expertId", "e2")));
+        assertNull(MetricsRollupService.orderExpertId(Map.of("expertId", "")));
+        assertNull(MetricsRollupService.orderExpertId(null));
+    }
+}
@@ -0,0 +1,115 @@
+package in.co.kitree.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for Mp4AudioExtractor against a hand-built MP4 (video track, then an AAC-LC
+ * 44.1kHz mono track whose samples are interleaved with video bytes; moov after mdat).
+ */
+public class Mp4AudioExtractorUnitTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testExtractsAudioSamplesAsAdts() throws Exception {
+        Path mp4 = tempDir.resolve("call.mp4");
+        Files.write(mp4, buildMp4());
+
+        Path aac = Mp4AudioExtractor.extractAac(mp4, tempDir.resolve("call.aac"));
+
+        assertNotNull(aac);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        for (byte[] sample : new byte[][] {{1, 2, 3}, {4, 5, 6, 7, 8}, {9, 9}}) {
+            expected.write(Mp4AudioExtractor.adtsHeader(2, 4, 1, sample.length));
+            expected.write(sample);
+        }
+        assertArrayEquals(expected.toByteArray(), Files.readAllBytes(aac));
+    }
+
+    @Test
+    public void testAdtsHeaderEncodesProfileRateChannelsAndLength() {
+        byte[] header = Mp4AudioExtractor.adtsHeader(2, 4, 1, 100);
+
+        assertEquals(7, header.length);
+        assertEquals(0xFFF, ((header[0] & 0xFF) << 4) | ((header[1] & 0xF0) >> 4));
+        assertEquals(1, (header[2] & 0xC0) >> 6);   // AAC LC
+        assertEquals(4, (header[2] & 0x3C) >> 2);   // 44.1kHz
+        assertEquals(1, ((header[2] & 0x1) << 2) | ((header[3] & 0xC0) >> 6));
+        int frameLength = ((header[3] & 0x3) << 11) | ((header[4] & 0xFF) << 3) | ((header[5] & 0xE0) >> 5);
+        assertEquals(107, frameLength);
+    }
+
+    @Test
+    public void testFileWithoutMoovIsSkipped() throws Exception {
+        Path notMp4 = tempDir.resolve("audio.mp4");
+        Files.write(notMp4, box("ftyp", "M4A ".getBytes(StandardCharsets.US_ASCII)));
+
+        assertNull(Mp4AudioExtractor.extractAac(notMp4, tempDir.resolve("out.aac")));
+    }
+
+    private static byte[] buildMp4() throws Exception {
+        byte[] ftyp = box("ftyp", concat("isom".getBytes(StandardCharsets.US_ASCII), new byte[4],
+                "isom".getBytes(StandardCharsets.US_ASCII)));
+        // audio chunk 1 (2 samples) | 10 bytes of video | audio chunk 2 (1 sample)
+        byte[] mdatBody = concat(new byte[] {1, 2, 3, 4, 5, 6, 7, 8}, new byte[10], new byte[] {9, 9});
+        byte[] mdat = box("mdat", mdatBody);
+        int dataStart = ftyp.length + 8;
+
+        byte[] videoTrak = box("trak", box("mdia", hdlr("vide")));
+
+        byte[] esds = box("esds", concat(new byte[4], descriptor(0x03, concat(new byte[] {0, 1, 0},
+                descriptor(0x04, concat(new byte[] {0x40, 0x15}, new byte[11],
+                        descriptor(0x05, new byte[] {0x12, 0x08})))))));
+        byte[] mp4a = box("mp4a", concat(new byte[] {0, 0, 0, 0, 0, 0, 0, 1}, new byte[20], esds));
+        byte[] stsd = box("stsd", concat(ints(0, 1), mp4a));
+        byte[] stsz = box("stsz", ints(0, 0, 3, 3, 5, 2));
+        byte[] stsc = box("stsc", ints(0, 2, 1, 2, 1, 2, 1, 1));
+        byte[] stco = box("stco", ints(0, 2, dataStart, dataStart + 18));
+        byte[] stbl = box("stbl", concat(stsd, stsz, stsc, stco));
+        byte[] audioTrak = box("trak", box("mdia", concat(hdlr("soun"), box("minf", stbl))));
+
+        return concat(ftyp, mdat, box("moov", concat(videoTrak, audioTrak)));
+    }
+
+    private static byte[] hdlr(String handlerType) {
+        return box("hdlr", concat(new byte[8], handlerType.getBytes(StandardCharsets.US_ASCII), new byte[13]));
+    }
+
+    private static byte[] descriptor(int tag, byte[] payload) {
+        return concat(new byte[] {(byte) tag, (byte) payload.length}, payload);
+    }
+
+    private static byte[] box(String type, byte[] body) {
+        return ByteBuffer.allocate(8 + body.length)
+                .putInt(8 + body.length)
+                .put(type.getBytes(StandardCharsets.US_ASCII))
+                .put(body)
+                .array();
+    }
+
+    private static byte[] ints(int... values) {
+        ByteBuffer buffer = ByteBuffer.allocate(4 * values.length);
+        for (int value : values) {
+            buffer.putInt(value);
+        }
+        return buffer.array();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,85 @@
+package in.co.kitree.services;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Transaction;
+import in.co.kitree.pojos.PlatformProduct;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the ProductCatalogService in-memory snapshot (Firestore reads stubbed).
+ */
+public class ProductCatalogServiceUnitTest {
+
+    @Test
+    public void testReadsAreServedFromOneLoad() throws Exception {
+        ProductCatalogService catalog = spy(new ProductCatalogService(null, new ProductCatalogService.CatalogCache()));
+        PlatformProduct bracelet = CatalogIndexProductMatchingServiceUnitTest.product(
+                "p1", "Amethyst Bracelet", "bracelet", List.of("amethyst"), List.of("saturn"), 1);
+        bracelet.setCategory("crystals");
+        bracelet.setTags(List.of("amethyst", "calm"));
+        PlatformProduct ring = CatalogIndexProductMatchingServiceUnitTest.product(
+                "p2", "Blue Sapphire Ring", "ring", List.of("blue_sapphire"), List.of("saturn"), 2);
+        ring.setCategory("gemstones");
+        doReturn(List.of(ring, bracelet)).when(catalog).getProductsUpdatedSince(isNull());
+
+        assertEquals(List.of("p1", "p2"), catalog.getActiveProducts().stream().map(PlatformProduct::getProductId).toList());
+        assertEquals("p2", catalog.getProduct("p2").getProductId());
+        assertEquals(List.of(bracelet), catalog.getProductsByCategory("crystals"));
+        assertEquals(List.of(ring), catalog.getProductsByType("ring"));
+        assertEquals(List.of(bracelet), catalog.searchProductsByTag("Calm"));
+
+        verify(catalog, times(1)).getProductsUpdatedSince(any());
+    }
+
+    @Test
+    public void testRefreshMergesChangesPastWatermark() throws Exception {
+        ProductCatalogService.CatalogCache cache = new ProductCatalogService.CatalogCache();
+        ProductCatalogService catalog = spy(new ProductCatalogService(null, cache));
+        PlatformProduct bracelet = CatalogIndexProductMatchingServiceUnitTest.product(
+                "p1", "Rose Quartz Bracelet", "bracelet", List.of("rose_quartz"), List.of("venus"), 10);
+        doReturn(List.of(bracelet)).when(catalog).getProductsUpdatedSince(isNull());
+        PlatformProduct deactivated = CatalogIndexProductMatchingServiceUnitTest.product(
+                "p1", "Rose Quartz Bracelet", "bracelet", List.of("rose_quartz"), List.of("venus"), 20);
+        deactivated.setActive(false);
+        PlatformProduct pendant = CatalogIndexProductMatchingServiceUnitTest.product(
+                "p2", "Rose Quartz Pendant", "pendant", List.of("rose_quartz"), List.of("venus"), 21);
+        doReturn(List.of(deactivated, pendant)).when(catalog).getProductsUpdatedSince(Timestamp.ofTimeSecondsAndNanos(10, 0));
+
+        long firstVersion = catalog.snapshot().version;
+        cache.expire();
+        ProductCatalogService.CatalogSnapshot refreshed = catalog.snapshot();
+
+        assertTrue(refreshed.version > firstVersion);
+        assertEquals(List.of(pendant), refreshed.active);
+        // Inactive products stay addressable by id for order history and configs
+        assertFalse(catalog.getProduct("p1").isActive());
+    }
+
+    @Test
+    public void testStockDecrementAdvancesUpdatedAt() {
+        Firestore db = mock(Firestore.class);
+        CollectionReference products = mock(CollectionReference.class);
+        DocumentReference productRef = mock(DocumentReference.class);
+        Transaction tx = mock(Transaction.class);
+        when(db.collection("platform_products")).thenReturn(products);
+        when(products.document("p1")).thenReturn(productRef);
+
+        new ProductCatalogService(db, new ProductCatalogService.CatalogCache()).decrementPlatformStock(tx, "p1", 2);
+
+        // Without updatedAt the watermark refresh would never see the new quantity
+        verify(tx).update(eq(productRef), eq("platformStockQuantity"), any(),
+                eq("updatedAt"), eq(FieldValue.serverTimestamp()));
+    }
+}
@@ -0,0 +1,38 @@
+package in.co.kitree.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the content addressing of rashifal audio.
+ */
+public class RashifalServiceUnitTest {
+
+    @Test
+    public void testSameChartValuesShareAudio() {
+        String first = RashifalService.buildHindiRashifalText(5, 8, 1, 2, 3);
+        String second = RashifalService.buildHindiRashifalText(5, 8, 1, 2, 3);
+
+        assertEquals(first, second);
+        assertEquals(RashifalService.audioCacheKey(first), RashifalService.audioCacheKey(second));
+    }
+
+    @Test
+    public void testFavorableTaraBalasRenderSameText() {
+        // Only the favorable/challenging class of tara bala is spoken
+        assertEquals(RashifalService.buildHindiRashifalText(5, 8, 1, 2, 3),
+                RashifalService.buildHindiRashifalText(5, 8, 1, 4, 3));
+        assertNotEquals(RashifalService.buildHindiRashifalText(5, 8, 1, 2, 3),
+                RashifalService.buildHindiRashifalText(5, 8, 1, 3, 3));
+    }
+
+    @Test
+    public void testDifferentTextGetsDifferentKey() {
+        String key = RashifalService.audioCacheKey(RashifalService.buildHindiRashifalText(5, 8, 1, 2, 3));
+        String otherKey = RashifalService.audioCacheKey(RashifalService.buildHindiRashifalText(6, 8, 1, 2, 3));
+
+        assertNotEquals(key, otherKey);
+        assertTrue(key.matches("[0-9a-f]{64}"));
+    }
+}
@@ -0,0 +1,111 @@
+package in.co.kitree.services;
+
+import com.google.firestore.v1.CommitRequest;
+import com.google.firestore.v1.RunQueryRequest;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RequestMetrics counting and the EMF record it emits.
+ */
+public class RequestMetricsUnitTest {
+
+    @Test
+    public void testEmfRecordCarriesRouteFirestoreAndDependencyMetrics() {
+        RequestMetrics metrics = RequestMetrics.begin(true, "test");
+        RequestMetrics.setRoute("getWalletBalance");
+        RequestMetrics.onFirestoreCall(InstrumentedFirestoreRpc.Op.LOOKUP, null, 2, 1_000_000, null);
+        RequestMetrics.onFirestoreCall(InstrumentedFirestoreRpc.Op.QUERY, RunQueryRequest.getDefaultInstance(), 5, 1_000_000, null);
+        RequestMetrics.onFirestoreCall(InstrumentedFirestoreRpc.Op.COMMIT, CommitRequest.getDefaultInstance(), 3, 1_000_000, null);
+        RequestMetrics.recordExternal(RequestMetrics.DEPENDENCY_STREAM, 12_500_000);
+        RequestMetrics.recordExternal(RequestMetrics.DEPENDENCY_STREAM, 7_000_000);
+
+        JsonObject emf = JsonParser.parseString(metrics.toEmf(1_700_000_000_000L, 42.123)).getAsJsonObject();
+
+        JsonObject directive = emf.getAsJsonObject("_aws").getAsJsonArray("CloudWatchMetrics").get(0).getAsJsonObject();
+        assertEquals(RequestMetrics.NAMESPACE, directive.get("Namespace").getAsString());
+        assertEquals("[[\"Environment\",\"Route\"]]", directive.get("Dimensions").toString());
+        assertEquals("test", emf.get("Environment").getAsString());
+        assertEquals("getWalletBalance", emf.get("Route").getAsString());
+        assertEquals(42.12, emf.get("Latency").getAsDouble());
+        assertEquals(1, emf.get("ColdStart").getAsInt());
+        assertEquals(7, emf.get("FirestoreReads").getAsInt());
+        assertEquals(3, emf.get("FirestoreWrites").getAsInt());
+        assertEquals(1, emf.get("FirestoreQueries").getAsInt());
+        assertEquals(2, emf.get("StreamCalls").getAsInt());
+        JsonArray streamLatency = emf.getAsJsonArray("StreamLatency");
+        assertEquals(12.5, streamLatency.get(0).getAsDouble());
+        assertEquals(7.0, streamLatency.get(1).getAsDouble());
+        assertFalse(emf.has("GeminiCalls"));
+    }
+
+    @Test
+    public void testBeginStartsFreshRecordAndDefaultsRoute() {
+        RequestMetrics.begin(false, "prod");
+        RequestMetrics.onFirestoreCall(InstrumentedFirestoreRpc.Op.COMMIT, null, 4, 0, null);
+
+        RequestMetrics metrics = RequestMetrics.begin(false, "prod");
+        RequestMetrics.setRoute(null);
+        JsonObject emf = JsonParser.parseString(metrics.toEmf(0, 1)).getAsJsonObject();
+
+        assertSame(metrics, RequestMetrics.current());
+        assertEquals("other", emf.get("Route").getAsString());
+        assertEquals(0, emf.get("FirestoreWrites").getAsInt());
+        assertEquals(0, emf.get("ColdStart").getAsInt());
+    }
+
+    @Test
+    public void testTimeExternalRecordsFailedCalls() {
+        RequestMetrics metrics = RequestMetrics.begin(false, "test");
+
+        assertThrows(IOException.class, () -> RequestMetrics.timeExternal(RequestMetrics.DEPENDENCY_RAZORPAY, () -> {
+            throw new IOException("timeout");
+        }));
+        assertEquals("ok", RequestMetrics.timeExternal(RequestMetrics.DEPENDENCY_RAZORPAY, () -> "ok"));
+
+        JsonObject emf = JsonParser.parseString(metrics.toEmf(0, 1)).getAsJsonObject();
+        assertEquals(2, emf.get("RazorpayCalls").getAsInt());
+    }
+
+    @Test
+    public void testLatencySamplesAreCappedButCallsAreNot() {
+        RequestMetrics metrics = RequestMetrics.begin(false, "test");
+        for (int i = 0; i < 150; i++) {
+            RequestMetrics.recordExternal(RequestMetrics.DEPENDENCY_GEMINI, 1_000_000);
+        }
+
+        JsonObject emf = JsonParser.parseString(metrics.toEmf(0, 1)).getAsJsonObject();
+        assertEquals(100, emf.getAsJsonArray("GeminiLatency").size());
+        assertEquals(150, emf.get("GeminiCalls").getAsInt());
+    }
+
+    @Test
+    public void testFirestoreListenerCountsIntoIssuingThreadsInvocation() throws Exception {
+        InstrumentedFirestoreRpc.Listener listener = RequestMetrics.firestoreListener();
+        RequestMetrics mine = RequestMetrics.begin(false, "test");
+        InstrumentedFirestoreRpc.Listener bound = listener.bind();
+
+        // Another thread begins its own invocation before this RPC completes
+        RequestMetrics[] other = new RequestMetrics[1];
+        Thread thread = new Thread(() -> {
+            other[0] = RequestMetrics.begin(false, "test");
+            listener.bind().onCall(InstrumentedFirestoreRpc.Op.COMMIT, null, 1, 0, null);
+        });
+        thread.start();
+        thread.join();
+        bound.onCall(InstrumentedFirestoreRpc.Op.QUERY, null, 4, 0, null);
+
+        assertSame(mine, RequestMetrics.current());
+        assertEquals(4, mine.getFirestoreReads());
+        assertEquals(1, mine.getFirestoreQueries());
+        assertEquals(0, mine.getFirestoreWrites());
+        assertEquals(1, other[0].getFirestoreWrites());
+        assertEquals(0, other[0].getFirestoreReads());
+    }
+}
@@ -0,0 +1,60 @@
+package in.co.kitree.services;
+
+import io.sentry.SpanStatus;
+import io.sentry.protocol.SentryTransaction;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for SentryTracing sampling and flush decisions.
+ */
+public class SentryTracingUnitTest {
+
+    @Test
+    public void testFailedTransactionsAreAlwaysKept() {
+        assertTrue(SentryTracing.keep(transaction(SpanStatus.INTERNAL_ERROR, null, SentryTracing.SAMPLING_POLL), 0, 0, 0.99));
+        assertTrue(SentryTracing.keep(transaction(null, "503", null), 0, 0, 0.99));
+    }
+
+    @Test
+    public void testPollsUseTheirOwnRate() {
+        SentryTransaction poll = transaction(SpanStatus.OK, "200", SentryTracing.SAMPLING_POLL);
+        SentryTransaction request = transaction(SpanStatus.OK, "200", null);
+
+        assertTrue(SentryTracing.keep(poll, 1.0, 0.05, 0.04));
+        assertFalse(SentryTracing.keep(poll, 1.0, 0.05, 0.06));
+        assertTrue(SentryTracing.keep(request, 1.0, 0.05, 0.99));
+        assertFalse(SentryTracing.keep(transaction(null, "404", null), 0.5, 0.05, 0.7));
+    }
+
+    @Test
+    public void testPeriodicFlushOnlyWithPendingEvents() {
+        int every = SentryTracing.FLUSH_EVERY_INVOCATIONS;
+
+        assertFalse(SentryTracing.flushDue(3, every - 1));
+        assertTrue(SentryTracing.flushDue(3, every));
+        assertTrue(SentryTracing.flushDue(1, every + 5));
+        assertFalse(SentryTracing.flushDue(0, every + 5));
+    }
+
+    @Test
+    public void testPollPaths() {
+        assertTrue(SentryTracing.isPollPath("/health"));
+        assertTrue(SentryTracing.isPollPath("/api/v1/consultations/order-1/heartbeat"));
+        assertTrue(SentryTracing.isPollPath("/api/v1/consultations/order-1/summary"));
+        assertTrue(SentryTracing.isPollPath("/api/v1/wallet/balance"));
+        assertFalse(SentryTracing.isPollPath("/api/v1/consultations/order-1/summary/generate"));
+        assertFalse(SentryTracing.isPollPath("/api/v1/consultations/initiate"));
+        assertFalse(SentryTracing.isPollPath(null));
+    }
+
+    private static SentryTransaction transaction(SpanStatus status, String httpStatus, String sampling) {
+        SentryTransaction transaction = mock(SentryTransaction.class);
+        when(transaction.getStatus()).thenReturn(status);
+        when(transaction.getTag(SentryTracing.TAG_HTTP_STATUS)).thenReturn(httpStatus);
+        when(transaction.getTag(SentryTracing.TAG_SAMPLING)).thenReturn(sampling);
+        return transaction;
+    }
+}
@@ -0,0 +1,100 @@
+package in.co.kitree.services;
+
+import com.google.cloud.Timestamp;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SessionService helpers that don't touch Firestore.
+ */
+public class SessionServiceUnitTest {
+
+    @Test
+    public void testCursorRoundTripWithOrderValue() {
+        Timestamp raisedAt = Timestamp.ofTimeSecondsAndNanos(1760000000L, 123456000);
+        String encoded = new SessionService.PageCursor(raisedAt, "users/u1/orders/o1").encode();
+
+        SessionService.PageCursor decoded = SessionService.PageCursor.decode(encoded);
+
+        assertNotNull(decoded);
+        assertEquals(raisedAt, decoded.orderValue);
+        assertEquals("users/u1/orders/o1", decoded.path);
+    }
+
+    @Test
+    public void testCursorRoundTripDocumentOrder() {
+        String encoded = new SessionService.PageCursor(null, "users/u2/orders/o2").encode();
+
+        SessionService.PageCursor decoded = SessionService.PageCursor.decode(encoded);
+
+        assertNotNull(decoded);
+        assertNull(decoded.orderValue);
+        assertEquals("users/u2/orders/o2", decoded.path);
+    }
+
+    @Test
+    public void testEmptyCursorMeansFirstPage() {
+        assertNull(SessionService.PageCursor.decode(null));
+        assertNull(SessionService.PageCursor.decode(""));
+    }
+
+    @Test
+    public void testMalformedCursorRejected() {
+        assertThrows(IllegalArgumentException.class, () -> SessionService.PageCursor.decode("not base64!"));
+        assertThrows(IllegalArgumentException.class, () -> SessionService.PageCursor.decode("bm9zZXBhcmF0b3I"));
+    }
+
+    @Test
+    public void testPageSizeClamped() {
+        assertEquals(SessionService.DEFAULT_PAGE_SIZE, SessionService.clampPageSize(null));
+        assertEquals(SessionService.DEFAULT_PAGE_SIZE, SessionService.clampPageSize(0));
+        assertEquals(25, SessionService.clampPageSize(25));
+        assertEquals(SessionService.MAX_PAGE_SIZE, SessionService.clampPageSize(10_000));
+    }
+
+    @Test
+    public void testRankGiftersOrdersByAmountAndLimits() {
+        Map<String, Object> gifters = new HashMap<>();
+        gifters.put("u1", Map.of("amount", 51.0, "count", 1L, "name", "Asha"));
+        gifters.put("u2", Map.of("amount", 1100L, "count", 1L, "name", "Ravi"));
+        gifters.put("u3", Map.of("amount", 112.0, "count", 3L));
+
+        List<Map<String, Object>> top = SessionService.rankGifters(gifters, 2);
+
+        assertEquals(2, top.size());
+        assertEquals("u2", top.get(0).get("userId"));
+        assertEquals(1100.0, top.get(0).get("amount"));
+        assertEquals("u3", top.get(1).get("userId"));
+        assertEquals(3L, top.get(1).get("giftCount"));
+        assertNull(top.get(1).get("userName"));
+    }
+
+    @Test
+    public void testRankGiftersHandlesMissingLeaderboard() {
+        assertTrue(SessionService.rankGifters(null, 10).isEmpty());
+    }
+
+    @Test
+    public void testGiftTotalKeepsPlanTotalFromBeforeSharding() {
+        // 500 was counted on the plan doc before the deploy; 120 has since gone to the shards
+        assertEquals(620.0, SessionService.giftTotal(500.0, null, 120.0), 1e-9);
+        assertEquals(120.0, SessionService.unsettledGifts(null, 120.0), 1e-9);
+
+        // After settling, the plan holds 620 with 120 absorbed; only newer shard gifts are added
+        assertEquals(620.0, SessionService.giftTotal(620.0, 120.0, 120.0), 1e-9);
+        assertEquals(670.0, SessionService.giftTotal(620.0, 120.0, 170.0), 1e-9);
+        assertEquals(50.0, SessionService.unsettledGifts(120.0, 170.0), 1e-9);
+    }
+
+    @Test
+    public void testStaleShardSumSettlesNothing() {
+        assertEquals(0.0, SessionService.unsettledGifts(170.0, 120.0));
+        assertEquals(0.0, SessionService.unsettledGifts(170.0, 170.0 + 1e-12));
+        assertEquals(620.0, SessionService.giftTotal(620.0, 170.0, 120.0), 1e-9);
+    }
+}
@@ -0,0 +1,76 @@
+package in.co.kitree.services;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for StreamService token caching and signing (no Stream API calls).
+ */
+public class StreamServiceUnitTest {
+
+    private static final String SECRET = "unit-test-secret-unit-test-secret";
+
+    @Test
+    public void testServerTokenReusedUntilRefreshWindow() {
+        StreamService service = new StreamService(true, "key", SECRET);
+        long now = 1_700_000_000L;
+
+        String token = service.serverAuthToken(now);
+        assertEquals(token, service.serverAuthToken(now + 1));
+        assertEquals(token, service.serverAuthToken(now + 3600 - 300 - 1));
+
+        String rotated = service.serverAuthToken(now + 3600 - 300);
+        assertNotEquals(token, rotated);
+        String payload = new String(Base64.getUrlDecoder().decode(rotated.split("\\.")[1]), StandardCharsets.UTF_8);
+        assertEquals("{\"user_id\":\"server\",\"iat\":" + (now + 3300) + ",\"exp\":" + (now + 6900) + "}", payload);
+        assertEquals(rotated, service.serverAuthToken(now + 3301));
+    }
+
+    @Test
+    public void testServerTokenSignedWithApiSecret() throws Exception {
+        String token = new StreamService(true, "key", SECRET).serverAuthToken(1_700_000_000L);
+        String[] parts = token.split("\\.");
+        assertEquals(Base64.getUrlEncoder().withoutPadding().encodeToString(hmac((parts[0] + "." + parts[1]).getBytes(StandardCharsets.UTF_8))), parts[2]);
+    }
+
+    @Test
+    public void testWebhookSignatureVerifiedRepeatedly() throws Exception {
+        StreamService service = new StreamService(true, "key", SECRET);
+        String body = "{\"type\":\"call.session_ended\"}";
+        byte[] signature = hmac(body.getBytes(StandardCharsets.UTF_8));
+
+        // The per-thread Mac must come back reset after every use
+        for (int i = 0; i < 3; i++) {
+            assertTrue(service.verifyWebhookSignature(body, HexFormat.of().formatHex(signature)));
+            assertTrue(service.verifyWebhookSignature(body, "sha256=" + HexFormat.of().formatHex(signature)));
+            assertTrue(service.verifyWebhookSignature(body, Base64.getEncoder().encodeToString(signature)));
+            assertFalse(service.verifyWebhookSignature(body + " ", HexFormat.of().formatHex(signature)));
+        }
+    }
+
+    @Test
+    public void testAsyncCallsCompleteWithFallbackWhenNotConfigured() {
+        StreamService service = new StreamService(true, "", "");
+
+        assertFalse(service.endCallAsync("default", "c1").join());
+        assertFalse(service.endCallAsync(null, "c1").join());
+        assertFalse(service.createCallAsync("default", "c1", "host").join());
+        assertFalse(service.grantPermissionsAsync("default", "c1", "u1", List.of("send-audio")).join());
+        assertNotNull(service.getCallDetailsAsync("default", "c1").join().getErrorMessage());
+        assertTrue(service.getCallRecordingsAsync("default", "c1").join().isEmpty());
+    }
+
+    private static byte[] hmac(byte[] message) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return mac.doFinal(message);
+    }
+}
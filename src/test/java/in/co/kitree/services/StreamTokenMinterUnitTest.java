@@ -0,0 +1,70 @@
+package in.co.kitree.services;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for StreamTokenMinter against a straightforward JWT encoding.
+ */
+public class StreamTokenMinterUnitTest {
+
+    private static final String SECRET = "unit-test-secret-unit-test-secret";
+    private static final long NOW = 1_700_000_000L;
+
+    @Test
+    public void testMatchesReferenceEncoding() throws Exception {
+        StreamTokenMinter minter = new StreamTokenMinter(() -> StreamService.newHmac(SECRET), false);
+
+        // Varying id lengths cover every base64 tail; the non-ASCII id takes the fallback path
+        String userId = "u";
+        for (int i = 0; i < 6; i++, userId += "x") {
+            assertEquals(reference(userId, "viewer", "livestream:s1", NOW), minter.mint(userId, "viewer", "livestream:s1", NOW));
+        }
+        assertEquals(reference("ユーザー", "host", "default:s1", NOW), minter.mint("ユーザー", "host", "default:s1", NOW));
+        String longId = "u".repeat(700);
+        assertEquals(reference(longId, "speaker", "default:s1", NOW), minter.mint(longId, "speaker", "default:s1", NOW));
+        assertEquals(reference("u1", "speaker", "default:s1", NOW), minter.mint("u1", "speaker", "default:s1", NOW));
+    }
+
+    @Test
+    public void testCachedPerUserRoleAndCallUntilRefresh() {
+        StreamTokenMinter minter = new StreamTokenMinter(() -> StreamService.newHmac(SECRET), true);
+
+        String token = minter.userToken("u1", "viewer", "livestream:s1", NOW);
+        assertEquals(token, minter.userToken("u1", "viewer", "livestream:s1", NOW + 60));
+        assertNotEquals(token, minter.userToken("u1", "speaker", "livestream:s1", NOW + 60));
+        assertNotEquals(token, minter.userToken("u2", "viewer", "livestream:s1", NOW + 60));
+        assertNotEquals(token, minter.userToken("u1", "viewer", "livestream:s2", NOW + 60));
+
+        long refreshAt = NOW + StreamTokenMinter.TOKEN_TTL_SECONDS - StreamTokenMinter.REFRESH_SECONDS;
+        assertEquals(token, minter.userToken("u1", "viewer", "livestream:s1", refreshAt - 1));
+        String refreshed = minter.userToken("u1", "viewer", "livestream:s1", refreshAt);
+        assertNotEquals(token, refreshed);
+        assertEquals(minter.mint("u1", "viewer", "livestream:s1", refreshAt), refreshed);
+    }
+
+    @Test
+    public void testUncachedMintsEveryTime() {
+        StreamTokenMinter minter = new StreamTokenMinter(() -> StreamService.newHmac(SECRET), false);
+        assertNotEquals(minter.userToken("u1", "viewer", "livestream:s1", NOW),
+                minter.userToken("u1", "viewer", "livestream:s1", NOW + 1));
+    }
+
+    private static String reference(String userId, String role, String callCid, long now) throws Exception {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String header = encoder.encodeToString("{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
+        String payload = encoder.encodeToString(("{\"user_id\":\"" + userId + "\",\"role\":\"" + role
+                + "\",\"call_cids\":[\"" + callCid + "\"],\"iat\":" + now + ",\"exp\":" + (now + 86400) + "}")
+                .getBytes(StandardCharsets.UTF_8));
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        String signature = encoder.encodeToString(mac.doFinal((header + "." + payload).getBytes(StandardCharsets.UTF_8)));
+        return header + "." + payload + "." + signature;
+    }
+}
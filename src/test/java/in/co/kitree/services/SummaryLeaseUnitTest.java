@@ -0,0 +1,47 @@
+package in.co.kitree.services;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentSnapshot;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for summary claim lease expiry.
+ */
+public class SummaryLeaseUnitTest {
+
+    private static final Timestamp NOW = Timestamp.ofTimeSecondsAndNanos(1_750_000_000L, 0);
+
+    @Test
+    public void testActiveLeaseIsHeld() {
+        DocumentSnapshot doc = order(NOW.getSeconds() + 60, NOW.getSeconds() - 30);
+        assertFalse(OnDemandConsultationService.isSummaryLeaseExpired(doc, NOW));
+    }
+
+    @Test
+    public void testLapsedLeaseCanBeReclaimed() {
+        DocumentSnapshot doc = order(NOW.getSeconds() - 1, NOW.getSeconds() - 30);
+        assertTrue(OnDemandConsultationService.isSummaryLeaseExpired(doc, NOW));
+    }
+
+    @Test
+    public void testClaimWithoutLeaseFallsBackToLastAttempt() {
+        long recent = NOW.getSeconds() - OnDemandConsultationService.SUMMARY_LEASE_SECONDS + 10;
+        long old = NOW.getSeconds() - OnDemandConsultationService.SUMMARY_LEASE_SECONDS;
+
+        assertFalse(OnDemandConsultationService.isSummaryLeaseExpired(order(null, recent), NOW));
+        assertTrue(OnDemandConsultationService.isSummaryLeaseExpired(order(null, old), NOW));
+        assertTrue(OnDemandConsultationService.isSummaryLeaseExpired(order(null, null), NOW));
+    }
+
+    private static DocumentSnapshot order(Long leaseExpiresAtSeconds, Long lastAttemptSeconds) {
+        DocumentSnapshot doc = mock(DocumentSnapshot.class);
+        when(doc.getTimestamp("summary_lease_expires_at")).thenReturn(
+                leaseExpiresAtSeconds != null ? Timestamp.ofTimeSecondsAndNanos(leaseExpiresAtSeconds, 0) : null);
+        when(doc.getTimestamp("summary_last_attempt")).thenReturn(
+                lastAttemptSeconds != null ? Timestamp.ofTimeSecondsAndNanos(lastAttemptSeconds, 0) : null);
+        return doc;
+    }
+}